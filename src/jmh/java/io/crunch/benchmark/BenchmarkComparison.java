@@ -0,0 +1,94 @@
+package io.crunch.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Compares two JMH result files in JSON format, for example the results of two commits.
+ * <p>
+ * The benchmarks are matched by their name and parameters. A benchmark is reported as a regression if its score got
+ * worse by more than the threshold, and the difference is larger than the sum of the score errors of the two runs;
+ * higher is better for the throughput mode, lower for the others. The process exits with 1 if there is any regression,
+ * so it can fail a build.
+ * </p>
+ * <pre>
+ * java io.crunch.benchmark.BenchmarkComparison baseline.json current.json [threshold percent, default 10]
+ * </pre>
+ */
+public final class BenchmarkComparison {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold percent]");
+            System.exit(2);
+        }
+        var baseline = read(Path.of(args[0]));
+        var current = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (var entry : current.entrySet()) {
+            var before = baseline.get(entry.getKey());
+            var after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s %s%n", entry.getKey(), "-", after.score(), "-", after.unit());
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score() * 100;
+            double worse = after.higherIsBetter() ? -change : change;
+            boolean significant = Math.abs(after.score() - before.score()) > before.error() + after.error();
+            boolean regression = worse > threshold && significant;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.score(), after.score(), change, after.unit(),
+                    regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d benchmarks compared, %d regressions over %.1f%%%n", current.size(), regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        var scores = new LinkedHashMap<String, Score>();
+        for (var result : MAPPER.readTree(file.toFile())) {
+            var metric = result.get("primaryMetric");
+            // The error is NaN if there were too few iterations to calculate it
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key(result), new Score(
+                    metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error,
+                    metric.get("scoreUnit").asText(),
+                    "thrpt".equals(result.get("mode").asText())));
+        }
+        return scores;
+    }
+
+    private static String key(JsonNode result) {
+        var name = result.get("benchmark").asText().replace("io.crunch.benchmark.", "");
+        var params = result.path("params");
+        if (params.isMissingNode() || params.isEmpty()) {
+            return name;
+        }
+        var sorted = new TreeMap<String, String>();
+        params.fields().forEachRemaining(field -> sorted.put(field.getKey(), field.getValue().asText()));
+        return name + sorted.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private record Score(double score, double error, String unit, boolean higherIsBetter) {
+    }
+}
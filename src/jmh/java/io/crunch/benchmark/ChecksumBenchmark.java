@@ -0,0 +1,50 @@
+package io.crunch.benchmark;
+
+import io.crunch.resource.ChecksumAlgorithm;
+import io.crunch.resource.MediaFileChecksumGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the checksum algorithms that can be used to verify the uploaded media files.
+ * <p>
+ * The content is read from memory, so the results show the cost of the hashing only, without any I/O.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ChecksumBenchmark {
+
+    @Param({"sha256", "sha256-tree", "crc32c"})
+    private String algorithm;
+
+    /** The size of the content in MB. */
+    @Param({"1", "16", "256"})
+    private int size;
+
+    private final MediaFileChecksumGenerator checksumGenerator = new MediaFileChecksumGenerator();
+
+    private ChecksumAlgorithm checksumAlgorithm;
+
+    private byte[] content;
+
+    @Setup
+    public void setup() {
+        checksumAlgorithm = ChecksumAlgorithm.of(algorithm);
+        content = new byte[size * 1024 * 1024];
+        new Random(42).nextBytes(content);
+    }
+
+    @Benchmark
+    public String checksum() throws IOException {
+        return checksumGenerator.checksum(new ByteArrayInputStream(content), checksumAlgorithm);
+    }
+}
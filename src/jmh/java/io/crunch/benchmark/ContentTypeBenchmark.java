@@ -0,0 +1,47 @@
+package io.crunch.benchmark;
+
+import io.crunch.resource.ContentTypeExtractor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the content type detection of the sample media files, from the prefix that is buffered during the upload.
+ * <p>
+ * The {@code text} sample has no known signature, so it shows the cost of the Apache Tika fallback.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentTypeBenchmark {
+
+    @Param({"sample-audio.mp3", "sample-video.mp4", "sample-image.jpg", "sample-image.png", "sample-pdf.pdf", "text"})
+    private String sample;
+
+    private final ContentTypeExtractor contentTypeExtractor = new ContentTypeExtractor();
+
+    private byte[] prefix;
+
+    @Setup
+    public void setup() throws IOException {
+        if ("text".equals(sample)) {
+            prefix = "The quick brown fox jumps over the lazy dog".repeat(100).getBytes();
+            return;
+        }
+        try (InputStream inputStream = Objects.requireNonNull(ContentTypeBenchmark.class.getResourceAsStream("/" + sample))) {
+            prefix = inputStream.readNBytes(ContentTypeExtractor.PREFIX_LENGTH);
+        }
+    }
+
+    @Benchmark
+    public String detect() {
+        return contentTypeExtractor.getContentType(prefix, prefix.length, sample);
+    }
+}
@@ -0,0 +1,48 @@
+package io.crunch.benchmark;
+
+import io.crunch.resource.MediaUrls;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation and the parsing of the public URLs of the media files.
+ * <p>
+ * Every upload generates a media id and its URL, and the removal of a media file parses the id back from the URL.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MediaUrlsBenchmark {
+
+    private final MediaUrls mediaUrls = new MediaUrls(8080);
+
+    private String mediaId;
+
+    private String url;
+
+    @Setup
+    public void setup() {
+        mediaId = mediaUrls.randomId();
+        url = mediaUrls.createUrl(mediaId);
+    }
+
+    @Benchmark
+    public String randomId() {
+        return mediaUrls.randomId();
+    }
+
+    @Benchmark
+    public String createUrl() {
+        return mediaUrls.createUrl(mediaId);
+    }
+
+    @Benchmark
+    public String getMediaId() {
+        return mediaUrls.getMediaId(url);
+    }
+}
@@ -0,0 +1,91 @@
+package io.crunch.benchmark;
+
+import io.crunch.store.BufferPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap allocation of the copy loops that write the media content to the viewer responses.
+ * <p>
+ * The {@code allocating} model copies like PrimeFaces does for a {@code StreamedContent} with a stream: it allocates a
+ * new 2 KB buffer for every response. The {@code pooled} model borrows a buffer from the {@link BufferPool} of the
+ * {@code MediaFileContentProvider}. One operation copies one media file, on many threads at the same time.
+ * </p>
+ * <p>
+ * The allocation rate is reported by the GC profiler:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=StreamingCopyBenchmark -Djmh.args="-prof gc"
+ * </pre>
+ * The {@code gc.alloc.rate.norm} metric is the number of bytes allocated by one copy.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class StreamingCopyBenchmark {
+
+    @Param({"allocating", "pooled"})
+    private String model;
+
+    /** The size of the media file in KB. */
+    @Param({"256", "4096"})
+    private int size;
+
+    private byte[] content;
+
+    private BufferPool bufferPool;
+
+    @Setup
+    public void setup() {
+        content = new byte[size * 1024];
+        bufferPool = new BufferPool(64 * 1024, 32 * 1024 * 1024);
+    }
+
+    /**
+     * The source and the target of one thread; the source is rewound before every copy, so they do not allocate.
+     */
+    @State(Scope.Thread)
+    public static class Source {
+
+        private ByteArrayInputStream inputStream;
+
+        private final OutputStream outputStream = OutputStream.nullOutputStream();
+
+        @Setup
+        public void setup(StreamingCopyBenchmark benchmark) {
+            inputStream = new ByteArrayInputStream(benchmark.content);
+        }
+    }
+
+    @Benchmark
+    public long copy(Source source) throws IOException {
+        var inputStream = source.inputStream;
+        inputStream.reset();
+        var outputStream = source.outputStream;
+        return switch (model) {
+            case "allocating" -> copyWithNewBuffer(inputStream, outputStream);
+            case "pooled" -> bufferPool.copy(inputStream, outputStream);
+            default -> throw new IllegalArgumentException("Unknown model: " + model);
+        };
+    }
+
+    private static long copyWithNewBuffer(InputStream inputStream, OutputStream outputStream) throws IOException {
+        var buffer = new byte[2048];
+        long copied = 0;
+        int n;
+        while ((n = inputStream.read(buffer)) >= 0) {
+            outputStream.write(buffer, 0, n);
+            copied += n;
+        }
+        return copied;
+    }
+}
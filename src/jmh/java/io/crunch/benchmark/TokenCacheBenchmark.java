@@ -0,0 +1,108 @@
+package io.crunch.benchmark;
+
+import io.crunch.viewer.TTLMediaRequestCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations of the {@link TTLMediaRequestCache} under contention.
+ * <p>
+ * The benchmarks are inherited by the nested classes, that run them with 1, 4, 16 and 64 threads sharing one cache,
+ * so the scalability of the cache can be read from the results of one run. The operations follow the use of the cache
+ * by the viewers: {@code put} is done by the {@code MediaViewerDispatcher}, {@code isValidToken} by the
+ * {@code MediaRequestFilter}, and {@code putAndGet} is a whole view, where the token is used once.
+ * </p>
+ * <p>
+ * The tokens are generated in advance, so the results do not include the generation of the UUIDs.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class TokenCacheBenchmark {
+
+    /** The number of tokens per thread; a power of two. */
+    private static final int TOKENS = 1024;
+
+    /**
+     * The cache shared by the threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Cache {
+
+        private final TTLMediaRequestCache requestCache = new TTLMediaRequestCache();
+
+        @TearDown
+        public void tearDown() {
+            requestCache.shutdown();
+        }
+    }
+
+    /**
+     * The tokens of a thread; the valid ones are kept in the cache, the others are put and removed by the benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class Tokens {
+
+        private final String[] valid = new String[TOKENS];
+
+        private final String[] used = new String[TOKENS];
+
+        private int next;
+
+        @Setup
+        public void setup(Cache cache) {
+            for (int i = 0; i < TOKENS; i++) {
+                valid[i] = UUID.randomUUID().toString();
+                used[i] = UUID.randomUUID().toString();
+                cache.requestCache.putMediaId(valid[i], valid[i]);
+            }
+        }
+
+        String nextValid() {
+            return valid[next++ & (TOKENS - 1)];
+        }
+
+        String nextUsed() {
+            return used[next++ & (TOKENS - 1)];
+        }
+    }
+
+    @Benchmark
+    public void put(Cache cache, Tokens tokens) {
+        var token = tokens.nextUsed();
+        cache.requestCache.putMediaId(token, token);
+    }
+
+    @Benchmark
+    public boolean isValidToken(Cache cache, Tokens tokens) {
+        return cache.requestCache.isValidToken(tokens.nextValid());
+    }
+
+    @Benchmark
+    public String putAndGet(Cache cache, Tokens tokens) {
+        var token = tokens.nextUsed();
+        cache.requestCache.putMediaId(token, token);
+        return cache.requestCache.getMediaId(token);
+    }
+
+    @Threads(1)
+    public static class Threads1 extends TokenCacheBenchmark {
+    }
+
+    @Threads(4)
+    public static class Threads4 extends TokenCacheBenchmark {
+    }
+
+    @Threads(16)
+    public static class Threads16 extends TokenCacheBenchmark {
+    }
+
+    @Threads(64)
+    public static class Threads64 extends TokenCacheBenchmark {
+    }
+}
@@ -0,0 +1,84 @@
+package io.crunch.benchmark;
+
+import io.crunch.viewer.TTLMediaRequestCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares how many concurrent viewer requests can be served by the worker pool and by virtual threads.
+ * <p>
+ * A simulated viewer request follows the path of the {@code MediaViewerDispatcher} and the viewer beans: it registers a
+ * token in the {@link TTLMediaRequestCache}, resolves it again, and then blocks for the configured latency, standing in
+ * for the media file query and the MinIO {@code statObject}/{@code getObject} calls. One operation serves a wave of
+ * {@code viewers} concurrent requests, so the score is the time to serve the whole wave.
+ * </p>
+ * <p>
+ * The {@code worker} model is a fixed pool sized like the default Quarkus worker pool ({@code max(200, 8 * cores)}),
+ * the {@code virtual} model starts a virtual thread for every request.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ViewerCapacityBenchmark {
+
+    @Param({"worker", "virtual"})
+    private String model;
+
+    @Param({"200", "1000", "5000"})
+    private int viewers;
+
+    /** The simulated latency of the blocking calls of a request in milliseconds. */
+    @Param({"20"})
+    private int latency;
+
+    private ExecutorService executor;
+
+    private TTLMediaRequestCache requestCache;
+
+    @Setup
+    public void setup() {
+        executor = switch (model) {
+            case "worker" -> Executors.newFixedThreadPool(Math.max(200, 8 * Runtime.getRuntime().availableProcessors()));
+            case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+            default -> throw new IllegalArgumentException("Unknown model: " + model);
+        };
+        requestCache = new TTLMediaRequestCache();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        requestCache.shutdown();
+    }
+
+    @Benchmark
+    public int serveViewers() throws Exception {
+        var requests = new Future<?>[viewers];
+        for (int i = 0; i < viewers; i++) {
+            requests[i] = executor.submit(this::serveViewer);
+        }
+        int served = 0;
+        for (var request : requests) {
+            request.get();
+            served++;
+        }
+        return served;
+    }
+
+    private void serveViewer() {
+        var token = UUID.randomUUID().toString();
+        requestCache.putMediaId(token, token);
+        requestCache.getMediaId(token);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(latency));
+    }
+}
@@ -0,0 +1,26 @@
+package io.crunch.benchmark;
+
+import io.crunch.viewer.ViewerUrls;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the selection of the viewer page by the content type, done by every {@code /media} request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewerUrlsBenchmark {
+
+    @Param({"image/jpeg", "image/png", "application/pdf", "audio/mpeg", "video/mp4"})
+    private String contentType;
+
+    @Benchmark
+    public String getViewerUrl() {
+        return ViewerUrls.getViewerUrl(contentType);
+    }
+}
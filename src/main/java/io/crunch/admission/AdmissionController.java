@@ -0,0 +1,265 @@
+package io.crunch.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Decides whether an inbound request is admitted, before any work is done for it.
+ * <p>
+ * Every client has two token buckets: one limits the rate of its requests, the other one the rate of the bytes it
+ * uploads or downloads. A client that exceeds its limits is rejected with {@code 429 Too Many Requests}, so a single bulk job cannot
+ * use up the disk, CPU and MinIO bandwidth of the server.
+ * </p>
+ * <p>
+ * The admitted requests of all clients share a global concurrency limit. When it is reached, a request waits in a bounded
+ * queue, but not longer than the configured queue timeout, the latency target of the admission. If the queue is full, or
+ * the timeout expires, the request is rejected with {@code 503 Service Unavailable}: a fast rejection is better for the
+ * client than a request that times out after it has consumed the resources of the server.
+ * </p>
+ * <p>
+ * The rejections carry the time after which the client may retry the request, see {@link AdmissionRejectedException}.
+ * The limits, the current load and the outcomes of the admissions are published as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class AdmissionController {
+
+    static final int TOO_MANY_REQUESTS = 429;
+
+    static final int SERVICE_UNAVAILABLE = 503;
+
+    private static final long IDLE_CLIENT_CLEANUP_INTERVAL_IN_SEC = 60;
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final boolean enabled;
+
+    private final Optional<String> clientHeader;
+
+    private final int requestBurst;
+
+    private final double requestRate;
+
+    private final long byteBurst;
+
+    private final double byteRate;
+
+    private final int maxConcurrent;
+
+    private final int maxQueued;
+
+    private final Duration queueTimeout;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** The buckets of the clients, the idle clients are removed periodically. */
+    private final ConcurrentMap<String, ClientLimits> clients = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("admission-cleaner").daemon().factory());
+
+    private final Counter admitted;
+
+    private final Counter rejectedByRequestRate;
+
+    private final Counter rejectedByByteRate;
+
+    private final Counter rejectedByOverload;
+
+    private final Timer queueWait;
+
+    public AdmissionController(MeterRegistry registry,
+                               @ConfigProperty(name = "media.admission.enabled", defaultValue = "true") boolean enabled,
+                               @ConfigProperty(name = "media.admission.client-header") Optional<String> clientHeader,
+                               @ConfigProperty(name = "media.admission.client.request-rate", defaultValue = "20") double requestRate,
+                               @ConfigProperty(name = "media.admission.client.request-burst", defaultValue = "40") int requestBurst,
+                               @ConfigProperty(name = "media.admission.client.byte-rate", defaultValue = "50M") MemorySize byteRate,
+                               @ConfigProperty(name = "media.admission.client.byte-burst", defaultValue = "600M") MemorySize byteBurst,
+                               @ConfigProperty(name = "media.admission.max-concurrent", defaultValue = "64") int maxConcurrent,
+                               @ConfigProperty(name = "media.admission.max-queued", defaultValue = "128") int maxQueued,
+                               @ConfigProperty(name = "media.admission.queue-timeout", defaultValue = "500ms") Duration queueTimeout) {
+        this.enabled = enabled;
+        this.clientHeader = clientHeader;
+        this.requestRate = requestRate;
+        this.requestBurst = requestBurst;
+        this.byteRate = byteRate.asLongValue();
+        this.byteBurst = byteBurst.asLongValue();
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        this.admitted = counter(registry, "admitted", "none");
+        this.rejectedByRequestRate = counter(registry, "rejected", "client-request-rate");
+        this.rejectedByByteRate = counter(registry, "rejected", "client-byte-rate");
+        this.rejectedByOverload = counter(registry, "rejected", "overload");
+        this.queueWait = Timer.builder("media.admission.queue.wait")
+                .description("The time the admitted and the timed out requests waited for a slot")
+                .register(registry);
+        Gauge.builder("media.admission.in.flight", permits, p -> maxConcurrent - p.availablePermits())
+                .description("The number of admitted requests in progress")
+                .register(registry);
+        Gauge.builder("media.admission.queued", queued, AtomicInteger::get)
+                .description("The number of requests waiting for a slot")
+                .register(registry);
+        Gauge.builder("media.admission.clients", clients, ConcurrentMap::size)
+                .description("The number of clients with active limits")
+                .register(registry);
+        limit(registry, "max-concurrent", maxConcurrent);
+        limit(registry, "max-queued", maxQueued);
+        limit(registry, "queue-timeout-ms", queueTimeout.toMillis());
+        limit(registry, "client-request-rate", requestRate);
+        limit(registry, "client-request-burst", requestBurst);
+        limit(registry, "client-byte-rate", this.byteRate);
+        limit(registry, "client-byte-burst", this.byteBurst);
+
+        scheduler.scheduleAtFixedRate(this::removeIdleClients, IDLE_CLIENT_CLEANUP_INTERVAL_IN_SEC, IDLE_CLIENT_CLEANUP_INTERVAL_IN_SEC, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Identifies the client of a request.
+     * <p>
+     * If a client header is configured, and the request has it, the first value of the header is used, for example the
+     * original client address in {@code X-Forwarded-For} behind a proxy; otherwise the remote address of the connection.
+     * </p>
+     *
+     * @param remoteAddress the remote address of the connection
+     * @param headers       looks up a header of the request, it returns {@code null} if the header is missing
+     * @return the identifier of the client
+     */
+    public String getClientId(String remoteAddress, UnaryOperator<String> headers) {
+        return clientHeader.map(headers)
+                .map(value -> value.split(",", 2)[0].trim())
+                .filter(value -> !value.isEmpty())
+                .orElse(remoteAddress);
+    }
+
+    /**
+     * Admits a request, or rejects it.
+     * <p>
+     * The call may block the caller for at most the queue timeout, while the request waits for a slot.
+     * </p>
+     *
+     * @param clientId the identifier of the client
+     * @param bytes    the size of the request body, 0 or negative if it is empty or unknown
+     * @return the ticket of the request, it must be closed when the request is finished
+     * @throws AdmissionRejectedException if the request is rejected
+     */
+    public AdmissionTicket admit(String clientId, long bytes) {
+        if (!enabled) {
+            return AdmissionTicket.UNLIMITED;
+        }
+        var client = getClient(clientId);
+        var wait = client.requests().tryAcquire(1);
+        if (wait > 0) {
+            throw reject(rejectedByRequestRate, "Request rate limit exceeded by " + clientId, TOO_MANY_REQUESTS, Duration.ofNanos(wait));
+        }
+        if (bytes > 0 && (wait = client.bytes().tryAcquire(bytes)) > 0) {
+            throw reject(rejectedByByteRate, "Upload rate limit exceeded by " + clientId, TOO_MANY_REQUESTS, Duration.ofNanos(wait));
+        }
+        if (!permits.tryAcquire() && !awaitPermit()) {
+            throw reject(rejectedByOverload, "Server is overloaded", SERVICE_UNAVAILABLE, queueTimeout);
+        }
+        admitted.increment();
+        return new AdmissionTicket(permits);
+    }
+
+    /**
+     * Charges the byte bucket of a client for the body of a response.
+     * <p>
+     * The size of a response is known only after its request is admitted, for example the size of the media file streamed
+     * to a viewer. The charge is taken before the body is sent, so a rejected client gets no content.
+     * </p>
+     *
+     * @param clientId the identifier of the client
+     * @param bytes    the size of the response body, 0 or negative if it is empty or unknown
+     * @throws AdmissionRejectedException if the client exceeds its byte rate
+     */
+    public void charge(String clientId, long bytes) {
+        if (!enabled || bytes <= 0) {
+            return;
+        }
+        var wait = getClient(clientId).bytes().tryAcquire(bytes);
+        if (wait > 0) {
+            throw reject(rejectedByByteRate, "Download rate limit exceeded by " + clientId, TOO_MANY_REQUESTS, Duration.ofNanos(wait));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Waits in the queue for a free slot.
+     *
+     * @return {@code true} if a slot is acquired, {@code false} if the queue is full or the timeout expired
+     */
+    private boolean awaitPermit() {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        var start = System.nanoTime();
+        try {
+            return permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+            queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private ClientLimits getClient(String clientId) {
+        return clients.computeIfAbsent(clientId, id -> new ClientLimits(new TokenBucket(requestBurst, requestRate), new TokenBucket(byteBurst, byteRate)));
+    }
+
+    private AdmissionRejectedException reject(Counter counter, String message, int status, Duration retryAfter) {
+        counter.increment();
+        logger.warn("Request is rejected: {}", message);
+        return new AdmissionRejectedException(message, status, retryAfter);
+    }
+
+    /**
+     * Removes the clients whose buckets are full, they have not sent requests for a while.
+     */
+    private void removeIdleClients() {
+        clients.values().removeIf(client -> client.requests().isFull() && client.bytes().isFull());
+    }
+
+    private static Counter counter(MeterRegistry registry, String outcome, String reason) {
+        return Counter.builder("media.admission.requests")
+                .description("The number of admitted and rejected requests")
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static void limit(MeterRegistry registry, String name, double value) {
+        Gauge.builder("media.admission.limit", () -> value)
+                .description("The configured limits of the admission")
+                .tag("limit", name)
+                .register(registry);
+    }
+
+    private record ClientLimits(TokenBucket requests, TokenBucket bytes) {
+    }
+}
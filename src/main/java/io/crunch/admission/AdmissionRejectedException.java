@@ -0,0 +1,39 @@
+package io.crunch.admission;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is not admitted, because its client exceeded its limits, or the server is overloaded.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final int status;
+
+    private final Duration retryAfter;
+
+    /**
+     * Constructs a new <code>AdmissionRejectedException</code> exception.
+     *
+     * @param message    the detail message.
+     * @param status     the HTTP status of the rejection, 429 or 503.
+     * @param retryAfter the time after which the client may retry the request.
+     */
+    public AdmissionRejectedException(String message, int status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the value of the {@code Retry-After} header: the number of seconds, rounded up, at least 1.
+     *
+     * @return the number of seconds after which the client may retry the request
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
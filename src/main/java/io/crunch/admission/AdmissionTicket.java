@@ -0,0 +1,34 @@
+package io.crunch.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Represents an admitted request, that holds a slot of the global concurrency limit until it is closed.
+ * <p>
+ * Closing the ticket more than once has no effect.
+ * </p>
+ */
+public final class AdmissionTicket implements AutoCloseable {
+
+    /** The ticket of the requests that are not limited. */
+    static final AdmissionTicket UNLIMITED = new AdmissionTicket(null);
+
+    private final Semaphore permits;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    AdmissionTicket(Semaphore permits) {
+        this.permits = permits;
+    }
+
+    /**
+     * Releases the slot of the request.
+     */
+    @Override
+    public void close() {
+        if (permits != null && closed.compareAndSet(false, true)) {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.crunch.admission;
+
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+
+/**
+ * Applies the {@link AdmissionController} to the requests of the REST API.
+ * <p>
+ * The request filter runs on the thread of the endpoint - a virtual thread or a worker thread -, so waiting in the
+ * admission queue never blocks the event loop. The size of the request body is taken from its {@code Content-Length}
+ * header; the slot of the request is released by the response filter.
+ * </p>
+ */
+public class ApiAdmissionFilter {
+
+    private static final String TICKET_PROPERTY = AdmissionTicket.class.getName();
+
+    private final AdmissionController admissionController;
+
+    public ApiAdmissionFilter(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    /**
+     * Admits the request, or aborts it with the status and the {@code Retry-After} header of the rejection.
+     *
+     * @param requestContext the JAX-RS context of the request
+     * @param request        the HTTP request, used for the remote address of the client
+     * @return the response of the rejected request, or {@code null} if the request is admitted
+     */
+    @ServerRequestFilter
+    public Response admit(ContainerRequestContext requestContext, HttpServerRequest request) {
+        var remoteAddress = request.remoteAddress() != null ? request.remoteAddress().hostAddress() : "unknown";
+        var clientId = admissionController.getClientId(remoteAddress, requestContext::getHeaderString);
+        try {
+            requestContext.setProperty(TICKET_PROPERTY, admissionController.admit(clientId, requestContext.getLength()));
+            return null;
+        } catch (AdmissionRejectedException e) {
+            return Response.status(e.getStatus())
+                    .header(HttpHeaders.RETRY_AFTER, e.getRetryAfterSeconds())
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Releases the slot of the admitted request.
+     *
+     * @param requestContext the JAX-RS context of the request
+     */
+    @ServerResponseFilter
+    public void release(ContainerRequestContext requestContext) {
+        if (requestContext.getProperty(TICKET_PROPERTY) instanceof AdmissionTicket ticket) {
+            ticket.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.crunch.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket that limits the rate of an activity, while it allows bursts up to the capacity of the bucket.
+ * <p>
+ * The bucket is refilled continuously at the configured rate, and it never holds more tokens than its capacity.
+ * The refill is calculated lazily, when tokens are taken, so an idle bucket costs nothing.
+ * </p>
+ * <p>
+ * The class is thread-safe. It is guarded by a {@link ReentrantLock} instead of a monitor, so a virtual thread is not
+ * pinned to its carrier while it waits for the lock.
+ * </p>
+ */
+public final class TokenBucket {
+
+    private final long capacity;
+
+    private final double tokensPerNano;
+
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double tokens;
+
+    private long lastRefill;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity        the maximum number of tokens in the bucket, a.k.a. the size of the allowed burst
+     * @param tokensPerSecond the rate at which the bucket is refilled
+     */
+    public TokenBucket(long capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, double tokensPerSecond, LongSupplier nanoClock) {
+        if (capacity <= 0 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("The capacity and the rate of the bucket must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes the given number of tokens if they are available.
+     * <p>
+     * Requests larger than the capacity are limited to the capacity, so they can be granted by a full bucket.
+     * </p>
+     *
+     * @param permits the number of tokens to take
+     * @return 0 if the tokens are taken, otherwise the time in nanoseconds until enough tokens are available
+     */
+    public long tryAcquire(long permits) {
+        var required = Math.min(permits, capacity);
+        lock.lock();
+        try {
+            refill();
+            if (tokens >= required) {
+                tokens -= required;
+                return 0;
+            }
+            return (long) Math.ceil((required - tokens) / tokensPerNano);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the bucket is full, that is, the activity has been idle for long enough.
+     *
+     * @return {@code true} if no tokens are missing from the bucket
+     */
+    public boolean isFull() {
+        lock.lock();
+        try {
+            refill();
+            return tokens >= capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        var now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,50 @@
+package io.crunch.admission;
+
+import io.crunch.viewer.ViewerUrls;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.omnifaces.filter.HttpFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link AdmissionController} to the requests of the media viewer pages, before they reach the
+ * {@link io.crunch.viewer.MediaViewerDispatcher}, and to the requests of their content, before they reach the
+ * {@link io.crunch.viewer.MediaContentServlet}.
+ * <p>
+ * A rejected request gets the status and the {@code Retry-After} header of the rejection, without rendering any page.
+ * The size of the content is known only after the media file is resolved, so the servlet charges it to the byte rate
+ * of the client, see {@link AdmissionController#charge(String, long)}, while the content request holds its slot of the
+ * global concurrency limit until the last byte is sent.
+ * </p>
+ */
+@WebFilter(urlPatterns = {"/media", ViewerUrls.CONTENT_PATH})
+public class ViewerAdmissionFilter extends HttpFilter {
+
+    private final AdmissionController admissionController;
+
+    public ViewerAdmissionFilter(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public void doFilter(HttpServletRequest request, HttpServletResponse response, HttpSession session, FilterChain chain) throws IOException, ServletException {
+        var clientId = admissionController.getClientId(request.getRemoteAddr(), request::getHeader);
+        AdmissionTicket ticket;
+        try {
+            ticket = admissionController.admit(clientId, request.getContentLengthLong());
+        } catch (AdmissionRejectedException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(e.getStatus(), e.getMessage());
+            return;
+        }
+        try (ticket) {
+            chain.doFilter(request, response);
+        }
+    }
+}
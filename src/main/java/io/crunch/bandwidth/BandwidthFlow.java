@@ -0,0 +1,90 @@
+package io.crunch.bandwidth;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One media stream registered in the {@link BandwidthScheduler}.
+ * <p>
+ * The flow is paced at the rate allocated to it by the scheduler: after every chunk the reader is delayed until the
+ * chunk fits into the rate. The rate changes while the flow is active, as other streams start and finish. The first
+ * bytes of the flow, up to the initial burst, are not paced, so the first byte of every stream arrives without delay.
+ * </p>
+ * <p>
+ * A flow is read by one thread at a time.
+ * </p>
+ */
+final class BandwidthFlow {
+
+    private final String clientId;
+
+    private final TrafficClass trafficClass;
+
+    private final double weight;
+
+    private final boolean paced;
+
+    /** The bytes per second allocated to the flow by the scheduler. */
+    private volatile double rate;
+
+    private long burstRemaining;
+
+    /** The time when the next chunk may be read without exceeding the rate. */
+    private long nextAllowedNanos;
+
+    BandwidthFlow(String clientId, TrafficClass trafficClass, double weight, boolean paced, long initialBurst) {
+        this.clientId = clientId;
+        this.trafficClass = trafficClass;
+        this.weight = weight;
+        this.paced = paced;
+        this.burstRemaining = initialBurst;
+        this.nextAllowedNanos = System.nanoTime();
+    }
+
+    /**
+     * Accounts the bytes that have just been read, and waits if the flow is ahead of its rate.
+     *
+     * @param bytes the number of bytes read
+     */
+    void pace(int bytes) {
+        if (!paced) {
+            return;
+        }
+        var free = Math.min(bytes, burstRemaining);
+        burstRemaining -= free;
+        var paid = bytes - free;
+        if (paid == 0) {
+            return;
+        }
+        var now = System.nanoTime();
+        nextAllowedNanos = Math.max(now, nextAllowedNanos) + (long) (paid * TimeUnit.SECONDS.toNanos(1) / Math.max(rate, 1));
+        var delay = nextAllowedNanos - now;
+        if (delay > 0) {
+            LockSupport.parkNanos(delay);
+        }
+    }
+
+    String getClientId() {
+        return clientId;
+    }
+
+    TrafficClass getTrafficClass() {
+        return trafficClass;
+    }
+
+    double getWeight() {
+        return weight;
+    }
+
+    boolean isPaced() {
+        return paced;
+    }
+
+    double getRate() {
+        return rate;
+    }
+
+    void setRate(double rate) {
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,185 @@
+package io.crunch.bandwidth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares the egress bandwidth of the node among the concurrent media streams.
+ * <p>
+ * Every stream is a {@link BandwidthFlow} with the weight of its {@link TrafficClass}. The configured total bandwidth is
+ * divided among the active flows by weighted max-min fairness (see {@link FairShare}), where the share of a flow is capped
+ * by the per-stream rate, and by the per-client rate divided among the streams of the same client. The bandwidth that a
+ * capped or finished flow does not use is given to the others, so a single video stream can still use the whole
+ * per-stream rate on an idle node. The allocation is recalculated whenever a stream starts or finishes.
+ * </p>
+ * <p>
+ * Small objects are not paced at all, and the first bytes of every stream are sent as an initial burst, so images and
+ * documents get their first byte quickly even under heavy video load.
+ * </p>
+ * <p>
+ * The transferred bytes, the number of active streams and the allocated rate are published as metrics per traffic class;
+ * the bytes per second of a class is the rate of its {@code media.streaming.bytes} counter.
+ * </p>
+ * @apiNote The allocation assumes that every active stream reads as fast as it may. A stream whose client reads slowly
+ * keeps its share, even if it does not use it, until it finishes.
+ */
+@ApplicationScoped
+public class BandwidthScheduler {
+
+    private final boolean enabled;
+
+    private final double totalRate;
+
+    private final double streamRate;
+
+    private final double clientRate;
+
+    private final long smallObjectSize;
+
+    private final long initialBurst;
+
+    private final Map<TrafficClass, Double> weights = new EnumMap<>(TrafficClass.class);
+
+    private final Map<TrafficClass, Counter> transferredBytes = new EnumMap<>(TrafficClass.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The active paced flows; guarded by the lock. */
+    private final List<BandwidthFlow> flows = new ArrayList<>();
+
+    /** The number of active flows, and their allocated rate per class; replaced after every allocation. */
+    private volatile Map<TrafficClass, ClassStatistics> statistics = Map.of();
+
+    public BandwidthScheduler(MeterRegistry registry,
+                              @ConfigProperty(name = "media.streaming.bandwidth.enabled", defaultValue = "true") boolean enabled,
+                              @ConfigProperty(name = "media.streaming.bandwidth.total", defaultValue = "100M") MemorySize totalRate,
+                              @ConfigProperty(name = "media.streaming.bandwidth.stream-rate", defaultValue = "20M") MemorySize streamRate,
+                              @ConfigProperty(name = "media.streaming.bandwidth.client-rate", defaultValue = "40M") MemorySize clientRate,
+                              @ConfigProperty(name = "media.streaming.bandwidth.small-object-size", defaultValue = "1M") MemorySize smallObjectSize,
+                              @ConfigProperty(name = "media.streaming.bandwidth.initial-burst", defaultValue = "256K") MemorySize initialBurst,
+                              @ConfigProperty(name = "media.streaming.bandwidth.weight.image", defaultValue = "8") double imageWeight,
+                              @ConfigProperty(name = "media.streaming.bandwidth.weight.document", defaultValue = "8") double documentWeight,
+                              @ConfigProperty(name = "media.streaming.bandwidth.weight.audio", defaultValue = "2") double audioWeight,
+                              @ConfigProperty(name = "media.streaming.bandwidth.weight.video", defaultValue = "1") double videoWeight) {
+        this.enabled = enabled;
+        this.totalRate = totalRate.asLongValue();
+        this.streamRate = streamRate.asLongValue();
+        this.clientRate = clientRate.asLongValue();
+        this.smallObjectSize = smallObjectSize.asLongValue();
+        this.initialBurst = initialBurst.asLongValue();
+        weights.put(TrafficClass.IMAGE, imageWeight);
+        weights.put(TrafficClass.DOCUMENT, documentWeight);
+        weights.put(TrafficClass.AUDIO, audioWeight);
+        weights.put(TrafficClass.VIDEO, videoWeight);
+
+        for (var trafficClass : TrafficClass.values()) {
+            transferredBytes.put(trafficClass, Counter.builder("media.streaming.bytes")
+                    .description("The number of bytes streamed to the viewers")
+                    .baseUnit("bytes")
+                    .tag("class", trafficClass.getName())
+                    .register(registry));
+            Gauge.builder("media.streaming.active", this, scheduler -> scheduler.getStatistics(trafficClass).activeFlows())
+                    .description("The number of active paced media streams")
+                    .tag("class", trafficClass.getName())
+                    .register(registry);
+            Gauge.builder("media.streaming.allocated.rate", this, scheduler -> scheduler.getStatistics(trafficClass).allocatedRate())
+                    .description("The bandwidth allocated to the active media streams in bytes per second")
+                    .tag("class", trafficClass.getName())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Wraps the content of a media file into a stream that is read at the pace allocated to it.
+     *
+     * @param inputStream  the content of the media file
+     * @param clientId     the identifier of the client, for the per-client rate
+     * @param trafficClass the class of the media file
+     * @param size         the size of the content in bytes
+     * @return the paced stream; it must be closed to release its share of the bandwidth
+     */
+    public InputStream schedule(InputStream inputStream, String clientId, TrafficClass trafficClass, long size) {
+        var paced = enabled && size > smallObjectSize;
+        var flow = new BandwidthFlow(clientId, trafficClass, weights.get(trafficClass), paced, initialBurst);
+        if (paced) {
+            lock.lock();
+            try {
+                flows.add(flow);
+                allocate();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return new ThrottledInputStream(inputStream, this, flow);
+    }
+
+    /**
+     * Accounts the bytes read from a flow, and paces the flow.
+     */
+    void transferred(BandwidthFlow flow, int bytes) {
+        transferredBytes.get(flow.getTrafficClass()).increment(bytes);
+        flow.pace(bytes);
+    }
+
+    /**
+     * Removes a finished flow, and gives its share to the others.
+     */
+    void release(BandwidthFlow flow) {
+        if (!flow.isPaced()) {
+            return;
+        }
+        lock.lock();
+        try {
+            flows.remove(flow);
+            allocate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Divides the total bandwidth among the active flows; it must be called with the lock held.
+     */
+    private void allocate() {
+        var streamsPerClient = new HashMap<String, Integer>();
+        flows.forEach(flow -> streamsPerClient.merge(flow.getClientId(), 1, Integer::sum));
+
+        var flowWeights = new double[flows.size()];
+        var caps = new double[flows.size()];
+        for (int i = 0; i < flows.size(); i++) {
+            var flow = flows.get(i);
+            flowWeights[i] = flow.getWeight();
+            caps[i] = Math.min(streamRate, clientRate / streamsPerClient.get(flow.getClientId()));
+        }
+        var rates = FairShare.allocate(totalRate, flowWeights, caps);
+
+        var newStatistics = new EnumMap<TrafficClass, ClassStatistics>(TrafficClass.class);
+        for (int i = 0; i < flows.size(); i++) {
+            var flow = flows.get(i);
+            flow.setRate(rates[i]);
+            newStatistics.merge(flow.getTrafficClass(), new ClassStatistics(1, rates[i]), ClassStatistics::add);
+        }
+        statistics = newStatistics;
+    }
+
+    private ClassStatistics getStatistics(TrafficClass trafficClass) {
+        return statistics.getOrDefault(trafficClass, ClassStatistics.EMPTY);
+    }
+
+    private record ClassStatistics(int activeFlows, double allocatedRate) {
+
+        static final ClassStatistics EMPTY = new ClassStatistics(0, 0);
+
+        ClassStatistics add(ClassStatistics other) {
+            return new ClassStatistics(activeFlows + other.activeFlows, allocatedRate + other.allocatedRate);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.crunch.bandwidth;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Divides a capacity among the consumers by weighted max-min fairness.
+ * <p>
+ * Every consumer gets a share of the capacity proportional to its weight, but not more than its own cap. The capacity
+ * that a capped consumer cannot use is divided among the others by their weights, so the capacity is fully used as long
+ * as the caps allow it - a.k.a. water filling.
+ * </p>
+ */
+final class FairShare {
+
+    private FairShare() {
+    }
+
+    /**
+     * Allocates the capacity.
+     *
+     * @param capacity the capacity to divide
+     * @param weights  the positive weights of the consumers
+     * @param caps     the maximum allocations of the consumers
+     * @return the allocations of the consumers, in the order of the weights
+     */
+    static double[] allocate(double capacity, double[] weights, double[] caps) {
+        var rates = new double[weights.length];
+        // The consumers whose cap is the smallest compared to their weight are satisfied first
+        var order = IntStream.range(0, weights.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> caps[i] / weights[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        var remainingCapacity = capacity;
+        var remainingWeight = Arrays.stream(weights).sum();
+        for (int i : order) {
+            var share = remainingCapacity * weights[i] / remainingWeight;
+            rates[i] = Math.min(share, caps[i]);
+            remainingCapacity -= rates[i];
+            remainingWeight -= weights[i];
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,59 @@
+package io.crunch.bandwidth;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An input stream that is read at the pace of its {@link BandwidthFlow}.
+ * <p>
+ * The reads are cut into chunks of at most {@value #MAX_CHUNK_SIZE} bytes, so the pacing stays smooth even if the caller
+ * reads with a large buffer. The flow is released from the scheduler when the stream is closed.
+ * </p>
+ */
+class ThrottledInputStream extends FilterInputStream {
+
+    static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+    private final BandwidthScheduler scheduler;
+
+    private final BandwidthFlow flow;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ThrottledInputStream(InputStream in, BandwidthScheduler scheduler, BandwidthFlow flow) {
+        super(in);
+        this.scheduler = scheduler;
+        this.flow = flow;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = super.read();
+        if (b >= 0) {
+            scheduler.transferred(flow, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        var n = super.read(b, off, Math.min(len, MAX_CHUNK_SIZE));
+        if (n > 0) {
+            scheduler.transferred(flow, n);
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (closed.compareAndSet(false, true)) {
+                scheduler.release(flow);
+            }
+        }
+    }
+}
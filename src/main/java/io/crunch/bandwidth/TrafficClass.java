@@ -0,0 +1,43 @@
+package io.crunch.bandwidth;
+
+/**
+ * The classes of the media streams, that share the bandwidth by their weights.
+ */
+public enum TrafficClass {
+
+    IMAGE,
+
+    DOCUMENT,
+
+    AUDIO,
+
+    VIDEO;
+
+    /**
+     * Returns the class of a media stream by its content type.
+     *
+     * @param contentType the MIME type of the media file
+     * @return the traffic class; the unknown types are handled as documents
+     */
+    public static TrafficClass of(String contentType) {
+        if (contentType.startsWith("image/")) {
+            return IMAGE;
+        }
+        if (contentType.startsWith("audio/")) {
+            return AUDIO;
+        }
+        if (contentType.startsWith("video/")) {
+            return VIDEO;
+        }
+        return DOCUMENT;
+    }
+
+    /**
+     * Returns the name of the class used in the configuration and in the metrics.
+     *
+     * @return the lower case name of the class
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+}
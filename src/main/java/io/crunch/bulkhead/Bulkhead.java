@@ -0,0 +1,215 @@
+package io.crunch.bulkhead;
+
+import io.crunch.shared.MediaFileServerException;
+import io.opentelemetry.context.Context;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of threads reserved for one class of work.
+ * <p>
+ * The bulkhead has a fixed number of threads and a bounded queue. A task that arrives when all threads are busy and the
+ * queue is full is rejected at once with {@link BulkheadFullException}, so a saturated class of work fails by itself,
+ * and it cannot take the threads of the other classes.
+ * </p>
+ * <p>
+ * The room of the threads and the queue is counted by a semaphore, and a task holds its permit until its thread is free
+ * again. The queue of the pool itself is not bounded, so a task that got a permit is always accepted by the pool, even
+ * if the thread that released the permit has not taken the next waiting task yet.
+ * </p>
+ * <p>
+ * A producer that must not lose its tasks, such as the items of a batch upload, submits them by
+ * {@link #executeWhenAvailable(Runnable)} instead: it waits until the bulkhead has room for the task. Such a bulkhead
+ * should be used only this way, because a task submitted by {@link #execute(Runnable)} takes the room without waiting.
+ * </p>
+ * <p>
+ * A bulkhead created by {@link #direct(String)} has no threads: it runs the tasks on the calling thread, without any limit.
+ * It is used when the code runs outside of the container, for example in the benchmarks.
+ * </p>
+ * <p>
+ * The tasks run in the tracing {@link Context} of the thread that submitted them, so their spans belong to the trace
+ * of the request.
+ * </p>
+ */
+public final class Bulkhead implements Executor {
+
+    private final String name;
+
+    /** The pool of the bulkhead, {@code null} if the tasks run on the calling thread. */
+    private final ThreadPoolExecutor executor;
+
+    /** The room of the threads and the queue, {@code null} if the tasks run on the calling thread. */
+    private final Semaphore capacity;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a bulkhead.
+     *
+     * @param name      the name of the bulkhead, also the prefix of the names of its threads
+     * @param threads   the number of threads
+     * @param queueSize the maximum number of tasks waiting for a thread
+     */
+    public Bulkhead(String name, int threads, int queueSize) {
+        if (threads < 1 || queueSize < 0) {
+            throw new IllegalArgumentException("Invalid size of bulkhead " + name + ": " + threads + " threads, queue " + queueSize);
+        }
+        this.name = name;
+        this.capacity = new Semaphore(threads + queueSize, true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name(name + "-", 0).daemon().factory()) {
+
+            @Override
+            protected void afterExecute(Runnable task, Throwable failure) {
+                // The thread is free, it takes the next waiting task before it could be rejected
+                capacity.release();
+            }
+        };
+    }
+
+    private Bulkhead(String name) {
+        this.name = name;
+        this.executor = null;
+        this.capacity = null;
+    }
+
+    /**
+     * Creates a bulkhead that runs the tasks on the calling thread.
+     *
+     * @param name the name of the bulkhead
+     * @return the new bulkhead
+     */
+    public static Bulkhead direct(String name) {
+        return new Bulkhead(name);
+    }
+
+    /**
+     * Runs a task on the bulkhead, and waits for its result.
+     * <p>
+     * The exceptions of the task are rethrown unchanged if they are unchecked, otherwise they are wrapped into
+     * {@link MediaFileServerException}. If the waiting thread is interrupted, the task is cancelled.
+     * </p>
+     *
+     * @param task the task
+     * @param <T>  the type of the result
+     * @return the result of the task
+     * @throws BulkheadFullException if the bulkhead is saturated
+     */
+    public <T> T call(Callable<T> task) {
+        if (executor == null) {
+            return callDirect(task);
+        }
+        var future = new FutureTask<>(task);
+        execute(future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MediaFileServerException("Task of bulkhead " + name + " interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new MediaFileServerException(e.getCause());
+        }
+    }
+
+    /**
+     * Submits a task to the bulkhead without waiting for it.
+     *
+     * @param task the task
+     * @throws BulkheadFullException if the bulkhead is saturated
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        if (!capacity.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new BulkheadFullException("Bulkhead " + name + " is full");
+        }
+        submit(task);
+    }
+
+    /**
+     * Submits a task to the bulkhead, waiting until all of its threads are not busy or its queue is not full.
+     * <p>
+     * The waiting tasks get the room in the order of their arrival.
+     * </p>
+     *
+     * @param task the task
+     * @throws MediaFileServerException if the waiting thread is interrupted
+     * @throws BulkheadFullException    if the bulkhead is shut down
+     */
+    public void executeWhenAvailable(Runnable task) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MediaFileServerException("Waiting for bulkhead " + name + " interrupted", e);
+        }
+        submit(task);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of tasks rejected so far.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the pool of the bulkhead, for the metrics; {@code null} if the tasks run on the calling thread.
+     */
+    ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Stops the threads of the bulkhead; the waiting tasks are dropped.
+     */
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Hands a task over to the pool; the permit of the task is already taken.
+     */
+    private void submit(Runnable task) {
+        try {
+            executor.execute(Context.current().wrap(task));
+        } catch (RejectedExecutionException e) {
+            // Only a pool that is shut down rejects a task
+            capacity.release();
+            rejected.incrementAndGet();
+            throw new BulkheadFullException("Bulkhead " + name + " is full");
+        }
+    }
+
+    private static <T> T callDirect(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MediaFileServerException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.crunch.bulkhead;
+
+import io.crunch.shared.MediaFileServerException;
+
+/**
+ * Thrown when a task is rejected by a {@link Bulkhead}, because all of its threads are busy and its queue is full.
+ * <p>
+ * The rejection is temporary, the task can be retried later; the REST API reports it with {@code 503 Service Unavailable}.
+ * </p>
+ */
+public class BulkheadFullException extends MediaFileServerException {
+
+    /**
+     * Constructs a new <code>BulkheadFullException</code> exception
+     * with the specified detail message.
+     *
+     * @param message the detail message.
+     */
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
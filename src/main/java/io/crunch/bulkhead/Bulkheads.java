@@ -0,0 +1,101 @@
+package io.crunch.bulkhead;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The bulkheads that separate the classes of work of the server.
+ * <p>
+ * <ul>
+ *   <li><b>upload</b>: the validation and the storing of the uploaded media files.</li>
+ *   <li><b>batch</b>: the items of the batch uploads; an item waits for room instead of being rejected, and the
+ *   batches do not take the threads of the single uploads.</li>
+ *   <li><b>detection</b>: the content type detection by Apache Tika, which is CPU bound; it has as many threads as cores by default.</li>
+ *   <li><b>metadata</b>: the lookups of the media files in the database for the viewers and the listing.</li>
+ *   <li><b>streaming</b>: the reading of the media content from the object store.</li>
+ * </ul>
+ * A burst in one class, for example many large uploads, queues and then fails in its own bulkhead, while the image views
+ * are still served by the others.
+ * </p>
+ * <p>
+ * The size and the queue of each bulkhead are published as the {@code executor.*} metrics tagged with its name, and the
+ * rejected tasks as {@code media.bulkhead.rejected}.
+ * </p>
+ */
+@ApplicationScoped
+public class Bulkheads {
+
+    private final Bulkhead upload;
+
+    private final Bulkhead batch;
+
+    private final Bulkhead detection;
+
+    private final Bulkhead metadata;
+
+    private final Bulkhead streaming;
+
+    public Bulkheads(MeterRegistry registry,
+                     @ConfigProperty(name = "media.bulkhead.upload.threads", defaultValue = "8") int uploadThreads,
+                     @ConfigProperty(name = "media.bulkhead.upload.queue", defaultValue = "16") int uploadQueue,
+                     @ConfigProperty(name = "media.bulkhead.batch.threads", defaultValue = "4") int batchThreads,
+                     @ConfigProperty(name = "media.bulkhead.batch.queue", defaultValue = "16") int batchQueue,
+                     @ConfigProperty(name = "media.bulkhead.detection.threads") Optional<Integer> detectionThreads,
+                     @ConfigProperty(name = "media.bulkhead.detection.queue", defaultValue = "64") int detectionQueue,
+                     @ConfigProperty(name = "media.bulkhead.metadata.threads", defaultValue = "16") int metadataThreads,
+                     @ConfigProperty(name = "media.bulkhead.metadata.queue", defaultValue = "256") int metadataQueue,
+                     @ConfigProperty(name = "media.bulkhead.streaming.threads", defaultValue = "32") int streamingThreads,
+                     @ConfigProperty(name = "media.bulkhead.streaming.queue", defaultValue = "256") int streamingQueue) {
+        this.upload = new Bulkhead("upload", uploadThreads, uploadQueue);
+        this.batch = new Bulkhead("batch", batchThreads, batchQueue);
+        this.detection = new Bulkhead("detection", detectionThreads.orElse(Runtime.getRuntime().availableProcessors()), detectionQueue);
+        this.metadata = new Bulkhead("metadata", metadataThreads, metadataQueue);
+        this.streaming = new Bulkhead("streaming", streamingThreads, streamingQueue);
+        getAll().forEach(bulkhead -> bindMetrics(registry, bulkhead));
+    }
+
+    public Bulkhead upload() {
+        return upload;
+    }
+
+    public Bulkhead batch() {
+        return batch;
+    }
+
+    public Bulkhead detection() {
+        return detection;
+    }
+
+    public Bulkhead metadata() {
+        return metadata;
+    }
+
+    public Bulkhead streaming() {
+        return streaming;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        getAll().forEach(Bulkhead::shutdown);
+    }
+
+    private List<Bulkhead> getAll() {
+        return List.of(upload, batch, detection, metadata, streaming);
+    }
+
+    private static void bindMetrics(MeterRegistry registry, Bulkhead bulkhead) {
+        new ExecutorServiceMetrics(bulkhead.getExecutor(), bulkhead.getName(), Tags.empty()).bindTo(registry);
+        FunctionCounter.builder("media.bulkhead.rejected", bulkhead, Bulkhead::getRejectedCount)
+                .description("The number of tasks rejected by the bulkhead")
+                .tag("name", bulkhead.getName())
+                .register(registry);
+    }
+}
@@ -0,0 +1,48 @@
+package io.crunch.media;
+
+import jakarta.persistence.*;
+
+/**
+ * A content-addressed object in the store, shared by all {@link MediaFile}s with the same content.
+ */
+@Entity
+@Table(name = "MEDIA_CONTENT")
+public class MediaContent {
+
+    /** The name of the object in the store, derived from the checksum of the content. */
+    @Id
+    @Column(name = "object_name", updatable = false, nullable = false, length = 512)
+    private String objectName;
+
+    /** Type of the content, for example audio/mpeg. */
+    @Column(name = "content_type", updatable = false, nullable = false, length = 255)
+    private String contentType;
+
+    /** The number of media files that point at the content. */
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(long refCount) {
+        this.refCount = refCount;
+    }
+}
@@ -0,0 +1,35 @@
+package io.crunch.media;
+
+/**
+ * Counts the references of the content-addressed objects of the store.
+ * <p>
+ * When deduplication is enabled, the media files with the same content point at the same object of the store.
+ * The object can be removed only when the last media file that points at it is removed.
+ * </p>
+ */
+public interface MediaContentReferences {
+
+    /**
+     * Adds a reference to an existing content.
+     *
+     * @param objectName The name of the content object.
+     * @return {@code true} if the content exists and the reference is added, otherwise {@code false}.
+     */
+    boolean reference(String objectName);
+
+    /**
+     * Registers a new content with a single reference.
+     *
+     * @param objectName  The name of the content object.
+     * @param contentType The type of the content, for example audio/mpeg.
+     */
+    void create(String objectName, String contentType);
+
+    /**
+     * Removes a reference from a content.
+     *
+     * @param objectName The name of the content object.
+     * @return {@code true} if nothing points at the content anymore, and its object can be removed, otherwise {@code false}.
+     */
+    boolean release(String objectName);
+}
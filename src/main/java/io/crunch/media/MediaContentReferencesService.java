@@ -0,0 +1,46 @@
+package io.crunch.media;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+
+@ApplicationScoped
+public class MediaContentReferencesService implements MediaContentReferences {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaContentRepository mediaContentRepository;
+
+    public MediaContentReferencesService(MediaContentRepository mediaContentRepository) {
+        this.mediaContentRepository = mediaContentRepository;
+    }
+
+    @Override
+    public boolean reference(String objectName) {
+        return mediaContentRepository.incrementRefCount(objectName);
+    }
+
+    @Override
+    public void create(String objectName, String contentType) {
+        var mediaContent = new MediaContent();
+        mediaContent.setObjectName(objectName);
+        mediaContent.setContentType(contentType);
+        mediaContent.setRefCount(1);
+        mediaContentRepository.persistAndFlush(mediaContent);
+        logger.info("Media content {} is stored", objectName);
+    }
+
+    @Override
+    @Transactional
+    public boolean release(String objectName) {
+        mediaContentRepository.decrementRefCount(objectName);
+        var unreferenced = mediaContentRepository.deleteUnreferenced(objectName);
+        if (unreferenced) {
+            logger.info("Media content {} is not referenced anymore", objectName);
+        }
+        return unreferenced;
+    }
+}
@@ -0,0 +1,50 @@
+package io.crunch.media;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+/**
+ * Repository for managing {@link MediaContent} entities.
+ * <p>
+ * The reference counter is changed by single update statements, so concurrent changes do not overwrite each other.
+ * </p>
+ * <p>
+ * The repository is marked as {@code @ApplicationScoped}, meaning it is a singleton
+ * within the application. It is also annotated with {@code @Transactional}, ensuring
+ * that all methods execute within a transactional context.
+ * </p>
+ */
+@ApplicationScoped
+@Transactional
+public class MediaContentRepository implements PanacheRepositoryBase<MediaContent, String> {
+
+    /**
+     * Increments the reference counter of a content.
+     *
+     * @param objectName the name of the content object
+     * @return {@code true} if the content exists, otherwise {@code false}
+     */
+    public boolean incrementRefCount(String objectName) {
+        return update("refCount = refCount + 1 where objectName = ?1", objectName) > 0;
+    }
+
+    /**
+     * Decrements the reference counter of a content.
+     *
+     * @param objectName the name of the content object
+     */
+    public void decrementRefCount(String objectName) {
+        update("refCount = refCount - 1 where objectName = ?1", objectName);
+    }
+
+    /**
+     * Deletes a content if nothing points at it.
+     *
+     * @param objectName the name of the content object
+     * @return {@code true} if the content is deleted, otherwise {@code false}
+     */
+    public boolean deleteUnreferenced(String objectName) {
+        return delete("objectName = ?1 and refCount <= 0", objectName) > 0;
+    }
+}
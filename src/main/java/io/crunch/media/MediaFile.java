@@ -1,13 +1,17 @@
 package io.crunch.media;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
 
 @Entity
 @Table(name = "MEDIA_FILE")
 public class MediaFile {
 
+    /** The ids are allocated in blocks, so a batch of inserts does not need a sequence call for every row. */
     @Id
-    @SequenceGenerator(name = "id_gen", sequenceName = "id_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "id_gen", sequenceName = "id_sequence", allocationSize = 50)
     @GeneratedValue(generator = "id_gen", strategy = GenerationType.SEQUENCE)
     private Long id;
 
@@ -19,6 +23,24 @@ public class MediaFile {
     @Column(name = "content_type", updatable = false, nullable = false, length = 255)
     private String mediaType;
 
+    /** The name of the content in the store, if it differs from the media id, for example when the content is deduplicated. */
+    @Column(name = "object_name", updatable = false, length = 512)
+    private String objectName;
+
+    /**
+     * Whether the content of the media file is stored; only the committed media files are visible.
+     * The rows stored before the column existed were all visible, so the column is added with them committed.
+     */
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'COMMITTED'")
+    @Column(name = "state", nullable = false, length = 16)
+    private MediaFileState state;
+
+    /** The creation time is always set by the application; the default only fills the rows stored before the column existed. */
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private Instant createdAt;
+
     public Long getId() {
         return id;
     }
@@ -42,4 +64,33 @@ public class MediaFile {
     public void setMediaType(String mediaType) {
         this.mediaType = mediaType;
     }
+
+    /**
+     * Returns the name of the content in the store.
+     *
+     * @return the object name if it is set, otherwise the media id
+     */
+    public String getObjectName() {
+        return objectName != null ? objectName : mediaId;
+    }
+
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    public MediaFileState getState() {
+        return state;
+    }
+
+    public void setState(MediaFileState state) {
+        this.state = state;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
 }
@@ -4,6 +4,8 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.transaction.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -35,4 +37,107 @@ public class MediaFileRepository implements PanacheRepository<MediaFile> {
     public Optional<MediaFile> findByMediaId(String mediaId) {
         return find("mediaId", mediaId).firstResultOptional();
     }
+
+    /**
+     * Persists the given media files, and flushes them to the database in the same transaction.
+     * <p>
+     * The inserts are grouped into JDBC batches of {@code quarkus.hibernate-orm.jdbc.statement-batch-size} statements.
+     * </p>
+     *
+     * @param mediaFiles the media files to persist
+     */
+    public void persistAllAndFlush(List<MediaFile> mediaFiles) {
+        persist(mediaFiles);
+        flush();
+    }
+
+    /**
+     * Finds a committed media file by its unique media ID.
+     *
+     * @param mediaId the unique identifier of the media file
+     * @return an {@code Optional} containing the media file if it is found and committed, otherwise an empty {@code Optional}
+     */
+    public Optional<MediaFile> findCommittedByMediaId(String mediaId) {
+        return find("mediaId = ?1 and state = ?2", mediaId, MediaFileState.COMMITTED).firstResultOptional();
+    }
+
+    /**
+     * Finds the committed media files, except those whose media ID starts with the given prefix.
+     *
+     * @param excludedPrefix the prefix of the media IDs that are not returned
+     * @return the committed media files
+     */
+    public List<MediaFile> findCommittedExcept(String excludedPrefix) {
+        return list("state = ?1 and mediaId not like ?2", MediaFileState.COMMITTED, excludedPrefix + "%");
+    }
+
+    /**
+     * Finds the committed media files whose media ID starts with the given prefix, and that were created before the given time.
+     *
+     * @param prefix        the prefix of the media IDs
+     * @param createdBefore the upper limit of the creation time, exclusive
+     * @return the matching media files
+     */
+    public List<MediaFile> findCommittedByPrefixCreatedBefore(String prefix, Instant createdBefore) {
+        return list("state = ?1 and mediaId like ?2 and createdAt < ?3", MediaFileState.COMMITTED, prefix + "%", createdBefore);
+    }
+
+    /**
+     * Finds the pending media files that were created before the given time.
+     *
+     * @param createdBefore the upper limit of the creation time, exclusive
+     * @return the matching media files
+     */
+    public List<MediaFile> findPendingCreatedBefore(Instant createdBefore) {
+        return list("state = ?1 and createdAt < ?2", MediaFileState.PENDING, createdBefore);
+    }
+
+    /**
+     * Finds the removed media files, whose content has not been released yet.
+     *
+     * @return the removed media files
+     */
+    public List<MediaFile> findRemoved() {
+        return list("state", MediaFileState.REMOVED);
+    }
+
+    /**
+     * Changes the state of a pending media file to committed.
+     *
+     * @param mediaId the unique identifier of the media file
+     * @return the number of updated rows, 0 if the media file is not pending
+     */
+    public int commit(String mediaId) {
+        return update("state = ?1 where mediaId = ?2 and state = ?3", MediaFileState.COMMITTED, mediaId, MediaFileState.PENDING);
+    }
+
+    /**
+     * Deletes a pending media file.
+     *
+     * @param mediaId the unique identifier of the media file
+     * @return the number of deleted rows, 0 if the media file is not pending
+     */
+    public long deletePending(String mediaId) {
+        return delete("mediaId = ?1 and state = ?2", mediaId, MediaFileState.PENDING);
+    }
+
+    /**
+     * Changes the state of a committed media file to removed.
+     *
+     * @param mediaId the unique identifier of the media file
+     * @return the number of updated rows, 0 if the media file is not committed
+     */
+    public int markRemoved(String mediaId) {
+        return update("state = ?1 where mediaId = ?2 and state = ?3", MediaFileState.REMOVED, mediaId, MediaFileState.COMMITTED);
+    }
+
+    /**
+     * Deletes a removed media file.
+     *
+     * @param mediaId the unique identifier of the media file
+     * @return the number of deleted rows, 0 if the media file is not removed
+     */
+    public long deleteRemoved(String mediaId) {
+        return delete("mediaId = ?1 and state = ?2", mediaId, MediaFileState.REMOVED);
+    }
 }
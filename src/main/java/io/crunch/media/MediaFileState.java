@@ -0,0 +1,16 @@
+package io.crunch.media;
+
+/**
+ * The states of a media file.
+ */
+public enum MediaFileState {
+
+    /** The metadata is saved while the content is being uploaded; the media file is not visible yet. */
+    PENDING,
+
+    /** Both the metadata and the content are stored; the media file is visible. */
+    COMMITTED,
+
+    /** The media file is removed, while its content is being released; the media file is not visible anymore. */
+    REMOVED
+}
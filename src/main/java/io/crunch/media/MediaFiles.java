@@ -1,10 +1,16 @@
 package io.crunch.media;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 public interface MediaFiles {
 
+    /**
+     * The prefix of the media identifiers of the internal sample media files of the warm-up; they are not listed.
+     */
+    String WARM_UP_MEDIA_ID_PREFIX = "warm-up-";
+
     /**
      * Stores a new media file.
      * We assume that the file is already validated - for example the checksum value is verified.
@@ -16,7 +22,98 @@ public interface MediaFiles {
     long store(String mediaId, String contentType);
 
     /**
-     * Gets a media file by its media identifier.<p>
+     * Stores a new media file whose content is stored under a different name than its media identifier.
+     *
+     * @param mediaId     The media identifier is unique, and it is used to access the media file.
+     * @param contentType The type of the media file, for example audio/mpeg.
+     * @param objectName  The name of the content in the store.
+     * @return The id of the {@link MediaFile}.
+     */
+    long store(String mediaId, String contentType, String objectName);
+
+    /**
+     * Stores a new media file in pending state, while its content is being uploaded.<p>
+     * The media file is not visible until it is committed by {@link #commit(String)}. The pending media files that are
+     * never committed, for example because the application stopped during the upload, can be found by {@link #getPending(Instant)}.
+     *
+     * @param mediaId     The media identifier is unique, and it is used to access the media file.
+     * @param contentType The type of the media file, for example audio/mpeg.
+     * @param objectName  The name of the content in the store.
+     * @return The id of the {@link MediaFile}.
+     */
+    long reserve(String mediaId, String contentType, String objectName);
+
+    /**
+     * Makes a pending media file visible, after its content has been stored.
+     *
+     * @param mediaId The media identifier.
+     * @return {@code true} if the media file is committed, {@code false} if it is not pending anymore, for example because it was discarded.
+     */
+    boolean commit(String mediaId);
+
+    /**
+     * Removes a pending media file, whose content could not be stored. The committed media files are not affected.
+     *
+     * @param mediaId The media identifier.
+     * @return {@code true} if the pending media file was removed, otherwise {@code false}.
+     */
+    boolean discard(String mediaId);
+
+    /**
+     * Gets the pending media files that were created before the given time.
+     *
+     * @param createdBefore The upper limit of the creation time, exclusive.
+     * @return The pending media files.
+     */
+    List<MediaFile> getPending(Instant createdBefore);
+
+    /**
+     * Stores new media files in a single transaction.
+     * The rows are inserted in JDBC batches, so storing many files costs only a few round trips to the database.
+     *
+     * @param mediaFiles The new media files.
+     * @return The ids of the {@link MediaFile}s.
+     */
+    List<Long> storeAll(List<MediaFile> mediaFiles);
+
+    /**
+     * Removes a committed media file. The content of the media file is not removed from the store.
+     *
+     * @param mediaId The media identifier.
+     * @return The removed media file if it was available, otherwise empty {@link Optional}.
+     */
+    Optional<MediaFile> remove(String mediaId);
+
+    /**
+     * Marks a committed media file as removed, so it is not visible anymore.<p>
+     * The media file is kept until its content is released by {@link #purge(String, Runnable)}. The removed media files
+     * whose content could not be released can be found by {@link #getRemoved()}.
+     *
+     * @param mediaId The media identifier.
+     * @return The removed media file if it was available, otherwise empty {@link Optional}.
+     */
+    Optional<MediaFile> markRemoved(String mediaId);
+
+    /**
+     * Gets the removed media files, whose content has not been released yet.
+     *
+     * @return The removed media files.
+     */
+    List<MediaFile> getRemoved();
+
+    /**
+     * Deletes a removed media file, and releases its content in the same transaction.<p>
+     * If the release fails, the transaction is rolled back, so the media file is kept to be purged again. A media file
+     * is purged only once, even if it is purged concurrently: the release runs only for the call that deletes it.
+     *
+     * @param mediaId        The media identifier.
+     * @param releaseContent Releases the content of the media file.
+     * @return {@code true} if the media file is deleted, {@code false} if it is not removed, or it has already been purged.
+     */
+    boolean purge(String mediaId, Runnable releaseContent);
+
+    /**
+     * Gets a committed media file by its media identifier.<p>
      *
      * @param mediaId The media identifier.
      * @return The media file if it is available, otherwise empty {@link Optional}.
@@ -24,7 +121,16 @@ public interface MediaFiles {
     Optional<MediaFile> getByMediaId(String mediaId);
 
     /**
-     * Gets a list of all media identifiers.
+     * Gets the committed media files whose media identifier starts with the given prefix, and that were created before the given time.
+     *
+     * @param mediaIdPrefix The prefix of the media identifiers.
+     * @param createdBefore The upper limit of the creation time, exclusive.
+     * @return The matching media files.
+     */
+    List<MediaFile> getByMediaIdPrefix(String mediaIdPrefix, Instant createdBefore);
+
+    /**
+     * Gets a list of the media identifiers of all committed media files, except the samples of the warm-up.
      *
      * @return A list of media identifiers.
      */
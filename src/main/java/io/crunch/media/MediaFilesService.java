@@ -1,10 +1,17 @@
 package io.crunch.media;
 
+import io.crunch.bulkhead.Bulkhead;
+import io.crunch.bulkhead.Bulkheads;
+import io.micrometer.core.annotation.Timed;
+import io.opentelemetry.instrumentation.annotations.SpanAttribute;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,30 +22,136 @@ public class MediaFilesService implements MediaFiles {
 
     private final MediaFileRepository mediaFileRepository;
 
-    public MediaFilesService(MediaFileRepository mediaFileRepository) {
+    /** The lookups of the viewers and the listing run here, so they are not starved by the uploads. */
+    private final Bulkhead metadataBulkhead;
+
+    public MediaFilesService(MediaFileRepository mediaFileRepository, Bulkheads bulkheads) {
         this.mediaFileRepository = mediaFileRepository;
+        this.metadataBulkhead = bulkheads.metadata();
     }
 
     @Override
     public long store(String mediaId, String mediaType) {
-        var mediaFile = new MediaFile();
-        mediaFile.setMediaId(mediaId);
-        mediaFile.setMediaType(mediaType);
+        return store(mediaId, mediaType, null);
+    }
+
+    @Override
+    public long store(String mediaId, String mediaType, String objectName) {
+        var mediaFile = create(mediaId, mediaType, objectName, MediaFileState.COMMITTED);
         mediaFileRepository.persistAndFlush(mediaFile);
         logger.info("Media file {} is stored", mediaFile.getMediaId());
         return mediaFile.getId();
     }
 
     @Override
-    public Optional<MediaFile> getByMediaId(String mediaId) {
-        return mediaFileRepository.findByMediaId(mediaId);
+    public long reserve(String mediaId, String mediaType, String objectName) {
+        var mediaFile = create(mediaId, mediaType, objectName, MediaFileState.PENDING);
+        mediaFileRepository.persistAndFlush(mediaFile);
+        logger.info("Media file {} is pending", mediaFile.getMediaId());
+        return mediaFile.getId();
+    }
+
+    @Override
+    public boolean commit(String mediaId) {
+        var committed = mediaFileRepository.commit(mediaId) > 0;
+        logger.info("Media file {} is {}", mediaId, committed ? "committed" : "not pending");
+        return committed;
+    }
+
+    @Override
+    public boolean discard(String mediaId) {
+        var discarded = mediaFileRepository.deletePending(mediaId) > 0;
+        if (discarded) {
+            logger.info("Pending media file {} is discarded", mediaId);
+        }
+        return discarded;
+    }
+
+    @Override
+    public List<MediaFile> getPending(Instant createdBefore) {
+        return mediaFileRepository.findPendingCreatedBefore(createdBefore);
+    }
+
+    @Override
+    public List<Long> storeAll(List<MediaFile> mediaFiles) {
+        var now = Instant.now();
+        mediaFiles.forEach(mediaFile -> {
+            mediaFile.setState(MediaFileState.COMMITTED);
+            mediaFile.setCreatedAt(now);
+        });
+        mediaFileRepository.persistAllAndFlush(mediaFiles);
+        logger.info("{} media files are stored", mediaFiles.size());
+        return mediaFiles.stream()
+                .map(MediaFile::getId)
+                .toList();
+    }
+
+    @Override
+    @Timed(value = "media.metadata.lookup", description = "The duration of the media file lookups by media id", histogram = true)
+    @WithSpan("media lookup")
+    public Optional<MediaFile> getByMediaId(@SpanAttribute("media.id") String mediaId) {
+        return metadataBulkhead.call(() -> mediaFileRepository.findCommittedByMediaId(mediaId));
+    }
+
+    @Override
+    @Transactional
+    public Optional<MediaFile> remove(String mediaId) {
+        var mediaFile = mediaFileRepository.findCommittedByMediaId(mediaId);
+        mediaFile.ifPresent(file -> {
+            mediaFileRepository.delete(file);
+            logger.info("Media file {} is removed", mediaId);
+        });
+        return mediaFile;
+    }
+
+    @Override
+    @Transactional
+    public Optional<MediaFile> markRemoved(String mediaId) {
+        var mediaFile = mediaFileRepository.findCommittedByMediaId(mediaId);
+        if (mediaFile.isEmpty() || mediaFileRepository.markRemoved(mediaId) == 0) {
+            return Optional.empty();
+        }
+        logger.info("Media file {} is removed", mediaId);
+        return mediaFile;
+    }
+
+    @Override
+    public List<MediaFile> getRemoved() {
+        return mediaFileRepository.findRemoved();
+    }
+
+    @Override
+    @Transactional
+    public boolean purge(String mediaId, Runnable releaseContent) {
+        // The delete locks the row, so a concurrent purge waits, and then finds nothing to delete
+        if (mediaFileRepository.deleteRemoved(mediaId) == 0) {
+            return false;
+        }
+        releaseContent.run();
+        logger.info("Removed media file {} is purged", mediaId);
+        return true;
+    }
+
+    @Override
+    public List<MediaFile> getByMediaIdPrefix(String mediaIdPrefix, Instant createdBefore) {
+        return mediaFileRepository.findCommittedByPrefixCreatedBefore(mediaIdPrefix, createdBefore);
     }
 
     @Override
     public List<String> getMediaIds() {
-        return mediaFileRepository.findAll()
+        return metadataBulkhead.call(() -> mediaFileRepository.findCommittedExcept(WARM_UP_MEDIA_ID_PREFIX)
                 .stream()
                 .map(MediaFile::getMediaId)
-                .toList();
+                .toList());
+    }
+
+    private MediaFile create(String mediaId, String mediaType, String objectName, MediaFileState state) {
+        var mediaFile = new MediaFile();
+        mediaFile.setMediaId(mediaId);
+        mediaFile.setMediaType(mediaType);
+        mediaFile.setObjectName(objectName);
+        mediaFile.setState(state);
+        mediaFile.setCreatedAt(Instant.now());
+        return mediaFile;
     }
 }
@@ -0,0 +1,88 @@
+package io.crunch.resource;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * The checksum algorithms that can be used to verify the content of an uploaded media file.
+ */
+public enum ChecksumAlgorithm {
+
+    /** SHA-256 of the whole content, calculated sequentially. This is the default. */
+    SHA256("sha256", true),
+
+    /**
+     * SHA-256 tree hash: the content is cut into {@value TreeChecksumCalculator#LEAF_SIZE} bytes long leaves, and the
+     * checksum is the SHA-256 of the concatenated SHA-256 digests of the leaves. The leaves are hashed in parallel.
+     */
+    SHA256_TREE("sha256-tree", true),
+
+    /**
+     * CRC-32C of the whole content. It is not a cryptographic hash, so it only protects against accidental corruption,
+     * and it is meant for trusted clients; in exchange it is calculated by a hardware instruction on most CPUs.
+     */
+    CRC32C("crc32c", false);
+
+    private final String name;
+
+    private final boolean cryptographic;
+
+    ChecksumAlgorithm(String name, boolean cryptographic) {
+        this.name = name;
+        this.cryptographic = cryptographic;
+    }
+
+    /**
+     * Returns the name of the algorithm, as it is used in the requests.
+     *
+     * @return the name of the algorithm, for example sha256
+     */
+    @JsonValue
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether the algorithm is collision resistant, so its checksum can identify the content.
+     *
+     * @return {@code true} for cryptographic hash algorithms
+     */
+    public boolean isCryptographic() {
+        return cryptographic;
+    }
+
+    /**
+     * Creates a calculator that is updated while the content is read.
+     *
+     * @return a new checksum calculator
+     */
+    public ChecksumCalculator newCalculator() {
+        return switch (this) {
+            case SHA256 -> ChecksumCalculator.of(DigestUtils.getSha256Digest());
+            case SHA256_TREE -> new TreeChecksumCalculator();
+            case CRC32C -> ChecksumCalculator.of(new CRC32C());
+        };
+    }
+
+    /**
+     * Finds an algorithm by its name.
+     *
+     * @param name the name of the algorithm, {@code null} means the default algorithm
+     * @return the algorithm
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    @JsonCreator
+    public static ChecksumAlgorithm of(String name) {
+        if (name == null) {
+            return SHA256;
+        }
+        return Arrays.stream(values())
+                .filter(algorithm -> algorithm.name.equalsIgnoreCase(name))
+                .findAny()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown checksum algorithm: " + name));
+    }
+}
@@ -0,0 +1,71 @@
+package io.crunch.resource;
+
+import org.apache.commons.codec.binary.Hex;
+
+import java.security.MessageDigest;
+import java.util.zip.Checksum;
+
+/**
+ * Calculates a checksum incrementally, while the content is streamed.
+ * <p>
+ * A calculator is not thread-safe, and it can be used only once: {@link #checksum()} completes the calculation.
+ * </p>
+ */
+public interface ChecksumCalculator {
+
+    /**
+     * Updates the checksum with the given bytes.
+     *
+     * @param bytes  the buffer holding the bytes
+     * @param offset the position of the first byte in the buffer
+     * @param length the number of bytes
+     */
+    void update(byte[] bytes, int offset, int length);
+
+    /**
+     * Completes the calculation.
+     *
+     * @return the hex encoded checksum value
+     */
+    String checksum();
+
+    /**
+     * Creates a calculator backed by a message digest.
+     *
+     * @param digest the message digest
+     * @return a new calculator
+     */
+    static ChecksumCalculator of(MessageDigest digest) {
+        return new ChecksumCalculator() {
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                digest.update(bytes, offset, length);
+            }
+
+            @Override
+            public String checksum() {
+                return Hex.encodeHexString(digest.digest());
+            }
+        };
+    }
+
+    /**
+     * Creates a calculator backed by a 32 bits checksum.
+     *
+     * @param checksum the checksum
+     * @return a new calculator
+     */
+    static ChecksumCalculator of(Checksum checksum) {
+        return new ChecksumCalculator() {
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                checksum.update(bytes, offset, length);
+            }
+
+            @Override
+            public String checksum() {
+                return "%08x".formatted(checksum.getValue());
+            }
+        };
+    }
+}
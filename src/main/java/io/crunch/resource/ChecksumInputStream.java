@@ -0,0 +1,73 @@
+package io.crunch.resource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that updates a {@link ChecksumCalculator} with the bytes read through it.
+ * <p>
+ * Like {@link java.security.DigestInputStream}, it does not support mark and reset.
+ * </p>
+ * <p>
+ * The time spent in the calculator is accumulated, so the cost of the checksum can be told apart from the reading.
+ * </p>
+ */
+class ChecksumInputStream extends FilterInputStream {
+
+    private final ChecksumCalculator calculator;
+
+    private long checksumNanos;
+
+    ChecksumInputStream(InputStream in, ChecksumCalculator calculator) {
+        super(in);
+        this.calculator = calculator;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            update(new byte[] {(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = in.read(b, off, len);
+        if (count > 0) {
+            update(b, off, count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time spent calculating the checksum so far.
+     */
+    long getChecksumNanos() {
+        return checksumNanos;
+    }
+
+    private void update(byte[] b, int off, int len) {
+        var start = System.nanoTime();
+        calculator.update(b, off, len);
+        checksumNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Reads the skipped bytes, because they are part of the checksum too.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        return Math.max(read(new byte[(int) Math.min(n, 8192)]), 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
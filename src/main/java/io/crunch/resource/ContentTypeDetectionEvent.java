@@ -0,0 +1,36 @@
+package io.crunch.resource;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a content type detection, see {@link ContentTypeExtractor}.
+ * <p>
+ * The event is disabled by default; it is enabled by the {@code media.jfc} settings of the project.
+ * </p>
+ */
+@Name("io.crunch.ContentTypeDetection")
+@Label("Content Type Detection")
+@Description("The detection of the content type of a media file")
+@Category({"Media Server", "Upload"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+final class ContentTypeDetectionEvent extends Event {
+
+    @Label("Size")
+    @Description("The size of the media file, or -1 if it is unknown")
+    @DataAmount
+    long size;
+
+    @Label("Inspected Size")
+    @Description("The number of leading bytes of the file that were inspected")
+    @DataAmount
+    long inspectedSize;
+
+    @Label("Content Type")
+    String contentType;
+
+    @Label("Tika")
+    @Description("Whether Apache Tika was needed, because the content has no known signature")
+    boolean tika;
+}
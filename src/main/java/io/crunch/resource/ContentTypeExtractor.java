@@ -1,27 +1,35 @@
 package io.crunch.resource;
 
+import io.crunch.bulkhead.Bulkhead;
+import io.crunch.bulkhead.Bulkheads;
 import io.crunch.shared.MediaFileServerException;
 import jakarta.enterprise.context.ApplicationScoped;
-import org.apache.tika.config.TikaConfig;
-import org.apache.tika.exception.TikaException;
+import jakarta.inject.Inject;
+import org.apache.tika.detect.DefaultDetector;
+import org.apache.tika.detect.Detector;
 import org.apache.tika.io.TikaInputStream;
-import org.apache.tika.metadata.HttpHeaders;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.parser.ParseContext;
-import org.apache.tika.sax.BodyContentHandler;
-import org.xml.sax.SAXException;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
  * A service for extracting the content type (MIME type) of media files.
  * <p>
- * This class utilizes <a href="https://tika.apache.org/">Apache Tika</a> to detect the content type based on file metadata and content analysis.
- * It also includes special handling for QuickTime files to accurately distinguish MP4 format.
+ * The supported media types are recognized by their signatures in the leading bytes of the file - see {@link MagicBytesDetector} -,
+ * which takes microseconds. <a href="https://tika.apache.org/">Apache Tika</a> is used only as a fallback, for content without
+ * a known signature, through a single shared detector that is created on its first use. The Tika detection is CPU bound,
+ * so it runs in the detection {@link Bulkhead}, whose size is the number of cores by default.
+ * </p>
+ * <p>
+ * Every detection is recorded as a {@link ContentTypeDetectionEvent} flight recorder event.
+ * </p>
+ * <p>
+ * The detection only needs the leading bytes of a file - see {@link #PREFIX_LENGTH} -, so the content type can be determined
+ * while the file is being streamed, without reading it again.
  * </p>
  * <p>
  * The class is annotated with {@code @ApplicationScoped}, making it a singleton bean in the application context.
@@ -30,11 +38,27 @@ import java.nio.file.Path;
 @ApplicationScoped
 public class ContentTypeExtractor {
 
+    /** The number of leading bytes of a file that are used for the content type detection. */
+    public static final int PREFIX_LENGTH = 64 * 1024;
+
+    private final Bulkhead detectionBulkhead;
+
+    /**
+     * Creates an extractor that runs the Tika detection on the calling thread, for use outside of the container.
+     */
+    public ContentTypeExtractor() {
+        this.detectionBulkhead = Bulkhead.direct("detection");
+    }
+
+    @Inject
+    public ContentTypeExtractor(Bulkheads bulkheads) {
+        this.detectionBulkhead = bulkheads.detection();
+    }
+
     /**
      * Determines the content type of a given file.
      * <p>
-     * If the detected content type is {@code video/quicktime}, the method further inspects
-     * the file to determine whether it is an MP4 file.
+     * Only the first {@link #PREFIX_LENGTH} bytes of the file are read.
      * </p>
      *
      * @param path         the path to the file
@@ -43,56 +67,73 @@ public class ContentTypeExtractor {
      * @throws MediaFileServerException if an error occurs during content type detection
      */
     public String getContentType(Path path, String originalName) throws MediaFileServerException {
-        try {
-            var contentType = detectFileType(path, originalName);
-            if ("video/quicktime".equals(contentType)) {
-                contentType = checkMP4(path);
-            }
-            return contentType;
-        } catch (IOException | TikaException | SAXException e) {
+        try (var inputStream = new FileInputStream(path.toFile())) {
+            return getContentType(inputStream.readNBytes(PREFIX_LENGTH), Files.size(path), originalName);
+        } catch (IOException e) {
             throw new MediaFileServerException("Error detecting content type", e);
         }
     }
 
+    /**
+     * Determines the content type from the leading bytes of a file.
+     * <p>
+     * The signatures of the supported types are checked first; Apache Tika is called only if none of them matches.
+     * </p>
+     *
+     * @param prefix       the first bytes of the file, at most {@link #PREFIX_LENGTH} bytes are needed
+     * @param size         the size of the whole file in bytes, or -1 if it is unknown; it is only recorded in the event
+     * @param originalName the original file name (used as metadata for type detection)
+     * @return the detected MIME type of the file
+     * @throws MediaFileServerException if an error occurs during content type detection
+     * @throws io.crunch.bulkhead.BulkheadFullException if Tika is needed, and the detection bulkhead is saturated
+     */
+    public String getContentType(byte[] prefix, long size, String originalName) throws MediaFileServerException {
+        var event = new ContentTypeDetectionEvent();
+        event.begin();
+        var contentType = MagicBytesDetector.detect(prefix);
+        var tika = contentType == null;
+        if (tika) {
+            contentType = detectionBulkhead.call(() -> {
+                try {
+                    return detectFileType(prefix, originalName);
+                } catch (IOException e) {
+                    throw new MediaFileServerException("Error detecting content type", e);
+                }
+            });
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.size = size;
+            event.inspectedSize = prefix.length;
+            event.contentType = contentType;
+            event.tika = tika;
+            event.commit();
+        }
+        return contentType;
+    }
+
     /**
      * Detects the file type based on metadata and content analysis using Apache Tika.
      *
-     * @param path         the path to the file
+     * @param prefix       the first bytes of the file
      * @param originalName the original file name (used for metadata-based detection)
      * @return the detected MIME type of the file
-     * @throws IOException   if an I/O error occurs while reading the file
-     * @throws TikaException if an error occurs within Apache Tika during type detection
+     * @throws IOException if an I/O error occurs while reading the prefix
      */
-    private String detectFileType(Path path, String originalName) throws IOException, TikaException {
-        try (var inputStream = new FileInputStream(path.toFile());
-             var tikaInputStream = TikaInputStream.get(inputStream)) {
-            var tc = new TikaConfig();
+    private String detectFileType(byte[] prefix, String originalName) throws IOException {
+        try (var tikaInputStream = TikaInputStream.get(prefix)) {
             var md = new Metadata();
             md.set(TikaCoreProperties.RESOURCE_NAME_KEY, originalName);
-            return tc.getDetector().detect(tikaInputStream, md).toString();
+            return TikaDetectorHolder.DETECTOR.detect(tikaInputStream, md).toString();
         }
     }
 
     /**
-     * Checks whether a QuickTime file is actually an MP4 file.
-     * <p>
-     * If the initial detection returns {@code video/quicktime}, this method further parses
-     * the file using an {@link AutoDetectParser} to extract the precise MIME type.
-     * </p>
-     *
-     * @param path the path to the file
-     * @return the refined MIME type (e.g., {@code video/mp4} if applicable)
-     * @throws IOException   if an I/O error occurs while reading the file
-     * @throws TikaException if an error occurs within Apache Tika during parsing
-     * @throws SAXException  if an error occurs while processing the parsed metadata
+     * Holds the Tika detector, so the MIME type registry is loaded only when the fallback is needed for the first time.
+     * Only the detectors are loaded: the default configuration of Tika would also instantiate every parser of the standard
+     * package, which are never used here. The default detector is thread-safe.
      */
-    private String checkMP4(Path path) throws IOException, TikaException, SAXException {
-        try (var inputStream = new FileInputStream(path.toFile());
-             var tikaInputStream = TikaInputStream.get(inputStream)) {
-            var parser = new AutoDetectParser();
-            var metadata = new Metadata();
-            parser.parse(tikaInputStream, new BodyContentHandler(), metadata, new ParseContext());
-            return metadata.get(HttpHeaders.CONTENT_TYPE);
-        }
+    private static final class TikaDetectorHolder {
+        private static final Detector DETECTOR = new DefaultDetector();
     }
 }
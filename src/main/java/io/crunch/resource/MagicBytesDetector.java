@@ -0,0 +1,149 @@
+package io.crunch.resource;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Detects the supported media types from the signatures at the beginning of the content.
+ * <p>
+ * Only a few leading bytes are inspected - for MP4 the {@code ftyp} box, which is always the first box of the file -,
+ * so the detection does not allocate, and its cost does not depend on the size of the file. The brands of the
+ * {@code ftyp} box are interpreted the same way as by the MP4 parser of Apache Tika; an unknown brand is not
+ * recognized here.
+ * </p>
+ * <p>
+ * The class is stateless, and it can be used from multiple threads.
+ * </p>
+ */
+final class MagicBytesDetector {
+
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final byte[] PDF_SIGNATURE = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ID3_SIGNATURE = "ID3".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] FTYP_BOX_TYPE = "ftyp".getBytes(StandardCharsets.US_ASCII);
+
+    /** The major brands of the MP4 videos. */
+    private static final int[] MP4_VIDEO_BRANDS = brands("isom", "iso2", "iso3", "iso4", "iso5", "iso6", "mp41", "mp42", "avc1", "dash", "mmp4", "MSNV");
+
+    private static final int[] MP4_AUDIO_BRANDS = brands("M4A ", "M4B ", "M4P ");
+
+    private static final int M4V_BRAND = brand("M4V ".getBytes(StandardCharsets.US_ASCII), 0);
+
+    private static final int QUICKTIME_BRAND = brand("qt  ".getBytes(StandardCharsets.US_ASCII), 0);
+
+    /** The first three characters of the 3GPP and 3GPP2 brands, for example {@code 3gp5} or {@code 3g2a}. */
+    private static final int GPP_BRAND_PREFIX = '3' << 16 | 'g' << 8 | 'p';
+
+    private static final int GPP2_BRAND_PREFIX = '3' << 16 | 'g' << 8 | '2';
+
+    private MagicBytesDetector() {
+    }
+
+    /**
+     * Detects the content type from the leading bytes of a file.
+     *
+     * @param prefix the leading bytes of the file
+     * @return the detected MIME type, or {@code null} if the prefix does not start with a known signature
+     */
+    static String detect(byte[] prefix) {
+        if (startsWith(prefix, 0, JPEG_SIGNATURE)) {
+            return "image/jpeg";
+        }
+        if (startsWith(prefix, 0, PNG_SIGNATURE)) {
+            return "image/png";
+        }
+        if (startsWith(prefix, 0, PDF_SIGNATURE)) {
+            return "application/pdf";
+        }
+        if (startsWith(prefix, 4, FTYP_BOX_TYPE)) {
+            return detectIsoMedia(prefix);
+        }
+        if (startsWith(prefix, 0, ID3_SIGNATURE) || isMP3FrameHeader(prefix)) {
+            return "audio/mpeg";
+        }
+        return null;
+    }
+
+    /**
+     * Detects the type of an ISO base media file by the major brand of its {@code ftyp} box.
+     * <p>
+     * Only the known brands of MP4, QuickTime and 3GPP are recognized; the other ISO base media files, for example HEIF
+     * images, are left to Tika. The brand is compared as a big-endian integer, so nothing is allocated.
+     * </p>
+     */
+    private static String detectIsoMedia(byte[] prefix) {
+        if (prefix.length < 12) {
+            return null;
+        }
+        int majorBrand = brand(prefix, 8);
+        if (majorBrand == QUICKTIME_BRAND) {
+            return "video/quicktime";
+        }
+        if (contains(MP4_AUDIO_BRANDS, majorBrand)) {
+            return "audio/mp4";
+        }
+        if (majorBrand == M4V_BRAND) {
+            return "video/x-m4v";
+        }
+        if (majorBrand >>> 8 == GPP_BRAND_PREFIX) {
+            return "video/3gpp";
+        }
+        if (majorBrand >>> 8 == GPP2_BRAND_PREFIX) {
+            return "video/3gpp2";
+        }
+        return contains(MP4_VIDEO_BRANDS, majorBrand) ? "video/mp4" : null;
+    }
+
+    private static int brand(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static int[] brands(String... names) {
+        var brands = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            brands[i] = brand(names[i].getBytes(StandardCharsets.US_ASCII), 0);
+        }
+        return brands;
+    }
+
+    private static boolean contains(int[] brands, int brand) {
+        for (int known : brands) {
+            if (known == brand) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the prefix starts with a valid MPEG audio layer III frame header: an 11 bits frame sync followed by
+     * a valid version, layer, bitrate and sampling rate. The layer check tells MP3 apart from AAC ADTS, that has the
+     * same frame sync.
+     */
+    private static boolean isMP3FrameHeader(byte[] prefix) {
+        if (prefix.length < 4 || (prefix[0] & 0xFF) != 0xFF || (prefix[1] & 0xE0) != 0xE0) {
+            return false;
+        }
+        int version = (prefix[1] >> 3) & 0x03;
+        int layer = (prefix[1] >> 1) & 0x03;
+        int bitrateIndex = (prefix[2] >> 4) & 0x0F;
+        int samplingRateIndex = (prefix[2] >> 2) & 0x03;
+        return version != 0x01 && layer == 0x01 && bitrateIndex != 0x00 && bitrateIndex != 0x0F && samplingRateIndex != 0x03;
+    }
+
+    private static boolean startsWith(byte[] prefix, int offset, byte[] signature) {
+        if (prefix.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (prefix[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+package io.crunch.resource;
+
+import io.crunch.media.MediaContentReferences;
+import io.crunch.shared.MediaFileServerException;
+import io.crunch.store.ContentVerifier;
+import io.crunch.store.MediaFileStore;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Stores the content of the media files by their checksum, so identical files share one object in the {@link MediaFileStore}.
+ * <p>
+ * When the deduplication is enabled, the content is stored under the name {@value #CONTENT_PREFIX}{@code <checksum>}.
+ * If the content already exists, the upload to the store is skipped: the stream is still read to verify that its checksum
+ * really matches, and a reference is added to the existing content. The references are counted in the database, and the
+ * object is removed only when the last media file that points at it is removed.
+ * </p>
+ * <p>
+ * Only SHA-256 checksums are used as content addresses; the media files verified by another algorithm are stored
+ * under their own media id.
+ * </p>
+ * <p>
+ * Concurrent uploads of the same content are collapsed: the first one writes the object, while the others wait for it,
+ * and then only add a reference. Removing the object is serialized with the writes the same way, so a new upload does not
+ * race with the removal of the last reference.
+ * </p>
+ * <p>
+ * The collapsing works within a single application instance only. Instances that upload the same content at the same
+ * time may all write the object, with the same bytes. Only one of them can register the content; the others add a reference
+ * to it instead, and never remove the object, because the registered content points at it.
+ * </p>
+ * @apiNote Across instances, the removal of the last reference is not serialized with the writes. If an instance uploads
+ * the content while another one removes its last reference, the object may be removed after it is written again.
+ */
+@ApplicationScoped
+public class MediaContentDeduplicator {
+
+    /** The prefix of the names of the content-addressed objects in the store. */
+    static final String CONTENT_PREFIX = "content/";
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaFileStore mediaFileStore;
+
+    private final MediaContentReferences mediaContentReferences;
+
+    private final boolean enabled;
+
+    /** The operations in progress keyed by the object name; the future is completed when the operation is finished. */
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlightOperations = new ConcurrentHashMap<>();
+
+    public MediaContentDeduplicator(MediaFileStore mediaFileStore, MediaContentReferences mediaContentReferences,
+                                    @ConfigProperty(name = "media.store.dedup.enabled", defaultValue = "false") boolean enabled) {
+        this.mediaFileStore = mediaFileStore;
+        this.mediaContentReferences = mediaContentReferences;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns whether the content of the new media files is deduplicated.
+     *
+     * @return {@code true} if the deduplication is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the name of the content-addressed object of the given checksum.
+     *
+     * @param checksum the SHA-256 checksum of the content
+     * @return the name of the object in the store
+     */
+    public String getObjectName(String checksum) {
+        return CONTENT_PREFIX + checksum;
+    }
+
+    /**
+     * Returns whether the given object is shared by the media files of the same content.
+     *
+     * @param objectName the name of the object in the store
+     * @return {@code true} if the object is content-addressed, and its references are counted
+     */
+    public boolean isContentAddressed(String objectName) {
+        return objectName.startsWith(CONTENT_PREFIX);
+    }
+
+    /**
+     * Stores the content of a media file by its checksum, or adds a reference to the content if it is already stored.
+     *
+     * @param inputStream the content of the media file
+     * @param size        the size of the content in bytes, or -1 if it is unknown
+     * @param contentType the MIME type of the content
+     * @param checksum    the expected checksum of the content
+     * @param verifier    validates the consumed content; the content is not referenced if the verification fails
+     * @return the name of the content object in the store
+     * @throws MediaFileServerException if the content cannot be stored
+     */
+    public String store(InputStream inputStream, long size, String contentType, String checksum, ContentVerifier verifier) {
+        var objectName = getObjectName(checksum);
+        boolean written = locked(objectName, () -> {
+            if (mediaContentReferences.reference(objectName)) {
+                return false;
+            }
+            mediaFileStore.store(inputStream, size, objectName, contentType, verifier);
+            register(objectName, contentType);
+            return true;
+        });
+        if (!written) {
+            logger.info("Content {} already exists, skipping the upload", objectName);
+            try {
+                inputStream.transferTo(OutputStream.nullOutputStream());
+                verifier.verify();
+            } catch (IOException e) {
+                release(objectName);
+                throw new MediaFileServerException("Error reading media file", e);
+            } catch (RuntimeException e) {
+                release(objectName);
+                throw e;
+            }
+        }
+        return objectName;
+    }
+
+    /**
+     * Moves an already stored and verified object to the address of its content, or adds a reference to the content
+     * if it is already stored.
+     * <p>
+     * The object is copied on the server side, so its content is not transferred through the application. The source
+     * object is removed in both cases.
+     * </p>
+     *
+     * @param sourceObjectName the name of the stored object
+     * @param contentType      the MIME type of the content
+     * @param checksum         the verified checksum of the content
+     * @return the name of the content object in the store
+     * @throws MediaFileServerException if the content cannot be stored
+     */
+    public String adopt(String sourceObjectName, String contentType, String checksum) {
+        var objectName = getObjectName(checksum);
+        locked(objectName, () -> {
+            if (mediaContentReferences.reference(objectName)) {
+                logger.info("Content {} already exists, skipping the copy", objectName);
+            } else {
+                mediaFileStore.compose(List.of(sourceObjectName), objectName, contentType);
+                register(objectName, contentType);
+            }
+            return null;
+        });
+        try {
+            mediaFileStore.remove(sourceObjectName);
+        } catch (MediaFileServerException e) {
+            logger.warn("Object {} cannot be removed after it is moved to {}", sourceObjectName, objectName, e);
+        }
+        return objectName;
+    }
+
+    /**
+     * Registers a new content with a single reference.
+     */
+    private void register(String objectName, String contentType) {
+        try {
+            mediaContentReferences.create(objectName, contentType);
+        } catch (RuntimeException e) {
+            // Another instance wrote the same content at the same time, and registered it first; the object is kept,
+            // because that content points at it
+            if (mediaContentReferences.reference(objectName)) {
+                logger.info("Content {} is registered by another instance, referencing it", objectName);
+                return;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the content of a removed media file.
+     * <p>
+     * A content-addressed object is removed from the store when nothing points at it anymore; any other object is removed
+     * immediately.
+     * </p>
+     * <p>
+     * When it runs in the transaction that deletes the media file, the reference is released only if the object
+     * is removed too; otherwise the transaction is rolled back, and the release can be retried.
+     * </p>
+     *
+     * @param objectName the name of the content object in the store
+     * @throws MediaFileServerException if the object cannot be removed
+     */
+    public void release(String objectName) {
+        if (!isContentAddressed(objectName)) {
+            mediaFileStore.remove(objectName);
+            return;
+        }
+        locked(objectName, () -> {
+            if (mediaContentReferences.release(objectName)) {
+                mediaFileStore.remove(objectName);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs an operation on an object, while no other operation of this instance runs on the same object.
+     */
+    private <T> T locked(String objectName, Supplier<T> operation) {
+        var lock = new CompletableFuture<Void>();
+        CompletableFuture<Void> inFlight;
+        while ((inFlight = inFlightOperations.putIfAbsent(objectName, lock)) != null) {
+            inFlight.join();
+        }
+        try {
+            return operation.get();
+        } finally {
+            inFlightOperations.remove(objectName, lock);
+            lock.complete(null);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package io.crunch.resource;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of one item of a batch upload.
+ *
+ * @param fileName the original name of the media file
+ * @param status   the HTTP status code that a single upload of the item would have returned
+ * @param url      the URL of the stored media file, if the item is stored
+ * @param error    the reason of the failure, if the item is rejected
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MediaFileBatchResult(String fileName, int status, String url, String error) {
+
+    static MediaFileBatchResult created(String fileName, String url) {
+        return new MediaFileBatchResult(fileName, 201, url, null);
+    }
+
+    static MediaFileBatchResult failed(String fileName, int status, String error) {
+        return new MediaFileBatchResult(fileName, status, null, error);
+    }
+}
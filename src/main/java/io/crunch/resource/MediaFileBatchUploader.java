@@ -0,0 +1,137 @@
+package io.crunch.resource;
+
+import io.crunch.bulkhead.Bulkhead;
+import io.crunch.bulkhead.Bulkheads;
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.MediaFileServerException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.validation.Validator;
+import org.jboss.resteasy.reactive.multipart.FileUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Uploads many media files that arrived in a single request.
+ * <p>
+ * The items are validated and stored concurrently by the {@link MediaFileUploadPipeline}, in the batch {@link Bulkhead}.
+ * An item that does not fit into the bulkhead waits for room, so a batch of any size is processed, and the single uploads
+ * keep the threads of the upload bulkhead.
+ * The metadata of the stored items is saved at the end in one transaction, with batched inserts. An item that fails
+ * does not affect the others; the outcome of every item is reported separately.
+ * </p>
+ * <p>
+ * If the metadata cannot be saved, the content of the stored items is removed, and all of them are reported as failed.
+ * </p>
+ */
+@ApplicationScoped
+public class MediaFileBatchUploader {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaFileUploadPipeline uploadPipeline;
+
+    private final MediaFiles mediaFiles;
+
+    private final Validator validator;
+
+    private final Bulkhead batchBulkhead;
+
+    public MediaFileBatchUploader(MediaFileUploadPipeline uploadPipeline, MediaFiles mediaFiles, Validator validator, Bulkheads bulkheads) {
+        this.uploadPipeline = uploadPipeline;
+        this.mediaFiles = mediaFiles;
+        this.validator = validator;
+        this.batchBulkhead = bulkheads.batch();
+    }
+
+    /**
+     * Uploads the given media files.
+     *
+     * @param mediaFileUploads      the uploaded media files
+     * @param mediaFileDescriptions the metadata of the media files, in the same order as the files
+     * @return the outcome of every media file, in the same order as the files
+     */
+    public List<MediaFileBatchResult> upload(List<FileUpload> mediaFileUploads, List<MediaFileDescription> mediaFileDescriptions) {
+        var tasks = new ArrayList<CompletableFuture<Item>>(mediaFileUploads.size());
+        for (int i = 0; i < mediaFileUploads.size(); i++) {
+            var mediaFile = mediaFileUploads.get(i);
+            var mediaFileDescription = i < mediaFileDescriptions.size() ? mediaFileDescriptions.get(i) : null;
+            tasks.add(submit(mediaFile, mediaFileDescription));
+        }
+        var items = tasks.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toCollection(ArrayList::new));
+        saveMetadata(items);
+        return items.stream()
+                .map(Item::result)
+                .toList();
+    }
+
+    private CompletableFuture<Item> submit(FileUpload mediaFile, MediaFileDescription mediaFileDescription) {
+        try {
+            return CompletableFuture.supplyAsync(() -> storeContent(mediaFile, mediaFileDescription), batchBulkhead::executeWhenAvailable);
+        } catch (MediaFileServerException e) {
+            // The bulkhead is shut down, or the request thread is interrupted while it waits for room
+            logger.error("Error submitting media file {}", mediaFile.fileName(), e);
+            return CompletableFuture.completedFuture(Item.failed(mediaFile.fileName(), 503, "Service unavailable"));
+        }
+    }
+
+    private Item storeContent(FileUpload mediaFile, MediaFileDescription mediaFileDescription) {
+        var fileName = mediaFile.fileName();
+        if (mediaFileDescription == null) {
+            return Item.failed(fileName, 400, "Missing description");
+        }
+        if (!validator.validate(mediaFileDescription).isEmpty()) {
+            return Item.failed(fileName, 400, "Invalid description");
+        }
+        try (var inputStream = Files.newInputStream(mediaFile.filePath())) {
+            return Item.stored(fileName, uploadPipeline.storeContent(inputStream, mediaFile.size(), fileName, mediaFileDescription));
+        } catch (MediaFileServerException e) {
+            logger.error("Error storing media file {}", fileName, e);
+            return Item.failed(fileName, 400, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error storing media file {}", fileName, e);
+            return Item.failed(fileName, 400, "Error storing media file");
+        }
+    }
+
+    private void saveMetadata(List<Item> items) {
+        var newMediaFiles = items.stream()
+                .filter(item -> item.storedMediaFile() != null)
+                .map(item -> item.storedMediaFile().toMediaFile())
+                .toList();
+        if (newMediaFiles.isEmpty()) {
+            return;
+        }
+        try {
+            mediaFiles.storeAll(newMediaFiles);
+        } catch (Exception e) {
+            logger.error("Error saving media files", e);
+            items.replaceAll(item -> {
+                if (item.storedMediaFile() == null) {
+                    return item;
+                }
+                uploadPipeline.discardContent(item.storedMediaFile());
+                return Item.failed(item.result().fileName(), 500, "Error saving media file");
+            });
+        }
+    }
+
+    private record Item(MediaFileBatchResult result, StoredMediaFile storedMediaFile) {
+
+        static Item stored(String fileName, StoredMediaFile storedMediaFile) {
+            return new Item(MediaFileBatchResult.created(fileName, storedMediaFile.url()), storedMediaFile);
+        }
+
+        static Item failed(String fileName, int status, String error) {
+            return new Item(MediaFileBatchResult.failed(fileName, status, error), null);
+        }
+    }
+}
@@ -2,24 +2,58 @@ package io.crunch.resource;
 
 import io.crunch.shared.MediaFileServerException;
 import jakarta.enterprise.context.ApplicationScoped;
-import org.apache.commons.codec.digest.DigestUtils;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
- * Generates a checksum value of the provided file by using SHA256 hash algorithm.
+ * Generates a checksum value of the provided file by using one of the {@link ChecksumAlgorithm}s, SHA256 by default.
  */
 @ApplicationScoped
 public class MediaFileChecksumGenerator {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public String checksum(Path path) {
-        try (var fis = new BufferedInputStream(new FileInputStream(path.toFile()))) {
-            return DigestUtils.sha256Hex(fis);
+        return checksum(path, ChecksumAlgorithm.SHA256);
+    }
+
+    public String checksum(Path path, ChecksumAlgorithm algorithm) {
+        try (var inputStream = Files.newInputStream(path)) {
+            return checksum(inputStream, algorithm);
         } catch (IOException e) {
             throw new MediaFileServerException(e);
         }
     }
+
+    /**
+     * Reads the stream to its end, and calculates its checksum.
+     *
+     * @param inputStream the content; it is not closed by this method
+     * @param algorithm   the checksum algorithm
+     * @return the hex encoded checksum value
+     * @throws IOException if the stream cannot be read
+     */
+    public String checksum(InputStream inputStream, ChecksumAlgorithm algorithm) throws IOException {
+        var calculator = newCalculator(algorithm);
+        var buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            calculator.update(buffer, 0, count);
+        }
+        return calculator.checksum();
+    }
+
+    /**
+     * Creates a new calculator that can be updated while the file content is streamed, for example by a
+     * {@link ChecksumInputStream}. Use {@link ChecksumCalculator#checksum()} to get the checksum value at the end.
+     *
+     * @param algorithm the checksum algorithm
+     * @return a new checksum calculator
+     */
+    public ChecksumCalculator newCalculator(ChecksumAlgorithm algorithm) {
+        return algorithm.newCalculator();
+    }
 }
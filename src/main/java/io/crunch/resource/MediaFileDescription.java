@@ -4,5 +4,22 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
-public record MediaFileDescription(@JsonProperty("checksum") @NotBlank @Size(max = 255) String checksum) {
+/**
+ * Metadata of an uploaded media file.
+ *
+ * @param checksum  the expected checksum of the content
+ * @param algorithm the algorithm of the checksum, SHA256 if it is not specified
+ */
+public record MediaFileDescription(@JsonProperty("checksum") @NotBlank @Size(max = 255) String checksum,
+                                   @JsonProperty("algorithm") ChecksumAlgorithm algorithm) {
+
+    public MediaFileDescription {
+        if (algorithm == null) {
+            algorithm = ChecksumAlgorithm.SHA256;
+        }
+    }
+
+    public MediaFileDescription(String checksum) {
+        this(checksum, ChecksumAlgorithm.SHA256);
+    }
 }
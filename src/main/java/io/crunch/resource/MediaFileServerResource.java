@@ -1,20 +1,30 @@
 package io.crunch.resource;
 
+import io.crunch.bulkhead.Bulkhead;
+import io.crunch.bulkhead.BulkheadFullException;
+import io.crunch.bulkhead.Bulkheads;
 import io.crunch.media.MediaFiles;
-import io.crunch.store.MediaFileStore;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.jboss.resteasy.reactive.PartType;
 import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestHeader;
+import org.jboss.resteasy.reactive.RestPath;
 import org.jboss.resteasy.reactive.RestResponse;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
 import java.util.List;
 
 /**
@@ -28,30 +38,41 @@ import java.util.List;
  * multipart file uploads. The uploaded files are validated, assigned a unique media ID,
  * and stored persistently.
  * </p>
- * @apiNote The endpoints are executed in blocking mode to simplify the implementation.
+ * @apiNote The endpoints are executed in blocking mode to simplify the implementation. They run on virtual threads,
+ * or on the worker pool if {@code quarkus.virtual-threads.enabled} is {@code false}.
  */
+@RunOnVirtualThread
 @Path("/api")
 public class MediaFileServerResource {
 
+    /** Request header of the streaming upload that holds the expected checksum of the media file. */
+    static final String CHECKSUM_HEADER = "X-Media-Checksum";
+
+    /** Request header of the streaming upload that holds the algorithm of the checksum, SHA256 if it is missing. */
+    static final String CHECKSUM_ALGORITHM_HEADER = "X-Media-Checksum-Algorithm";
+
+    /** Request header of the streaming upload that holds the original name of the media file. */
+    static final String FILE_NAME_HEADER = "X-Media-File-Name";
+
     private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private final MediaFileChecksumGenerator checksumGenerator;
+    private final MediaFileUploadPipeline uploadPipeline;
 
-    private final ContentTypeExtractor contentTypeExtractor;
+    private final MediaFileBatchUploader batchUploader;
 
     private final MediaUrls mediaUrls;
 
-    private final MediaFileStore mediaFileStore;
-
     private final MediaFiles mediaFiles;
 
-    public MediaFileServerResource(MediaFileChecksumGenerator checksumGenerator, ContentTypeExtractor contentTypeExtractor,
-                                   MediaUrls mediaUrls, MediaFileStore mediaFileStore, MediaFiles mediaFiles) {
-        this.checksumGenerator = checksumGenerator;
-        this.contentTypeExtractor = contentTypeExtractor;
+    private final Bulkhead uploadBulkhead;
+
+    public MediaFileServerResource(MediaFileUploadPipeline uploadPipeline, MediaFileBatchUploader batchUploader,
+                                   MediaUrls mediaUrls, MediaFiles mediaFiles, Bulkheads bulkheads) {
+        this.uploadPipeline = uploadPipeline;
+        this.batchUploader = batchUploader;
         this.mediaUrls = mediaUrls;
-        this.mediaFileStore = mediaFileStore;
         this.mediaFiles = mediaFiles;
+        this.uploadBulkhead = bulkheads.upload();
     }
 
     /**
@@ -60,6 +81,11 @@ public class MediaFileServerResource {
      * The uploaded file is validated using its checksum before being stored. It also checks the content type of the file.
      * If the validation succeeds, a unique media ID is generated, and the file is stored with its content type.
      * </p>
+     * <p>
+     * The file is read only once by the {@link MediaFileUploadPipeline}: the checksum and the content type are computed
+     * while the content is streamed to the store. The upload runs in the upload {@link Bulkhead}; if it is saturated, the
+     * request is rejected with {@code 503 Service Unavailable}.
+     * </p>
      * Note: In a production environment, additional security measures should be implemented to prevent
      * unauthorized access, and to ensure infection-free file uploads.
      *
@@ -67,6 +93,7 @@ public class MediaFileServerResource {
      * @param mediaFileDescription  metadata associated with the media file, including checksum validation
      * @return a response containing the URL of the stored media file
      * @throws BadRequestException if the checksum validation fails or any unexpected error occurs
+     * @throws ServiceUnavailableException if the upload bulkhead is saturated
      */
     @POST
     @Produces(MediaType.APPLICATION_JSON)
@@ -75,21 +102,52 @@ public class MediaFileServerResource {
             @NotNull
             @RestForm("media") FileUpload mediaFile,
             @RestForm("description") @PartType(MediaType.APPLICATION_JSON) @Valid MediaFileDescription mediaFileDescription) {
-        try {
+        try (var inputStream = Files.newInputStream(mediaFile.filePath())) {
             logger.info("Media file upload request with params {}", mediaFileDescription);
-            validateChecksum(mediaFile, mediaFileDescription);
-
-            var contentType = contentTypeExtractor.getContentType(mediaFile.filePath(), mediaFile.fileName());
-            checkContentType(contentType);
-            var url = mediaUrls.createUrl();
-            var mediaId = mediaUrls.getMediaId(url);
-
-            logger.info("Generated media id: {}, and content type: {}", mediaId, contentType);
-
-            mediaFiles.store(mediaId, contentType);
-            mediaFileStore.store(mediaFile.filePath(), mediaId, contentType);
+            var url = uploadBulkhead.call(() -> uploadPipeline.upload(inputStream, mediaFile.size(), mediaFile.fileName(), mediaFileDescription));
+            return RestResponse.status(Response.Status.CREATED, url);
+        } catch (BulkheadFullException e) {
+            logger.warn("Media file upload is rejected: {}", e.getMessage());
+            throw new ServiceUnavailableException();
+        } catch (Exception e) {
+            logger.error("Error storing media file", e);
+            throw new BadRequestException();
+        }
+    }
 
+    /**
+     * Handles the streaming upload of a media file.
+     * <p>
+     * Unlike {@link #createMediaFile(FileUpload, MediaFileDescription)}, the request body is the raw content of the media file,
+     * and it is not spooled to a temporary file: the body is cut into parts as it arrives, and the parts are sent to the store
+     * as a multipart upload. The expected checksum is passed in the {@value #CHECKSUM_HEADER} header. If the validation fails,
+     * the multipart upload is aborted. The upload runs in the upload {@link Bulkhead}, like the multipart form upload.
+     * </p>
+     *
+     * @param inputStream the content of the media file
+     * @param checksum    the expected checksum of the content
+     * @param algorithm   the optional algorithm of the checksum, SHA256 by default
+     * @param fileName    the optional original name of the media file, used as a hint for the content type detection
+     * @return a response containing the URL of the stored media file
+     * @throws BadRequestException if the checksum validation fails or any unexpected error occurs
+     * @throws ServiceUnavailableException if the upload bulkhead is saturated
+     */
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    public RestResponse<String> streamMediaFile(
+            InputStream inputStream,
+            @RestHeader(CHECKSUM_HEADER) @NotBlank @Size(max = 255) String checksum,
+            @RestHeader(CHECKSUM_ALGORITHM_HEADER) String algorithm,
+            @RestHeader(FILE_NAME_HEADER) String fileName) {
+        try {
+            var mediaFileDescription = new MediaFileDescription(checksum, ChecksumAlgorithm.of(algorithm));
+            logger.info("Media file streaming upload request with params {}", mediaFileDescription);
+            var url = uploadBulkhead.call(() -> uploadPipeline.upload(inputStream, -1, fileName, mediaFileDescription));
             return RestResponse.status(Response.Status.CREATED, url);
+        } catch (BulkheadFullException e) {
+            logger.warn("Media file streaming upload is rejected: {}", e.getMessage());
+            throw new ServiceUnavailableException();
         } catch (Exception e) {
             logger.error("Error storing media file", e);
             throw new BadRequestException();
@@ -97,48 +155,64 @@ public class MediaFileServerResource {
     }
 
     /**
-     * Retrieves a list of stored media file IDs.
+     * Handles the upload of many media files in one request.
      * <p>
-     * The response contains a list of URLs that can be used to access the stored media files.
+     * Each {@code media} part is paired with the {@code description} part at the same position. The media files are
+     * validated and stored concurrently, and their metadata is saved with batched inserts. A media file that fails
+     * the validation is reported in its own result, and it does not prevent the others from being stored.
      * </p>
      *
-     * @return a response containing the list of media file URLs
+     * @param mediaFileUploads      the uploaded media files
+     * @param mediaFileDescriptions metadata associated with the media files, in the same order as the files
+     * @return a response containing the outcome of every media file, in the same order as the files
      */
-    @GET
+    @POST
+    @Path("/batch")
     @Produces(MediaType.APPLICATION_JSON)
-    public RestResponse<List<String>> getMediaIds() {
-        return RestResponse.ok(mediaFiles.getMediaIds()
-                .stream()
-                .map(mediaUrls::createUrl)
-                .toList());
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    public RestResponse<List<MediaFileBatchResult>> createMediaFiles(
+            @NotEmpty
+            @RestForm("media") List<FileUpload> mediaFileUploads,
+            @RestForm("description") @PartType(MediaType.APPLICATION_JSON) List<MediaFileDescription> mediaFileDescriptions) {
+        logger.info("Media file batch upload request with {} files", mediaFileUploads.size());
+        return RestResponse.ok(batchUploader.upload(mediaFileUploads, mediaFileDescriptions != null ? mediaFileDescriptions : List.of()));
     }
 
     /**
-     * Validates the checksum of an uploaded media file.
+     * Removes a media file.
      * <p>
-     * The computed checksum of the file is compared with the expected checksum provided in the request metadata.
-     * If the values do not match, an error is logged, and a {@code BadRequestException} is thrown.
+     * The content of the media file is removed from the store too, unless it is deduplicated, and other media files
+     * still point at it. If the content cannot be released, the media file is removed anyway, and the release is retried
+     * in the background.
      * </p>
      *
-     * @param mediaFile            the uploaded media file
-     * @param mediaFileDescription the metadata containing the expected checksum
-     * @throws BadRequestException if the checksum validation fails
+     * @param mediaId the media identifier, a.k.a. the query param of the URL of the media file
+     * @return an empty response
+     * @throws NotFoundException if the media file does not exist
      */
-    private void validateChecksum(FileUpload mediaFile, MediaFileDescription mediaFileDescription) {
-        var checksum = checksumGenerator.checksum(mediaFile.filePath());
-        if (!mediaFileDescription.checksum().equals(checksum)) {
-            logger.error("Media file {} checksum error", mediaFile.fileName());
-            throw new BadRequestException();
+    @DELETE
+    @Path("{mediaId}")
+    public RestResponse<Void> removeMediaFile(@RestPath String mediaId) {
+        if (!uploadPipeline.remove(mediaId)) {
+            throw new NotFoundException();
         }
+        return RestResponse.noContent();
     }
 
-    private void checkContentType(String contentType) {
-        boolean isSupported = switch (contentType) {
-            case "image/jpeg", "image/png", "audio/mpeg", "application/pdf", "video/mp4" -> true;
-            default -> false;
-        };
-        if (!isSupported) {
-            throw new BadRequestException("Unsupported content type: " + contentType);
-        }
+    /**
+     * Retrieves a list of stored media file IDs.
+     * <p>
+     * The response contains a list of URLs that can be used to access the stored media files.
+     * </p>
+     *
+     * @return a response containing the list of media file URLs
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public RestResponse<List<String>> getMediaIds() {
+        return RestResponse.ok(mediaFiles.getMediaIds()
+                .stream()
+                .map(mediaUrls::createUrl)
+                .toList());
     }
 }
@@ -0,0 +1,155 @@
+package io.crunch.resource;
+
+import io.crunch.shared.MediaFileServerException;
+import io.crunch.upload.UploadJob;
+import io.crunch.upload.UploadJobs;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable local spool of the media files that are uploaded asynchronously.
+ * <p>
+ * An accepted media file is moved into the spool directory under the identifier of its job, and the job is registered
+ * in the database. A bounded pool of workers drains the spool through the {@link MediaFileUploadPipeline}, so the
+ * latency of the object store does not affect the upload request, and a burst of uploads is queued on the local disk
+ * instead of timing out.
+ * </p>
+ * <p>
+ * The spooled file is removed once its job is finished. The jobs that were not finished before a shutdown are processed
+ * again when the application starts. The spool directory is local to the instance, so a job belongs to the instance that
+ * spooled it, identified by {@code media.upload.spool.owner}; the instances sharing the database pick up only their own
+ * jobs. The owner must be stable across the restarts, and the spool directory must be on a persistent volume, otherwise
+ * the unfinished jobs are lost.
+ * </p>
+ */
+@ApplicationScoped
+public class MediaFileSpool {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaFileUploadPipeline uploadPipeline;
+
+    private final UploadJobs uploadJobs;
+
+    private final Path spoolDirectory;
+
+    private final String owner;
+
+    private final ExecutorService executor;
+
+    public MediaFileSpool(MediaFileUploadPipeline uploadPipeline, UploadJobs uploadJobs,
+                          @ConfigProperty(name = "media.upload.spool.directory") Path spoolDirectory,
+                          @ConfigProperty(name = "media.upload.spool.owner") String owner,
+                          @ConfigProperty(name = "media.upload.spool.workers", defaultValue = "2") int workers) {
+        this.uploadPipeline = uploadPipeline;
+        this.uploadJobs = uploadJobs;
+        this.spoolDirectory = spoolDirectory;
+        this.owner = owner;
+        this.executor = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("spool-worker-", 0).daemon().factory());
+    }
+
+    /**
+     * Accepts a media file into the spool, and schedules its processing.
+     *
+     * @param path                 the uploaded media file; it is moved into the spool
+     * @param fileName             the original name of the media file, used as a hint for the content type detection
+     * @param mediaFileDescription metadata associated with the media file, including the expected checksum
+     * @return the new job of the media file
+     * @throws MediaFileServerException if the media file cannot be moved into the spool, or the job cannot be registered
+     */
+    public UploadJob accept(Path path, String fileName, MediaFileDescription mediaFileDescription) {
+        var jobId = UUID.randomUUID().toString();
+        var spoolFile = getSpoolFile(jobId);
+        try {
+            Files.move(path, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MediaFileServerException("Error spooling media file", e);
+        }
+        UploadJob job;
+        try {
+            job = uploadJobs.create(jobId, owner, mediaFileDescription.checksum(), mediaFileDescription.algorithm().getName(), fileName);
+        } catch (RuntimeException e) {
+            // Without its job, the spooled file would never be processed nor removed
+            delete(spoolFile);
+            throw e;
+        }
+        submit(job);
+        return job;
+    }
+
+    @PostConstruct
+    void initSpool() {
+        try {
+            Files.createDirectories(spoolDirectory);
+        } catch (IOException e) {
+            throw new MediaFileServerException("Error creating spool directory", e);
+        }
+    }
+
+    /**
+     * Resubmits the jobs of this instance that were not finished before the last shutdown.
+     */
+    void onStart(@Observes StartupEvent event) {
+        uploadJobs.getUnfinished(owner).forEach(job -> {
+            if (Files.exists(getSpoolFile(job.getJobId()))) {
+                logger.info("Resubmitting upload job {}", job.getJobId());
+                submit(job);
+            } else {
+                uploadJobs.failed(job.getJobId(), "Spooled media file is missing");
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void submit(UploadJob job) {
+        executor.execute(() -> process(job.getJobId(), job.getFileName(), new MediaFileDescription(job.getChecksum(), ChecksumAlgorithm.of(job.getAlgorithm()))));
+    }
+
+    private void process(String jobId, String fileName, MediaFileDescription mediaFileDescription) {
+        var spoolFile = getSpoolFile(jobId);
+        try {
+            uploadJobs.processing(jobId);
+            try (var inputStream = Files.newInputStream(spoolFile)) {
+                uploadJobs.completed(jobId, uploadPipeline.upload(inputStream, Files.size(spoolFile), fileName, mediaFileDescription));
+            }
+        } catch (MediaFileServerException e) {
+            logger.error("Error processing upload job {}", jobId, e);
+            uploadJobs.failed(jobId, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error processing upload job {}", jobId, e);
+            uploadJobs.failed(jobId, "Error storing media file");
+        }
+        delete(spoolFile);
+    }
+
+    private void delete(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            logger.warn("Spooled media file {} cannot be removed", spoolFile, e);
+        }
+    }
+
+    private Path getSpoolFile(String jobId) {
+        return spoolDirectory.resolve(jobId);
+    }
+}
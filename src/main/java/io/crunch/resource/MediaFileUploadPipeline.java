@@ -0,0 +1,465 @@
+package io.crunch.resource;
+
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.MediaFileServerException;
+import io.crunch.store.ContentVerifier;
+import io.crunch.store.MediaFileStore;
+import io.crunch.viewer.MediaRequestCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Processes an uploaded media file in a single pass over its content.
+ * <p>
+ * The content is read only once: the leading bytes are buffered to detect the content type, then the whole stream
+ * is pushed to the {@link MediaFileStore} while the checksum is calculated on the fly. The store commits the file only
+ * if the checksum matches the expected value; otherwise the written content is discarded.
+ * </p>
+ * <p>
+ * The metadata of the media file becomes visible only after the content has been stored successfully, so a
+ * {@link io.crunch.media.MediaFile} never points to an invalid or missing content.
+ * </p>
+ * <p>
+ * The duration of every stage is published as the {@code media.upload.stage} timer: the content type detection, the
+ * insert of the metadata, the upload of the content, the checksum calculation within the upload, and the commit.
+ * The stages are recorded as {@link UploadStageEvent} flight recorder events too.
+ * </p>
+ */
+@ApplicationScoped
+public class MediaFileUploadPipeline {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaFileChecksumGenerator checksumGenerator;
+
+    private final ContentTypeExtractor contentTypeExtractor;
+
+    private final MediaUrls mediaUrls;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final MediaFiles mediaFiles;
+
+    private final MediaContentDeduplicator deduplicator;
+
+    private final MediaRequestCache requestCache;
+
+    private final Timer detectionTimer;
+
+    private final Timer insertTimer;
+
+    private final Timer uploadTimer;
+
+    private final Timer checksumTimer;
+
+    private final Timer commitTimer;
+
+    public MediaFileUploadPipeline(MediaFileChecksumGenerator checksumGenerator, ContentTypeExtractor contentTypeExtractor,
+                                   MediaUrls mediaUrls, MediaFileStore mediaFileStore, MediaFiles mediaFiles,
+                                   MediaContentDeduplicator deduplicator, MediaRequestCache requestCache, MeterRegistry registry) {
+        this.checksumGenerator = checksumGenerator;
+        this.contentTypeExtractor = contentTypeExtractor;
+        this.mediaUrls = mediaUrls;
+        this.mediaFileStore = mediaFileStore;
+        this.mediaFiles = mediaFiles;
+        this.deduplicator = deduplicator;
+        this.requestCache = requestCache;
+        this.detectionTimer = stageTimer(registry, "detection");
+        this.insertTimer = stageTimer(registry, "insert");
+        this.uploadTimer = stageTimer(registry, "upload");
+        this.checksumTimer = stageTimer(registry, "checksum");
+        this.commitTimer = stageTimer(registry, "commit");
+    }
+
+    /**
+     * Validates and stores the given media file content.
+     * <p>
+     * The metadata of the media file is inserted in pending state concurrently with the upload of the content, so the
+     * round trip to the database does not add to the duration of the upload. The media file is committed when both
+     * succeed; if either fails, the other one is compensated: the pending metadata or the stored content is removed.
+     * </p>
+     * <p>
+     * The insert runs on its own virtual thread, and the executor is closed before the method returns, so the insert
+     * never outlives the upload.
+     * </p>
+     *
+     * @param inputStream          the content of the media file; it is not closed by this method
+     * @param size                 the size of the content in bytes, or -1 if it is unknown
+     * @param fileName             the original name of the media file, used as a hint for the content type detection
+     * @param mediaFileDescription metadata associated with the media file, including the expected checksum
+     * @return the URL of the stored media file
+     * @throws MediaFileServerException if the content type is not supported, the checksum does not match, or the file cannot be stored
+     */
+    public String upload(InputStream inputStream, long size, String fileName, MediaFileDescription mediaFileDescription) {
+        var bufferedStream = new BufferedInputStream(inputStream, ContentTypeExtractor.PREFIX_LENGTH);
+        var mediaFile = prepare(readPrefix(bufferedStream), size, fileName, mediaFileDescription);
+        return reserveAndCommit(mediaFile, fileName, () -> writeContent(bufferedStream, size, fileName, mediaFileDescription, mediaFile));
+    }
+
+    /**
+     * Stores the content of a media file, while its metadata is inserted in pending state, and commits the media file
+     * when both succeed; if either fails, the other one is compensated.
+     *
+     * @param mediaFile    the media file to be stored
+     * @param fileName     the original name of the media file
+     * @param storeContent stores the content of the media file
+     * @return the URL of the stored media file
+     */
+    private String reserveAndCommit(StoredMediaFile mediaFile, String fileName, Runnable storeContent) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var reservation = executor.submit(() -> stage("insert", insertTimer, fileName, () -> mediaFiles.reserve(mediaFile.mediaId(), mediaFile.contentType(), mediaFile.objectName())));
+            try {
+                storeContent.run();
+            } catch (RuntimeException e) {
+                if (isReserved(reservation)) {
+                    discardReservation(mediaFile);
+                }
+                throw e;
+            }
+            if (!isReserved(reservation)) {
+                discardContent(mediaFile);
+                throw new MediaFileServerException("Error saving media file " + fileName);
+            }
+            stage("commit", commitTimer, fileName, () -> {
+                commit(mediaFile);
+                return null;
+            });
+        }
+        return mediaFile.url();
+    }
+
+    /**
+     * Validates and stores the given media file content, without saving its metadata.
+     * <p>
+     * The caller is responsible for saving the metadata of the returned media file, or for discarding its content
+     * by {@link #discardContent(StoredMediaFile)} if the metadata cannot be saved.
+     * </p>
+     *
+     * @param inputStream          the content of the media file; it is not closed by this method
+     * @param size                 the size of the content in bytes, or -1 if it is unknown
+     * @param fileName             the original name of the media file, used as a hint for the content type detection
+     * @param mediaFileDescription metadata associated with the media file, including the expected checksum
+     * @return the stored media file
+     * @throws MediaFileServerException if the content type is not supported, the checksum does not match, or the file cannot be stored
+     */
+    public StoredMediaFile storeContent(InputStream inputStream, long size, String fileName, MediaFileDescription mediaFileDescription) {
+        var bufferedStream = new BufferedInputStream(inputStream, ContentTypeExtractor.PREFIX_LENGTH);
+        var mediaFile = prepare(readPrefix(bufferedStream), size, fileName, mediaFileDescription);
+        writeContent(bufferedStream, size, fileName, mediaFileDescription, mediaFile);
+        return mediaFile;
+    }
+
+    /**
+     * Detects the content type of a media file, and assigns its media id and the name of its content in the store.
+     *
+     * @param prefix               the leading bytes of the media file
+     * @param size                 the size of the media file in bytes, or -1 if it is unknown
+     * @param fileName             the original name of the media file, used as a hint for the content type detection
+     * @param mediaFileDescription metadata associated with the media file, including the expected checksum
+     * @return the media file to be stored
+     * @throws MediaFileServerException if the content type is not supported
+     */
+    private StoredMediaFile prepare(byte[] prefix, long size, String fileName, MediaFileDescription mediaFileDescription) {
+        var contentType = stage("detection", detectionTimer, fileName, () -> contentTypeExtractor.getContentType(prefix, size, fileName));
+        checkContentType(contentType);
+
+        var url = mediaUrls.createUrl();
+        var mediaId = mediaUrls.getMediaId(url);
+        logger.info("Generated media id: {}, and content type: {}", mediaId, contentType);
+
+        var objectName = isDeduplicated(mediaFileDescription) ? deduplicator.getObjectName(mediaFileDescription.checksum()) : mediaId;
+        return new StoredMediaFile(url, mediaId, contentType, objectName);
+    }
+
+    /**
+     * Streams the content of a media file to the store, while its checksum is calculated.
+     * The content is kept only if the checksum matches the expected value.
+     */
+    private void writeContent(InputStream inputStream, long size, String fileName, MediaFileDescription mediaFileDescription,
+                              StoredMediaFile mediaFile) {
+        var calculator = checksumGenerator.newCalculator(mediaFileDescription.algorithm());
+        var checksumStream = new ChecksumInputStream(inputStream, calculator);
+        ContentVerifier verifier = () -> validateChecksum(fileName, mediaFileDescription, calculator.checksum());
+        var event = new UploadStageEvent();
+        event.begin();
+        var start = System.nanoTime();
+        try {
+            if (isDeduplicated(mediaFileDescription)) {
+                deduplicator.store(checksumStream, size, mediaFile.contentType(), mediaFileDescription.checksum(), verifier);
+            } else {
+                mediaFileStore.store(checksumStream, size, mediaFile.mediaId(), mediaFile.contentType(), verifier);
+            }
+        } finally {
+            uploadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            checksumTimer.record(checksumStream.getChecksumNanos(), TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = "upload";
+                event.fileName = fileName;
+                event.checksumDuration = checksumStream.getChecksumNanos();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Runs a stage of the upload, and records its duration, also when it fails.
+     */
+    private <T> T stage(String stage, Timer timer, String fileName, Supplier<T> action) {
+        var event = new UploadStageEvent();
+        event.begin();
+        var start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage;
+                event.fileName = fileName;
+                event.commit();
+            }
+        }
+    }
+
+    private boolean isDeduplicated(MediaFileDescription mediaFileDescription) {
+        return deduplicator.isEnabled() && mediaFileDescription.algorithm() == ChecksumAlgorithm.SHA256;
+    }
+
+    /**
+     * Waits for the insert of the pending metadata.
+     *
+     * @return {@code true} if the metadata is inserted, {@code false} if the insert failed
+     */
+    private boolean isReserved(Future<Long> reservation) {
+        try {
+            reservation.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MediaFileServerException("Media file upload interrupted", e);
+        } catch (ExecutionException e) {
+            logger.error("Error saving media file", e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * Makes a media file visible after both its metadata and its content are stored.
+     * <p>
+     * If the commit fails, the content is discarded only when the pending metadata is surely removed; otherwise both are
+     * left to the {@link PendingMediaFileCleaner}.
+     * </p>
+     */
+    private void commit(StoredMediaFile mediaFile) {
+        boolean committed;
+        try {
+            committed = mediaFiles.commit(mediaFile.mediaId());
+        } catch (RuntimeException e) {
+            if (discardReservation(mediaFile)) {
+                discardContent(mediaFile);
+            }
+            throw e;
+        }
+        if (!committed) {
+            // The pending metadata has been removed by the cleaner, because the upload took too long
+            discardContent(mediaFile);
+            throw new MediaFileServerException("Media file " + mediaFile.mediaId() + " expired before it was stored");
+        }
+    }
+
+    /**
+     * Removes the pending metadata of a media file whose content could not be stored.
+     * Errors are logged only, the {@link PendingMediaFileCleaner} removes the metadata later.
+     *
+     * @return {@code true} if the pending metadata is removed
+     */
+    private boolean discardReservation(StoredMediaFile mediaFile) {
+        try {
+            return mediaFiles.discard(mediaFile.mediaId());
+        } catch (RuntimeException e) {
+            logger.warn("Pending media file {} cannot be discarded", mediaFile.mediaId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the content of a media file whose metadata could not be saved.
+     * <p>
+     * A deduplicated content is removed only if nothing else points at it.
+     * </p>
+     *
+     * @param storedMediaFile the media file returned by {@link #storeContent(InputStream, long, String, MediaFileDescription)}
+     */
+    public void discardContent(StoredMediaFile storedMediaFile) {
+        try {
+            deduplicator.release(storedMediaFile.objectName());
+        } catch (MediaFileServerException e) {
+            logger.warn("Media file {} cannot be discarded", storedMediaFile.mediaId(), e);
+        }
+    }
+
+    /**
+     * Removes a media file, and releases its content.
+     * <p>
+     * The media file is hidden and its tokens are invalidated first, then its row is deleted together with the release
+     * of its content in one transaction. If the release fails, the media file stays removed, and
+     * {@link PendingMediaFileCleaner} releases its content later, so the reference of a deduplicated content is never lost.
+     * </p>
+     *
+     * @param mediaId the media identifier
+     * @return {@code true} if the media file existed, otherwise {@code false}
+     */
+    public boolean remove(String mediaId) {
+        var mediaFile = mediaFiles.markRemoved(mediaId);
+        if (mediaFile.isEmpty()) {
+            return false;
+        }
+        requestCache.removeMediaId(mediaId);
+        try {
+            mediaFiles.purge(mediaId, () -> deduplicator.release(mediaFile.get().getObjectName()));
+        } catch (RuntimeException e) {
+            logger.warn("Content of removed media file {} cannot be released, it is retried later", mediaId, e);
+        }
+        return true;
+    }
+
+    /**
+     * Validates and stores a media file that was uploaded in chunks.
+     * <p>
+     * The chunks are concatenated by the store on the server side, so their content is not transferred through the
+     * application. The assembled file is then read once to verify its checksum; if the verification fails, the file is removed.
+     * The metadata is inserted and committed the same way as by {@link #upload}, so the assembled file is removed if
+     * the metadata cannot be saved. A deduplicated content is moved to its content address once it is verified.
+     * </p>
+     *
+     * @param chunkFileNames       the names of the stored chunks, in order
+     * @param size                 the size of the assembled media file in bytes, the sum of the sizes of the chunks
+     * @param fileName             the original name of the media file, used as a hint for the content type detection
+     * @param mediaFileDescription metadata associated with the media file, including the expected checksum
+     * @return the URL of the stored media file
+     * @throws MediaFileServerException if the content type is not supported, the checksum does not match, or the file cannot be stored
+     */
+    public String assemble(List<String> chunkFileNames, long size, String fileName, MediaFileDescription mediaFileDescription) {
+        byte[] prefix;
+        try (var inputStream = mediaFileStore.read(chunkFileNames.getFirst(), 0, ContentTypeExtractor.PREFIX_LENGTH)) {
+            prefix = inputStream.readNBytes(ContentTypeExtractor.PREFIX_LENGTH);
+        } catch (IOException e) {
+            throw new MediaFileServerException("Error reading media file", e);
+        }
+        var mediaFile = prepare(prefix, size, fileName, mediaFileDescription);
+        return reserveAndCommit(mediaFile, fileName, () -> stage("upload", uploadTimer, fileName, () -> {
+            composeContent(chunkFileNames, fileName, mediaFileDescription, mediaFile);
+            return null;
+        }));
+    }
+
+    /**
+     * Concatenates the chunks of a media file under its media id, and verifies the checksum of the result.
+     * A deduplicated content is then moved to its content address.
+     */
+    private void composeContent(List<String> chunkFileNames, String fileName, MediaFileDescription mediaFileDescription,
+                                StoredMediaFile mediaFile) {
+        var mediaId = mediaFile.mediaId();
+        mediaFileStore.compose(chunkFileNames, mediaId, mediaFile.contentType());
+        try {
+            validateChecksum(fileName, mediaFileDescription, readChecksum(mediaId, mediaFileDescription.algorithm()));
+            if (isDeduplicated(mediaFileDescription)) {
+                deduplicator.adopt(mediaId, mediaFile.contentType(), mediaFileDescription.checksum());
+            }
+        } catch (RuntimeException e) {
+            removeQuietly(mediaId);
+            throw e;
+        }
+    }
+
+    private void removeQuietly(String objectName) {
+        try {
+            mediaFileStore.remove(objectName);
+        } catch (RuntimeException e) {
+            logger.warn("Media file {} cannot be removed", objectName, e);
+        }
+    }
+
+    /**
+     * Reads a stored media file, and calculates its checksum.
+     *
+     * @param mediaId   the name of the stored media file
+     * @param algorithm the checksum algorithm
+     * @return the checksum of the stored content
+     */
+    private String readChecksum(String mediaId, ChecksumAlgorithm algorithm) {
+        try (var inputStream = mediaFileStore.read(mediaId)) {
+            return checksumGenerator.checksum(inputStream, algorithm);
+        } catch (IOException e) {
+            throw new MediaFileServerException("Error reading media file", e);
+        }
+    }
+
+    /**
+     * Reads the leading bytes of the stream used for the content type detection, and resets the stream to its beginning.
+     *
+     * @param inputStream the stream of the media file, its buffer must hold at least {@link ContentTypeExtractor#PREFIX_LENGTH} bytes
+     * @return the leading bytes of the stream
+     */
+    private byte[] readPrefix(BufferedInputStream inputStream) {
+        try {
+            inputStream.mark(ContentTypeExtractor.PREFIX_LENGTH);
+            var prefix = inputStream.readNBytes(ContentTypeExtractor.PREFIX_LENGTH);
+            inputStream.reset();
+            return prefix;
+        } catch (IOException e) {
+            throw new MediaFileServerException("Error reading media file", e);
+        }
+    }
+
+    /**
+     * Validates the checksum of an uploaded media file.
+     * <p>
+     * The computed checksum of the file is compared with the expected checksum provided in the request metadata.
+     * </p>
+     *
+     * @param fileName             the original name of the media file
+     * @param mediaFileDescription the metadata containing the expected checksum
+     * @param checksum             the checksum computed while the file was streamed
+     * @throws MediaFileServerException if the checksum validation fails
+     */
+    private void validateChecksum(String fileName, MediaFileDescription mediaFileDescription, String checksum) {
+        if (!mediaFileDescription.checksum().equals(checksum)) {
+            logger.error("Media file {} checksum error", fileName);
+            throw new MediaFileServerException("Checksum mismatch: " + fileName);
+        }
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("media.upload.stage")
+                .description("The duration of the stages of the media file uploads")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private void checkContentType(String contentType) {
+        boolean isSupported = switch (contentType) {
+            case "image/jpeg", "image/png", "audio/mpeg", "application/pdf", "video/mp4" -> true;
+            default -> false;
+        };
+        if (!isSupported) {
+            throw new MediaFileServerException("Unsupported content type: " + contentType);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.crunch.resource;
+
+import io.crunch.media.MediaFile;
+import io.crunch.media.MediaFiles;
+import io.crunch.store.MediaFileStore;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the media files that remained pending, because their upload never finished.
+ * <p>
+ * A media file is pending while its content is being uploaded, see {@link MediaFileUploadPipeline#upload}. Normally the
+ * upload either commits it or discards it; a pending media file is left behind only if the application stopped during
+ * the upload, or the compensation itself failed. Such media files are removed periodically, after they have been pending
+ * for longer than the configured timeout, together with the content that might have been written for them.
+ * </p>
+ * <p>
+ * The removed media files whose content could not be released, see {@link MediaFileUploadPipeline#remove}, are purged
+ * by the same task: their rows are deleted together with the release of their content, until it succeeds.
+ * </p>
+ * @apiNote The content-addressed objects of the deduplication are not released: it is unknown whether the interrupted
+ * upload already added its reference. In the worst case, such an object is kept after its last media file is removed.
+ */
+@ApplicationScoped
+public class PendingMediaFileCleaner {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaFiles mediaFiles;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final MediaContentDeduplicator deduplicator;
+
+    private final Duration timeout;
+
+    private final Duration interval;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("pending-cleaner").daemon().factory());
+
+    public PendingMediaFileCleaner(MediaFiles mediaFiles, MediaFileStore mediaFileStore, MediaContentDeduplicator deduplicator,
+                                   @ConfigProperty(name = "media.upload.pending.timeout", defaultValue = "1h") Duration timeout,
+                                   @ConfigProperty(name = "media.upload.pending.cleanup-interval", defaultValue = "5m") Duration interval) {
+        this.mediaFiles = mediaFiles;
+        this.mediaFileStore = mediaFileStore;
+        this.deduplicator = deduplicator;
+        this.timeout = timeout;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts the periodic cleanup; the first run removes the media files left pending by the last shutdown.
+     */
+    void onStart(@Observes StartupEvent event) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            removeStale(Instant.now().minus(timeout));
+            purgeRemoved();
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Removes the media files that have been pending since before the given time.
+     *
+     * @param createdBefore the upper limit of the creation time of the removed media files, exclusive
+     * @return the number of removed media files
+     */
+    int removeStale(Instant createdBefore) {
+        try {
+            var staleMediaFiles = mediaFiles.getPending(createdBefore);
+            int removed = 0;
+            for (var mediaFile : staleMediaFiles) {
+                if (remove(mediaFile)) {
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                logger.info("{} stale pending media files are removed", removed);
+            }
+            return removed;
+        } catch (RuntimeException e) {
+            // The scheduled task would be cancelled by an exception
+            logger.error("Error removing stale pending media files", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Releases the content of the removed media files, and deletes them.
+     *
+     * @return the number of purged media files
+     */
+    int purgeRemoved() {
+        try {
+            int purged = 0;
+            for (var mediaFile : mediaFiles.getRemoved()) {
+                if (purge(mediaFile)) {
+                    purged++;
+                }
+            }
+            if (purged > 0) {
+                logger.info("{} removed media files are purged", purged);
+            }
+            return purged;
+        } catch (RuntimeException e) {
+            // The scheduled task would be cancelled by an exception
+            logger.error("Error purging removed media files", e);
+            return 0;
+        }
+    }
+
+    private boolean purge(MediaFile mediaFile) {
+        try {
+            return mediaFiles.purge(mediaFile.getMediaId(), () -> deduplicator.release(mediaFile.getObjectName()));
+        } catch (RuntimeException e) {
+            logger.warn("Content of removed media file {} cannot be released", mediaFile.getMediaId(), e);
+            return false;
+        }
+    }
+
+    private boolean remove(MediaFile mediaFile) {
+        // The row is removed first, so the content of a media file that has just been committed is never touched
+        if (!mediaFiles.discard(mediaFile.getMediaId())) {
+            return false;
+        }
+        // The content of an assembled media file is composed under its media id, even if it is moved to its content address later
+        var objectName = deduplicator.isContentAddressed(mediaFile.getObjectName()) ? mediaFile.getMediaId() : mediaFile.getObjectName();
+        try {
+            mediaFileStore.remove(objectName);
+        } catch (RuntimeException e) {
+            logger.warn("Content of pending media file {} cannot be removed", mediaFile.getMediaId(), e);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package io.crunch.resource;
+
+import io.crunch.store.MediaFileStore;
+import io.crunch.upload.UploadChunk;
+import io.crunch.upload.UploadSession;
+import io.crunch.upload.UploadSessions;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.RestHeader;
+import org.jboss.resteasy.reactive.RestPath;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * RESTful API resource for uploading large media files in chunks.
+ * <p>
+ * The protocol works as follows:
+ * <ol>
+ *     <li>The client creates an upload session with the expected checksum of the whole media file.</li>
+ *     <li>The client sends the numbered chunks of the file, in any order and possibly in parallel. A failed chunk can be
+ *     sent again without restarting the whole upload.</li>
+ *     <li>The client can query which chunks have been received, for example after a connection loss.</li>
+ *     <li>The client completes the session: the chunks are concatenated in the store, and the assembled file is verified
+ *     against the checksum before the media file is created.</li>
+ * </ol>
+ * The chunks are numbered from 1, and every chunk except the last one must be at least {@value #MIN_CHUNK_SIZE} bytes,
+ * because the chunks are concatenated by MinIO on the server side.
+ * </p>
+ * <p>
+ * The sessions are stored in the database and the chunks in the object store, so an upload can be continued after the
+ * restart of the application, as long as the database schema is kept across the restarts. A session that does not
+ * receive any chunk for {@code media.upload.session.timeout} is removed with its chunks by the {@link UploadSessionCleaner}.
+ * </p>
+ * @apiNote The endpoints are executed in blocking mode to simplify the implementation. They run on virtual threads,
+ * or on the worker pool if {@code quarkus.virtual-threads.enabled} is {@code false}.
+ */
+@RunOnVirtualThread
+@Path("/api/uploads")
+public class ResumableUploadResource {
+
+    /** The minimum size of a chunk, except the last one, required by the server side concatenation of MinIO. */
+    static final int MIN_CHUNK_SIZE = 5 * 1024 * 1024;
+
+    /** The maximum number of chunks that can be concatenated by MinIO. */
+    static final int MAX_CHUNKS = 10_000;
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final UploadSessions uploadSessions;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final MediaFileUploadPipeline uploadPipeline;
+
+    private final UploadSessionCleaner uploadSessionCleaner;
+
+    public ResumableUploadResource(UploadSessions uploadSessions, MediaFileStore mediaFileStore, MediaFileUploadPipeline uploadPipeline,
+                                   UploadSessionCleaner uploadSessionCleaner) {
+        this.uploadSessions = uploadSessions;
+        this.mediaFileStore = mediaFileStore;
+        this.uploadPipeline = uploadPipeline;
+        this.uploadSessionCleaner = uploadSessionCleaner;
+    }
+
+    /**
+     * Creates a new upload session.
+     *
+     * @param mediaFileDescription metadata associated with the media file, including the expected checksum of the whole file
+     * @param fileName             the optional original name of the media file, used as a hint for the content type detection
+     * @return a response containing the state of the new session, and its URL in the {@code Location} header
+     */
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public RestResponse<UploadSessionStatus> createSession(
+            @NotNull @Valid MediaFileDescription mediaFileDescription,
+            @RestHeader(MediaFileServerResource.FILE_NAME_HEADER) String fileName) {
+        logger.info("Upload session request with params {}", mediaFileDescription);
+        var session = uploadSessions.create(mediaFileDescription.checksum(), mediaFileDescription.algorithm().getName(), fileName);
+        return RestResponse.ResponseBuilder.create(Response.Status.CREATED, new UploadSessionStatus(session.getSessionId(), List.of()))
+                .location(URI.create("/api/uploads/" + session.getSessionId()))
+                .build();
+    }
+
+    /**
+     * Returns the state of an upload session.
+     *
+     * @param sessionId the identifier of the upload session
+     * @return a response containing the numbers of the received chunks
+     * @throws NotFoundException if the session does not exist
+     */
+    @GET
+    @Path("{sessionId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RestResponse<UploadSessionStatus> getSession(@RestPath String sessionId) {
+        var session = getUploadSession(sessionId);
+        var chunks = uploadSessions.getChunks(session.getSessionId()).stream().map(UploadChunk::getNumber).toList();
+        return RestResponse.ok(new UploadSessionStatus(session.getSessionId(), chunks));
+    }
+
+    /**
+     * Receives a chunk of the media file. Sending a chunk again replaces the previous content.
+     *
+     * @param sessionId   the identifier of the upload session
+     * @param number      the number of the chunk, starting from 1
+     * @param inputStream the content of the chunk
+     * @return an empty response
+     * @throws NotFoundException   if the session does not exist
+     * @throws BadRequestException if the chunk cannot be stored
+     */
+    @PUT
+    @Path("{sessionId}/chunks/{number}")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    public RestResponse<Void> uploadChunk(@RestPath String sessionId, @RestPath @Min(1) @Max(MAX_CHUNKS) int number, InputStream inputStream) {
+        var session = getUploadSession(sessionId);
+        try {
+            var chunkFileName = UploadSessionCleaner.getChunkFileName(session.getSessionId(), number);
+            mediaFileStore.store(inputStream, -1, chunkFileName, MediaType.APPLICATION_OCTET_STREAM, () -> {});
+            uploadSessions.addChunk(session.getSessionId(), number, mediaFileStore.getFileSize(chunkFileName));
+            return RestResponse.noContent();
+        } catch (Exception e) {
+            logger.error("Error storing chunk {} of upload session {}", number, sessionId, e);
+            throw new BadRequestException();
+        }
+    }
+
+    /**
+     * Completes an upload session.
+     * <p>
+     * The received chunks are concatenated, and the assembled file is verified against the checksum of the session.
+     * If the verification fails, the session is kept, so the wrong chunks can be sent again.
+     * </p>
+     *
+     * @param sessionId the identifier of the upload session
+     * @return a response containing the URL of the stored media file
+     * @throws NotFoundException   if the session does not exist
+     * @throws BadRequestException if chunks are missing or too small, or the validation of the assembled file fails
+     */
+    @POST
+    @Path("{sessionId}/complete")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RestResponse<String> completeSession(@RestPath String sessionId) {
+        var session = getUploadSession(sessionId);
+        var chunks = uploadSessions.getChunks(session.getSessionId());
+        checkChunks(chunks);
+        try {
+            var chunkFileNames = chunks.stream().map(chunk -> UploadSessionCleaner.getChunkFileName(session.getSessionId(), chunk.getNumber())).toList();
+            var size = chunks.stream().mapToLong(UploadChunk::getSize).sum();
+            var url = uploadPipeline.assemble(chunkFileNames, size, session.getFileName(), new MediaFileDescription(session.getChecksum(), ChecksumAlgorithm.of(session.getAlgorithm())));
+            uploadSessionCleaner.remove(session.getSessionId());
+            return RestResponse.status(Response.Status.CREATED, url);
+        } catch (Exception e) {
+            logger.error("Error completing upload session {}", sessionId, e);
+            throw new BadRequestException();
+        }
+    }
+
+    /**
+     * Cancels an upload session, and removes the received chunks.
+     *
+     * @param sessionId the identifier of the upload session
+     * @return an empty response
+     * @throws NotFoundException if the session does not exist
+     */
+    @DELETE
+    @Path("{sessionId}")
+    public RestResponse<Void> cancelSession(@RestPath String sessionId) {
+        var session = getUploadSession(sessionId);
+        uploadSessionCleaner.remove(session.getSessionId());
+        return RestResponse.noContent();
+    }
+
+    private UploadSession getUploadSession(String sessionId) {
+        return uploadSessions.get(sessionId).orElseThrow(() -> new NotFoundException("Upload session not found: " + sessionId));
+    }
+
+    /**
+     * Checks that the chunks are numbered continuously from 1, and that they can be concatenated by MinIO.
+     *
+     * @param chunks the received chunks ordered by their number
+     * @throws BadRequestException if a chunk is missing or too small
+     */
+    private void checkChunks(List<UploadChunk> chunks) {
+        if (chunks.isEmpty()) {
+            throw new BadRequestException("No chunks received");
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            var chunk = chunks.get(i);
+            if (chunk.getNumber() != i + 1) {
+                throw new BadRequestException("Missing chunk: " + (i + 1));
+            }
+            if (i < chunks.size() - 1 && chunk.getSize() < MIN_CHUNK_SIZE) {
+                throw new BadRequestException("Chunk is too small: " + chunk.getNumber());
+            }
+        }
+    }
+}
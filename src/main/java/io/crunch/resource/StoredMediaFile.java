@@ -0,0 +1,27 @@
+package io.crunch.resource;
+
+import io.crunch.media.MediaFile;
+
+/**
+ * A media file whose content has been validated and stored, but whose metadata is not saved yet.
+ *
+ * @param url         the public URL of the media file
+ * @param mediaId     the media identifier
+ * @param contentType the detected content type of the media file
+ * @param objectName  the name of the content in the store
+ */
+public record StoredMediaFile(String url, String mediaId, String contentType, String objectName) {
+
+    /**
+     * Creates the metadata of the media file.
+     *
+     * @return a new, not yet persisted {@link MediaFile}
+     */
+    MediaFile toMediaFile() {
+        var mediaFile = new MediaFile();
+        mediaFile.setMediaId(mediaId);
+        mediaFile.setMediaType(contentType);
+        mediaFile.setObjectName(objectName);
+        return mediaFile;
+    }
+}
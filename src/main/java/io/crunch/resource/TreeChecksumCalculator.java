@@ -0,0 +1,77 @@
+package io.crunch.resource;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Calculates the {@link ChecksumAlgorithm#SHA256_TREE} checksum.
+ * <p>
+ * The content is collected into leaves of {@value #LEAF_SIZE} bytes. A full leaf is hashed by the common
+ * {@link ForkJoinPool}, so the leaves are hashed on all cores while the content is still being read. At most
+ * twice as many leaves as the parallelism of the pool are kept in memory; reading waits for the oldest leaf if
+ * the hashing falls behind.
+ * </p>
+ * <p>
+ * The checksum is the SHA-256 of the concatenated SHA-256 digests of the leaves, in order. The last leaf can be
+ * shorter, and an empty content has no leaves.
+ * </p>
+ */
+class TreeChecksumCalculator implements ChecksumCalculator {
+
+    /** The size of the leaves; it is part of the algorithm, so the clients must use the same value. */
+    static final int LEAF_SIZE = 4 * 1024 * 1024;
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private final int maxPendingLeaves = 2 * pool.getParallelism();
+
+    private final Deque<CompletableFuture<byte[]>> pendingLeaves = new ArrayDeque<>();
+
+    private final MessageDigest root = DigestUtils.getSha256Digest();
+
+    private byte[] leaf = new byte[LEAF_SIZE];
+
+    private int leafLength;
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            int count = Math.min(length, LEAF_SIZE - leafLength);
+            System.arraycopy(bytes, offset, leaf, leafLength, count);
+            leafLength += count;
+            offset += count;
+            length -= count;
+            if (leafLength == LEAF_SIZE) {
+                submitLeaf();
+            }
+        }
+    }
+
+    @Override
+    public String checksum() {
+        if (leafLength > 0) {
+            submitLeaf();
+        }
+        while (!pendingLeaves.isEmpty()) {
+            root.update(pendingLeaves.removeFirst().join());
+        }
+        return Hex.encodeHexString(root.digest());
+    }
+
+    private void submitLeaf() {
+        var content = leafLength == LEAF_SIZE ? leaf : Arrays.copyOf(leaf, leafLength);
+        pendingLeaves.addLast(CompletableFuture.supplyAsync(() -> DigestUtils.sha256(content), pool));
+        while (!pendingLeaves.isEmpty() && (pendingLeaves.size() > maxPendingLeaves || pendingLeaves.peekFirst().isDone())) {
+            root.update(pendingLeaves.removeFirst().join());
+        }
+        leaf = new byte[LEAF_SIZE];
+        leafLength = 0;
+    }
+}
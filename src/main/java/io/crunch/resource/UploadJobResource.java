@@ -0,0 +1,88 @@
+package io.crunch.resource;
+
+import io.crunch.upload.UploadJobs;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.PartType;
+import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestPath;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.jboss.resteasy.reactive.multipart.FileUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+
+/**
+ * RESTful API resource for uploading media files asynchronously.
+ * <p>
+ * The uploaded media file is accepted into the {@link MediaFileSpool}, and the request returns immediately with
+ * {@code 202 Accepted} and the identifier of the upload job. The media file is validated and stored later by a worker;
+ * the client polls the state of the job to get the URL of the media file, or the reason of the failure.
+ * </p>
+ * @apiNote The endpoints are executed in blocking mode to simplify the implementation. They run on virtual threads,
+ * or on the worker pool if {@code quarkus.virtual-threads.enabled} is {@code false}.
+ */
+@RunOnVirtualThread
+@Path("/api/jobs")
+public class UploadJobResource {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaFileSpool mediaFileSpool;
+
+    private final UploadJobs uploadJobs;
+
+    public UploadJobResource(MediaFileSpool mediaFileSpool, UploadJobs uploadJobs) {
+        this.mediaFileSpool = mediaFileSpool;
+        this.uploadJobs = uploadJobs;
+    }
+
+    /**
+     * Accepts a media file for asynchronous processing.
+     *
+     * @param mediaFile            the uploaded media file (cannot be null)
+     * @param mediaFileDescription metadata associated with the media file, including checksum validation
+     * @return a response containing the state of the new job, and its URL in the {@code Location} header
+     * @throws BadRequestException if the media file cannot be spooled
+     */
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    public RestResponse<UploadJobStatus> createJob(
+            @NotNull
+            @RestForm("media") FileUpload mediaFile,
+            @RestForm("description") @PartType(MediaType.APPLICATION_JSON) @Valid MediaFileDescription mediaFileDescription) {
+        try {
+            logger.info("Media file asynchronous upload request with params {}", mediaFileDescription);
+            var job = mediaFileSpool.accept(mediaFile.uploadedFile(), mediaFile.fileName(), mediaFileDescription);
+            return RestResponse.ResponseBuilder.create(Response.Status.ACCEPTED, UploadJobStatus.of(job))
+                    .location(URI.create("/api/jobs/" + job.getJobId()))
+                    .build();
+        } catch (Exception e) {
+            logger.error("Error spooling media file", e);
+            throw new BadRequestException();
+        }
+    }
+
+    /**
+     * Returns the state of an upload job.
+     *
+     * @param jobId the identifier of the upload job
+     * @return a response containing the state of the job
+     * @throws NotFoundException if the job does not exist
+     */
+    @GET
+    @Path("{jobId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RestResponse<UploadJobStatus> getJob(@RestPath String jobId) {
+        return uploadJobs.get(jobId)
+                .map(job -> RestResponse.ok(UploadJobStatus.of(job)))
+                .orElseThrow(NotFoundException::new);
+    }
+}
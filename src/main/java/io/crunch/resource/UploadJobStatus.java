@@ -0,0 +1,21 @@
+package io.crunch.resource;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.crunch.upload.UploadJob;
+import io.crunch.upload.UploadJobState;
+
+/**
+ * The state of an asynchronous upload.
+ *
+ * @param jobId the identifier of the upload job
+ * @param state the state of the job
+ * @param url   the URL of the stored media file, if the job is completed
+ * @param error the reason of the failure, if the job is failed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UploadJobStatus(String jobId, UploadJobState state, String url, String error) {
+
+    static UploadJobStatus of(UploadJob job) {
+        return new UploadJobStatus(job.getJobId(), job.getState(), job.getUrl(), job.getError());
+    }
+}
@@ -0,0 +1,112 @@
+package io.crunch.resource;
+
+import io.crunch.store.MediaFileStore;
+import io.crunch.upload.UploadSessions;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the upload sessions of the {@link ResumableUploadResource}, together with their chunks in the store.
+ * <p>
+ * A session is removed when it is completed or cancelled. A session that is abandoned by its client is removed
+ * periodically, after it has not received any chunk for longer than the configured timeout.
+ * </p>
+ */
+@ApplicationScoped
+public class UploadSessionCleaner {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final UploadSessions uploadSessions;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final Duration timeout;
+
+    private final Duration interval;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("session-cleaner").daemon().factory());
+
+    public UploadSessionCleaner(UploadSessions uploadSessions, MediaFileStore mediaFileStore,
+                                @ConfigProperty(name = "media.upload.session.timeout", defaultValue = "24h") Duration timeout,
+                                @ConfigProperty(name = "media.upload.session.cleanup-interval", defaultValue = "15m") Duration interval) {
+        this.uploadSessions = uploadSessions;
+        this.mediaFileStore = mediaFileStore;
+        this.timeout = timeout;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts the periodic cleanup; the first run removes the sessions abandoned before the last shutdown.
+     */
+    void onStart(@Observes StartupEvent event) {
+        scheduler.scheduleWithFixedDelay(() -> removeInactive(Instant.now().minus(timeout)), 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Removes the sessions that have not received any chunk since the given time.
+     *
+     * @param updatedBefore the upper limit of the time of the last received chunk, exclusive
+     * @return the number of removed sessions
+     */
+    int removeInactive(Instant updatedBefore) {
+        try {
+            var inactiveSessions = uploadSessions.getInactive(updatedBefore);
+            inactiveSessions.forEach(session -> remove(session.getSessionId()));
+            if (!inactiveSessions.isEmpty()) {
+                logger.info("{} inactive upload sessions are removed", inactiveSessions.size());
+            }
+            return inactiveSessions.size();
+        } catch (RuntimeException e) {
+            // The scheduled task would be cancelled by an exception
+            logger.error("Error removing inactive upload sessions", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Removes a session and its chunks.
+     * Errors of removing the chunks are logged only; the session is removed in any case.
+     *
+     * @param sessionId the identifier of the upload session
+     */
+    void remove(String sessionId) {
+        var chunks = uploadSessions.getChunks(sessionId);
+        uploadSessions.remove(sessionId);
+        chunks.forEach(chunk -> {
+            try {
+                mediaFileStore.remove(getChunkFileName(sessionId, chunk.getNumber()));
+            } catch (Exception e) {
+                logger.warn("Chunk {} of upload session {} cannot be removed", chunk.getNumber(), sessionId, e);
+            }
+        });
+    }
+
+    /**
+     * Returns the name of a chunk of an upload session in the store.
+     *
+     * @param sessionId the identifier of the upload session
+     * @param number    the number of the chunk
+     * @return the name of the chunk in the store
+     */
+    static String getChunkFileName(String sessionId, int number) {
+        return "uploads/%s/%d".formatted(sessionId, number);
+    }
+}
@@ -0,0 +1,14 @@
+package io.crunch.resource;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Describes the state of a resumable upload.
+ *
+ * @param sessionId the identifier of the upload session
+ * @param chunks    the numbers of the chunks received so far, in ascending order
+ */
+public record UploadSessionStatus(@JsonProperty("sessionId") String sessionId, @JsonProperty("chunks") List<Integer> chunks) {
+}
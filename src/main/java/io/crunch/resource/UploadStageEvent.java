@@ -0,0 +1,32 @@
+package io.crunch.resource;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a stage of a media file upload, see {@link MediaFileUploadPipeline}.
+ * <p>
+ * The event is disabled by default; it is enabled by the {@code media.jfc} settings of the project.
+ * </p>
+ */
+@Name("io.crunch.UploadStage")
+@Label("Upload Stage")
+@Description("A stage of a media file upload")
+@Category({"Media Server", "Upload"})
+@Enabled(false)
+@Threshold("10 ms")
+@StackTrace(false)
+final class UploadStageEvent extends Event {
+
+    @Label("Stage")
+    @Description("detection, insert, upload or commit")
+    String stage;
+
+    @Label("File Name")
+    @Description("The original name of the uploaded media file")
+    String fileName;
+
+    @Label("Checksum Duration")
+    @Description("The time spent calculating the checksum, in the upload stage")
+    @Timespan
+    long checksumDuration;
+}
@@ -0,0 +1,109 @@
+package io.crunch.store;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Defines the non-blocking API for storing and accessing media files.
+ * <p>
+ * The operations return lazy Mutiny types: nothing is sent to the store until the result is subscribed to.
+ * A {@link Uni} can be converted to a {@link java.util.concurrent.CompletionStage} with
+ * {@link Uni#subscribeAsCompletionStage()}.
+ * </p>
+ * <p>
+ * The failures are propagated as {@link io.crunch.shared.MediaFileServerException}, the same way as by the
+ * blocking {@link MediaFileStore}.
+ * </p>
+ */
+public interface AsyncMediaFileStore {
+
+    /**
+     * Moves the given file to the permanent storage.
+     *
+     * @param path        The absolute path of the file to be uploaded.
+     * @param fileName    The unique name of the file that should be saved.
+     * @param contentType The content type of the file.
+     * @return A {@link Uni} that completes when the file is stored.
+     */
+    Uni<Void> store(Path path, String fileName, String contentType);
+
+    /**
+     * Saves the given content to the permanent storage in a single request.
+     *
+     * @param content     The content of the file; it must not be modified until the returned {@link Uni} completes.
+     * @param fileName    The unique name of the file that should be saved.
+     * @param contentType The content type of the file.
+     * @return A {@link Uni} that completes when the file is stored.
+     */
+    Uni<Void> store(byte[] content, String fileName, String contentType);
+
+    /**
+     * Streams content of a known size to the permanent storage.
+     * <p>
+     * The content is read while it is sent, by the threads of the storage client; a large content is sent in parts,
+     * one part at a time, so at most one part is held in memory.
+     * </p>
+     *
+     * @param content     The content of the file; exactly {@code size} bytes are read from it.
+     * @param size        The size of the content in bytes.
+     * @param partSize    The size of the parts of a large content.
+     * @param fileName    The unique name of the file that should be saved.
+     * @param contentType The content type of the file.
+     * @return A {@link Uni} that completes when the file is stored.
+     */
+    Uni<Void> store(InputStream content, long size, long partSize, String fileName, String contentType);
+
+    /**
+     * Reads the file represented by <code>fileName</code> as a stream of chunks.
+     * <p>
+     * The chunks are read from the store only when they are requested by the subscriber, so a slow consumer does not
+     * make the content pile up in the memory. The connection to the store is released when the stream completes, fails,
+     * or it is cancelled.
+     * </p>
+     *
+     * @param fileName The name of the file to read.
+     * @return The content of the file.
+     */
+    Multi<byte[]> read(String fileName);
+
+    /**
+     * Reads a range of the file represented by <code>fileName</code> as a stream of chunks.
+     *
+     * @param fileName The name of the file to read.
+     * @param offset   The position of the first byte to read.
+     * @param length   The maximum number of bytes to read.
+     * @return The requested range of the file content.
+     * @see #read(String)
+     */
+    Multi<byte[]> read(String fileName, long offset, long length);
+
+    /**
+     * Creates a new file by concatenating existing files on the store side.
+     *
+     * @param sourceFileNames The names of the files to concatenate, in order.
+     * @param fileName        The unique name of the file that should be created.
+     * @param contentType     The content type of the new file.
+     * @return A {@link Uni} that completes when the file is created.
+     */
+    Uni<Void> compose(List<String> sourceFileNames, String fileName, String contentType);
+
+    /**
+     * Removes the file represented by <code>fileName</code>.
+     *
+     * @param fileName The name of the file to remove.
+     * @return A {@link Uni} that completes when the file is removed.
+     */
+    Uni<Void> remove(String fileName);
+
+    /**
+     * Gets the size of the file represented by <code>fileName</code>.
+     *
+     * @param fileName The name of the file.
+     * @return A {@link Uni} that emits the size of the file in bytes.
+     */
+    Uni<Long> getFileSize(String fileName);
+}
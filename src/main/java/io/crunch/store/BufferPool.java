@@ -0,0 +1,121 @@
+package io.crunch.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of reusable copy buffers for the media streams.
+ * <p>
+ * Every stream borrows a buffer for the duration of its copy, and returns it at the end, so at a steady number of
+ * concurrent streams no buffer is allocated at all. At most {@code maxPoolMemory / bufferSize} idle buffers are kept;
+ * when the pool is empty, a new buffer is allocated, and it is kept only if there is room for it in the pool.
+ * </p>
+ * <p>
+ * The class is thread-safe.
+ * </p>
+ */
+public final class BufferPool {
+
+    private final int bufferSize;
+
+    private final BlockingQueue<byte[]> buffers;
+
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param bufferSize    the size of a buffer in bytes
+     * @param maxPoolMemory the maximum memory of the idle buffers in bytes
+     */
+    public BufferPool(int bufferSize, long maxPoolMemory) {
+        if (bufferSize < 1 || maxPoolMemory < bufferSize) {
+            throw new IllegalArgumentException("Invalid buffer pool: buffer size " + bufferSize + ", pool memory " + maxPoolMemory);
+        }
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(Math.toIntExact(Math.min(Integer.MAX_VALUE, maxPoolMemory / bufferSize)));
+    }
+
+    /**
+     * Copies the content of an input stream to an output stream through a pooled buffer.
+     * Neither of the streams is closed.
+     *
+     * @param inputStream  the source
+     * @param outputStream the target
+     * @return the number of copied bytes
+     * @throws IOException if the source cannot be read, or the target cannot be written
+     */
+    public long copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        return copy(inputStream, outputStream, () -> {
+        });
+    }
+
+    /**
+     * Copies the content of an input stream to an output stream through a pooled buffer, and reports when the first
+     * bytes are written. Neither of the streams is closed.
+     *
+     * @param inputStream  the source
+     * @param outputStream the target
+     * @param onFirstBytes called once, after the first bytes are written to the target
+     * @return the number of copied bytes
+     * @throws IOException if the source cannot be read, or the target cannot be written
+     */
+    public long copy(InputStream inputStream, OutputStream outputStream, Runnable onFirstBytes) throws IOException {
+        var buffer = acquire();
+        try {
+            long copied = 0;
+            int n;
+            while ((n = inputStream.read(buffer)) >= 0) {
+                outputStream.write(buffer, 0, n);
+                if (copied == 0 && n > 0) {
+                    onFirstBytes.run();
+                }
+                copied += n;
+            }
+            return copied;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Borrows a buffer; it must be returned by {@link #release(byte[])}.
+     */
+    byte[] acquire() {
+        var buffer = buffers.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            buffer = new byte[bufferSize];
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a borrowed buffer; it is dropped if the pool is full.
+     */
+    void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of idle buffers in the pool.
+     */
+    public int getIdleCount() {
+        return buffers.size();
+    }
+
+    /**
+     * Returns the number of buffers allocated since the pool was created.
+     */
+    public long getAllocatedCount() {
+        return allocated.get();
+    }
+}
@@ -0,0 +1,20 @@
+package io.crunch.store;
+
+/**
+ * Decides whether a streamed file may be kept in the storage.
+ * <p>
+ * The verifier is called by the {@link MediaFileStore} after the content stream has been fully consumed. If it fails,
+ * the stored object is discarded: it is either not committed yet, or it is removed again. Validations that depend on
+ * the whole content, for example the checksum, can be done here without reading the file again.
+ * </p>
+ */
+@FunctionalInterface
+public interface ContentVerifier {
+
+    /**
+     * Verifies the consumed content.
+     *
+     * @throws RuntimeException if the content is invalid; the store discards the written object and propagates the exception
+     */
+    void verify();
+}
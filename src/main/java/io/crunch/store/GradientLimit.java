@@ -0,0 +1,106 @@
+package io.crunch.store;
+
+/**
+ * Estimates the number of concurrent requests that the object store can serve without queueing, from the observed
+ * latencies.
+ * <p>
+ * The algorithm follows the gradient approach: it compares a long-term average of the latency, the latency of the store
+ * without load, with the latency of the latest request. While they are equal, the limit grows by a small queue allowance,
+ * the square root of the limit; when the latest latency rises, the limit shrinks in proportion to the rise, but at most
+ * by half in one step. A request that failed because the store is overloaded halves the limit at once, as in AIMD.
+ * The changes are smoothed, and the limit is kept between the configured bounds.
+ * </p>
+ * <p>
+ * The limit grows only if at least half of it is in use, otherwise a long idle period would let it grow without any
+ * evidence that the store can bear the load.
+ * </p>
+ * <p>
+ * The class is thread-safe.
+ * </p>
+ */
+final class GradientLimit {
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private static final double DROP_RATIO = 0.5;
+
+    /** If the long-term latency exceeds the latest one by this factor, the store got faster, and it is decayed. */
+    private static final double LONG_RTT_DRIFT = 2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double smoothing;
+
+    private final double longRttFactor;
+
+    private double limit;
+
+    /** The long-term exponential moving average of the latency in nanoseconds, 0 before the first sample. */
+    private double longRtt;
+
+    /**
+     * Creates a limit.
+     *
+     * @param initialLimit the limit before the first sample
+     * @param minLimit     the lowest limit
+     * @param maxLimit     the highest limit
+     * @param smoothing    the weight of a new estimation in the limit, between 0 exclusive and 1 inclusive
+     * @param longWindow   the number of samples the long-term latency is averaged over
+     */
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, int longWindow) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits: initial " + initialLimit + ", min " + minLimit + ", max " + maxLimit);
+        }
+        if (smoothing <= 0 || smoothing > 1 || longWindow < 1) {
+            throw new IllegalArgumentException("Invalid smoothing " + smoothing + " or window " + longWindow);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.longRttFactor = 2.0 / (longWindow + 1);
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Updates the limit with the outcome of a request.
+     *
+     * @param rttNanos the latency of the request
+     * @param inFlight the number of requests in flight when the request was started
+     * @param dropped  whether the request failed because the store is overloaded
+     * @return the new limit
+     */
+    synchronized int onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, limit * DROP_RATIO);
+            return getLimit();
+        }
+        if (rttNanos <= 0) {
+            return getLimit();
+        }
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+        } else {
+            longRtt += (rttNanos - longRtt) * longRttFactor;
+        }
+        if (longRtt / rttNanos > LONG_RTT_DRIFT) {
+            // The store got faster, the average should follow it quickly
+            longRtt = (longRtt + rttNanos) / 2;
+        }
+        var gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRtt / rttNanos));
+        if (gradient == 1.0 && inFlight < limit / 2) {
+            return getLimit();
+        }
+        var estimated = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + estimated * smoothing));
+        return getLimit();
+    }
+
+    /**
+     * Returns the current limit.
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+}
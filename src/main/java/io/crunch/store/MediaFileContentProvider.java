@@ -1,16 +1,78 @@
 package io.crunch.store;
 
+import io.crunch.bandwidth.BandwidthScheduler;
+import io.crunch.bandwidth.TrafficClass;
+import io.crunch.shared.MediaFileServerException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.runtime.configuration.MemorySize;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.primefaces.model.DefaultStreamedContent;
 import org.primefaces.model.StreamedContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the content of the media files to the viewer pages.
+ * <p>
+ * The content is copied to the response through the buffers of a shared {@link BufferPool}, instead of a new buffer
+ * for every response, so the streams do not allocate on the heap while they are copied.
+ * </p>
+ * <p>
+ * The time to the first byte and the size of every response are published per content type, as the
+ * {@code media.streaming.first.byte} timer and the {@code media.streaming.response.size} summary, and every response
+ * is recorded as a {@link StreamCompletedEvent} flight recorder event, and as a span of the current trace.
+ * </p>
+ */
 @ApplicationScoped
 public class MediaFileContentProvider {
 
+    private static final AttributeKey<String> OBJECT_NAME = AttributeKey.stringKey("media.object.name");
+
+    private static final AttributeKey<String> MEDIA_TYPE = AttributeKey.stringKey("media.type");
+
+    private static final AttributeKey<Long> BYTES = AttributeKey.longKey("media.bytes");
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
     private final MediaFileStore mediaFileStore;
 
-    public MediaFileContentProvider(MediaFileStore mediaFileStore) {
+    private final BandwidthScheduler bandwidthScheduler;
+
+    private final BufferPool bufferPool;
+
+    private final MeterRegistry registry;
+
+    private final Tracer tracer;
+
+    public MediaFileContentProvider(MediaFileStore mediaFileStore, BandwidthScheduler bandwidthScheduler, MeterRegistry registry, Tracer tracer,
+                                    @ConfigProperty(name = "media.streaming.buffer-size", defaultValue = "64K") MemorySize bufferSize,
+                                    @ConfigProperty(name = "media.streaming.buffer-pool-size", defaultValue = "32M") MemorySize bufferPoolSize) {
         this.mediaFileStore = mediaFileStore;
+        this.bandwidthScheduler = bandwidthScheduler;
+        this.bufferPool = new BufferPool(Math.toIntExact(bufferSize.asLongValue()), bufferPoolSize.asLongValue());
+        this.registry = registry;
+        this.tracer = tracer;
+
+        Gauge.builder("media.streaming.buffers.idle", bufferPool, BufferPool::getIdleCount)
+                .description("The number of idle copy buffers in the pool")
+                .register(registry);
+        FunctionCounter.builder("media.streaming.buffers.allocated", bufferPool, BufferPool::getAllocatedCount)
+                .description("The number of copy buffers allocated, because the pool was empty")
+                .register(registry);
     }
 
     /**
@@ -21,6 +83,7 @@ public class MediaFileContentProvider {
      * @param fileName the name of the file to be served. This should be the exact name as stored in the {@code mediaFileStore}.
      * @param contentType the MIME type of the content being served (e.g., "audio/mpeg", "video/mp4").
      *                    This ensures that the content is rendered correctly in the client's browser.
+     * @param clientId the identifier of the client, that shares the per-client bandwidth among its streams.
      * @return a {@link StreamedContent} object that encapsulates the media content, ready to be streamed to the client.
      *
      * The {@link StreamedContent} is built with the following properties:
@@ -28,17 +91,78 @@ public class MediaFileContentProvider {
      *   <li><b>contentType:</b> The MIME type of the media content provided by the {@code contentType} parameter.</li>
      *   <li><b>contentLength:</b> The size of the media file, obtained from the {@code MediaFileStore}.
      *   It can be used by the browser to calculate the media length for example in sec.</li>
-     *   <li><b>InputStream:</b> A {@link java.util.function.Supplier} that streams the content of the file from the {@code MediaFileStore}.</li>
+     *   <li><b>writer:</b> Writes the content of the file from the {@code MediaFileStore} to the response through a pooled
+     *   buffer, at the rate allocated by the {@link BandwidthScheduler}. PrimeFaces uses the writer, if it is set.</li>
+     *   <li><b>InputStream:</b> A {@link java.util.function.Supplier} that streams the same content, for the consumers that
+     *   read the content themselves.</li>
      * </ul>
      *
      * @see DefaultStreamedContent
      * @see StreamedContent
      */
-    public StreamedContent readContent(String fileName, String contentType) {
+    public StreamedContent readContent(String fileName, String contentType, String clientId) {
+        var size = mediaFileStore.getFileSize(fileName);
         return DefaultStreamedContent.builder()
                 .contentType(contentType)
-                .contentLength(mediaFileStore.getFileSize(fileName))
-                .stream(() -> mediaFileStore.read(fileName))
+                .contentLength(size)
+                .writer(outputStream -> write(fileName, contentType, clientId, size, outputStream))
+                .stream(() -> open(fileName, contentType, clientId, size))
                 .build();
     }
+
+    private InputStream open(String fileName, String contentType, String clientId, long size) {
+        return bandwidthScheduler.schedule(mediaFileStore.read(fileName), clientId, TrafficClass.of(contentType), size);
+    }
+
+    private void write(String fileName, String contentType, String clientId, long size, OutputStream outputStream) {
+        var event = new StreamCompletedEvent();
+        var span = tracer.spanBuilder("media stream")
+                .setAttribute(OBJECT_NAME, fileName)
+                .setAttribute(MEDIA_TYPE, contentType)
+                .startSpan();
+        event.begin();
+        var start = System.nanoTime();
+        try (var scope = span.makeCurrent(); var inputStream = open(fileName, contentType, clientId, size)) {
+            var written = bufferPool.copy(inputStream, outputStream, () -> firstByteTimer(contentType).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            responseSize(contentType).record(written);
+            span.setAttribute(BYTES, written);
+            commit(event, fileName, contentType, written, true);
+        } catch (IOException e) {
+            // Mostly the viewer closed the page, or skipped to another position of the media
+            logger.warn("Streaming of file {} is interrupted: {}", fileName, e.getMessage());
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            commit(event, fileName, contentType, -1, false);
+            throw new MediaFileServerException("Error streaming file", e);
+        } finally {
+            span.end();
+        }
+    }
+
+    private static void commit(StreamCompletedEvent event, String fileName, String contentType, long bytes, boolean completed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.objectName = fileName;
+            event.contentType = contentType;
+            event.bytes = bytes;
+            event.completed = completed;
+            event.commit();
+        }
+    }
+
+    private Timer firstByteTimer(String contentType) {
+        return Timer.builder("media.streaming.first.byte")
+                .description("The time from the start of a media response until its first bytes are written")
+                .tag("type", contentType)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private DistributionSummary responseSize(String contentType) {
+        return DistributionSummary.builder("media.streaming.response.size")
+                .description("The number of bytes written by the media responses")
+                .baseUnit("bytes")
+                .tag("type", contentType)
+                .register(registry);
+    }
 }
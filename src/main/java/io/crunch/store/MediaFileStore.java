@@ -2,6 +2,7 @@ package io.crunch.store;
 
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Defines the API for storing and accessing media files.
@@ -19,6 +20,19 @@ public interface MediaFileStore {
      */
     void store(Path path, String fileName, String contentType);
 
+    /**
+     * Streams the given content to the permanent storage.<p>
+     * The input stream is read exactly once. When it is exhausted, the <code>verifier</code> is called, and the file is kept
+     * only if the verification passes; otherwise the written content is discarded, and the verifier's exception is propagated.
+     *
+     * @param inputStream The content of the file; it is not closed by this method.
+     * @param size        The size of the content in bytes, or -1 if it is unknown.
+     * @param fileName    The unique name of the file that should be saved.
+     * @param contentType The content type of the file.
+     * @param verifier    Validates the consumed content; the file is discarded if the verification fails.
+     */
+    void store(InputStream inputStream, long size, String fileName, String contentType, ContentVerifier verifier);
+
     /**
      * Reads the file represented by <code>fileName</code> and returns an input stream.
      *
@@ -28,6 +42,33 @@ public interface MediaFileStore {
      */
     InputStream read(String fileName);
 
+    /**
+     * Reads a range of the file represented by <code>fileName</code> and returns an input stream.
+     *
+     * @param fileName The path of the file to read.
+     * @param offset   The position of the first byte to read.
+     * @param length   The maximum number of bytes to read.
+     * @return An input stream of the requested range of the file content.
+     * @apiNote By calling this method, the caller is responsible for closing the input stream.
+     */
+    InputStream read(String fileName, long offset, long length);
+
+    /**
+     * Creates a new file by concatenating existing files, without transferring their content through the application.
+     *
+     * @param sourceFileNames The names of the files to concatenate, in order.
+     * @param fileName        The unique name of the new file.
+     * @param contentType     The content type of the new file.
+     */
+    void compose(List<String> sourceFileNames, String fileName, String contentType);
+
+    /**
+     * Removes the given file from the storage.
+     *
+     * @param fileName The name of the file to remove.
+     */
+    void remove(String fileName);
+
     /**
      * Gets the size of the requested file.
      *
@@ -0,0 +1,335 @@
+package io.crunch.store;
+
+import io.crunch.bulkhead.Bulkhead;
+import io.crunch.bulkhead.Bulkheads;
+import io.crunch.shared.MediaFileServerException;
+import io.minio.*;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of {@link AsyncMediaFileStore} that uses the asynchronous client of <a href="https://min.io/">MinIO</a>.
+ * <p>
+ * The requests are sent without blocking the caller; the returned {@link Uni} completes when MinIO responds.
+ * It ensures that the required bucket exists: the check is started when the application starts, but the startup does not
+ * wait for it, so MinIO is contacted in parallel with the rest of the startup. The operations of the store wait for the
+ * check, which is normally finished by the first request.
+ * </p>
+ * <p>
+ * The HTTP client of MinIO exposes the body of a response as a blocking stream, so the chunks of a read are pulled from it
+ * in the streaming {@link Bulkhead}, one chunk per request of the subscriber. A thread is used only while a chunk is being read, and not
+ * for the whole duration of the download; between the chunks, for example while the client of a media stream is slow,
+ * no thread is held.
+ * </p>
+ */
+@ApplicationScoped
+public class MinIOAsyncMediaFileStore implements AsyncMediaFileStore {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MinioAsyncClient minioAsyncClient;
+
+    private final String bucketName;
+
+    private final int chunkSize;
+
+    private final Bulkhead streamingBulkhead;
+
+    /**
+     * The check of the bucket; it is started again by the next operation if it failed.
+     */
+    private final AtomicReference<CompletableFuture<Void>> bucketCheck = new AtomicReference<>();
+
+    /**
+     * Constructs a {@code MinIOAsyncMediaFileStore} with the asynchronous MinIO client and the target bucket name.
+     *
+     * @param minioAsyncClient MinIO client for interacting with the object store.
+     * @param bucketName       The name of the MinIO bucket where media files are stored.
+     * @param chunkSize        The size of the chunks of the streamed reads.
+     * @param bulkheads        The bulkheads, the chunks are read in the streaming one.
+     */
+    public MinIOAsyncMediaFileStore(MinioAsyncClient minioAsyncClient,
+                                    @ConfigProperty(name = "minio.bucket-name") String bucketName,
+                                    @ConfigProperty(name = "minio.read.chunk-size", defaultValue = "64K") MemorySize chunkSize,
+                                    Bulkheads bulkheads) {
+        this.minioAsyncClient = minioAsyncClient;
+        this.bucketName = bucketName;
+        this.chunkSize = Math.toIntExact(chunkSize.asLongValue());
+        this.streamingBulkhead = bulkheads.streaming();
+    }
+
+    @Override
+    public Uni<Void> store(Path path, String fileName, String contentType) {
+        return execute("Error storing file", () -> {
+            logger.info("Storing file: {}", fileName);
+            var args = UploadObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .filename(path.toString())
+                    .contentType(contentType)
+                    .build();
+            return minioAsyncClient.uploadObject(args);
+        }).invoke(response -> logger.info("Upload file {} response: {}", fileName, response.etag())).replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> store(byte[] content, String fileName, String contentType) {
+        return execute("Error storing file", () -> {
+            logger.info("Storing file: {}", fileName);
+            var args = PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .stream(new ByteArrayInputStream(content), content.length, -1)
+                    .contentType(contentType)
+                    .build();
+            return minioAsyncClient.putObject(args);
+        }).invoke(response -> logger.info("Upload file {} response: {}", fileName, response.etag())).replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> store(InputStream content, long size, long partSize, String fileName, String contentType) {
+        return execute("Error storing file", () -> {
+            logger.info("Storing file: {}", fileName);
+            var args = PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .stream(content, size, partSize)
+                    .contentType(contentType)
+                    .build();
+            return minioAsyncClient.putObject(args);
+        }).invoke(response -> logger.info("Upload file {} response: {}", fileName, response.etag())).replaceWithVoid();
+    }
+
+    @Override
+    public Multi<byte[]> read(String fileName) {
+        return stream(fileName, () -> open(fileName));
+    }
+
+    @Override
+    public Multi<byte[]> read(String fileName, long offset, long length) {
+        return stream(fileName, () -> open(fileName, offset, length));
+    }
+
+    /**
+     * Opens a file in the MinIO bucket for reading.
+     *
+     * @param fileName The name of the file in MinIO.
+     * @return A {@link Uni} that emits the stream of the file content when MinIO responds.
+     * @apiNote The caller is responsible for closing the input stream.
+     */
+    Uni<GetObjectResponse> open(String fileName) {
+        return execute("Error reading file", () -> {
+            logger.info("Reading file: {}", fileName);
+            var args = GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .build();
+            return minioAsyncClient.getObject(args);
+        });
+    }
+
+    /**
+     * Opens a range of a file in the MinIO bucket for reading.
+     *
+     * @param fileName The name of the file in MinIO.
+     * @param offset   The position of the first byte to read.
+     * @param length   The maximum number of bytes to read.
+     * @return A {@link Uni} that emits the stream of the requested range when MinIO responds.
+     * @apiNote The caller is responsible for closing the input stream.
+     */
+    Uni<GetObjectResponse> open(String fileName, long offset, long length) {
+        return execute("Error reading file", () -> {
+            logger.info("Reading file: {}, offset: {}, length: {}", fileName, offset, length);
+            var args = GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .offset(offset)
+                    .length(length)
+                    .build();
+            return minioAsyncClient.getObject(args);
+        });
+    }
+
+    /**
+     * Initiates a multipart upload in the MinIO bucket.
+     * <p>
+     * It is used by the blocking {@link MinIOMediaFileStore}, that sends the parts of a streamed file as they are read.
+     * </p>
+     *
+     * @param fileName      The name of the file in MinIO.
+     * @param contentType   The MIME type of the file.
+     * @param parallelParts The maximum number of parts that can be uploaded at the same time.
+     * @param limiter       Limits the concurrent requests of the parts.
+     * @return The started upload.
+     * @throws MediaFileServerException if the upload cannot be initiated.
+     */
+    MinIOMultipartUpload startMultipartUpload(String fileName, String contentType, int parallelParts, MinIOConcurrencyLimiter limiter) {
+        bucketReady().await().indefinitely();
+        return MinIOMultipartUpload.start(minioAsyncClient, limiter, bucketName, fileName, contentType, parallelParts);
+    }
+
+    @Override
+    public Uni<Void> compose(List<String> sourceFileNames, String fileName, String contentType) {
+        return execute("Error composing file", () -> {
+            logger.info("Composing file {} from {} sources", fileName, sourceFileNames.size());
+            var sources = sourceFileNames.stream()
+                    .map(source -> ComposeSource.builder().bucket(bucketName).object(source).build())
+                    .toList();
+            var args = ComposeObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .sources(sources)
+                    .headers(Map.of("Content-Type", contentType))
+                    .build();
+            return minioAsyncClient.composeObject(args);
+        }).invoke(response -> logger.info("Compose file {} response: {}", fileName, response.etag())).replaceWithVoid();
+    }
+
+    @Override
+    public Uni<Void> remove(String fileName) {
+        return execute("Error removing file", () -> {
+            logger.info("Removing file: {}", fileName);
+            var args = RemoveObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .build();
+            return minioAsyncClient.removeObject(args);
+        });
+    }
+
+    @Override
+    public Uni<Long> getFileSize(String fileName) {
+        return execute("Error getting file size", () -> {
+            logger.info("Getting file size: {}", fileName);
+            var args = StatObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(fileName)
+                    .build();
+            return minioAsyncClient.statObject(args);
+        }).map(StatObjectResponse::size);
+    }
+
+    /**
+     * Starts the check of the bucket when the application starts, without waiting for its result.
+     */
+    void onStart(@Observes StartupEvent event) {
+        bucketReady();
+    }
+
+    /**
+     * Ensures that the MinIO bucket exists. If not, it is created.
+     * <p>
+     * The check is run once, and its result is shared by the operations; if it failed, it is run again.
+     * </p>
+     *
+     * @return A {@link Uni} that completes when the bucket exists.
+     */
+    Uni<Void> bucketReady() {
+        var check = bucketCheck.get();
+        if (check != null && check.isDone() && !check.isCompletedExceptionally()) {
+            return Uni.createFrom().voidItem();
+        }
+        if (check == null || check.isCompletedExceptionally()) {
+            var started = new CompletableFuture<Void>();
+            if (bucketCheck.compareAndSet(check, started)) {
+                checkBucket().subscribe().with(started::complete, started::completeExceptionally);
+            }
+            check = bucketCheck.get();
+        }
+        // A copy, so a cancelled operation does not cancel the shared check
+        return Uni.createFrom().completionStage(check.copy())
+                .onFailure(CompletionException.class).transform(Throwable::getCause);
+    }
+
+    private Uni<Void> checkBucket() {
+        return send("Error checking if bucket exists", () -> {
+            logger.info("Checking if bucket exists: {}", bucketName);
+            return minioAsyncClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
+        }).chain(exists -> exists ? Uni.createFrom().voidItem() : send("Error creating bucket", () -> {
+            logger.info("Creating bucket: {}", bucketName);
+            return minioAsyncClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+        }));
+    }
+
+    /**
+     * Turns an opened content into a stream of chunks that are read on demand.
+     */
+    private Multi<byte[]> stream(String fileName, Supplier<Uni<GetObjectResponse>> content) {
+        return Multi.createFrom().resourceFromUni(content,
+                        inputStream -> Multi.createBy().repeating()
+                                .uni(() -> Uni.createFrom().item(() -> readChunk(inputStream, fileName)).runSubscriptionOn(streamingBulkhead))
+                                .until(chunk -> chunk.length == 0))
+                .withFinalizer(inputStream -> {
+                    close(inputStream, fileName);
+                });
+    }
+
+    private byte[] readChunk(InputStream inputStream, String fileName) {
+        try {
+            return inputStream.readNBytes(chunkSize);
+        } catch (IOException e) {
+            logger.error("Error reading file {}", fileName, e);
+            throw new MediaFileServerException("Error reading file", e);
+        }
+    }
+
+    private void close(InputStream inputStream, String fileName) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            logger.warn("Error closing file {}", fileName, e);
+        }
+    }
+
+    /**
+     * Sends a request with the asynchronous client when the bucket exists.
+     */
+    private <T> Uni<T> execute(String errorMessage, AsyncCall<T> call) {
+        return bucketReady().chain(() -> send(errorMessage, call));
+    }
+
+    /**
+     * Sends a request with the asynchronous client, and maps its failures to {@link MediaFileServerException}.
+     */
+    private <T> Uni<T> send(String errorMessage, AsyncCall<T> call) {
+        return Uni.createFrom().<T>deferred(() -> {
+            try {
+                return Uni.createFrom().completionStage(call.call());
+            } catch (Exception e) {
+                return Uni.createFrom().failure(e);
+            }
+        }).onFailure().transform(e -> {
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            logger.error(errorMessage, cause);
+            return new MediaFileServerException(errorMessage, cause);
+        });
+    }
+
+    /**
+     * A request of the asynchronous MinIO client; the client may throw checked exceptions before the request is sent.
+     */
+    @FunctionalInterface
+    private interface AsyncCall<T> {
+
+        CompletableFuture<T> call() throws Exception;
+    }
+}
@@ -0,0 +1,285 @@
+package io.crunch.store;
+
+import io.crunch.shared.MediaFileServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.errors.ErrorResponseException;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent requests sent to MinIO to the number it can sustain.
+ * <p>
+ * The limit is not configured but discovered by a {@link GradientLimit} from the latencies of the requests: when MinIO
+ * slows down, the limit shrinks, so the excess requests do not add to the queue of MinIO. A request over the limit waits
+ * briefly in a bounded queue; if the queue is full, or the wait exceeds the queue timeout, it fails fast with
+ * {@link MediaFileServerException}.
+ * </p>
+ * <p>
+ * Only the requests of comparable latency are samples of the limit: the lookups, the removals, and the reads until MinIO
+ * starts sending the content. A request that carries content, like an upload part or a server side compose, takes a
+ * slot while it runs, but its latency grows with its size, so it is not a sample; otherwise the uploads would inflate the
+ * long-term latency, and push the limit down for the short requests.
+ * </p>
+ * <p>
+ * A request counts as dropped, and it halves the limit, if it timed out, or MinIO asked the client to slow down or
+ * reported that it is unavailable, whether the request is a sample or not. Other failures, like a missing object, or an
+ * error of the client itself, do not change the limit.
+ * </p>
+ * <p>
+ * The current limit, the requests in flight and waiting, and the rejected requests are published as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class MinIOConcurrencyLimiter {
+
+    private static final Set<String> OVERLOAD_ERROR_CODES = Set.of("SlowDown", "ServiceUnavailable", "RequestTimeout", "InternalError");
+
+    /** The number of causes of a failure inspected for the overload signals. */
+    private static final int MAX_CAUSE_DEPTH = 8;
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final boolean enabled;
+
+    private final GradientLimit limit;
+
+    private final int maxQueued;
+
+    private final Duration queueTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    /** The number of requests in flight; guarded by the lock. */
+    private int inFlight;
+
+    /** The number of requests waiting for a slot; guarded by the lock. */
+    private int queued;
+
+    private final Counter rejected;
+
+    public MinIOConcurrencyLimiter(MeterRegistry registry,
+                                   @ConfigProperty(name = "minio.concurrency.enabled", defaultValue = "true") boolean enabled,
+                                   @ConfigProperty(name = "minio.concurrency.initial-limit", defaultValue = "20") int initialLimit,
+                                   @ConfigProperty(name = "minio.concurrency.min-limit", defaultValue = "4") int minLimit,
+                                   @ConfigProperty(name = "minio.concurrency.max-limit", defaultValue = "200") int maxLimit,
+                                   @ConfigProperty(name = "minio.concurrency.max-queued", defaultValue = "100") int maxQueued,
+                                   @ConfigProperty(name = "minio.concurrency.queue-timeout", defaultValue = "1s") Duration queueTimeout) {
+        this.enabled = enabled;
+        this.limit = new GradientLimit(initialLimit, minLimit, maxLimit, 0.2, 600);
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+
+        this.rejected = Counter.builder("media.store.rejected")
+                .description("The number of MinIO requests rejected by the concurrency limit")
+                .register(registry);
+        Gauge.builder("media.store.concurrency.limit", limit, GradientLimit::getLimit)
+                .description("The current concurrency limit of the MinIO requests")
+                .register(registry);
+        Gauge.builder("media.store.in.flight", this, limiter -> limiter.getCount(true))
+                .description("The number of MinIO requests in flight")
+                .register(registry);
+        Gauge.builder("media.store.queued", this, limiter -> limiter.getCount(false))
+                .description("The number of MinIO requests waiting for the concurrency limit")
+                .register(registry);
+    }
+
+    /**
+     * Executes a request within the concurrency limit, and takes its latency as a sample of the limit.
+     *
+     * @param request the request, it is called on the calling thread
+     * @param <T>     the type of the result
+     * @return the result of the request
+     * @throws MediaFileServerException if the limit is reached and the request cannot wait, or the request fails
+     */
+    public <T> T execute(Supplier<T> request) {
+        return execute(request, true);
+    }
+
+    /**
+     * Executes a request without a result within the concurrency limit.
+     *
+     * @see #execute(Supplier)
+     */
+    public void execute(Runnable request) {
+        execute(() -> {
+            request.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executes a request within the concurrency limit.
+     *
+     * @param request the request, it is called on the calling thread
+     * @param sampled whether the latency of the request is a sample of the limit; {@code false} for the requests that
+     *                carry content, whose latency depends on its size
+     * @param <T>     the type of the result
+     * @return the result of the request
+     * @throws MediaFileServerException if the limit is reached and the request cannot wait, or the request fails
+     */
+    public <T> T execute(Supplier<T> request, boolean sampled) {
+        var slot = acquire(sampled);
+        Throwable failure = null;
+        try {
+            return request.get();
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            slot.release(failure);
+        }
+    }
+
+    /**
+     * Takes a slot for a request that is not run on the calling thread, for example an asynchronous upload part.
+     *
+     * @param sampled whether the latency of the request is a sample of the limit
+     * @return the slot; it must be released once the request finished
+     * @throws MediaFileServerException if the limit is reached and the request cannot wait
+     */
+    Slot acquire(boolean sampled) {
+        if (!enabled) {
+            return Slot.NONE;
+        }
+        return new Slot(this, acquire(), sampled);
+    }
+
+    /**
+     * Takes a slot, waiting for it in the queue if necessary.
+     *
+     * @return the number of requests in flight, including this one
+     */
+    private int acquire() {
+        lock.lock();
+        try {
+            if (inFlight < limit.getLimit()) {
+                return ++inFlight;
+            }
+            if (queued >= maxQueued) {
+                throw reject("MinIO request queue is full");
+            }
+            queued++;
+            try {
+                var remaining = queueTimeout.toNanos();
+                while (inFlight >= limit.getLimit()) {
+                    if (remaining <= 0) {
+                        throw reject("MinIO request timed out in the queue");
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                return ++inFlight;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MediaFileServerException("MinIO request interrupted in the queue", e);
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long rttNanos, int started, boolean sampled, boolean dropped) {
+        var newLimit = sampled || dropped ? limit.onSample(rttNanos, started, dropped) : limit.getLimit();
+        lock.lock();
+        try {
+            inFlight--;
+            // The limit may have grown, so more than one waiting request can proceed
+            if (inFlight < newLimit) {
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MediaFileServerException reject(String message) {
+        rejected.increment();
+        logger.warn("{}, limit: {}, in flight: {}", message, limit.getLimit(), inFlight);
+        return new MediaFileServerException(message);
+    }
+
+    private int getCount(boolean inFlight) {
+        lock.lock();
+        try {
+            return inFlight ? this.inFlight : queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decides whether a failure signals that MinIO is overloaded: it asked the client to slow down, or the request
+     * timed out. The causes of the failure are inspected too, because the failures of the store are wrapped.
+     */
+    static boolean isOverload(Throwable e) {
+        var cause = e;
+        for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            if (cause instanceof ErrorResponseException errorResponse) {
+                return OVERLOAD_ERROR_CODES.contains(errorResponse.errorResponse().code());
+            }
+            if (cause instanceof SocketTimeoutException || cause instanceof TimeoutException) {
+                return true;
+            }
+            // The call timeout of the HTTP client
+            if (cause instanceof InterruptedIOException && "timeout".equals(cause.getMessage())) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * A slot of a request within the limit.
+     */
+    static final class Slot {
+
+        /** The slot of a disabled limiter. */
+        private static final Slot NONE = new Slot(null, 0, false);
+
+        private final MinIOConcurrencyLimiter limiter;
+
+        private final int started;
+
+        private final boolean sampled;
+
+        private final long start = System.nanoTime();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(MinIOConcurrencyLimiter limiter, int started, boolean sampled) {
+            this.limiter = limiter;
+            this.started = started;
+            this.sampled = sampled;
+        }
+
+        /**
+         * Gives back the slot; only the first call has an effect.
+         *
+         * @param failure the failure of the request, {@code null} if it succeeded
+         */
+        void release(Throwable failure) {
+            if (limiter != null && released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start, started, sampled, failure != null && isOverload(failure));
+            }
+        }
+    }
+}
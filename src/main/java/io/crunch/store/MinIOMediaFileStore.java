@@ -1,46 +1,92 @@
 package io.crunch.store;
 
 import io.crunch.shared.MediaFileServerException;
-import io.minio.*;
-import jakarta.annotation.PostConstruct;
+import io.micrometer.core.annotation.Timed;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.runtime.configuration.MemorySize;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * Implementation of {@link MediaFileStore} that uses <a href="https://min.io/">MinIO</a> for object storage.
  * <p>
- * This class provides methods for storing, retrieving, and checking file metadata in MinIO.
- * It ensures that the required bucket exists upon application startup.
+ * This class provides methods for storing, retrieving, and checking file metadata in MinIO. It is a blocking adapter
+ * over the {@link MinIOAsyncMediaFileStore}: the calling thread waits for the result of the asynchronous request.
+ * Only the streamed upload of unknown size is implemented here, because it cuts a blocking {@link InputStream} into parts.
+ * </p>
+ * <p>
+ * All requests are sent within the adaptive limit of the {@link MinIOConcurrencyLimiter}, so the threads do not pile
+ * into MinIO when it slows down. A read is limited until MinIO starts sending the content, and not while the content
+ * is consumed. A stream of unknown size is uploaded in parts, each of them limited while it is sent, so a large upload
+ * does not hold a slot for its whole duration. The requests that carry content are not samples of the limit, because
+ * their latency depends on their size.
+ * </p>
+ * <p>
+ * The duration of every operation is published as the {@code media.store.operation} timer, tagged with the operation;
+ * the duration of a read is the time until MinIO starts sending the content. Every request is recorded as a
+ * {@link StoreOperationEvent} flight recorder event too, with the name of the object and the size of the content,
+ * and as a client span of the current trace.
  * </p>
  */
 @ApplicationScoped
 public class MinIOMediaFileStore implements MediaFileStore {
 
+    private static final AttributeKey<String> OBJECT_NAME = AttributeKey.stringKey("media.object.name");
+
+    private static final AttributeKey<Long> BYTES = AttributeKey.longKey("media.bytes");
+
     private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private final MinioClient minioClient;
+    private final MinIOAsyncMediaFileStore asyncMediaFileStore;
+
+    private final MinIOConcurrencyLimiter limiter;
+
+    private final int partSize;
 
-    private final String bucketName;
+    private final int parallelParts;
+
+    private final Tracer tracer;
 
     /**
-     * Constructs a {@code MinIOMediaFileStore} with a MinIO client and the target bucket name.
+     * Constructs a {@code MinIOMediaFileStore} with the asynchronous store, and the settings of the streamed uploads.
      *
-     * @param minioClient MinIO client for interacting with the object store.
-     * @param bucketName  The name of the MinIO bucket where media files are stored.
+     * @param asyncMediaFileStore The asynchronous store that sends the requests to MinIO.
+     * @param limiter             Limits the number of concurrent requests to MinIO.
+     * @param partSize            The size of the parts of the streamed files; MinIO requires at least 5 MB.
+     * @param parallelParts       The maximum number of parts of a streamed file that are uploaded at the same time.
+     * @param tracer              Traces the requests.
      */
-    public MinIOMediaFileStore(MinioClient minioClient, @ConfigProperty(name = "minio.bucket-name") String bucketName) {
-        this.minioClient = minioClient;
-        this.bucketName = bucketName;
+    public MinIOMediaFileStore(MinIOAsyncMediaFileStore asyncMediaFileStore, MinIOConcurrencyLimiter limiter,
+                               @ConfigProperty(name = "minio.upload.part-size", defaultValue = "10M") MemorySize partSize,
+                               @ConfigProperty(name = "minio.upload.parallel-parts", defaultValue = "4") int parallelParts,
+                               Tracer tracer) {
+        this.asyncMediaFileStore = asyncMediaFileStore;
+        this.limiter = limiter;
+        this.partSize = Math.toIntExact(partSize.asLongValue());
+        this.parallelParts = parallelParts;
+        this.tracer = tracer;
     }
 
     /**
      * Stores a file in the MinIO bucket.
+     * <p>
+     * The MinIO client reads the file itself, part by part, so its content is not buffered on the heap.
+     * </p>
      *
      * @param path        The local file path of the file to be uploaded.
      * @param fileName    The name of the file in MinIO.
@@ -48,21 +94,113 @@ public class MinIOMediaFileStore implements MediaFileStore {
      * @throws MediaFileServerException if an error occurs during file upload.
      */
     @Override
+    @Timed(value = "media.store.operation", extraTags = {"operation", "store"}, histogram = true)
     public void store(Path path, String fileName, String contentType) {
+        long size;
         try {
-            logger.info("Storing file: {}", fileName);
-            var args = UploadObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(fileName)
-                    .filename(path.toString())
-                    .contentType(contentType)
-                    .build();
-            var response = minioClient.uploadObject(args);
-            logger.info("Upload file {} response: {}", fileName, response.etag());
-        } catch (Exception e) {
+            size = Files.size(path);
+        } catch (IOException e) {
             logger.error("Error storing file", e);
             throw new MediaFileServerException("Error storing file", e);
         }
+        execute("store", fileName, false, result -> size, () -> asyncMediaFileStore.store(path, fileName, contentType).await().indefinitely());
+    }
+
+    /**
+     * Streams a file to the MinIO bucket.
+     * <p>
+     * If the size is known, the stream is handed over to the MinIO client, that sends it in parts of the configured
+     * size, one part at a time. The verifier is called once the content is sent; if the verification fails, the
+     * object is removed again.
+     * </p>
+     * <p>
+     * If the size is unknown, the content is cut into parts of the configured size as it is read, and the parts are sent
+     * as a multipart upload, with at most the configured number of parts in flight. The verifier is called once the
+     * stream is exhausted: the upload is completed only if the verification passes, otherwise it is aborted, so an
+     * invalid file never becomes visible in the bucket. Content that fits into a single part is verified first, and
+     * then sent in one request.
+     * </p>
+     *
+     * @param inputStream The content of the file.
+     * @param size        The size of the content in bytes, or -1 if it is unknown.
+     * @param fileName    The name of the file in MinIO.
+     * @param contentType The MIME type of the file.
+     * @param verifier    Validates the consumed content before the file is committed.
+     * @throws MediaFileServerException if an error occurs during file upload.
+     */
+    @Override
+    @Timed(value = "media.store.operation", extraTags = {"operation", "store-stream"}, histogram = true)
+    public void store(InputStream inputStream, long size, String fileName, String contentType, ContentVerifier verifier) {
+        if (size >= 0) {
+            putObject(inputStream, size, fileName, contentType, verifier);
+        } else {
+            upload(inputStream, fileName, contentType, verifier);
+        }
+    }
+
+    private void putObject(InputStream inputStream, long size, String fileName, String contentType, ContentVerifier verifier) {
+        logger.info("Streaming file: {}", fileName);
+        execute("store", fileName, false, result -> size,
+                () -> asyncMediaFileStore.store(inputStream, size, partSize, fileName, contentType).await().indefinitely());
+        try {
+            verifier.verify();
+        } catch (RuntimeException e) {
+            logger.warn("Verification of file {} failed, removing it", fileName);
+            try {
+                remove(fileName);
+            } catch (RuntimeException removeFailure) {
+                e.addSuppressed(removeFailure);
+            }
+            throw e;
+        }
+    }
+
+    private void upload(InputStream inputStream, String fileName, String contentType, ContentVerifier verifier) {
+        logger.info("Streaming file: {}", fileName);
+        var part = readPart(inputStream);
+        if (part.length < partSize) {
+            verifier.verify();
+            putObject(part, fileName, contentType);
+            return;
+        }
+        var event = new StoreOperationEvent();
+        var span = startSpan("multipart-upload", fileName);
+        event.begin();
+        long uploaded = 0;
+        try (var scope = span.makeCurrent()) {
+            var upload = execute("multipart-start", fileName, true, result -> -1,
+                    () -> asyncMediaFileStore.startMultipartUpload(fileName, contentType, parallelParts, limiter));
+            try {
+                while (part.length > 0) {
+                    upload.uploadPart(part);
+                    uploaded += part.length;
+                    part = part.length < partSize ? new byte[0] : readPart(inputStream);
+                }
+                verifier.verify();
+                upload.complete();
+            } catch (RuntimeException e) {
+                logger.warn("Upload of file {} failed, aborting it", fileName);
+                upload.abort();
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            commit(event, span, "multipart-upload", fileName, uploaded, e);
+            throw e;
+        }
+        commit(event, span, "multipart-upload", fileName, uploaded, null);
+    }
+
+    private byte[] readPart(InputStream inputStream) {
+        try {
+            return inputStream.readNBytes(partSize);
+        } catch (IOException e) {
+            logger.error("Error reading file", e);
+            throw new MediaFileServerException("Error reading file", e);
+        }
+    }
+
+    private void putObject(byte[] content, String fileName, String contentType) {
+        execute("store", fileName, false, result -> content.length, () -> asyncMediaFileStore.store(content, fileName, contentType).await().indefinitely());
     }
 
     /**
@@ -74,88 +212,123 @@ public class MinIOMediaFileStore implements MediaFileStore {
      * @apiNote By calling this method, the caller is responsible for closing the input stream.
      */
     @Override
+    @Timed(value = "media.store.operation", extraTags = {"operation", "read"}, histogram = true)
     public InputStream read(String fileName) {
-        try {
-            logger.info("Reading file: {}", fileName);
-            var args = GetObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(fileName)
-                    .build();
-            return minioClient.getObject(args);
-        } catch (Exception e) {
-            logger.error("Error reading file", e);
-            throw new MediaFileServerException("Error reading file", e);
-        }
+        return execute("read", fileName, true, result -> -1, () -> asyncMediaFileStore.open(fileName).await().indefinitely());
     }
 
     /**
-     * Retrieves the size of a file stored in MinIO.
+     * Retrieves a range of a file from the MinIO bucket.
      *
      * @param fileName The name of the file in MinIO.
-     * @return The size of the file in bytes.
-     * @throws MediaFileServerException if an error occurs while fetching file metadata.
+     * @param offset   The position of the first byte to read.
+     * @param length   The maximum number of bytes to read.
+     * @return An {@link InputStream} to read the requested range of the file content.
+     * @throws MediaFileServerException if an error occurs while reading the file.
+     * @apiNote By calling this method, the caller is responsible for closing the input stream.
      */
     @Override
-    public long getFileSize(String fileName) {
-        try {
-            logger.info("Getting file size: {}", fileName);
-            var args = StatObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(fileName)
-                    .build();
-            var stat = minioClient.statObject(args);
-           return stat.size();
-        } catch (Exception e) {
-            logger.error("Error getting file size", e);
-            throw new MediaFileServerException("Error getting file size", e);
-        }
+    @Timed(value = "media.store.operation", extraTags = {"operation", "read-range"}, histogram = true)
+    public InputStream read(String fileName, long offset, long length) {
+        return execute("read-range", fileName, true, result -> length, () -> asyncMediaFileStore.open(fileName, offset, length).await().indefinitely());
     }
 
     /**
-     * Ensures that the MinIO bucket exists. If not, it is created.
-     * This method is called automatically after the application starts.
+     * Creates a file in the MinIO bucket by concatenating existing files on the server side.
+     * <p>
+     * MinIO requires each source file, except the last one, to be at least 5 MB.
+     * </p>
+     *
+     * @param sourceFileNames The names of the files in MinIO to concatenate, in order.
+     * @param fileName        The name of the new file in MinIO.
+     * @param contentType     The MIME type of the new file.
+     * @throws MediaFileServerException if an error occurs while composing the file.
      */
-    @PostConstruct
-    void initStore() {
-        if (!bucketExists()) {
-            createBucket();
-        }
+    @Override
+    @Timed(value = "media.store.operation", extraTags = {"operation", "compose"}, histogram = true)
+    public void compose(List<String> sourceFileNames, String fileName, String contentType) {
+        execute("compose", fileName, false, result -> -1, () -> asyncMediaFileStore.compose(sourceFileNames, fileName, contentType).await().indefinitely());
+    }
+
+    /**
+     * Removes a file from the MinIO bucket.
+     *
+     * @param fileName The name of the file in MinIO.
+     * @throws MediaFileServerException if an error occurs while removing the file.
+     */
+    @Override
+    @Timed(value = "media.store.operation", extraTags = {"operation", "remove"}, histogram = true)
+    public void remove(String fileName) {
+        execute("remove", fileName, true, result -> -1, () -> asyncMediaFileStore.remove(fileName).await().indefinitely());
+    }
+
+    /**
+     * Retrieves the size of a file stored in MinIO.
+     *
+     * @param fileName The name of the file in MinIO.
+     * @return The size of the file in bytes.
+     * @throws MediaFileServerException if an error occurs while fetching file metadata.
+     */
+    @Override
+    @Timed(value = "media.store.operation", extraTags = {"operation", "size"}, histogram = true)
+    public long getFileSize(String fileName) {
+        return execute("size", fileName, true, result -> result, () -> asyncMediaFileStore.getFileSize(fileName).await().indefinitely());
     }
 
     /**
-     * Creates the MinIO bucket if it does not already exist.
+     * Sends a request within the concurrency limit, and records it as a flight recorder event.
      *
-     * @throws MediaFileServerException if an error occurs while creating the bucket.
+     * @param operation the name of the operation in the event
+     * @param fileName  the name of the file in MinIO
+     * @param sampled   whether the latency of the request is a sample of the concurrency limit
+     * @param bytes     extracts the size of the content from the result, for the event
+     * @param request   the request
+     * @return the result of the request
      */
-    private void createBucket()  {
+    private <T> T execute(String operation, String fileName, boolean sampled, ToLongFunction<T> bytes, Supplier<T> request) {
+        var event = new StoreOperationEvent();
+        var span = startSpan(operation, fileName);
+        event.begin();
+        T result;
         try {
-            logger.info("Creating bucket: {}", bucketName);
-            var args = MakeBucketArgs.builder()
-                    .bucket(bucketName)
-                    .build();
-            minioClient.makeBucket(args);
-        } catch (Exception e) {
-            logger.error("Error creating bucket", e);
-            throw new MediaFileServerException("Error creating bucket", e);
+            result = limiter.execute(request, sampled);
+        } catch (RuntimeException e) {
+            commit(event, span, operation, fileName, -1, e);
+            throw e;
         }
+        commit(event, span, operation, fileName, event.isEnabled() || span.isRecording() ? bytes.applyAsLong(result) : -1, null);
+        return result;
+    }
+
+    private Span startSpan(String operation, String fileName) {
+        return tracer.spanBuilder("minio " + operation)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute(OBJECT_NAME, fileName)
+                .startSpan();
     }
 
     /**
-     * Checks whether the MinIO bucket exists.
+     * Ends the event and the span of a request.
      *
-     * @return {@code true} if the bucket exists, {@code false} otherwise.
-     * @throws MediaFileServerException if an error occurs while checking for the bucket.
+     * @param bytes   the size of the content, -1 if unknown
+     * @param failure the failure of the request, {@code null} if it succeeded
      */
-    private boolean bucketExists() {
-        try {
-            logger.info("Checking if bucket exists: {}", bucketName);
-            var args = BucketExistsArgs.builder()
-                    .bucket(bucketName)
-                    .build();
-            return minioClient.bucketExists(args);
-        } catch (Exception e) {
-            logger.error("Error checking if bucket exists", e);
-            throw new MediaFileServerException("Error checking if bucket exists", e);
+    private static void commit(StoreOperationEvent event, Span span, String operation, String fileName, long bytes, RuntimeException failure) {
+        if (bytes >= 0) {
+            span.setAttribute(BYTES, bytes);
+        }
+        if (failure != null) {
+            span.recordException(failure);
+            span.setStatus(StatusCode.ERROR);
+        }
+        span.end();
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.objectName = fileName;
+            event.bytes = bytes;
+            event.succeeded = failure == null;
+            event.commit();
         }
     }
 }
@@ -0,0 +1,183 @@
+package io.crunch.store;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.crunch.shared.MediaFileServerException;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Represents one multipart upload of an object to MinIO.
+ * <p>
+ * The parts are sent with the asynchronous MinIO client, so several parts can be in flight at the same time.
+ * The number of in-flight parts is bounded: {@link #uploadPart(byte[])} blocks the caller until a slot is free,
+ * which also bounds the memory used by the part buffers.
+ * </p>
+ * <p>
+ * Every part, and the completion and the abort of the upload, takes a slot of the {@link MinIOConcurrencyLimiter}
+ * while it is sent. The latency of the parts and of the completion depends on their size, so they are not samples of
+ * the limit.
+ * </p>
+ * <p>
+ * The object becomes visible in the bucket only when {@link #complete()} is called; {@link #abort()} discards all
+ * parts uploaded so far.
+ * </p>
+ */
+class MinIOMultipartUpload {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MinioAsyncClient minioAsyncClient;
+
+    private final String bucketName;
+
+    private final String objectName;
+
+    private final String uploadId;
+
+    private final MinIOConcurrencyLimiter limiter;
+
+    private final Semaphore inFlightParts;
+
+    private final List<CompletableFuture<Part>> parts = new ArrayList<>();
+
+    private MinIOMultipartUpload(MinioAsyncClient minioAsyncClient, MinIOConcurrencyLimiter limiter, String bucketName,
+                                 String objectName, String uploadId, int parallelParts) {
+        this.minioAsyncClient = minioAsyncClient;
+        this.limiter = limiter;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.uploadId = uploadId;
+        this.inFlightParts = new Semaphore(parallelParts);
+    }
+
+    /**
+     * Initiates a new multipart upload.
+     *
+     * @param minioAsyncClient the client used for sending the requests
+     * @param limiter          limits the concurrent requests of the parts, the completion and the abort
+     * @param bucketName       the name of the target bucket
+     * @param objectName       the name of the object to be created
+     * @param contentType      the MIME type of the object
+     * @param parallelParts    the maximum number of parts that can be uploaded at the same time
+     * @return the started upload
+     * @throws MediaFileServerException if the upload cannot be initiated
+     */
+    static MinIOMultipartUpload start(MinioAsyncClient minioAsyncClient, MinIOConcurrencyLimiter limiter, String bucketName,
+                                      String objectName, String contentType, int parallelParts) {
+        try {
+            var headers = ImmutableMultimap.of("Content-Type", contentType);
+            var response = minioAsyncClient.createMultipartUploadAsync(bucketName, null, objectName, headers, null).get();
+            return new MinIOMultipartUpload(minioAsyncClient, limiter, bucketName, objectName, response.result().uploadId(), parallelParts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MediaFileServerException("Multipart upload initiation interrupted", e);
+        } catch (Exception e) {
+            throw new MediaFileServerException("Error initiating multipart upload", e);
+        }
+    }
+
+    /**
+     * Sends the next part of the object.<p>
+     * The call returns as soon as the part is submitted, unless the maximum number of parts are already in flight.
+     *
+     * @param data the content of the part; it must not be modified after the call
+     * @throws MediaFileServerException if a previous part has already failed, or the part cannot be submitted
+     */
+    void uploadPart(byte[] data) {
+        try {
+            inFlightParts.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MediaFileServerException("Part upload interrupted", e);
+        }
+        MinIOConcurrencyLimiter.Slot slot = null;
+        try {
+            if (parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                throw new MediaFileServerException("Error uploading part of " + objectName);
+            }
+            slot = limiter.acquire(false);
+            var partSlot = slot;
+            var partNumber = parts.size() + 1;
+            var part = minioAsyncClient.uploadPartAsync(bucketName, null, objectName, data, data.length, uploadId, partNumber, null, null)
+                    .thenApply(response -> new Part(partNumber, response.etag()))
+                    .whenComplete((response, error) -> {
+                        partSlot.release(error);
+                        inFlightParts.release();
+                    });
+            parts.add(part);
+        } catch (MediaFileServerException e) {
+            inFlightParts.release();
+            throw e;
+        } catch (Exception e) {
+            slot.release(e);
+            inFlightParts.release();
+            throw new MediaFileServerException("Error uploading part of " + objectName, e);
+        }
+    }
+
+    /**
+     * Waits for all parts, and commits the object.
+     *
+     * @throws MediaFileServerException if any of the parts failed, or the upload cannot be completed
+     */
+    void complete() {
+        try {
+            var uploadedParts = new Part[parts.size()];
+            for (int i = 0; i < uploadedParts.length; i++) {
+                uploadedParts[i] = parts.get(i).get();
+            }
+            var response = send(false, () -> minioAsyncClient.completeMultipartUploadAsync(bucketName, null, objectName, uploadId, uploadedParts, null, null));
+            logger.info("Multipart upload of {} completed with {} parts, etag: {}", objectName, uploadedParts.length, response.etag());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MediaFileServerException("Multipart upload completion interrupted", e);
+        } catch (ExecutionException e) {
+            throw new MediaFileServerException("Error uploading part of " + objectName, e.getCause());
+        } catch (Exception e) {
+            throw new MediaFileServerException("Error completing multipart upload", e);
+        }
+    }
+
+    /**
+     * Discards the upload, and all parts uploaded so far.<p>
+     * Errors are logged only, because the abort is always called while handling another error.
+     */
+    void abort() {
+        try {
+            // Wait for the in-flight parts, otherwise they could be stored after the abort
+            CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).exceptionally(e -> null).get();
+            send(true, () -> minioAsyncClient.abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null));
+            logger.info("Multipart upload of {} aborted", objectName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Multipart upload abort interrupted", e);
+        } catch (Exception e) {
+            logger.error("Error aborting multipart upload of {}", objectName, e);
+        }
+    }
+
+    /**
+     * Sends a request within the concurrency limit, and waits for its response.
+     */
+    private <T> T send(boolean sampled, Callable<CompletableFuture<T>> request) throws Exception {
+        var slot = limiter.acquire(sampled);
+        try {
+            var response = request.call().get();
+            slot.release(null);
+            return response;
+        } catch (Exception e) {
+            slot.release(e);
+            throw e;
+        }
+    }
+}
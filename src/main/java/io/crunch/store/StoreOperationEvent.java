@@ -0,0 +1,33 @@
+package io.crunch.store;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of an operation of the {@link MinIOMediaFileStore}.
+ * <p>
+ * The event is disabled by default; it is enabled by the {@code media.jfc} settings of the project.
+ * </p>
+ */
+@Name("io.crunch.StoreOperation")
+@Label("Store Operation")
+@Description("A request of the media file store to MinIO")
+@Category({"Media Server", "Store"})
+@Enabled(false)
+@Threshold("20 ms")
+@StackTrace(false)
+final class StoreOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Object Name")
+    String objectName;
+
+    @Label("Bytes")
+    @Description("The size of the stored or measured content, -1 if it is unknown, for example for a read")
+    @DataAmount
+    long bytes;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
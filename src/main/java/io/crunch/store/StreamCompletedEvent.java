@@ -0,0 +1,34 @@
+package io.crunch.store;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a media response, from its start until its content is written, see {@link MediaFileContentProvider}.
+ * <p>
+ * The event is disabled by default; it is enabled by the {@code media.jfc} settings of the project.
+ * </p>
+ */
+@Name("io.crunch.StreamCompleted")
+@Label("Stream Completed")
+@Description("A media file streamed to a viewer")
+@Category({"Media Server", "Streaming"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+final class StreamCompletedEvent extends Event {
+
+    @Label("Object Name")
+    String objectName;
+
+    @Label("Content Type")
+    String contentType;
+
+    @Label("Bytes")
+    @Description("The number of bytes written to the viewer, -1 if the viewer went away")
+    @DataAmount
+    long bytes;
+
+    @Label("Completed")
+    @Description("Whether the whole content was written, false if the viewer went away")
+    boolean completed;
+}
@@ -0,0 +1,68 @@
+package io.crunch.tracing;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the finished spans to the log, so the traces can be inspected without an OpenTelemetry collector.
+ * <p>
+ * Quarkus registers the {@link SpanProcessor} beans in the tracer provider, next to the exporter of the spans. Each span
+ * is written in one line, with its trace id and the id of its parent, so a trace can be reconstructed by searching the
+ * log for its trace id. It is enabled by {@code media.tracing.log-spans}; when disabled, the spans are not passed to it.
+ * </p>
+ */
+@ApplicationScoped
+public class LoggingSpanProcessor implements SpanProcessor {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final boolean enabled;
+
+    public LoggingSpanProcessor(@ConfigProperty(name = "media.tracing.log-spans", defaultValue = "false") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        var data = span.toSpanData();
+        logger.info("trace={} span={} parent={} name='{}' kind={} duration={}ms status={} links={} attributes={}",
+                data.getTraceId(),
+                data.getSpanId(),
+                data.getParentSpanContext().isValid() ? data.getParentSpanId() : "-",
+                data.getName(),
+                data.getKind(),
+                TimeUnit.NANOSECONDS.toMillis(data.getEndEpochNanos() - data.getStartEpochNanos()),
+                data.getStatus().getStatusCode(),
+                data.getLinks().stream().map(link -> link.getSpanContext().getTraceId() + "/" + link.getSpanContext().getSpanId()).toList(),
+                data.getAttributes().asMap());
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return enabled;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+}
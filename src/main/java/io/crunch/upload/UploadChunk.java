@@ -0,0 +1,57 @@
+package io.crunch.upload;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "UPLOAD_CHUNK", uniqueConstraints = @UniqueConstraint(columnNames = {"session_id", "chunk_number"}))
+public class UploadChunk {
+
+    @Id
+    @SequenceGenerator(name = "upload_chunk_gen", sequenceName = "upload_chunk_sequence", allocationSize = 1)
+    @GeneratedValue(generator = "upload_chunk_gen", strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    /** The upload session the chunk belongs to. */
+    @Column(name = "session_id", updatable = false, nullable = false, length = 36)
+    private String sessionId;
+
+    /** The position of the chunk in the assembled media file, starting from 1. */
+    @Column(name = "chunk_number", updatable = false, nullable = false)
+    private int number;
+
+    /** The size of the chunk in bytes. */
+    @Column(name = "chunk_size", nullable = false)
+    private long size;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,51 @@
+package io.crunch.upload;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository for managing {@link UploadChunk} entities.
+ * <p>
+ * The repository is marked as {@code @ApplicationScoped}, meaning it is a singleton
+ * within the application. It is also annotated with {@code @Transactional}, ensuring
+ * that all methods execute within a transactional context.
+ * </p>
+ */
+@ApplicationScoped
+@Transactional
+public class UploadChunkRepository implements PanacheRepository<UploadChunk> {
+
+    /**
+     * Changes the size of a chunk of an upload session.
+     *
+     * @param sessionId the identifier of the upload session
+     * @param number    the number of the chunk
+     * @param size      the new size of the chunk in bytes
+     * @return {@code true} if the chunk exists, otherwise {@code false}
+     */
+    public boolean updateSize(String sessionId, int number, long size) {
+        return update("update UploadChunk c set c.size = ?3 where c.sessionId = ?1 and c.number = ?2", sessionId, number, size) > 0;
+    }
+
+    /**
+     * Finds all chunks of an upload session, ordered by their number.
+     *
+     * @param sessionId the identifier of the upload session
+     * @return the chunks of the session
+     */
+    public List<UploadChunk> findBySessionId(String sessionId) {
+        return list("sessionId = ?1 order by number", sessionId);
+    }
+
+    /**
+     * Deletes all chunks of an upload session.
+     *
+     * @param sessionId the identifier of the upload session
+     */
+    public void deleteBySessionId(String sessionId) {
+        delete("sessionId", sessionId);
+    }
+}
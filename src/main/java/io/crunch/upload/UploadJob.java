@@ -0,0 +1,129 @@
+package io.crunch.upload;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "UPLOAD_JOB")
+public class UploadJob {
+
+    /** Uniquely identifies the job for the client, a.k.a. the path param of the job URL */
+    @Id
+    @Column(name = "job_id", updatable = false, nullable = false, length = 36)
+    private String jobId;
+
+    /** The instance that spooled the media file; only this instance can process the job. */
+    @Column(name = "spool_owner", updatable = false, nullable = false, length = 255)
+    private String owner;
+
+    /** The expected SHA256 checksum of the media file. */
+    @Column(name = "checksum", updatable = false, nullable = false, length = 255)
+    private String checksum;
+
+    /** The algorithm of the checksum, for example sha256. */
+    @Column(name = "algorithm", updatable = false, nullable = false, length = 32)
+    private String algorithm;
+
+    /** The original name of the media file, used as a hint for the content type detection. */
+    @Column(name = "file_name", updatable = false, length = 512)
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false, length = 16)
+    private UploadJobState state;
+
+    /** The public URL of the media file, set when the job is completed. */
+    @Column(name = "url", length = 1024)
+    private String url;
+
+    /** The reason of the failure, set when the job is failed. */
+    @Column(name = "error", length = 1024)
+    private String error;
+
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public UploadJobState getState() {
+        return state;
+    }
+
+    public void setState(UploadJobState state) {
+        this.state = state;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
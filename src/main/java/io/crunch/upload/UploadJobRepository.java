@@ -0,0 +1,32 @@
+package io.crunch.upload;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for managing {@link UploadJob} entities.
+ * <p>
+ * The repository is marked as {@code @ApplicationScoped}, meaning it is a singleton
+ * within the application. It is also annotated with {@code @Transactional}, ensuring
+ * that all methods execute within a transactional context.
+ * </p>
+ */
+@ApplicationScoped
+@Transactional
+public class UploadJobRepository implements PanacheRepositoryBase<UploadJob, String> {
+
+    /**
+     * Finds the jobs of an instance in the given states, ordered by their creation time.
+     *
+     * @param owner  the instance that spooled the media files
+     * @param states the states of the jobs
+     * @return the matching jobs
+     */
+    public List<UploadJob> findByOwnerAndStates(String owner, Collection<UploadJobState> states) {
+        return list("owner = ?1 and state in ?2 order by createdAt", owner, states);
+    }
+}
@@ -0,0 +1,19 @@
+package io.crunch.upload;
+
+/**
+ * The states of an asynchronous upload job.
+ */
+public enum UploadJobState {
+
+    /** The media file is in the spool, and waits for a worker. */
+    ACCEPTED,
+
+    /** The media file is being validated and stored. */
+    PROCESSING,
+
+    /** The media file is stored, and it is available at the URL of the job. */
+    COMPLETED,
+
+    /** The media file is rejected or cannot be stored, the reason is recorded in the job. */
+    FAILED
+}
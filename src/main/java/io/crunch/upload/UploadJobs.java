@@ -0,0 +1,69 @@
+package io.crunch.upload;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Manages the state of asynchronous uploads.
+ * <p>
+ * An asynchronous upload is accepted into a local spool, and it is processed later by a worker. The jobs are stored
+ * in the database, so the unfinished jobs can be picked up again after the restart of the application.
+ * </p>
+ * <p>
+ * The spool is local to an instance, so every job has an owner, the instance that spooled its media file; only the
+ * owner picks up its unfinished jobs.
+ * </p>
+ */
+public interface UploadJobs {
+
+    /**
+     * Registers a new job in {@link UploadJobState#ACCEPTED} state.
+     *
+     * @param jobId     The job identifier.
+     * @param owner     The instance that spooled the media file.
+     * @param checksum  The expected checksum of the media file.
+     * @param algorithm The algorithm of the checksum.
+     * @param fileName  The original name of the media file, can be {@code null}.
+     * @return The new job.
+     */
+    UploadJob create(String jobId, String owner, String checksum, String algorithm, String fileName);
+
+    /**
+     * Gets a job by its identifier.
+     *
+     * @param jobId The job identifier.
+     * @return The job if it is available, otherwise empty {@link Optional}.
+     */
+    Optional<UploadJob> get(String jobId);
+
+    /**
+     * Gets the jobs of an instance that are not finished yet, in the order they were accepted.
+     *
+     * @param owner The instance that spooled the media files.
+     * @return The jobs in {@link UploadJobState#ACCEPTED} or {@link UploadJobState#PROCESSING} state.
+     */
+    List<UploadJob> getUnfinished(String owner);
+
+    /**
+     * Marks a job as being processed.
+     *
+     * @param jobId The job identifier.
+     */
+    void processing(String jobId);
+
+    /**
+     * Marks a job as completed.
+     *
+     * @param jobId The job identifier.
+     * @param url   The URL of the stored media file.
+     */
+    void completed(String jobId, String url);
+
+    /**
+     * Marks a job as failed.
+     *
+     * @param jobId The job identifier.
+     * @param error The reason of the failure.
+     */
+    void failed(String jobId, String error);
+}
@@ -0,0 +1,83 @@
+package io.crunch.upload;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@ApplicationScoped
+public class UploadJobsService implements UploadJobs {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final UploadJobRepository uploadJobRepository;
+
+    public UploadJobsService(UploadJobRepository uploadJobRepository) {
+        this.uploadJobRepository = uploadJobRepository;
+    }
+
+    @Override
+    public UploadJob create(String jobId, String owner, String checksum, String algorithm, String fileName) {
+        var job = new UploadJob();
+        job.setJobId(jobId);
+        job.setOwner(owner);
+        job.setChecksum(checksum);
+        job.setAlgorithm(algorithm);
+        job.setFileName(fileName);
+        job.setState(UploadJobState.ACCEPTED);
+        job.setCreatedAt(Instant.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        uploadJobRepository.persist(job);
+        logger.info("Upload job {} is accepted", jobId);
+        return job;
+    }
+
+    @Override
+    public Optional<UploadJob> get(String jobId) {
+        return uploadJobRepository.findByIdOptional(jobId);
+    }
+
+    @Override
+    public List<UploadJob> getUnfinished(String owner) {
+        return uploadJobRepository.findByOwnerAndStates(owner, EnumSet.of(UploadJobState.ACCEPTED, UploadJobState.PROCESSING));
+    }
+
+    @Override
+    @Transactional
+    public void processing(String jobId) {
+        update(jobId, job -> job.setState(UploadJobState.PROCESSING));
+    }
+
+    @Override
+    @Transactional
+    public void completed(String jobId, String url) {
+        update(jobId, job -> {
+            job.setState(UploadJobState.COMPLETED);
+            job.setUrl(url);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void failed(String jobId, String error) {
+        update(jobId, job -> {
+            job.setState(UploadJobState.FAILED);
+            job.setError(error);
+        });
+    }
+
+    private void update(String jobId, Consumer<UploadJob> change) {
+        uploadJobRepository.findByIdOptional(jobId).ifPresent(job -> {
+            change.accept(job);
+            job.setUpdatedAt(Instant.now());
+            logger.info("Upload job {} is {}", jobId, job.getState());
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package io.crunch.upload;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "UPLOAD_SESSION")
+public class UploadSession {
+
+    /** Uniquely identifies the session for the client, a.k.a. the path param of the session URL */
+    @Id
+    @Column(name = "session_id", updatable = false, nullable = false, length = 36)
+    private String sessionId;
+
+    /** The expected SHA256 checksum of the assembled media file. */
+    @Column(name = "checksum", updatable = false, nullable = false, length = 255)
+    private String checksum;
+
+    /** The algorithm of the checksum, for example sha256. */
+    @Column(name = "algorithm", updatable = false, nullable = false, length = 32)
+    private String algorithm;
+
+    /** The original name of the media file, used as a hint for the content type detection. */
+    @Column(name = "file_name", updatable = false, length = 512)
+    private String fileName;
+
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private Instant createdAt;
+
+    /** The time of the last received chunk, the creation time before the first one. */
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
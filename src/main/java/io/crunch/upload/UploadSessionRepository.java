@@ -0,0 +1,41 @@
+package io.crunch.upload;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for managing {@link UploadSession} entities.
+ * <p>
+ * The repository is marked as {@code @ApplicationScoped}, meaning it is a singleton
+ * within the application. It is also annotated with {@code @Transactional}, ensuring
+ * that all methods execute within a transactional context.
+ * </p>
+ */
+@ApplicationScoped
+@Transactional
+public class UploadSessionRepository implements PanacheRepositoryBase<UploadSession, String> {
+
+    /**
+     * Records the activity of an upload session.
+     *
+     * @param sessionId the identifier of the upload session
+     * @param updatedAt the time of the activity
+     */
+    public void touch(String sessionId, Instant updatedAt) {
+        update("updatedAt = ?2 where sessionId = ?1", sessionId, updatedAt);
+    }
+
+    /**
+     * Finds the upload sessions without any activity since the given time.
+     *
+     * @param updatedBefore the upper limit of the time of the last activity, exclusive
+     * @return the inactive sessions
+     */
+    public List<UploadSession> findInactive(Instant updatedBefore) {
+        return list("updatedAt < ?1", updatedBefore);
+    }
+}
@@ -0,0 +1,67 @@
+package io.crunch.upload;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Manages the state of resumable uploads.
+ * <p>
+ * A resumable upload is a media file that is sent in numbered chunks, in any order and possibly in parallel.
+ * The sessions and their received chunks are stored in the database, so an upload can be continued after
+ * a failed request, or after the restart of the application.
+ * </p>
+ */
+public interface UploadSessions {
+
+    /**
+     * Starts a new upload session.
+     *
+     * @param checksum  The expected checksum of the assembled media file.
+     * @param algorithm The algorithm of the checksum.
+     * @param fileName  The original name of the media file, can be {@code null}.
+     * @return The new session.
+     */
+    UploadSession create(String checksum, String algorithm, String fileName);
+
+    /**
+     * Gets an upload session by its identifier.
+     *
+     * @param sessionId The session identifier.
+     * @return The session if it is available, otherwise empty {@link Optional}.
+     */
+    Optional<UploadSession> get(String sessionId);
+
+    /**
+     * Gets the upload sessions that have not received any chunk since the given time.
+     *
+     * @param updatedBefore The upper limit of the time of the last received chunk, exclusive.
+     * @return The inactive sessions.
+     */
+    List<UploadSession> getInactive(Instant updatedBefore);
+
+    /**
+     * Records a received chunk. Receiving the same chunk again replaces the previous one, also when the same chunk
+     * is received by concurrent requests.
+     *
+     * @param sessionId The session identifier.
+     * @param number    The number of the chunk, starting from 1.
+     * @param size      The size of the chunk in bytes.
+     */
+    void addChunk(String sessionId, int number, long size);
+
+    /**
+     * Gets the received chunks of a session.
+     *
+     * @param sessionId The session identifier.
+     * @return The chunks ordered by their number.
+     */
+    List<UploadChunk> getChunks(String sessionId);
+
+    /**
+     * Removes a session with all of its chunk records.
+     *
+     * @param sessionId The session identifier.
+     */
+    void remove(String sessionId);
+}
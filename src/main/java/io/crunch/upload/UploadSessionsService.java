@@ -0,0 +1,84 @@
+package io.crunch.upload;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@ApplicationScoped
+public class UploadSessionsService implements UploadSessions {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final UploadSessionRepository uploadSessionRepository;
+
+    private final UploadChunkRepository uploadChunkRepository;
+
+    public UploadSessionsService(UploadSessionRepository uploadSessionRepository, UploadChunkRepository uploadChunkRepository) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.uploadChunkRepository = uploadChunkRepository;
+    }
+
+    @Override
+    public UploadSession create(String checksum, String algorithm, String fileName) {
+        var session = new UploadSession();
+        session.setSessionId(UUID.randomUUID().toString());
+        session.setChecksum(checksum);
+        session.setAlgorithm(algorithm);
+        session.setFileName(fileName);
+        session.setCreatedAt(Instant.now());
+        session.setUpdatedAt(session.getCreatedAt());
+        uploadSessionRepository.persist(session);
+        logger.info("Upload session {} is created", session.getSessionId());
+        return session;
+    }
+
+    @Override
+    public Optional<UploadSession> get(String sessionId) {
+        return uploadSessionRepository.findByIdOptional(sessionId);
+    }
+
+    @Override
+    public List<UploadSession> getInactive(Instant updatedBefore) {
+        return uploadSessionRepository.findInactive(updatedBefore);
+    }
+
+    @Override
+    public void addChunk(String sessionId, int number, long size) {
+        if (!uploadChunkRepository.updateSize(sessionId, number, size)) {
+            var chunk = new UploadChunk();
+            chunk.setSessionId(sessionId);
+            chunk.setNumber(number);
+            chunk.setSize(size);
+            try {
+                uploadChunkRepository.persistAndFlush(chunk);
+            } catch (RuntimeException e) {
+                // The same chunk was received by a concurrent request, and it was recorded first
+                if (!uploadChunkRepository.updateSize(sessionId, number, size)) {
+                    throw e;
+                }
+            }
+        }
+        uploadSessionRepository.touch(sessionId, Instant.now());
+        logger.info("Chunk {} of upload session {} is stored", number, sessionId);
+    }
+
+    @Override
+    public List<UploadChunk> getChunks(String sessionId) {
+        return uploadChunkRepository.findBySessionId(sessionId);
+    }
+
+    @Override
+    @Transactional
+    public void remove(String sessionId) {
+        uploadChunkRepository.deleteBySessionId(sessionId);
+        uploadSessionRepository.deleteById(sessionId);
+        logger.info("Upload session {} is removed", sessionId);
+    }
+}
@@ -15,19 +15,17 @@ public class DynamicContentErrorExtension implements ServletExtension {
 
     private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private static final String DYNAMIC_CONTENT_RESOURCE = "/jakarta.faces.resource/dynamiccontent.properties.xhtml";
-
     /**
-     * Adds an exception handler to the deployment info to log exceptions that occur during dynamic content processing.
-     * <p>Exception can occur for example when for example user close the bowser during the dynamic content is being processed.</p>
+     * Adds an exception handler to the deployment info to log exceptions that occur during media content processing.
+     * <p>Exception can occur for example when for example user close the bowser during the media content is being processed.</p>
      */
     @Override
     public void handleDeployment(DeploymentInfo deploymentInfo, ServletContext servletContext) {
         deploymentInfo.addOuterHandlerChainWrapper(handler ->
             new ExceptionHandler(handler)
                 .addExceptionHandler(Throwable.class, exchange -> {
-                    if (DYNAMIC_CONTENT_RESOURCE.equals(exchange.getRequestPath())) {
-                        logger.warn("Error occurred during the dynamic content processing", exchange.getAttachment(ExceptionHandler.THROWABLE));
+                    if (ViewerUrls.CONTENT_PATH.equals(exchange.getRequestPath())) {
+                        logger.warn("Error occurred during the media content processing", exchange.getAttachment(ExceptionHandler.THROWABLE));
                     }
                 })
         );
@@ -0,0 +1,142 @@
+package io.crunch.viewer;
+
+import io.crunch.admission.AdmissionController;
+import io.crunch.admission.AdmissionRejectedException;
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.MediaFileNotFoundException;
+import io.crunch.store.MediaFileContentProvider;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.primefaces.model.StreamedContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Serves the content of the media file shown by a viewer page.
+ * <p>
+ * The content has a stable URL, {@value ViewerUrls#CONTENT_PATH}{@code ?m=<media id>}, that is the same for every view
+ * of a media file. The {@link MediaViewerDispatcher} knows it before the page is rendered, so it announces it in a
+ * {@code Link: rel=preload} header and in the early hints of the page, see {@link ViewerPreloads}, and the page refers
+ * to the same URL; the browser fetches the media bytes while the page is still being rendered.
+ * </p>
+ * <p>
+ * The request is authorized by the token cookie of the page, checked by the {@link MediaRequestFilter}. The media file is
+ * resolved from the token, and it must be the one in the URL, so the token of a page cannot be used to read another
+ * media file. The content is streamed by the {@link MediaFileContentProvider}, sharing the per-client bandwidth of the
+ * client identified by the {@link AdmissionController}. The request is admitted by the
+ * {@link io.crunch.admission.ViewerAdmissionFilter}, and the size of the content is charged to the byte rate of the client
+ * before it is sent; a client over its limit gets {@code 429 Too Many Requests} with a {@code Retry-After} header.
+ * </p>
+ */
+@WebServlet(urlPatterns = ViewerUrls.CONTENT_PATH)
+public class MediaContentServlet extends HttpServlet {
+
+    @Serial
+    private static final long serialVersionUID = 1;
+
+    private final transient Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final transient MediaRequestCache requestCache;
+
+    private final transient MediaFiles mediaFiles;
+
+    private final transient MediaFileContentProvider mediaFileContentProvider;
+
+    private final transient AdmissionController admissionController;
+
+    private final transient MediaRequestTracing tracing;
+
+    /**
+     * Constructs a {@code MediaContentServlet} with the specified dependencies.
+     *
+     * @param requestCache             the cache for resolving media IDs from token cookies
+     * @param mediaFiles               the service for retrieving media file metadata
+     * @param mediaFileContentProvider the provider for reading and streaming media file content
+     * @param admissionController      identifies the client, whose streams share the per-client bandwidth, and charges its byte rate
+     * @param tracing                  traces the work of the request in the trace of its page
+     */
+    public MediaContentServlet(MediaRequestCache requestCache, MediaFiles mediaFiles, MediaFileContentProvider mediaFileContentProvider,
+                               AdmissionController admissionController, MediaRequestTracing tracing) {
+        this.requestCache = requestCache;
+        this.mediaFiles = mediaFiles;
+        this.mediaFileContentProvider = mediaFileContentProvider;
+        this.admissionController = admissionController;
+        this.tracing = tracing;
+    }
+
+    /**
+     * Streams the content of the requested media file.
+     * <p>
+     * If the token does not belong to the requested media file, or the media file does not exist, the response is
+     * {@code 404 Not Found}. If the client exceeds its byte rate, the response is {@code 429 Too Many Requests}.
+     * </p>
+     *
+     * @param request  the content request, with the token cookie of its page
+     * @param response the response the content is written to
+     * @throws IOException if an input or output error occurs while the error is sent
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        var clientId = admissionController.getClientId(request.getRemoteAddr(), request::getHeader);
+        StreamedContent content;
+        try {
+            content = resolve(request, clientId);
+        } catch (MediaFileNotFoundException | IllegalArgumentException e) {
+            logger.error("Media content request cannot be processed: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try {
+            admissionController.charge(clientId, content.getContentLength());
+        } catch (AdmissionRejectedException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(e.getStatus(), e.getMessage());
+            return;
+        }
+        response.setContentType(content.getContentType());
+        response.setContentLengthLong(content.getContentLength());
+        // The URL is the same for every view of the media file, the content must not be reused without the token
+        response.setHeader("Cache-Control", "private, no-cache");
+        content.getWriter().accept(response.getOutputStream());
+    }
+
+    /**
+     * Resolves the media file of the request by its token, and prepares its content.
+     *
+     * @param request  the content request
+     * @param clientId the identifier of the client, whose streams share the per-client bandwidth
+     * @return the content of the media file, it is read from the store when it is written
+     * @throws IllegalArgumentException   if the token is expired, or it belongs to another media file
+     * @throws MediaFileNotFoundException if the media file does not exist
+     */
+    StreamedContent resolve(HttpServletRequest request, String clientId) {
+        return tracing.inContent(() -> {
+            var mediaId = requestCache.getMediaId(getToken(request));
+            MediaRequestTracing.setMediaId(mediaId);
+            if (mediaId == null || !mediaId.equals(request.getParameter(MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER))) {
+                throw new IllegalArgumentException("Token is expired, or it does not belong to the requested media file");
+            }
+            var mediaFile = mediaFiles.getByMediaId(mediaId).orElseThrow(() -> new MediaFileNotFoundException("Media file not found: " + mediaId));
+            return mediaFileContentProvider.readContent(mediaFile.getObjectName(), mediaFile.getMediaType(), clientId);
+        });
+    }
+
+    private static String getToken(HttpServletRequest request) {
+        var cookies = request.getCookies();
+        if (cookies != null) {
+            for (var cookie : cookies) {
+                if (MediaViewerRequestParameters.TOKEN_COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return "";
+    }
+}
@@ -53,4 +53,15 @@ public interface MediaRequestCache {
      * @return {@code true} if the token is valid and has not expired, {@code false} otherwise.
      */
     boolean isValidToken(String token);
+
+    /**
+     * Invalidates all tokens of a media file.
+     * <p>
+     * This method is called when the media file is removed, so its tokens cannot be used anymore, even if they
+     * have not expired yet.
+     * </p>
+     *
+     * @param mediaId The identifier of the media file whose tokens are invalidated.
+     */
+    void removeMediaId(String mediaId);
 }
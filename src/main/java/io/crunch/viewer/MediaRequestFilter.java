@@ -1,5 +1,6 @@
 package io.crunch.viewer;
 
+import io.opentelemetry.api.trace.Span;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebFilter;
@@ -15,27 +16,35 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Arrays;
+import java.util.Optional;
 
 /**
  * The {@code MediaRequestFilter} class is a servlet filter that intercepts media requests to ensure they are valid.
  * It checks for the presence of a valid token in the request cookies and forwards the request accordingly.
  * If the token is missing or invalid, the request is redirected to an error page.
+ * <p>
+ * The request is traced in the trace of the page it was sent by, see {@link MediaRequestTracing}.
+ * </p>
  */
-@WebFilter(urlPatterns = "/jakarta.faces.resource/dynamiccontent.properties.xhtml")
+@WebFilter(urlPatterns = ViewerUrls.CONTENT_PATH)
 public class MediaRequestFilter extends HttpFilter {
 
     private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     private final MediaRequestCache tokenCache;
 
+    private final MediaRequestTracing tracing;
+
     /**
      * Constructs a {@code MediaRequestFilter} with the specified {@code MediaRequestCache}.
      *
      * @param tokenCache the cache that stores and validates tokens associated with media requests
      * @param tokenGenerator the utility that validates the format of the request token
+     * @param tracing the tracing of the media requests
      */
-    public MediaRequestFilter(MediaRequestCache tokenCache) {
+    public MediaRequestFilter(MediaRequestCache tokenCache, MediaRequestTracing tracing) {
         this.tokenCache = tokenCache;
+        this.tracing = tracing;
     }
 
     /**
@@ -53,12 +62,26 @@ public class MediaRequestFilter extends HttpFilter {
      */
     @Override
     public void doFilter(HttpServletRequest request, HttpServletResponse response, HttpSession session, FilterChain chain) throws IOException, ServletException {
-        var token = Arrays.stream(request.getCookies())
+        var span = tracing.startContentRequest(request);
+        try (var scope = span.makeCurrent()) {
+            filter(request, response, chain, span);
+        } catch (IOException | ServletException | RuntimeException e) {
+            MediaRequestTracing.recordFailure(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private void filter(HttpServletRequest request, HttpServletResponse response, FilterChain chain, Span span) throws IOException, ServletException {
+        var token = Arrays.stream(Optional.ofNullable(request.getCookies()).orElse(new Cookie[0]))
                 .filter(c -> MediaViewerRequestParameters.TOKEN_COOKIE_NAME.equals(c.getName()))
                 .findAny()
                 .map(Cookie::getValue)
                 .orElse("");
-        if(StringUtils.isBlank(token) || !tokenCache.isValidToken(token)) {
+        var valid = StringUtils.isNotBlank(token) && tokenCache.isValidToken(token);
+        span.setAttribute(MediaRequestTracing.TOKEN_VALID, valid);
+        if (!valid) {
             logger.error("Cookie {} is missing, invalid or expired, forwarding request to {}", MediaViewerRequestParameters.TOKEN_COOKIE_NAME, ViewerUrls.GENERAL_ERROR_PAGE);
             response.setStatus(400); // Bad Request
             request.getRequestDispatcher(ViewerUrls.GENERAL_ERROR_PAGE).forward(request, response);
@@ -0,0 +1,168 @@
+package io.crunch.viewer;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Traces the two requests of a media view as one trace.
+ * <p>
+ * A media file is shown in two requests: the {@code /media} page request, that is dispatched by the
+ * {@link MediaViewerDispatcher} and rendered by JSF, and the content request of the rendered page, that passes
+ * the {@link MediaRequestFilter} and is served by the {@link MediaContentServlet}. The second request is correlated to the first
+ * one the same way as it is authorized, by the token of the page: next to the token cookie, the browser gets the trace
+ * context of the page in the {@value MediaViewerRequestParameters#TRACE_COOKIE_NAME} cookie. The span of the
+ * content request is started as a child of the page span, and it is linked to the server span of its own request.
+ * </p>
+ * <p>
+ * The tokens are not recorded in the spans, because they grant access to the media files.
+ * </p>
+ */
+@ApplicationScoped
+public class MediaRequestTracing {
+
+    static final AttributeKey<String> MEDIA_ID = AttributeKey.stringKey("media.id");
+
+    static final AttributeKey<String> MEDIA_TYPE = AttributeKey.stringKey("media.type");
+
+    static final AttributeKey<String> VIEWER_URL = AttributeKey.stringKey("media.viewer.url");
+
+    static final AttributeKey<Boolean> TOKEN_VALID = AttributeKey.booleanKey("media.token.valid");
+
+    private static final String TRACE_PARENT = "traceparent";
+
+    private static final TextMapGetter<HttpServletRequest> TRACE_COOKIE_GETTER = new TextMapGetter<>() {
+
+        @Override
+        public Iterable<String> keys(HttpServletRequest request) {
+            return List.of(TRACE_PARENT);
+        }
+
+        @Override
+        public String get(HttpServletRequest request, String key) {
+            if (request == null || !TRACE_PARENT.equals(key) || request.getCookies() == null) {
+                return null;
+            }
+            return Arrays.stream(request.getCookies())
+                    .filter(c -> MediaViewerRequestParameters.TRACE_COOKIE_NAME.equals(c.getName()))
+                    .findAny()
+                    .map(Cookie::getValue)
+                    .orElse(null);
+        }
+    };
+
+    private final Tracer tracer;
+
+    public MediaRequestTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Starts the span of the dispatch of a {@code /media} page request, as a child of the current span.
+     *
+     * @return the started span, it must be ended by the caller
+     */
+    Span startDispatch() {
+        return tracer.spanBuilder("media dispatch").startSpan();
+    }
+
+    /**
+     * Starts the span of the rendering of the viewer page.
+     *
+     * @param url the URL of the viewer page
+     * @return the started span, it must be ended by the caller
+     */
+    Span startRender(String url) {
+        return tracer.spanBuilder("media render").setAttribute(VIEWER_URL, url).startSpan();
+    }
+
+    /**
+     * Sends the trace context of the given span of the page to the browser, so the content request of the page
+     * can be correlated to it.
+     *
+     * @param response the response of the page request
+     * @param span     the span of the page request
+     */
+    void addTraceCookie(HttpServletResponse response, Span span) {
+        if (!span.getSpanContext().isValid()) {
+            return;
+        }
+        var carrier = new StringBuilder();
+        W3CTraceContextPropagator.getInstance().inject(Context.current().with(span), carrier,
+                (c, key, value) -> {
+                    if (TRACE_PARENT.equals(key)) {
+                        c.append(value);
+                    }
+                });
+        response.addHeader("Set-Cookie", "%s=%s; Path=/; HttpOnly; SameSite=None; Secure".formatted(MediaViewerRequestParameters.TRACE_COOKIE_NAME, carrier));
+    }
+
+    /**
+     * Starts the span of a content request.
+     * <p>
+     * If the request has the trace context of its page, the span is the child of the page span, and it is linked to the
+     * current span of the request; otherwise it is the child of the current span.
+     * </p>
+     *
+     * @param request the content request
+     * @return the started span, it must be ended by the caller
+     */
+    Span startContentRequest(HttpServletRequest request) {
+        var builder = tracer.spanBuilder("media content request");
+        var page = W3CTraceContextPropagator.getInstance().extract(Context.root(), request, TRACE_COOKIE_GETTER);
+        var pageSpanContext = Span.fromContext(page).getSpanContext();
+        if (pageSpanContext.isValid()) {
+            builder.setParent(page).addLink(Span.current().getSpanContext());
+        }
+        return builder.startSpan();
+    }
+
+    /**
+     * Runs the work of the content servlet in its own span.
+     *
+     * @param work resolves the media file and prepares its content
+     * @param <T>  the type of the result
+     * @return the result of the work
+     */
+    <T> T inContent(Supplier<T> work) {
+        var span = tracer.spanBuilder("media content").startSpan();
+        try (var scope = span.makeCurrent()) {
+            return work.get();
+        } catch (RuntimeException e) {
+            recordFailure(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Marks the span failed by the given exception.
+     */
+    static void recordFailure(Span span, Throwable e) {
+        span.recordException(e);
+        span.setStatus(StatusCode.ERROR);
+    }
+
+    /**
+     * Adds the media id to the current span; the content servlet adds it after the token is resolved.
+     *
+     * @param mediaId the id of the media file, {@code null} if the token was invalid
+     */
+    static void setMediaId(String mediaId) {
+        Optional.ofNullable(mediaId).ifPresent(id -> Span.current().setAttribute(MEDIA_ID, id));
+    }
+}
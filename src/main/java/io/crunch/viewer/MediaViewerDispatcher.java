@@ -1,8 +1,10 @@
 package io.crunch.viewer;
 
-import io.crunch.media.MediaFile;
+import io.crunch.bandwidth.TrafficClass;
 import io.crunch.media.MediaFiles;
 import io.crunch.shared.MediaFileNotFoundException;
+import io.crunch.store.MediaFileStore;
+import io.opentelemetry.api.trace.Span;
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -23,6 +25,16 @@ import java.util.UUID;
  * The {@code MediaViewerDispatcher} class is a servlet responsible for handling media requests and forwarding them to
  * appropriate viewers based on the media type. It processes HTTP GET requests and interacts with various components
  * such as media files, token caches, and viewer URLs.
+ * <p>
+ * The dispatch and the rendering of the viewer page are traced, and the trace context of the page is sent to the browser
+ * next to the token, see {@link MediaRequestTracing}.
+ * </p>
+ * <p>
+ * The content of the media file and the static resources of the viewer page are announced before the page is forwarded
+ * to, see {@link ViewerPreloads}. The page renders the same content URL, it is passed in the
+ * {@value MediaViewerRequestParameters#CONTENT_URL_ATTRIBUTE} request attribute. The audio player also shows the size of
+ * the audio file, it is passed in the {@value MediaViewerRequestParameters#CONTENT_LENGTH_ATTRIBUTE} request attribute.
+ * </p>
  */
 @WebServlet(urlPatterns = "/media")
 public class MediaViewerDispatcher extends HttpServlet {
@@ -34,20 +46,33 @@ public class MediaViewerDispatcher extends HttpServlet {
 
     private final transient MediaFiles mediaFiles;
 
+    private final transient MediaFileStore mediaFileStore;
+
     private final transient MediaRequestCache requestCache;
 
+    private final transient MediaRequestTracing tracing;
+
+    private final transient ViewerPreloads preloads;
+
     /**
      * Constructs a {@code MediaViewerDispatcher} servlet with the specified dependencies.
      *
      * @param mediaFiles    the repository or service responsible for handling media files
+     * @param mediaFileStore the store of the media content, for the size of the audio files
      * @param tokenCache    the cache that stores associations between generated tokens and media IDs
      * @param tokenGenerator the utility that generates unique tokens
      * @param mediaUrls the utility that validates media IDs
      * @param viewerUrls    the utility that provides URLs for different media viewers based on the type of media
+     * @param tracing       traces the dispatch and the rendering of the page
+     * @param preloads      announces the static resources of the viewer pages
      */
-    public MediaViewerDispatcher(MediaFiles mediaFiles, MediaRequestCache requestCache) {
+    public MediaViewerDispatcher(MediaFiles mediaFiles, MediaFileStore mediaFileStore, MediaRequestCache requestCache,
+                                 MediaRequestTracing tracing, ViewerPreloads preloads) {
         this.mediaFiles = mediaFiles;
+        this.mediaFileStore = mediaFileStore;
         this.requestCache = requestCache;
+        this.tracing = tracing;
+        this.preloads = preloads;
     }
 
     @Override
@@ -64,15 +89,19 @@ public class MediaViewerDispatcher extends HttpServlet {
      */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) {
-        try {
-            forward(request, response);
+        var span = tracing.startDispatch();
+        try (var scope = span.makeCurrent()) {
+            forward(request, response, span);
         } catch (Exception e) {
             logger.error("Media file request cannot be processed", e);
+            MediaRequestTracing.recordFailure(span, e);
             try {
                 handleException(e, request, response);
             } catch (Exception ex) {
                 // ignore
             }
+        } finally {
+            span.end();
         }
     }
 
@@ -84,32 +113,49 @@ public class MediaViewerDispatcher extends HttpServlet {
      *     <li>Retrieves the media ID from the request parameters.</li>
      *     <li>Retrieves the media type from the media repository.</li>
      *     <li>Saves the media request by generating a token and adding it to the response as a cookie.</li>
+     *     <li>Announces the content of the media file and the static resources of the viewer page.</li>
      *     <li>Forwards the request to the appropriate viewer URL.</li>
      * </ul>
      *
      * @param request  the {@link HttpServletRequest} object that contains the request the client has made of the servlet
      * @param response the {@link HttpServletResponse} object that contains the response the servlet sends to the client
+     * @param span     the span of the dispatch
      * @throws ServletException if the request could not be forwarded
      * @throws IOException      if an input or output error occurs while forwarding the request
      * @throws IllegalArgumentException if the media ID is missing from the request parameters
      * @throws MediaFileNotFoundException if the media file corresponding to the given media ID is not found
      */
-    private void forward(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    private void forward(HttpServletRequest request, HttpServletResponse response, Span span) throws ServletException, IOException {
         // Get media id from request parameter
         var mediaId = Optional.ofNullable(request.getParameter(MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER)).orElseThrow(IllegalArgumentException::new);
 
         // Get media type by id from the repository
-        var mediaType = mediaFiles.getByMediaId(mediaId)
-                .map(MediaFile::getMediaType).orElseThrow(() -> new MediaFileNotFoundException("Media file not found or empty: " + mediaId));
+        var mediaFile = mediaFiles.getByMediaId(mediaId)
+                .orElseThrow(() -> new MediaFileNotFoundException("Media file not found or empty: " + mediaId));
+        var mediaType = mediaFile.getMediaType();
+        span.setAttribute(MediaRequestTracing.MEDIA_ID, mediaId);
+        span.setAttribute(MediaRequestTracing.MEDIA_TYPE, mediaType);
 
         // Save media request
         saveMediaRequest(response, mediaId);
+        tracing.addTraceCookie(response, span);
 
         // Get the redirect URL based on the media type
         var url = ViewerUrls.getViewerUrl(mediaType);
+        var contentUrl = ViewerUrls.getContentUrl(mediaId);
+        request.setAttribute(MediaViewerRequestParameters.CONTENT_URL_ATTRIBUTE, contentUrl);
+        if (TrafficClass.of(mediaType) == TrafficClass.AUDIO) {
+            request.setAttribute(MediaViewerRequestParameters.CONTENT_LENGTH_ATTRIBUTE, mediaFileStore.getFileSize(mediaFile.getObjectName()));
+        }
+        preloads.announce(url, ViewerPreloads.contentLink(request.getContextPath() + contentUrl, mediaType), response);
         var dispatcher = getServletContext().getRequestDispatcher(url);
         logger.info("Forward request to {}", url);
-        dispatcher.forward(request, response);
+        var render = tracing.startRender(url);
+        try (var scope = render.makeCurrent()) {
+            dispatcher.forward(request, response);
+        } finally {
+            render.end();
+        }
     }
 
     /**
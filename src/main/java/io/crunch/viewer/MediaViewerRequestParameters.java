@@ -6,6 +6,14 @@ public class MediaViewerRequestParameters {
 
     public static final String TOKEN_COOKIE_NAME = "media-token";
 
+    public static final String TRACE_COOKIE_NAME = "media-trace";
+
+    /** The request attribute with the content URL of the media file, rendered by the viewer pages. */
+    public static final String CONTENT_URL_ATTRIBUTE = "mediaContentUrl";
+
+    /** The request attribute with the size of the audio file, rendered as the duration of the audio player. */
+    public static final String CONTENT_LENGTH_ATTRIBUTE = "mediaContentLength";
+
     private MediaViewerRequestParameters() {
         throw new IllegalStateException("Utility class");
     }
@@ -1,42 +1,50 @@
 package io.crunch.viewer;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * TTLMediaRequestCache is an implementation of {@link MediaRequestCache} that caches media IDs with a time-to-live (TTL).
  * It automatically removes expired entries using a scheduled cleanup task.
  *
  * <p>This cache is application-scoped, meaning it exists for the lifetime of the application.
- * It uses a {@link LinkedHashMap} with access-order to maintain an LRU-style behavior.
+ * It uses a {@link ConcurrentHashMap}, so the requests do not wait for each other, and a virtual thread is never pinned
+ * to its carrier thread by a monitor.
  * </p>
  *
  * <p><strong>Key Features:</strong>
  * <ul>
  *     <li>Stores media IDs mapped to tokens with a default TTL of 5 seconds.</li>
  *     <li>Scheduled cleanup runs every 1 second to remove expired entries.</li>
- *     <li>Thread-safe operations using synchronization.</li>
+ *     <li>Thread-safe operations without locking.</li>
  *     <li>Uses {@link PreDestroy} annotation to gracefully shut down the cleanup task.</li>
  * </ul>
  * </p>
+ *
+ * <p>The size of the cache, and the number of hits, misses and expired entries are published as the
+ * {@code media.request.cache.*} metrics; as a {@link MeterBinder} bean, the cache is bound to the registry automatically.
+ * The operations are recorded as {@link TokenCacheEvent} flight recorder events.
+ * </p>
  */
 @ApplicationScoped
-public class TTLMediaRequestCache implements MediaRequestCache {
+public class TTLMediaRequestCache implements MediaRequestCache, MeterBinder {
 
     private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     /**
      * Cache map storing tokens mapped to media IDs with expiration timestamps.
-     * Uses {@link LinkedHashMap} in LRU mode (access order) for efficient removal of least recently accessed elements.
      */
-    private final Map<String, CacheEntry> cache;
+    private final ConcurrentMap<String, CacheEntry> cache;
 
     /**
      * Default time-to-live (TTL) for cache entries in seconds.
@@ -53,12 +61,33 @@ public class TTLMediaRequestCache implements MediaRequestCache {
      */
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
+    /**
+     * Time-to-live (TTL) for cache entries in milliseconds.
+     */
+    private final long ttlInMillis;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
     /**
      * Initializes the cache and starts the cleanup task.
      * The cleanup task runs at a fixed interval to remove expired entries.
      */
     public TTLMediaRequestCache() {
-        this.cache = new LinkedHashMap<>(16, 0.75f, true); // LRU-style access order
+        this(TimeUnit.SECONDS.toMillis(DEFAULT_TTL_IN_SEC));
+    }
+
+    /**
+     * Initializes the cache with the given TTL of its entries, and starts the cleanup task.
+     *
+     * @param ttlInMillis the time-to-live of the cache entries in milliseconds
+     */
+    TTLMediaRequestCache(long ttlInMillis) {
+        this.ttlInMillis = ttlInMillis;
+        this.cache = new ConcurrentHashMap<>();
         scheduler.scheduleAtFixedRate(this::cleanup, DEFAULT_CLEANUP_INTERVAL_IN_SEC, DEFAULT_CLEANUP_INTERVAL_IN_SEC, TimeUnit.SECONDS);
     }
 
@@ -70,8 +99,11 @@ public class TTLMediaRequestCache implements MediaRequestCache {
      * @param mediaId the media ID to be cached.
      */
     @Override
-    public synchronized void putMediaId(String token, String mediaId) {
-        cache.put(token, new CacheEntry(mediaId, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(DEFAULT_TTL_IN_SEC)));
+    public void putMediaId(String token, String mediaId) {
+        var event = new TokenCacheEvent();
+        event.begin();
+        cache.put(token, new CacheEntry(mediaId, System.currentTimeMillis() + ttlInMillis));
+        commit(event, "put", true);
     }
 
     /**
@@ -82,13 +114,21 @@ public class TTLMediaRequestCache implements MediaRequestCache {
      * @return the associated media ID, or {@code null} if not found or expired.
      */
     @Override
-    public synchronized String getMediaId(String token) {
+    public String getMediaId(String token) {
+        var event = new TokenCacheEvent();
+        event.begin();
         var entry = cache.get(token);
         if (entry == null || System.currentTimeMillis() > entry.expiryTime) {
             logger.info("Remove token {} from cache, media id : {}", token, entry);
-            cache.remove(token);
+            if (entry != null && cache.remove(token, entry)) {
+                expirations.increment();
+            }
+            misses.increment();
+            commit(event, "get", false);
             return null;
         }
+        hits.increment();
+        commit(event, "get", true);
         return entry.value;
     }
 
@@ -99,18 +139,71 @@ public class TTLMediaRequestCache implements MediaRequestCache {
      * @return {@code true} if the token exists, {@code false} otherwise.
      */
     @Override
-    public synchronized boolean isValidToken(String token) {
+    public boolean isValidToken(String token) {
         logger.info("Check token {} in cache", token);
-        return cache.containsKey(token);
+        var event = new TokenCacheEvent();
+        event.begin();
+        var valid = cache.containsKey(token);
+        commit(event, "check", valid);
+        return valid;
+    }
+
+    /**
+     * Removes the tokens of a media file from the cache.
+     * The whole cache is scanned, but it holds only the tokens of the last few seconds.
+     *
+     * @param mediaId the media ID whose tokens are removed.
+     */
+    @Override
+    public void removeMediaId(String mediaId) {
+        var event = new TokenCacheEvent();
+        event.begin();
+        var removed = cache.values().removeIf(entry -> entry.value.equals(mediaId));
+        logger.info("Remove tokens of media id {} from cache", mediaId);
+        commit(event, "remove", removed);
+    }
+
+    private void commit(TokenCacheEvent event, String operation, boolean hit) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.hit = hit;
+            event.size = cache.size();
+            event.commit();
+        }
     }
 
     /**
      * Removes expired cache entries.
      * This method is periodically executed by the scheduled cleanup task.
      */
-    private synchronized void cleanup() {
+    private void cleanup() {
         long now = System.currentTimeMillis();
-        cache.entrySet().removeIf(entry -> entry.getValue().expiryTime < now);
+        cache.values().removeIf(entry -> {
+            if (entry.expiryTime < now) {
+                expirations.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("media.request.cache.size", cache, ConcurrentMap::size)
+                .description("The number of tokens in the cache")
+                .register(registry);
+        FunctionCounter.builder("media.request.cache.requests", hits, LongAdder::sum)
+                .description("The number of token lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("media.request.cache.requests", misses, LongAdder::sum)
+                .description("The number of token lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("media.request.cache.expirations", expirations, LongAdder::sum)
+                .description("The number of tokens removed, because they expired")
+                .register(registry);
     }
 
     /**
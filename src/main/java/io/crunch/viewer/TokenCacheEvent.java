@@ -0,0 +1,32 @@
+package io.crunch.viewer;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of an operation of the {@link TTLMediaRequestCache}.
+ * <p>
+ * The tokens and the media ids are not recorded, because they grant access to the media files.
+ * The event is disabled by default; it is enabled by the {@code media.jfc} settings of the project.
+ * </p>
+ */
+@Name("io.crunch.TokenCache")
+@Label("Token Cache")
+@Description("An operation of the media request token cache")
+@Category({"Media Server", "Viewer"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+final class TokenCacheEvent extends Event {
+
+    @Label("Operation")
+    @Description("put, get, check or remove")
+    String operation;
+
+    @Label("Hit")
+    @Description("Whether the token was found, and it was not expired; on remove, whether any token of the media file was found")
+    boolean hit;
+
+    @Label("Size")
+    @Description("The number of tokens in the cache after the operation")
+    int size;
+}
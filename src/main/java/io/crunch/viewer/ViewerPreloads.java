@@ -0,0 +1,131 @@
+package io.crunch.viewer;
+
+import io.crunch.bandwidth.TrafficClass;
+import io.quarkus.vertx.http.runtime.CurrentVertxRequest;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpVersion;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Announces the media content and the static resources of a viewer page before the page is rendered, so the browser
+ * can fetch them while the server is still rendering.
+ * <p>
+ * The content of the media file has a stable URL, served by the {@link MediaContentServlet}, that the page refers to as
+ * well. The images are announced as {@code image}, and the documents, that PDF.js fetches itself in CORS mode, as
+ * {@code fetch} with {@code crossorigin}, so the preloaded response matches the fetch of PDF.js. The videos and the
+ * audio files are not announced: their players do not preload them, and a preload would send the whole media file
+ * through the {@link io.crunch.bandwidth.BandwidthScheduler} on every view, even if it is never played.
+ * </p>
+ * <p>
+ * The resources of a page - the scripts and stylesheets of PrimeFaces and of the viewer component - are recorded when
+ * the page is rendered for the first time, see {@link ViewerResourceRecorder}; they are the same for every view of the
+ * page. From then on, the {@link MediaViewerDispatcher} announces them, after the content, as
+ * {@code Link: <...>; rel=preload} headers of the response, and, if the connection uses HTTP/2, in a {@code 103 Early Hints} response sent before the page.
+ * The browsers process early hints only over HTTP/2, and some HTTP/1.1 clients do not expect an informational
+ * response, so over HTTP/1.1 only the headers of the final response are sent; a proxy or a CDN may turn them into early
+ * hints.
+ * </p>
+ */
+@ApplicationScoped
+public class ViewerPreloads {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final ConcurrentMap<String, List<String>> links = new ConcurrentHashMap<>();
+
+    private final CurrentVertxRequest currentRequest;
+
+    private final boolean earlyHintsEnabled;
+
+    public ViewerPreloads(CurrentVertxRequest currentRequest,
+                          @ConfigProperty(name = "media.viewer.early-hints.enabled", defaultValue = "true") boolean earlyHintsEnabled) {
+        this.currentRequest = currentRequest;
+        this.earlyHintsEnabled = earlyHintsEnabled;
+    }
+
+    /**
+     * Announces the content of a viewer page, and its recorded resources; the resources are not announced until the
+     * page has been rendered once.
+     *
+     * @param viewerUrl   the URL of the viewer page, see {@link ViewerUrls}
+     * @param contentLink the value of the {@code Link} header of the media content, see {@link #contentLink(String, String)},
+     *                    or {@code null} if the content is not preloaded
+     * @param response    the response of the page, it must not be committed yet
+     */
+    void announce(String viewerUrl, String contentLink, HttpServletResponse response) {
+        var pageLinks = new ArrayList<String>();
+        if (contentLink != null) {
+            pageLinks.add(contentLink);
+        }
+        pageLinks.addAll(links.getOrDefault(viewerUrl, List.of()));
+        if (pageLinks.isEmpty()) {
+            return;
+        }
+        pageLinks.forEach(link -> response.addHeader("Link", link));
+        if (earlyHintsEnabled) {
+            sendEarlyHints(pageLinks);
+        }
+    }
+
+    /**
+     * Records the resources of a rendered viewer page; only the first render of a page is recorded.
+     *
+     * @param viewerUrl     the URL of the viewer page
+     * @param resourceLinks the values of the {@code Link} headers of the resources, see {@link #link(String, String)}
+     */
+    void record(String viewerUrl, List<String> resourceLinks) {
+        if (links.putIfAbsent(viewerUrl, List.copyOf(resourceLinks)) == null) {
+            logger.info("{} resources of {} are preloaded", resourceLinks.size(), viewerUrl);
+        }
+    }
+
+    boolean isRecorded(String viewerUrl) {
+        return links.containsKey(viewerUrl);
+    }
+
+    /**
+     * Creates the value of a preload {@code Link} header.
+     *
+     * @param path the path of the resource
+     * @param as   the destination of the resource, for example {@code script} or {@code style}
+     */
+    static String link(String path, String as) {
+        return "<" + path + ">; rel=preload; as=" + as;
+    }
+
+    /**
+     * Creates the value of the preload {@code Link} header of the content of a media file.
+     *
+     * @param path        the path of the content, see {@link ViewerUrls#getContentUrl(String)}
+     * @param contentType the MIME type of the media file
+     * @return the link of an image or a document, {@code null} for the videos and the audio files, that are not preloaded
+     */
+    static String contentLink(String path, String contentType) {
+        return switch (TrafficClass.of(contentType)) {
+            case IMAGE -> link(path, "image");
+            case DOCUMENT -> link(path, "fetch") + "; crossorigin";
+            case AUDIO, VIDEO -> null;
+        };
+    }
+
+    private void sendEarlyHints(List<String> resourceLinks) {
+        var context = currentRequest.getCurrent();
+        if (context == null || context.request().version() != HttpVersion.HTTP_2) {
+            return;
+        }
+        var headers = MultiMap.caseInsensitiveMultiMap();
+        resourceLinks.forEach(link -> headers.add("Link", link));
+        context.response().writeEarlyHints(headers)
+                .onFailure(e -> logger.debug("Early hints cannot be sent", e));
+    }
+}
@@ -0,0 +1,66 @@
+package io.crunch.viewer;
+
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.faces.event.PhaseEvent;
+import jakarta.faces.event.PhaseId;
+import jakarta.faces.event.PhaseListener;
+
+import java.io.Serial;
+import java.util.ArrayList;
+
+/**
+ * Records the scripts and stylesheets of the viewer pages when they are rendered, for the {@link ViewerPreloads}.
+ * <p>
+ * The resources are taken from the component resources of the view, and their URLs are created by the resource
+ * handler, with the library and version parameters that the page itself uses. A page is recorded only once.
+ * The listener is registered in {@code faces-config.xml}.
+ * </p>
+ */
+public class ViewerResourceRecorder implements PhaseListener {
+
+    @Serial
+    private static final long serialVersionUID = 1;
+
+    private static final String VIEWER_PAGES = "/view/";
+
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        var context = event.getFacesContext();
+        var viewRoot = context.getViewRoot();
+        if (viewRoot == null || viewRoot.getViewId() == null || !viewRoot.getViewId().startsWith(VIEWER_PAGES)) {
+            return;
+        }
+        var preloads = CDI.current().select(ViewerPreloads.class).get();
+        if (preloads.isRecorded(viewRoot.getViewId())) {
+            return;
+        }
+        var resourceHandler = context.getApplication().getResourceHandler();
+        var links = new ArrayList<String>();
+        for (var component : viewRoot.getComponentResources(context)) {
+            var as = switch (component.getRendererType()) {
+                case "jakarta.faces.resource.Script" -> "script";
+                case "jakarta.faces.resource.Stylesheet" -> "style";
+                case null, default -> null;
+            };
+            var name = (String) component.getAttributes().get("name");
+            if (as == null || name == null) {
+                continue;
+            }
+            var resource = resourceHandler.createResource(name, (String) component.getAttributes().get("library"));
+            if (resource != null) {
+                links.add(ViewerPreloads.link(resource.getRequestPath(), as));
+            }
+        }
+        preloads.record(viewRoot.getViewId(), links);
+    }
+
+    @Override
+    public void beforePhase(PhaseEvent event) {
+        // The resources are recorded after the page is rendered
+    }
+
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.RENDER_RESPONSE;
+    }
+}
@@ -1,11 +1,16 @@
 package io.crunch.viewer;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
 public class ViewerUrls {
 
     public static final String GENERAL_ERROR_PAGE = "/error/generalError.xhtml";
 
     public static final String NOT_FOUND_ERROR_PAGE = "/error/fileNotFound.xhtml";
 
+    public static final String CONTENT_PATH = "/media/content";
+
     public static String getViewerUrl(String contentType) {
         return switch (contentType) {
             case "image/jpeg", "image/png" -> "/view/image.xhtml";
@@ -15,4 +20,15 @@ public class ViewerUrls {
             default -> throw new IllegalArgumentException("Unsupported content type: " + contentType);
         };
     }
+
+    /**
+     * Returns the URL of the content of a media file, served by the {@link MediaContentServlet}; it is the same for every
+     * view of the media file.
+     *
+     * @param mediaId the id of the media file
+     * @return the path and the query of the content, without the context path
+     */
+    public static String getContentUrl(String mediaId) {
+        return CONTENT_PATH + "?" + MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER + "=" + URLEncoder.encode(mediaId, StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,39 @@
+package io.crunch.viewer;
+
+import io.undertow.servlet.ServletExtension;
+import io.undertow.servlet.api.DeploymentInfo;
+import jakarta.servlet.ServletContext;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the servlet requests - the {@link MediaViewerDispatcher}, the JSF views and the {@link MediaContentServlet} - on
+ * virtual threads.
+ * <p>
+ * The extension follows the {@code quarkus.virtual-threads.enabled} property, the same switch that moves the
+ * {@code @RunOnVirtualThread} REST endpoints from the worker pool to virtual threads. When it is disabled, the servlet
+ * requests stay on the worker pool.
+ * </p>
+ * <p>
+ * Every request gets a new virtual thread, so a request that waits for the database or for MinIO does not hold a
+ * platform thread; the blocking {@link io.crunch.media.MediaFiles} and {@link io.crunch.store.MediaFileStore} APIs
+ * can be used as they are.
+ * </p>
+ */
+public class VirtualThreadServletExtension implements ServletExtension {
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    @Override
+    public void handleDeployment(DeploymentInfo deploymentInfo, ServletContext servletContext) {
+        var enabled = ConfigProvider.getConfig().getOptionalValue("quarkus.virtual-threads.enabled", Boolean.class).orElse(true);
+        if (enabled) {
+            logger.info("Servlet requests are executed on virtual threads");
+            deploymentInfo.setExecutor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("servlet-", 0).factory()));
+        }
+    }
+}
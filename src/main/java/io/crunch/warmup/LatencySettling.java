@@ -0,0 +1,68 @@
+package io.crunch.warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides whether the latencies of the warm-up rounds have settled.
+ * <p>
+ * The average latency of the last {@value #WINDOW} rounds is compared with the average of the {@value #WINDOW} rounds
+ * before them; the latencies have settled if they differ by at most the tolerance, after the minimum number of rounds.
+ * While the JIT compiler, the connection pools and the caches are still warming up, the latencies keep falling.
+ * </p>
+ */
+class LatencySettling {
+
+    static final int WINDOW = 5;
+
+    private final int minRounds;
+
+    private final double tolerance;
+
+    private final List<Long> rounds = new ArrayList<>();
+
+    /**
+     * @param minRounds the minimum number of rounds, at least two windows are needed anyway
+     * @param tolerance the allowed relative difference of the two windows, for example 0.1 for 10%
+     */
+    LatencySettling(int minRounds, double tolerance) {
+        this.minRounds = Math.max(minRounds, 2 * WINDOW);
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Adds the latency of a round.
+     *
+     * @param nanos the latency of the round
+     * @return {@code true} if the latencies have settled
+     */
+    boolean add(long nanos) {
+        rounds.add(nanos);
+        return isSettled();
+    }
+
+    boolean isSettled() {
+        if (rounds.size() < minRounds) {
+            return false;
+        }
+        var recent = average(rounds.size() - WINDOW, rounds.size());
+        var previous = average(rounds.size() - 2 * WINDOW, rounds.size() - WINDOW);
+        return Math.abs(recent - previous) <= tolerance * previous;
+    }
+
+    int getRounds() {
+        return rounds.size();
+    }
+
+    long getFirst() {
+        return rounds.isEmpty() ? 0 : rounds.getFirst();
+    }
+
+    long getLast() {
+        return rounds.isEmpty() ? 0 : rounds.getLast();
+    }
+
+    private double average(int from, int to) {
+        return rounds.subList(from, to).stream().mapToLong(Long::longValue).average().orElse(0);
+    }
+}
@@ -0,0 +1,268 @@
+package io.crunch.warmup;
+
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.MediaFileServerException;
+import io.crunch.store.MediaFileStore;
+import io.crunch.viewer.MediaViewerRequestParameters;
+import io.crunch.viewer.ViewerUrls;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Primes the paths of the media views when the application starts, before it is reported as ready.
+ * <p>
+ * After a restart, the first views are slow: the JIT compiler has not compiled the hot code yet, the Facelets of the
+ * viewer pages are not compiled, the database and MinIO connections are not opened, and the query plans are not cached.
+ * The warm-up stores a small {@link SampleMedia} of every type, and views them through the HTTP port of the
+ * application, exactly like a browser: the {@code /media} request of the dispatcher, the rendering of the viewer page,
+ * and the request of the content rendered by the page until the last byte. The views run concurrently, so as many database and
+ * MinIO connections are opened, and the pools keep them.
+ * </p>
+ * <p>
+ * The views are repeated in rounds until their latencies settle - see {@link LatencySettling} -, or the maximum
+ * duration of the warm-up passes. Until then the readiness check is down, see {@link WarmUpReadinessCheck}, so the load
+ * balancer sends no traffic to the instance. The samples are removed at the end, and they are never listed like the
+ * other media files. A failed warm-up is logged, and the application becomes ready without it.
+ * </p>
+ * <p>
+ * Every warm-up uses its own samples, so the instances that start at the same time do not remove the samples of each other.
+ * The samples left behind by an interrupted warm-up of any instance are removed by the next warm-up, once they are older
+ * than twice the maximum duration of the warm-up.
+ * </p>
+ */
+@ApplicationScoped
+public class MediaWarmUp {
+
+    /**
+     * The state of the warm-up.
+     */
+    enum State {
+        DISABLED, RUNNING, FINISHED, FAILED
+    }
+
+    private static final Duration RETRY_INTERVAL = Duration.ofMillis(100);
+
+    private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final MediaFiles mediaFiles;
+
+    private final MediaFileStore mediaFileStore;
+
+    private final boolean enabled;
+
+    private final int concurrency;
+
+    private final int minRounds;
+
+    private final double tolerance;
+
+    private final Duration maxDuration;
+
+    private final int sampleSize;
+
+    private final URI baseUri;
+
+    /** The random id of this warm-up, that is part of the names of its samples. */
+    private final String warmUpId = UUID.randomUUID().toString();
+
+    private volatile State state;
+
+    private volatile Thread thread;
+
+    public MediaWarmUp(MediaFiles mediaFiles, MediaFileStore mediaFileStore,
+                       @ConfigProperty(name = "media.warm-up.enabled", defaultValue = "true") boolean enabled,
+                       @ConfigProperty(name = "media.warm-up.concurrency", defaultValue = "4") int concurrency,
+                       @ConfigProperty(name = "media.warm-up.min-rounds", defaultValue = "20") int minRounds,
+                       @ConfigProperty(name = "media.warm-up.tolerance", defaultValue = "0.1") double tolerance,
+                       @ConfigProperty(name = "media.warm-up.max-duration", defaultValue = "60s") Duration maxDuration,
+                       @ConfigProperty(name = "media.warm-up.sample-size", defaultValue = "256K") MemorySize sampleSize,
+                       @ConfigProperty(name = "quarkus.http.port", defaultValue = "8080") int port) {
+        this.mediaFiles = mediaFiles;
+        this.mediaFileStore = mediaFileStore;
+        this.enabled = enabled;
+        this.concurrency = concurrency;
+        this.minRounds = minRounds;
+        this.tolerance = tolerance;
+        this.maxDuration = maxDuration;
+        this.sampleSize = Math.toIntExact(sampleSize.asLongValue());
+        this.baseUri = URI.create("http://localhost:" + port + "/");
+        this.state = enabled ? State.RUNNING : State.DISABLED;
+    }
+
+    /**
+     * Starts the warm-up in the background; the startup does not wait for it.
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (enabled) {
+            thread = Thread.ofPlatform().name("media-warm-up").daemon().start(this::warmUp);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        var warmUpThread = thread;
+        if (warmUpThread != null) {
+            warmUpThread.interrupt();
+        }
+    }
+
+    State getState() {
+        return state;
+    }
+
+    private void warmUp() {
+        var deadline = System.nanoTime() + maxDuration.toNanos();
+        var settling = new LatencySettling(minRounds, tolerance);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor();
+             var client = HttpClient.newBuilder().executor(executor).followRedirects(HttpClient.Redirect.NEVER).build()) {
+            removeLeftovers();
+            prepareSamples();
+            try {
+                var samples = SampleMedia.values();
+                boolean settled = false;
+                while (!settled && System.nanoTime() < deadline) {
+                    var views = new ArrayList<Callable<Long>>();
+                    for (int i = 0; i < concurrency; i++) {
+                        var sample = samples[(settling.getRounds() * concurrency + i) % samples.length];
+                        views.add(() -> view(client, sample, deadline));
+                    }
+                    settled = settling.add(median(executor.invokeAll(views)));
+                }
+                logger.info("Warm-up finished after {} rounds, {}; view latency {} ms in the first round, {} ms in the last",
+                        settling.getRounds(), settled ? "the latencies settled" : "the latencies did not settle in " + maxDuration,
+                        TimeUnit.NANOSECONDS.toMillis(settling.getFirst()), TimeUnit.NANOSECONDS.toMillis(settling.getLast()));
+                state = State.FINISHED;
+            } finally {
+                removeSamples();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = State.FAILED;
+        } catch (Exception e) {
+            logger.warn("Warm-up failed, the application is ready without it", e);
+            state = State.FAILED;
+        }
+    }
+
+    /**
+     * Removes the samples of the interrupted warm-ups; the samples of the warm-ups that may still run are not touched.
+     */
+    private void removeLeftovers() {
+        var createdBefore = Instant.now().minus(maxDuration.multipliedBy(2));
+        for (var leftover : mediaFiles.getByMediaIdPrefix(MediaFiles.WARM_UP_MEDIA_ID_PREFIX, createdBefore)) {
+            remove(leftover.getMediaId(), leftover.getObjectName());
+        }
+    }
+
+    private void prepareSamples() {
+        for (var sample : SampleMedia.values()) {
+            // The row is stored first, so a sample is always found by removeLeftovers
+            mediaFiles.store(sample.getMediaId(warmUpId), sample.getContentType(), sample.getObjectName(warmUpId));
+            var content = sample.getContent(sampleSize);
+            mediaFileStore.store(new ByteArrayInputStream(content), content.length, sample.getObjectName(warmUpId), sample.getContentType(), () -> {});
+        }
+    }
+
+    private void removeSamples() {
+        for (var sample : SampleMedia.values()) {
+            remove(sample.getMediaId(warmUpId), sample.getObjectName(warmUpId));
+        }
+    }
+
+    private void remove(String mediaId, String objectName) {
+        try {
+            // The content is removed first, so the row remains for removeLeftovers if the removal is interrupted
+            mediaFileStore.remove(objectName);
+            mediaFiles.remove(mediaId);
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up sample {} cannot be removed", mediaId, e);
+        }
+    }
+
+    /**
+     * Views a sample like a browser: the page request, then the request of the content rendered by the page, with its cookies.
+     *
+     * @return the latency of the view, without the waits for the admission control
+     */
+    private long view(HttpClient client, SampleMedia sample, long deadline) throws IOException, InterruptedException {
+        var pageRequest = HttpRequest.newBuilder(baseUri.resolve("media?" + MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER + "=" + sample.getMediaId(warmUpId))).GET().build();
+        var start = System.nanoTime();
+        var page = send(client, pageRequest, HttpResponse.BodyHandlers.ofString(), deadline);
+        var pageLatency = System.nanoTime() - start;
+        var cookies = page.headers().allValues("Set-Cookie").stream()
+                .map(cookie -> cookie.split(";", 2)[0])
+                .collect(Collectors.joining("; "));
+        var contentPath = ViewerUrls.getContentUrl(sample.getMediaId(warmUpId));
+        var contentRequest = HttpRequest.newBuilder(baseUri.resolve(contentPath.substring(1))).header("Cookie", cookies).GET().build();
+        start = System.nanoTime();
+        var content = send(client, contentRequest, HttpResponse.BodyHandlers.ofInputStream(), deadline);
+        try (var body = content.body()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        return pageLatency + System.nanoTime() - start;
+    }
+
+    /**
+     * Sends a request, and waits while the HTTP server is not listening yet, or the admission control rejects the request.
+     */
+    private <T> HttpResponse<T> send(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<T> handler, long deadline) throws IOException, InterruptedException {
+        while (true) {
+            try {
+                var response = client.send(request, handler);
+                if (response.statusCode() == 200) {
+                    return response;
+                }
+                if ((response.statusCode() != 429 && response.statusCode() != 503) || System.nanoTime() > deadline) {
+                    throw new MediaFileServerException("Warm-up request " + request.uri() + " failed with status " + response.statusCode());
+                }
+                var retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                Thread.sleep(Duration.ofSeconds(retryAfter));
+            } catch (ConnectException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(RETRY_INTERVAL);
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the media content, announced in a preload {@code Link} header of the viewer page.
+     */
+    private static long median(List<Future<Long>> views) throws InterruptedException, ExecutionException {
+        var latencies = new long[views.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = views.get(i).get();
+        }
+        Arrays.sort(latencies);
+        return latencies[latencies.length / 2];
+    }
+}
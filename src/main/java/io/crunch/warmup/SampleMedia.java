@@ -0,0 +1,63 @@
+package io.crunch.warmup;
+
+import io.crunch.media.MediaFiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The internal sample media files of the warm-up, one for every viewer page.
+ * <p>
+ * The content of a sample starts with the signature of its type, and it is padded with zeros to the requested size;
+ * it is not a playable file, but the server only streams it, so it goes through the same paths as a real one.
+ * </p>
+ * <p>
+ * The instances of the application may share the database and the bucket, and warm up at the same time, for example
+ * during a rolling deployment, so the names of the samples contain the random id of the warm-up.
+ * </p>
+ */
+enum SampleMedia {
+
+    IMAGE("image/png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+    DOCUMENT("application/pdf", "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII)),
+    AUDIO("audio/mpeg", "ID3".getBytes(StandardCharsets.US_ASCII)),
+    VIDEO("video/mp4", new byte[]{0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'});
+
+    private final String contentType;
+
+    private final byte[] signature;
+
+    SampleMedia(String contentType, byte[] signature) {
+        this.contentType = contentType;
+        this.signature = signature;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the media id of the sample of a warm-up; it starts with {@link MediaFiles#WARM_UP_MEDIA_ID_PREFIX}.
+     *
+     * @param warmUpId the random id of the warm-up
+     */
+    String getMediaId(String warmUpId) {
+        return MediaFiles.WARM_UP_MEDIA_ID_PREFIX + warmUpId + "-" + name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the name of the content of the sample of a warm-up in the store.
+     *
+     * @param warmUpId the random id of the warm-up
+     */
+    String getObjectName(String warmUpId) {
+        return "warm-up/" + warmUpId + "/" + name().toLowerCase(Locale.ROOT);
+    }
+
+    byte[] getContent(int size) {
+        var content = Arrays.copyOf(signature, Math.max(size, signature.length));
+        Arrays.fill(content, signature.length, content.length, (byte) 0);
+        return content;
+    }
+}
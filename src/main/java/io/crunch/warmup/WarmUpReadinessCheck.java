@@ -0,0 +1,32 @@
+package io.crunch.warmup;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Reports the application as not ready while the {@link MediaWarmUp} runs.
+ * <p>
+ * The check is part of {@code /q/health/ready}; it is up when the warm-up finished, failed, or it is disabled.
+ * </p>
+ */
+@Readiness
+@ApplicationScoped
+public class WarmUpReadinessCheck implements HealthCheck {
+
+    private final MediaWarmUp warmUp;
+
+    public WarmUpReadinessCheck(MediaWarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        var state = warmUp.getState();
+        return HealthCheckResponse.named("media-warm-up")
+                .status(state != MediaWarmUp.State.RUNNING)
+                .withData("state", state.name().toLowerCase())
+                .build();
+    }
+}
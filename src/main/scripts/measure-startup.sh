@@ -0,0 +1,68 @@
+#!/bin/bash
+#
+# Measures the startup of the application, with and without the AppCDS archive.
+#
+# For every run it prints the startup time reported by Quarkus, the time until the first successful request, which
+# needs the database, and the resident memory of the process at that moment. Build the application with the archive,
+# and start PostgreSQL and MinIO first:
+#
+#   mvn -Pappcds package -DskipTests
+#   docker compose -f src/main/docker/services.yml up postgres minio minio-init
+#   src/main/scripts/measure-startup.sh 5
+#
+set -eu
+
+RUNS=${1:-5}
+APP_DIR=${APP_DIR:-target/quarkus-app}
+ARCHIVE=$APP_DIR/app-cds.jsa
+URL=${URL:-http://localhost:8080/api}
+LOG=$(mktemp)
+trap 'rm -f "$LOG"' EXIT
+
+# The same settings as the app service of services.yml, for the services on the local machine
+export QUARKUS_DATASOURCE_JDBC_URL=${QUARKUS_DATASOURCE_JDBC_URL:-jdbc:postgresql://localhost:5432/media}
+export QUARKUS_DATASOURCE_USERNAME=${QUARKUS_DATASOURCE_USERNAME:-media}
+export QUARKUS_DATASOURCE_PASSWORD=${QUARKUS_DATASOURCE_PASSWORD:-media}
+export QUARKUS_MINIO_URL=${QUARKUS_MINIO_URL:-http://localhost:9000}
+export QUARKUS_MINIO_ACCESS_KEY=${QUARKUS_MINIO_ACCESS_KEY:-media-access-key}
+export QUARKUS_MINIO_SECRET_KEY=${QUARKUS_MINIO_SECRET_KEY:-media-secret-key}
+export QUARKUS_MINIO_SECURE=${QUARKUS_MINIO_SECURE:-false}
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Starts the application with the given JVM options, waits for the first successful request, and prints the results
+measure() {
+  local label=$1
+  shift
+  local start pid ready rss started
+  start=$(now_ms)
+  java "$@" -jar "$APP_DIR/quarkus-run.jar" > "$LOG" 2>&1 &
+  pid=$!
+  until curl -fs -o /dev/null "$URL"; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "The application stopped, see its log:" >&2
+      cat "$LOG" >&2
+      exit 1
+    fi
+    sleep 0.02
+  done
+  ready=$(( $(now_ms) - start ))
+  rss=$(awk '/VmRSS/ { print int($2 / 1024) }' "/proc/$pid/status")
+  started=$(grep -o 'started in [0-9.]*s' "$LOG" | grep -o '[0-9.]*s' || echo "?")
+  kill "$pid"
+  wait "$pid" || true
+  printf "%-10s %12s %16s %10s\n" "$label" "$started" "${ready}ms" "${rss}MB"
+}
+
+printf "%-10s %12s %16s %10s\n" "mode" "started in" "first request" "RSS"
+for run in $(seq "$RUNS"); do
+  measure "default"
+  if [ -f "$ARCHIVE" ]; then
+    measure "appcds" -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto
+  fi
+done
+if [ ! -f "$ARCHIVE" ]; then
+  echo "No AppCDS archive at $ARCHIVE, build it with: mvn -Pappcds package" >&2
+fi
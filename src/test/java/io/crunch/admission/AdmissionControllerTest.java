@@ -0,0 +1,98 @@
+package io.crunch.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class AdmissionControllerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AdmissionController controller;
+
+    @AfterEach
+    void shutdown() {
+        controller.shutdown();
+    }
+
+    @Test
+    void rejectClientExceedingRequestRate() {
+        controller = newController(2, 1_000_000, 10);
+        controller.admit("client", 0).close();
+        controller.admit("client", 0).close();
+
+        var rejection = catchThrowableOfType(() -> controller.admit("client", 0), AdmissionRejectedException.class);
+        assertThat(rejection.getStatus()).isEqualTo(AdmissionController.TOO_MANY_REQUESTS);
+        assertThat(rejection.getRetryAfterSeconds()).isPositive();
+
+        // Other clients are not affected
+        controller.admit("other-client", 0).close();
+        assertThat(registry.get("media.admission.requests").tag("reason", "client-request-rate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectClientExceedingByteRate() {
+        controller = newController(100, 1_000, 10);
+        controller.admit("client", 1_000).close();
+
+        var rejection = catchThrowableOfType(() -> controller.admit("client", 500), AdmissionRejectedException.class);
+        assertThat(rejection.getStatus()).isEqualTo(AdmissionController.TOO_MANY_REQUESTS);
+        assertThat(registry.get("media.admission.requests").tag("reason", "client-byte-rate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void chargeResponseToByteRateOfClient() {
+        controller = newController(100, 1_000, 10);
+        controller.admit("client", 0).close();
+        controller.charge("client", 1_000);
+
+        var rejection = catchThrowableOfType(() -> controller.charge("client", 500), AdmissionRejectedException.class);
+        assertThat(rejection.getStatus()).isEqualTo(AdmissionController.TOO_MANY_REQUESTS);
+        assertThat(rejection.getRetryAfterSeconds()).isPositive();
+        assertThat(registry.get("media.admission.requests").tag("reason", "client-byte-rate").counter().count()).isEqualTo(1);
+
+        controller.charge("other-client", 1_000);
+    }
+
+    @Test
+    void shedLoadAboveConcurrencyLimit() {
+        controller = newController(100, 1_000_000, 1);
+        var ticket = controller.admit("client", 0);
+        assertThat(registry.get("media.admission.in.flight").gauge().value()).isEqualTo(1);
+
+        var rejection = catchThrowableOfType(() -> controller.admit("other-client", 0), AdmissionRejectedException.class);
+        assertThat(rejection.getStatus()).isEqualTo(AdmissionController.SERVICE_UNAVAILABLE);
+
+        ticket.close();
+        ticket.close();
+        controller.admit("other-client", 0).close();
+        assertThat(registry.get("media.admission.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void identifyClientByConfiguredHeader() {
+        controller = new AdmissionController(registry, true, Optional.of("X-Forwarded-For"), 1, 1, size(1), size(1), 1, 1, Duration.ofMillis(10));
+        var headers = Map.of("X-Forwarded-For", "10.0.0.1, 10.0.0.2");
+
+        assertThat(controller.getClientId("127.0.0.1", headers::get)).isEqualTo("10.0.0.1");
+        assertThat(controller.getClientId("127.0.0.1", name -> null)).isEqualTo("127.0.0.1");
+    }
+
+    private AdmissionController newController(int requestBurst, long byteBurst, int maxConcurrent) {
+        return new AdmissionController(registry, true, Optional.empty(), 1, requestBurst, size(1), size(byteBurst),
+                maxConcurrent, 1, Duration.ofMillis(10));
+    }
+
+    private static MemorySize size(long bytes) {
+        return new MemorySize(BigInteger.valueOf(bytes));
+    }
+}
@@ -0,0 +1,49 @@
+package io.crunch.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void allowBurstUpToCapacity() {
+        var bucket = new TokenBucket(3, 1, clock::get);
+        assertThat(bucket.tryAcquire(1)).isZero();
+        assertThat(bucket.tryAcquire(2)).isZero();
+        assertThat(bucket.tryAcquire(1)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void refillAtConfiguredRate() {
+        var bucket = new TokenBucket(10, 2, clock::get);
+        assertThat(bucket.tryAcquire(10)).isZero();
+        assertThat(bucket.isFull()).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(bucket.tryAcquire(1)).isZero();
+        assertThat(bucket.tryAcquire(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertThat(bucket.isFull()).isTrue();
+    }
+
+    @Test
+    void limitLargeRequestsToCapacity() {
+        var bucket = new TokenBucket(100, 10, clock::get);
+        assertThat(bucket.tryAcquire(1_000)).isZero();
+        assertThat(bucket.tryAcquire(1_000)).isEqualTo(TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void rejectInvalidLimits() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
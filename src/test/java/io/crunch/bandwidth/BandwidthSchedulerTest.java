@@ -0,0 +1,139 @@
+package io.crunch.bandwidth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BandwidthSchedulerTest {
+
+    private static final int KB = 1024;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void paceStreamAtItsRateAfterInitialBurst() throws IOException {
+        var scheduler = newScheduler(true, 1024 * KB, KB, 64 * KB);
+        var content = new byte[(64 + 256) * KB];
+
+        var start = System.nanoTime();
+        try (var stream = scheduler.schedule(new ByteArrayInputStream(content), "client", TrafficClass.VIDEO, content.length)) {
+            assertThat(stream.readAllBytes()).hasSize(content.length);
+        }
+
+        // The 256 KB after the burst are read at 1 MB per second
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+        assertThat(registry.get("media.streaming.bytes").tag("class", "video").counter().count()).isEqualTo(content.length);
+    }
+
+    @Test
+    void doNotPaceSmallObjects() throws IOException {
+        var scheduler = newScheduler(true, 1024 * KB, 512 * KB, 0);
+        var content = new byte[256 * KB];
+
+        var start = System.nanoTime();
+        try (var stream = scheduler.schedule(new ByteArrayInputStream(content), "client", TrafficClass.IMAGE, content.length)) {
+            assertThat(activeStreams("image")).isZero();
+            assertThat(stream.readAllBytes()).hasSize(content.length);
+        }
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(200));
+        assertThat(registry.get("media.streaming.bytes").tag("class", "image").counter().count()).isEqualTo(content.length);
+    }
+
+    @Test
+    void doNotPaceWhenDisabled() throws IOException {
+        var scheduler = newScheduler(false, 1024 * KB, KB, 0);
+        var content = new byte[512 * KB];
+
+        try (var stream = scheduler.schedule(new ByteArrayInputStream(content), "client", TrafficClass.VIDEO, content.length)) {
+            assertThat(activeStreams("video")).isZero();
+        }
+    }
+
+    @Test
+    void shareClientRateAmongItsStreams() throws IOException {
+        // total 100, stream rate 30, client rate 40
+        var scheduler = new BandwidthScheduler(registry, true, size(100), size(30), size(40), size(1), size(0), 8, 8, 2, 1);
+
+        var first = scheduler.schedule(new ByteArrayInputStream(new byte[16]), "client", TrafficClass.IMAGE, 16);
+        var second = scheduler.schedule(new ByteArrayInputStream(new byte[16]), "client", TrafficClass.IMAGE, 16);
+        var other = scheduler.schedule(new ByteArrayInputStream(new byte[16]), "other-client", TrafficClass.VIDEO, 16);
+        assertThat(activeStreams("image")).isEqualTo(2);
+        assertThat(allocatedRate("image")).isEqualTo(40);
+        assertThat(allocatedRate("video")).isEqualTo(30);
+
+        // The remaining stream of the client gets the per-stream rate
+        first.close();
+        assertThat(activeStreams("image")).isEqualTo(1);
+        assertThat(allocatedRate("image")).isEqualTo(30);
+
+        second.close();
+        other.close();
+        assertThat(activeStreams("image")).isZero();
+        assertThat(activeStreams("video")).isZero();
+    }
+
+    @Test
+    void releaseFlowOnlyOnceWhenClosedTwice() throws IOException {
+        var scheduler = newScheduler(true, 1024 * KB, KB, 0);
+
+        var first = scheduler.schedule(new ByteArrayInputStream(new byte[16]), "client", TrafficClass.AUDIO, 16 * KB);
+        var second = scheduler.schedule(new ByteArrayInputStream(new byte[16]), "client", TrafficClass.AUDIO, 16 * KB);
+        first.close();
+        first.close();
+
+        assertThat(activeStreams("audio")).isEqualTo(1);
+        second.close();
+        assertThat(activeStreams("audio")).isZero();
+    }
+
+    @Test
+    void releaseFlowWhenUnderlyingStreamFailsToClose() {
+        var scheduler = newScheduler(true, 1024 * KB, KB, 0);
+        var failing = new ByteArrayInputStream(new byte[16]) {
+            @Override
+            public void close() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        var stream = scheduler.schedule(failing, "client", TrafficClass.DOCUMENT, 16 * KB);
+
+        assertThatThrownBy(stream::close).isInstanceOf(IOException.class);
+        assertThat(activeStreams("document")).isZero();
+    }
+
+    @Test
+    void cutReadsIntoChunks() throws IOException {
+        var scheduler = newScheduler(true, 1024 * KB, 1024 * KB, 0);
+
+        try (var stream = scheduler.schedule(new ByteArrayInputStream(new byte[256 * KB]), "client", TrafficClass.IMAGE, 256 * KB)) {
+            assertThat(stream.read(new byte[256 * KB])).isEqualTo(ThrottledInputStream.MAX_CHUNK_SIZE);
+        }
+    }
+
+    private BandwidthScheduler newScheduler(boolean enabled, long streamRate, long smallObjectSize, long initialBurst) {
+        return new BandwidthScheduler(registry, enabled, size(100L * 1024 * KB), size(streamRate), size(2 * streamRate),
+                size(smallObjectSize), size(initialBurst), 8, 8, 2, 1);
+    }
+
+    private double activeStreams(String trafficClass) {
+        return registry.get("media.streaming.active").tag("class", trafficClass).gauge().value();
+    }
+
+    private double allocatedRate(String trafficClass) {
+        return registry.get("media.streaming.allocated.rate").tag("class", trafficClass).gauge().value();
+    }
+
+    private static MemorySize size(long bytes) {
+        return new MemorySize(BigInteger.valueOf(bytes));
+    }
+}
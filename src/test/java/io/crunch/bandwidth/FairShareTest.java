@@ -0,0 +1,32 @@
+package io.crunch.bandwidth;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class FairShareTest {
+
+    @Test
+    void divideCapacityByWeights() {
+        var rates = FairShare.allocate(100, new double[]{8, 1, 1}, new double[]{1000, 1000, 1000});
+        assertThat(rates).containsExactly(new double[]{80, 10, 10}, within(1e-9));
+    }
+
+    @Test
+    void redistributeCapacityNotUsedByCappedConsumers() {
+        var rates = FairShare.allocate(100, new double[]{8, 1, 1}, new double[]{20, 1000, 1000});
+        assertThat(rates).containsExactly(new double[]{20, 40, 40}, within(1e-9));
+    }
+
+    @Test
+    void leaveCapacityUnusedWhenAllConsumersAreCapped() {
+        var rates = FairShare.allocate(100, new double[]{1, 1}, new double[]{10, 30});
+        assertThat(rates).containsExactly(new double[]{10, 30}, within(1e-9));
+    }
+
+    @Test
+    void allocateNothingWithoutConsumers() {
+        assertThat(FairShare.allocate(100, new double[0], new double[0])).isEmpty();
+    }
+}
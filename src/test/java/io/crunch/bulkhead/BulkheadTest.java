@@ -0,0 +1,125 @@
+package io.crunch.bulkhead;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    private final Bulkhead bulkhead = new Bulkhead("test", 1, 1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void runTaskOnBulkheadThread() {
+        assertThat(bulkhead.call(() -> Thread.currentThread().getName())).isEqualTo("test-0");
+    }
+
+    @Test
+    void rejectTaskWhenThreadsAndQueueAreBusy() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        bulkhead.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        bulkhead.execute(() -> await(release));
+
+        assertThatThrownBy(() -> bulkhead.call(() -> "rejected"))
+                .isInstanceOf(BulkheadFullException.class)
+                .hasMessage("Bulkhead test is full");
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void waitForRoomWhenThreadsAndQueueAreBusy() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        bulkhead.executeWhenAvailable(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        bulkhead.executeWhenAvailable(() -> await(release));
+
+        var finished = new CountDownLatch(1);
+        var submitted = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            bulkhead.executeWhenAvailable(finished::countDown);
+            submitted.countDown();
+        });
+        assertThat(submitted.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+        release.countDown();
+        assertThat(submitted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkhead.getRejectedCount()).isZero();
+    }
+
+    @Test
+    void neverRejectWaitingTasksWhenRoomIsFreed() throws InterruptedException {
+        var tasks = 2000;
+        var finished = new CountDownLatch(tasks);
+        try (var submitters = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < tasks; i++) {
+                submitters.execute(() -> bulkhead.executeWhenAvailable(finished::countDown));
+            }
+        }
+
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkhead.getRejectedCount()).isZero();
+    }
+
+    @Test
+    void rejectTaskWhenShutDown() {
+        bulkhead.shutdown();
+
+        assertThatThrownBy(() -> bulkhead.executeWhenAvailable(() -> { }))
+                .isInstanceOf(BulkheadFullException.class);
+        assertThatThrownBy(() -> bulkhead.execute(() -> { }))
+                .isInstanceOf(BulkheadFullException.class);
+    }
+
+    @Test
+    void rethrowExceptionOfTask() {
+        assertThatThrownBy(() -> bulkhead.call(() -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("failed");
+    }
+
+    @Test
+    void runTaskInContextOfCaller() {
+        var key = ContextKey.<String>named("request");
+        try (var scope = Context.current().with(key, "traced").makeCurrent()) {
+            assertThat(bulkhead.call(() -> Context.current().get(key))).isEqualTo("traced");
+        }
+        assertThat(bulkhead.call(() -> Context.current().get(key))).isNull();
+    }
+
+    @Test
+    void runDirectBulkheadOnCallingThread() {
+        var direct = Bulkhead.direct("direct");
+        assertThat(direct.call(() -> Thread.currentThread().getName())).isEqualTo(Thread.currentThread().getName());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.crunch.loadtest;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the application against local stand-ins: an in-memory H2 database instead of PostgreSQL, and the
+ * {@link S3StubServer} instead of MinIO, so the load test needs neither containers nor a network.
+ * <p>
+ * The whole load comes from one client, so the per-client admission limits and the per-client bandwidth are lifted;
+ * the global concurrency limit of the admission control and the bulkheads are kept. The logging of every request is
+ * turned off, because it would dominate the measured latency.
+ * </p>
+ */
+public class LoadTestProfile implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return Map.ofEntries(
+                Map.entry("quarkus.datasource.db-kind", "h2"),
+                Map.entry("quarkus.datasource.jdbc.url", "jdbc:h2:mem:media;DB_CLOSE_DELAY=-1"),
+                Map.entry("quarkus.datasource.username", "sa"),
+                Map.entry("quarkus.datasource.password", "sa"),
+                Map.entry("quarkus.datasource.devservices.enabled", "false"),
+                Map.entry("quarkus.hibernate-orm.log.sql", "false"),
+                Map.entry("quarkus.log.category.\"io.crunch\".level", "WARN"),
+                Map.entry("media.admission.client.request-rate", "1000000"),
+                Map.entry("media.admission.client.request-burst", "1000000"),
+                Map.entry("media.admission.client.byte-rate", "100G"),
+                Map.entry("media.admission.client.byte-burst", "100G"),
+                Map.entry("media.streaming.bandwidth.enabled", "false"));
+    }
+
+    @Override
+    public List<TestResourceEntry> testResources() {
+        return List.of(new TestResourceEntry(S3StubResource.class));
+    }
+}
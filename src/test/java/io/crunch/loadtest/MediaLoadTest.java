@@ -0,0 +1,331 @@
+package io.crunch.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.crunch.viewer.ViewerUrls;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the uploads, the media views and the listing of the service with concurrent clients, against the local
+ * stand-ins of the {@link LoadTestProfile}.
+ * <p>
+ * Every scenario runs for a fixed time with a fixed number of concurrent clients, after a warm-up of the same length.
+ * An upload is a {@code POST /api} with a multipart form; a view is the whole flow of a browser: the {@code /media?m=}
+ * page request, and the request of the content rendered by the page with the token and session cookies of the page,
+ * until the last byte of the content. The scenarios are run for every kind and size of media file, and a mixed workload
+ * combines them. The throughput, the latency percentiles and the error rate of every scenario are printed, and written
+ * to {@code target/load-test-report.json}.
+ * </p>
+ * <p>
+ * The test is tagged {@code load}; it is not run by the default build, only by the {@code load-test} profile:
+ * </p>
+ * <pre>
+ * mvn -Pload-test test -Dload.duration=30s -Dload.concurrency=32 -Dload.media=image:64K,video:16M
+ * </pre>
+ */
+@QuarkusTest
+@TestProfile(LoadTestProfile.class)
+@Tag("load")
+class MediaLoadTest {
+
+    private static final Pattern MEDIA_ID = Pattern.compile("[?&]m=([A-Za-z0-9_-]+)");
+
+    private static final String BOUNDARY = "load-test-boundary";
+
+    private final Duration duration = Duration.parse("PT" + System.getProperty("load.duration", "10s").toUpperCase());
+
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+
+    private final int preloaded = Integer.getInteger("load.preloaded", 20);
+
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+    private final List<MediaSpec> mediaSpecs = MediaSpec.parseAll(System.getProperty("load.media", "image:64K,image:1M,audio:4M,video:16M"));
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(executor)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    @TestHTTPResource("/")
+    URL baseUrl;
+
+    @Test
+    void runScenarios() throws Exception {
+        var results = new ArrayList<ScenarioResult>();
+        var mediaUrls = new LinkedHashMap<MediaSpec, List<String>>();
+        for (var spec : mediaSpecs) {
+            var upload = spec.uploadBody();
+            results.addAll(run(spec.toString(), List.of(new Action("upload", 1, () -> upload(upload) != null))));
+
+            var urls = preload(upload);
+            mediaUrls.put(spec, urls);
+            results.addAll(run(spec.toString(), List.of(new Action("view", 1, () -> view(pick(urls), spec.size())))));
+        }
+        results.addAll(run("-", List.of(new Action("list", 1, this::list))));
+
+        var specs = List.copyOf(mediaUrls.keySet());
+        var uploads = specs.stream().map(MediaSpec::uploadBody).toList();
+        results.addAll(run("mixed", List.of(
+                new Action("view", 80, () -> {
+                    var spec = pick(specs);
+                    return view(pick(mediaUrls.get(spec)), spec.size());
+                }),
+                new Action("upload", 10, () -> upload(pick(uploads)) != null),
+                new Action("list", 10, this::list))));
+
+        report(results);
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.operations()).as("operations of %s %s", result.scenario(), result.media()).isPositive();
+            assertThat(result.errorRate()).as("error rate of %s %s", result.scenario(), result.media()).isLessThanOrEqualTo(maxErrorRate);
+        });
+    }
+
+    /**
+     * Runs the actions with the concurrent clients, first for the warm-up, then for the measurement.
+     *
+     * @param media   the media of the scenario, for the report
+     * @param actions the actions of the scenario, each client picks the next one by their weights
+     * @return the results of the actions
+     */
+    private List<ScenarioResult> run(String media, List<Action> actions) throws InterruptedException {
+        measure(actions);
+        var start = System.nanoTime();
+        var recorders = measure(actions);
+        var elapsed = System.nanoTime() - start;
+        return actions.stream()
+                .map(action -> ScenarioResult.of(action.name(), media, recorders.stream().map(r -> r.get(action.name())).toList(), elapsed))
+                .toList();
+    }
+
+    private List<Map<String, ScenarioResult.Recorder>> measure(List<Action> actions) throws InterruptedException {
+        var deadline = System.nanoTime() + duration.toNanos();
+        int totalWeight = actions.stream().mapToInt(Action::weight).sum();
+        var recorders = new ArrayList<Map<String, ScenarioResult.Recorder>>();
+        var clients = new ArrayList<Thread>();
+        for (int i = 0; i < concurrency; i++) {
+            var recorder = actions.stream().collect(Collectors.toMap(Action::name, action -> new ScenarioResult.Recorder()));
+            recorders.add(recorder);
+            clients.add(Thread.ofVirtual().name("load-client-" + i).start(() -> {
+                while (System.nanoTime() < deadline) {
+                    var action = pick(actions, totalWeight);
+                    var start = System.nanoTime();
+                    boolean succeeded;
+                    try {
+                        succeeded = action.call().run();
+                    } catch (Exception e) {
+                        succeeded = false;
+                    }
+                    if (succeeded) {
+                        recorder.get(action.name()).success(System.nanoTime() - start);
+                    } else {
+                        recorder.get(action.name()).error();
+                    }
+                }
+            }));
+        }
+        for (var thread : clients) {
+            thread.join();
+        }
+        return recorders;
+    }
+
+    /**
+     * Uploads a media file with the multipart form.
+     *
+     * @return the URL of the media file, {@code null} if the upload failed
+     */
+    private String upload(byte[] body) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(uri("api"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 201 ? response.body() : null;
+    }
+
+    /**
+     * Views a media file like a browser: the page request, then the request of the content rendered by the page.
+     *
+     * @return {@code true} if the whole content was received
+     */
+    private boolean view(String url, long size) throws IOException, InterruptedException {
+        var mediaId = MEDIA_ID.matcher(url);
+        if (!mediaId.find()) {
+            return false;
+        }
+        var page = client.send(HttpRequest.newBuilder(uri("media?m=" + mediaId.group(1))).GET().build(), HttpResponse.BodyHandlers.ofString());
+        if (page.statusCode() != 200) {
+            return false;
+        }
+        var cookies = page.headers().allValues("Set-Cookie").stream()
+                .map(cookie -> cookie.split(";", 2)[0])
+                .collect(Collectors.joining("; "));
+        var contentPath = ViewerUrls.getContentUrl(mediaId.group(1));
+        if (cookies.isEmpty()) {
+            return false;
+        }
+        var content = client.send(HttpRequest.newBuilder(uri(contentPath.substring(1))).header("Cookie", cookies).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (var body = content.body()) {
+            return content.statusCode() == 200 && body.transferTo(OutputStream.nullOutputStream()) == size;
+        }
+    }
+
+    private boolean list() throws IOException, InterruptedException {
+        var response = client.send(HttpRequest.newBuilder(uri("api")).GET().build(), HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() == 200;
+    }
+
+    private List<String> preload(byte[] upload) throws Exception {
+        var urls = new ArrayList<String>();
+        for (int i = 0; i < preloaded; i++) {
+            urls.add(Objects.requireNonNull(upload(upload), "Media file cannot be uploaded"));
+        }
+        return urls;
+    }
+
+    private void report(List<ScenarioResult> results) throws IOException {
+        System.out.printf("Load test: %d clients, %s per scenario%n", concurrency, duration);
+        results.forEach(System.out::println);
+        var report = new LinkedHashMap<String, Object>();
+        report.put("concurrency", concurrency);
+        report.put("durationSeconds", duration.toSeconds());
+        report.put("scenarios", results);
+        var file = Path.of("target", "load-test-report.json");
+        Files.createDirectories(file.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl.toString()).resolve(path);
+    }
+
+    /**
+     * Returns the path of the media content, announced in a preload {@code Link} header of the viewer page.
+     */
+    private static <T> T pick(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    private static Action pick(List<Action> actions, int totalWeight) {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (var action : actions) {
+            value -= action.weight();
+            if (value < 0) {
+                return action;
+            }
+        }
+        return actions.getLast();
+    }
+
+    /**
+     * An operation of a scenario.
+     *
+     * @param name   the name of the operation in the report
+     * @param weight the relative frequency of the operation in the scenario
+     * @param call   runs the operation, and tells whether it succeeded
+     */
+    private record Action(String name, int weight, Call call) {
+    }
+
+    @FunctionalInterface
+    private interface Call {
+
+        boolean run() throws Exception;
+    }
+
+    /**
+     * A kind and size of the media files of the load test, for example {@code video:16M}.
+     * <p>
+     * The content is random, with the signature of its kind at the beginning, so it is detected as a supported type.
+     * </p>
+     */
+    private record MediaSpec(String kind, long size) {
+
+        private static final Map<String, byte[]> SIGNATURES = Map.of(
+                "image", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'},
+                "document", "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII),
+                "audio", "ID3".getBytes(StandardCharsets.US_ASCII),
+                "video", new byte[]{0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'});
+
+        static List<MediaSpec> parseAll(String specs) {
+            return Arrays.stream(specs.split(","))
+                    .map(String::trim)
+                    .map(spec -> {
+                        var parts = spec.split(":");
+                        if (!SIGNATURES.containsKey(parts[0])) {
+                            throw new IllegalArgumentException("Unknown media kind: " + parts[0]);
+                        }
+                        return new MediaSpec(parts[0], parseSize(parts[1]));
+                    })
+                    .toList();
+        }
+
+        private static long parseSize(String size) {
+            var unit = Character.toUpperCase(size.charAt(size.length() - 1));
+            var multiplier = switch (unit) {
+                case 'K' -> 1024L;
+                case 'M' -> 1024L * 1024;
+                case 'G' -> 1024L * 1024 * 1024;
+                default -> 1L;
+            };
+            return Long.parseLong(Character.isDigit(unit) ? size : size.substring(0, size.length() - 1)) * multiplier;
+        }
+
+        /**
+         * Builds the multipart form of the upload of a media file of this kind and size.
+         */
+        byte[] uploadBody() {
+            var content = new byte[Math.toIntExact(size)];
+            new Random(size).nextBytes(content);
+            var signature = SIGNATURES.get(kind);
+            System.arraycopy(signature, 0, content, 0, signature.length);
+            try {
+                var checksum = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+                var body = new ByteArrayOutputStream(content.length + 1024);
+                body.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"media\"; filename=\"load-" + this
+                        + "\"\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                body.writeBytes(content);
+                body.writeBytes(("\r\n--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"description\"\r\nContent-Type: application/json\r\n\r\n"
+                        + "{\"checksum\":\"" + checksum + "\"}\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+                return body.toByteArray();
+            } catch (java.security.NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + (size % (1024 * 1024) == 0 ? size / (1024 * 1024) + "M" : size / 1024 + "K");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.crunch.loadtest;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Starts the {@link S3StubServer} before the application, and points the MinIO client of the application to it instead
+ * of the MinIO dev service.
+ */
+public class S3StubResource implements QuarkusTestResourceLifecycleManager {
+
+    private S3StubServer stub;
+
+    @Override
+    public Map<String, String> start() {
+        try {
+            stub = S3StubServer.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Map.of(
+                "quarkus.minio.devservices.enabled", "false",
+                "quarkus.minio.url", stub.getUrl(),
+                "quarkus.minio.access-key", "stub-access",
+                "quarkus.minio.secret-key", "stub-secret",
+                "quarkus.minio.region", "us-east-1");
+    }
+
+    @Override
+    public void stop() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+}
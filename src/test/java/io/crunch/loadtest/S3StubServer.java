@@ -0,0 +1,414 @@
+package io.crunch.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process stand-in of MinIO, that implements the subset of the S3 API used by the MinIO client of the service.
+ * <p>
+ * It supports the path-style requests of the bucket check and creation, the single and multipart uploads (also the
+ * part copies of the compose), the ranged reads, the stat and the removal of objects. The objects are kept in a temporary
+ * directory, so large media files do not fill the heap of the tests. The requests are not authenticated.
+ * </p>
+ */
+public final class S3StubServer implements AutoCloseable {
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    private static final String S3_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private static final DateTimeFormatter ISO_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+    private final HttpServer server;
+
+    private final Path directory;
+
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentMap<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, String> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private S3StubServer(HttpServer server, Path directory) {
+        this.server = server;
+        this.directory = directory;
+    }
+
+    /**
+     * Starts a stub on a free port of the loopback interface.
+     *
+     * @return the started stub
+     * @throws IOException if the server cannot be started
+     */
+    public static S3StubServer start() throws IOException {
+        var server = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+        var stub = new S3StubServer(server, Files.createTempDirectory("s3-stub"));
+        server.createContext("/", stub::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return stub;
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of requests served so far.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of objects in the store.
+     */
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            var path = exchange.getRequestURI().getRawPath().substring(1);
+            var query = parseQuery(exchange.getRequestURI().getRawQuery());
+            var slash = path.indexOf('/');
+            var bucket = slash < 0 ? path : path.substring(0, slash);
+            var key = slash < 0 || slash == path.length() - 1 ? null : URLDecoder.decode(path.substring(slash + 1), StandardCharsets.UTF_8);
+            if (key == null) {
+                handleBucket(exchange, bucket, query);
+            } else if (!buckets.contains(bucket)) {
+                sendError(exchange, 404, "NoSuchBucket", bucket, key);
+            } else {
+                handleObject(exchange, bucket, key, query);
+            }
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "InternalError", "", e.toString());
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "HEAD" -> sendEmpty(exchange, buckets.contains(bucket) ? 200 : 404);
+            case "PUT" -> {
+                buckets.add(bucket);
+                sendEmpty(exchange, 200);
+            }
+            case "GET" -> {
+                if (query.containsKey("location")) {
+                    sendXml(exchange, 200, "<LocationConstraint xmlns=\"" + S3_NAMESPACE + "\">us-east-1</LocationConstraint>");
+                } else {
+                    sendError(exchange, 501, "NotImplemented", bucket, "");
+                }
+            }
+            default -> sendError(exchange, 405, "MethodNotAllowed", bucket, "");
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String bucket, String key, Map<String, String> query) throws IOException {
+        var headers = exchange.getRequestHeaders();
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                var copySource = headers.getFirst("x-amz-copy-source");
+                if (query.containsKey("uploadId")) {
+                    var part = partFile(query.get("uploadId"), Integer.parseInt(query.get("partNumber")));
+                    if (copySource != null) {
+                        copy(copySource, headers.getFirst("x-amz-copy-source-range"), part);
+                        sendXml(exchange, 200, "<CopyPartResult><ETag>" + quote(etag(part)) + "</ETag><LastModified>"
+                                + ISO_MILLIS.format(ZonedDateTime.now(ZoneOffset.UTC)) + "</LastModified></CopyPartResult>");
+                    } else {
+                        write(exchange.getRequestBody(), part);
+                        exchange.getResponseHeaders().set("ETag", quote(etag(part)));
+                        sendEmpty(exchange, 200);
+                    }
+                } else if (copySource != null) {
+                    var file = newObjectFile();
+                    copy(copySource, null, file);
+                    var object = put(bucket, key, file, headers.getFirst("Content-Type"));
+                    sendXml(exchange, 200, "<CopyObjectResult><ETag>" + quote(object.etag()) + "</ETag><LastModified>"
+                            + ISO_MILLIS.format(object.lastModified()) + "</LastModified></CopyObjectResult>");
+                } else {
+                    var file = newObjectFile();
+                    write(exchange.getRequestBody(), file);
+                    var object = put(bucket, key, file, headers.getFirst("Content-Type"));
+                    exchange.getResponseHeaders().set("ETag", quote(object.etag()));
+                    sendEmpty(exchange, 200);
+                }
+            }
+            case "POST" -> {
+                if (query.containsKey("uploads")) {
+                    var uploadId = "upload-" + sequence.incrementAndGet();
+                    uploads.put(uploadId, Optional.ofNullable(headers.getFirst("Content-Type")).orElse("application/octet-stream"));
+                    Files.createDirectories(directory.resolve(uploadId));
+                    sendXml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\"><Bucket>" + bucket + "</Bucket><Key>"
+                            + key + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+                } else if (query.containsKey("uploadId")) {
+                    var uploadId = query.get("uploadId");
+                    var contentType = uploads.remove(uploadId);
+                    if (contentType == null) {
+                        sendError(exchange, 404, "NoSuchUpload", bucket, key);
+                        return;
+                    }
+                    var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                    var file = newObjectFile();
+                    try (var out = Files.newOutputStream(file)) {
+                        var matcher = PART_NUMBER.matcher(body);
+                        while (matcher.find()) {
+                            Files.copy(partFile(uploadId, Integer.parseInt(matcher.group(1))), out);
+                        }
+                    }
+                    deleteUpload(uploadId);
+                    var object = put(bucket, key, file, contentType);
+                    sendXml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\"><Location>/" + bucket + "/" + key
+                            + "</Location><Bucket>" + bucket + "</Bucket><Key>" + key + "</Key><ETag>" + quote(object.etag())
+                            + "</ETag></CompleteMultipartUploadResult>");
+                } else {
+                    sendError(exchange, 501, "NotImplemented", bucket, key);
+                }
+            }
+            case "DELETE" -> {
+                if (query.containsKey("uploadId")) {
+                    uploads.remove(query.get("uploadId"));
+                    deleteUpload(query.get("uploadId"));
+                } else {
+                    var object = objects.remove(objectKey(bucket, key));
+                    if (object != null) {
+                        Files.deleteIfExists(object.file());
+                    }
+                }
+                sendEmpty(exchange, 204);
+            }
+            case "HEAD" -> {
+                var object = objects.get(objectKey(bucket, key));
+                if (object == null) {
+                    sendEmpty(exchange, 404);
+                    return;
+                }
+                setObjectHeaders(exchange, object);
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.size()));
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "GET" -> {
+                var object = objects.get(objectKey(bucket, key));
+                if (object == null) {
+                    sendError(exchange, 404, "NoSuchKey", bucket, key);
+                    return;
+                }
+                get(exchange, object, headers.getFirst("Range"));
+            }
+            default -> sendError(exchange, 405, "MethodNotAllowed", bucket, key);
+        }
+    }
+
+    private void get(HttpExchange exchange, StoredObject object, String range) throws IOException {
+        long offset = 0;
+        long length = object.size();
+        int status = 200;
+        var matcher = range == null ? null : RANGE.matcher(range);
+        if (matcher != null && matcher.matches()) {
+            offset = Long.parseLong(matcher.group(1));
+            long last = matcher.group(2).isEmpty() ? object.size() - 1 : Math.min(Long.parseLong(matcher.group(2)), object.size() - 1);
+            length = Math.max(0, last - offset + 1);
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + offset + "-" + last + "/" + object.size());
+        }
+        setObjectHeaders(exchange, object);
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (var in = Files.newInputStream(object.file()); var out = exchange.getResponseBody()) {
+                in.skipNBytes(offset);
+                copy(in, out, length);
+            }
+        }
+    }
+
+    private StoredObject put(String bucket, String key, Path file, String contentType) throws IOException {
+        var object = new StoredObject(file, Files.size(file), etag(file),
+                Optional.ofNullable(contentType).orElse("application/octet-stream"), ZonedDateTime.now(ZoneOffset.UTC).withNano(0));
+        var previous = objects.put(objectKey(bucket, key), object);
+        if (previous != null) {
+            Files.deleteIfExists(previous.file());
+        }
+        return object;
+    }
+
+    /**
+     * Copies an object, or a range of it, as the content of a new object or part.
+     */
+    private void copy(String copySource, String range, Path target) throws IOException {
+        var source = URLDecoder.decode(copySource, StandardCharsets.UTF_8);
+        source = source.startsWith("/") ? source.substring(1) : source;
+        var versionStart = source.indexOf('?');
+        if (versionStart >= 0) {
+            source = source.substring(0, versionStart);
+        }
+        var slash = source.indexOf('/');
+        var object = objects.get(objectKey(source.substring(0, slash), source.substring(slash + 1)));
+        if (object == null) {
+            throw new IllegalArgumentException("No such copy source: " + copySource);
+        }
+        long offset = 0;
+        long length = object.size();
+        var matcher = range == null ? null : RANGE.matcher(range);
+        if (matcher != null && matcher.matches()) {
+            offset = Long.parseLong(matcher.group(1));
+            length = Long.parseLong(matcher.group(2)) - offset + 1;
+        }
+        try (var in = Files.newInputStream(object.file()); var out = Files.newOutputStream(target)) {
+            in.skipNBytes(offset);
+            copy(in, out, length);
+        }
+    }
+
+    private void setObjectHeaders(HttpExchange exchange, StoredObject object) {
+        var responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("ETag", quote(object.etag()));
+        responseHeaders.set("Content-Type", object.contentType());
+        responseHeaders.set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified()));
+        responseHeaders.set("Accept-Ranges", "bytes");
+    }
+
+    private Path newObjectFile() {
+        return directory.resolve("object-" + sequence.incrementAndGet());
+    }
+
+    private Path partFile(String uploadId, int partNumber) {
+        var uploadDirectory = directory.resolve(uploadId).normalize();
+        if (!uploadDirectory.startsWith(directory)) {
+            throw new IllegalArgumentException("Invalid upload id: " + uploadId);
+        }
+        return uploadDirectory.resolve(String.valueOf(partNumber));
+    }
+
+    private void deleteUpload(String uploadId) throws IOException {
+        var uploadDirectory = partFile(uploadId, 0).getParent();
+        if (Files.isDirectory(uploadDirectory)) {
+            try (var files = Files.list(uploadDirectory)) {
+                for (var file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(uploadDirectory);
+        }
+    }
+
+    private static void write(InputStream in, Path file) throws IOException {
+        Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void copy(InputStream in, OutputStream out, long length) throws IOException {
+        var buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static String etag(Path file) throws IOException {
+        try (var in = Files.newInputStream(file, StandardOpenOption.READ)) {
+            var digest = MessageDigest.getInstance("MD5");
+            var buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String quote(String etag) {
+        return "\"" + etag + "\"";
+    }
+
+    private static String objectKey(String bucket, String key) {
+        return bucket + "/" + key;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Map.of();
+        }
+        var query = new HashMap<String, String>();
+        for (var parameter : rawQuery.split("&")) {
+            var separator = parameter.indexOf('=');
+            var name = URLDecoder.decode(separator < 0 ? parameter : parameter.substring(0, separator), StandardCharsets.UTF_8);
+            var value = separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        var body = (XML_HEADER + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String bucket, String key) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            sendEmpty(exchange, status);
+            return;
+        }
+        sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + code + "</Message><BucketName>" + bucket
+                + "</BucketName><Key>" + key + "</Key><Resource>" + exchange.getRequestURI().getRawPath()
+                + "</Resource><RequestId>stub</RequestId><HostId>stub</HostId></Error>");
+    }
+
+    private record StoredObject(Path file, long size, String etag, String contentType, ZonedDateTime lastModified) {
+    }
+}
@@ -0,0 +1,100 @@
+package io.crunch.loadtest;
+
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class S3StubServerTest {
+
+    private static final String BUCKET = "media";
+
+    private static S3StubServer stub;
+
+    private static MinioAsyncClient client;
+
+    @BeforeAll
+    static void start() throws Exception {
+        stub = S3StubServer.start();
+        client = MinioAsyncClient.builder().endpoint(stub.getUrl()).credentials("access", "secret").build();
+        client.makeBucket(MakeBucketArgs.builder().bucket(BUCKET).build()).get();
+    }
+
+    @AfterAll
+    static void stop() {
+        stub.close();
+    }
+
+    @Test
+    void checkBucket() throws Exception {
+        assertThat(client.bucketExists(BucketExistsArgs.builder().bucket(BUCKET).build()).get()).isTrue();
+        assertThat(client.bucketExists(BucketExistsArgs.builder().bucket("other").build()).get()).isFalse();
+    }
+
+    @Test
+    void putAndReadRange(@TempDir Path directory) throws Exception {
+        var content = random(1000);
+        client.putObject(PutObjectArgs.builder().bucket(BUCKET).object("small").contentType("image/png")
+                .stream(new ByteArrayInputStream(content), content.length, -1).build()).get();
+
+        var stat = client.statObject(StatObjectArgs.builder().bucket(BUCKET).object("small").build()).get();
+        assertThat(stat.size()).isEqualTo(1000);
+        assertThat(stat.contentType()).isEqualTo("image/png");
+        try (var range = client.getObject(GetObjectArgs.builder().bucket(BUCKET).object("small").offset(10L).length(20L).build()).get()) {
+            assertThat(range.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 10, 30));
+        }
+    }
+
+    @Test
+    void uploadInPartsAndCompose(@TempDir Path directory) throws Exception {
+        var large = random(12 * 1024 * 1024);
+        var file = Files.write(directory.resolve("large"), large);
+        client.uploadObject(UploadObjectArgs.builder().bucket(BUCKET).object("large").filename(file.toString()).contentType("video/mp4").build()).get();
+        var tail = random(1024);
+        client.putObject(PutObjectArgs.builder().bucket(BUCKET).object("tail")
+                .stream(new ByteArrayInputStream(tail), tail.length, -1).build()).get();
+
+        client.composeObject(ComposeObjectArgs.builder().bucket(BUCKET).object("composed")
+                .sources(List.of(ComposeSource.builder().bucket(BUCKET).object("large").build(),
+                        ComposeSource.builder().bucket(BUCKET).object("tail").build()))
+                .build()).get();
+
+        try (var composed = client.getObject(GetObjectArgs.builder().bucket(BUCKET).object("composed").build()).get()) {
+            var read = composed.readAllBytes();
+            assertThat(read).hasSize(large.length + tail.length);
+            assertThat(Arrays.copyOf(read, large.length)).isEqualTo(large);
+            assertThat(Arrays.copyOfRange(read, large.length, read.length)).isEqualTo(tail);
+        }
+    }
+
+    @Test
+    void removeObject() throws Exception {
+        var content = random(10);
+        client.putObject(PutObjectArgs.builder().bucket(BUCKET).object("removed")
+                .stream(new ByteArrayInputStream(content), content.length, -1).build()).get();
+        client.removeObject(RemoveObjectArgs.builder().bucket(BUCKET).object("removed").build()).get();
+
+        assertThatThrownBy(() -> client.statObject(StatObjectArgs.builder().bucket(BUCKET).object("removed").build()).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseInstanceOf(ErrorResponseException.class);
+    }
+
+    private static byte[] random(int size) {
+        var content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
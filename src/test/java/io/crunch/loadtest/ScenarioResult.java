@@ -0,0 +1,90 @@
+package io.crunch.loadtest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a scenario of the load test: the throughput, the latency percentiles of the successful operations,
+ * and the error rate.
+ *
+ * @param scenario   the name of the scenario
+ * @param media      the kind and the size of the media files of the scenario, {@code -} if it does not use media files
+ * @param operations the number of operations, successful or not
+ * @param errors     the number of failed operations
+ * @param throughput the operations per second
+ * @param p50        the median latency in milliseconds
+ * @param p90        the 90th percentile of the latency in milliseconds
+ * @param p99        the 99th percentile of the latency in milliseconds
+ * @param max        the maximum latency in milliseconds
+ */
+public record ScenarioResult(String scenario, String media, long operations, long errors, double throughput,
+                             double p50, double p90, double p99, double max) {
+
+    /**
+     * Summarizes the samples recorded by the workers of a scenario.
+     *
+     * @param scenario  the name of the scenario
+     * @param media     the media of the scenario
+     * @param recorders the recorders of the workers
+     * @param elapsed   the duration of the scenario in nanoseconds
+     * @return the summary
+     */
+    static ScenarioResult of(String scenario, String media, Collection<Recorder> recorders, long elapsed) {
+        var latencies = recorders.stream()
+                .flatMapToLong(recorder -> Arrays.stream(recorder.latencies, 0, recorder.count))
+                .sorted()
+                .toArray();
+        long errors = recorders.stream().mapToLong(recorder -> recorder.errors).sum();
+        long operations = latencies.length + errors;
+        return new ScenarioResult(scenario, media, operations, errors,
+                operations / (elapsed / 1e9),
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : millis(latencies[latencies.length - 1]));
+    }
+
+    public double errorRate() {
+        return operations == 0 ? 0 : (double) errors / operations;
+    }
+
+    @Override
+    public String toString() {
+        return "%-8s %-12s %8d ops %9.1f ops/s  p50 %8.2f ms  p90 %8.2f ms  p99 %8.2f ms  max %8.2f ms  errors %6.2f%%"
+                .formatted(scenario, media, operations, throughput, p50, p90, p99, max, errorRate() * 100);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return millis(sorted[Math.max(index, 0)]);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Records the latencies and the errors of one worker; it is not thread-safe.
+     */
+    static final class Recorder {
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private long errors;
+
+        void success(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void error() {
+            errors++;
+        }
+    }
+}
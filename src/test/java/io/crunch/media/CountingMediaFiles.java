@@ -0,0 +1,131 @@
+package io.crunch.media;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link MediaFiles} decorator that counts the calls, that is, the round trips to the database.
+ */
+public class CountingMediaFiles implements MediaFiles {
+
+    private final MediaFiles delegate;
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    public CountingMediaFiles(MediaFiles delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public long store(String mediaId, String contentType) {
+        count("store");
+        return delegate.store(mediaId, contentType);
+    }
+
+    @Override
+    public long store(String mediaId, String contentType, String objectName) {
+        count("store");
+        return delegate.store(mediaId, contentType, objectName);
+    }
+
+    @Override
+    public long reserve(String mediaId, String contentType, String objectName) {
+        count("reserve");
+        return delegate.reserve(mediaId, contentType, objectName);
+    }
+
+    @Override
+    public boolean commit(String mediaId) {
+        count("commit");
+        return delegate.commit(mediaId);
+    }
+
+    @Override
+    public boolean discard(String mediaId) {
+        count("discard");
+        return delegate.discard(mediaId);
+    }
+
+    @Override
+    public List<MediaFile> getPending(Instant createdBefore) {
+        count("getPending");
+        return delegate.getPending(createdBefore);
+    }
+
+    @Override
+    public List<Long> storeAll(List<MediaFile> mediaFiles) {
+        count("storeAll");
+        return delegate.storeAll(mediaFiles);
+    }
+
+    @Override
+    public Optional<MediaFile> remove(String mediaId) {
+        count("remove");
+        return delegate.remove(mediaId);
+    }
+
+    @Override
+    public Optional<MediaFile> markRemoved(String mediaId) {
+        count("markRemoved");
+        return delegate.markRemoved(mediaId);
+    }
+
+    @Override
+    public List<MediaFile> getRemoved() {
+        count("getRemoved");
+        return delegate.getRemoved();
+    }
+
+    @Override
+    public boolean purge(String mediaId, Runnable releaseContent) {
+        count("purge");
+        return delegate.purge(mediaId, releaseContent);
+    }
+
+    @Override
+    public Optional<MediaFile> getByMediaId(String mediaId) {
+        count("getByMediaId");
+        return delegate.getByMediaId(mediaId);
+    }
+
+    @Override
+    public List<MediaFile> getByMediaIdPrefix(String mediaIdPrefix, Instant createdBefore) {
+        count("getByMediaIdPrefix");
+        return delegate.getByMediaIdPrefix(mediaIdPrefix, createdBefore);
+    }
+
+    @Override
+    public List<String> getMediaIds() {
+        count("getMediaIds");
+        return delegate.getMediaIds();
+    }
+
+    /**
+     * Returns the number of calls of all operations since the last {@link #reset()}.
+     */
+    public int getCalls() {
+        return calls.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /**
+     * Returns the number of calls of an operation since the last {@link #reset()}.
+     *
+     * @param operation the name of the method, the overloads are counted together
+     */
+    public int getCalls(String operation) {
+        var count = calls.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public void reset() {
+        calls.clear();
+    }
+
+    private void count(String operation) {
+        calls.computeIfAbsent(operation, key -> new AtomicInteger()).incrementAndGet();
+    }
+}
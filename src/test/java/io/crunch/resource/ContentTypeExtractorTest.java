@@ -1,11 +1,19 @@
 package io.crunch.resource;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -13,6 +21,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 class ContentTypeExtractorTest {
 
+    @TempDir
+    Path directory;
+
     @ParameterizedTest
     @MethodSource("mediaSources")
     void checkContentType(String fileName, String expectedType) throws Exception {
@@ -22,6 +33,41 @@ class ContentTypeExtractorTest {
         assertThat(result).isEqualTo(expectedType);
     }
 
+    @ParameterizedTest
+    @MethodSource("signatures")
+    void checkContentTypeBySignature(byte[] prefix, String expectedType) {
+        var contentTypeExtractor = new ContentTypeExtractor();
+        assertThat(contentTypeExtractor.getContentType(prefix, prefix.length, null)).isEqualTo(expectedType);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heic", "mif1", "avif", "crx "})
+    void doNotTakeOtherIsoMediaForMP4(String majorBrand) {
+        var contentTypeExtractor = new ContentTypeExtractor();
+        assertThat(contentTypeExtractor.getContentType(ftyp(majorBrand), -1, null)).isNotEqualTo("video/mp4");
+    }
+
+    @Test
+    void recordSizeOfWholeFile() throws Exception {
+        var contentTypeExtractor = new ContentTypeExtractor();
+        var path = resolvePath("/sample-video.mp4");
+        var file = directory.resolve("detection.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("io.crunch.ContentTypeDetection").withThreshold(Duration.ZERO);
+            recording.start();
+            contentTypeExtractor.getContentType(path, path.getFileName().toString());
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var event = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("io.crunch.ContentTypeDetection"))
+                .findFirst().orElseThrow();
+        assertThat(event.getLong("size")).isEqualTo(Files.size(path));
+        assertThat(event.getLong("inspectedSize")).isEqualTo(Math.min(Files.size(path), ContentTypeExtractor.PREFIX_LENGTH));
+        assertThat(event.getString("contentType")).isEqualTo("video/mp4");
+    }
+
     private static Path resolvePath(String fileName) throws URISyntaxException {
         var url = ContentTypeExtractorTest.class.getResource(fileName);
         return Path.of(Objects.requireNonNull(url).toURI());
@@ -36,4 +82,25 @@ class ContentTypeExtractorTest {
                 Arguments.of("/sample-pdf.pdf", "application/pdf")
         );
     }
+
+    private static Stream<Arguments> signatures() {
+        return Stream.of(
+                Arguments.of(ftyp("isom"), "video/mp4"),
+                Arguments.of(ftyp("mp42"), "video/mp4"),
+                Arguments.of(ftyp("dash"), "video/mp4"),
+                Arguments.of(ftyp("3gp5"), "video/3gpp"),
+                Arguments.of(ftyp("qt  "), "video/quicktime"),
+                Arguments.of(ftyp("M4A "), "audio/mp4"),
+                Arguments.of(new byte[] {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x64}, "audio/mpeg"),
+                Arguments.of(new byte[] {(byte) 0xFF, (byte) 0xF1, 0x50, (byte) 0x80}, "audio/x-aac"),
+                Arguments.of("plain text".getBytes(StandardCharsets.US_ASCII), "text/plain")
+        );
+    }
+
+    private static byte[] ftyp(String majorBrand) {
+        var box = new byte[16];
+        box[3] = 16;
+        System.arraycopy(("ftyp" + majorBrand).getBytes(StandardCharsets.US_ASCII), 0, box, 4, 8);
+        return box;
+    }
 }
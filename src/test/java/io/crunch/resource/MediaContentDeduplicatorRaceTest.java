@@ -0,0 +1,49 @@
+package io.crunch.resource;
+
+import io.crunch.media.MediaContentReferences;
+import io.crunch.store.MediaFileStore;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class MediaContentDeduplicatorRaceTest {
+
+    private static final String CHECKSUM = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private final MediaFileStore mediaFileStore = mock(MediaFileStore.class);
+
+    private final MediaContentReferences references = mock(MediaContentReferences.class);
+
+    private final MediaContentDeduplicator deduplicator = new MediaContentDeduplicator(mediaFileStore, references, true);
+
+    @Test
+    void referenceContentRegisteredByAnotherInstance() {
+        var objectName = deduplicator.getObjectName(CHECKSUM);
+        // The content is not registered when checked, but another instance registers it before this one
+        when(references.reference(objectName)).thenReturn(false, true);
+        doThrow(new PersistenceException("duplicate key")).when(references).create(objectName, "image/png");
+
+        var stored = deduplicator.store(new ByteArrayInputStream(new byte[16]), 16, "image/png", CHECKSUM, () -> {});
+
+        assertThat(stored).isEqualTo(objectName);
+        verify(references, times(2)).reference(objectName);
+        verify(mediaFileStore, never()).remove(anyString());
+    }
+
+    @Test
+    void keepObjectIfContentCannotBeRegistered() {
+        var objectName = deduplicator.getObjectName(CHECKSUM);
+        when(references.reference(objectName)).thenReturn(false);
+        doThrow(new PersistenceException("connection lost")).when(references).create(objectName, "image/png");
+
+        assertThatThrownBy(() -> deduplicator.store(new ByteArrayInputStream(new byte[16]), 16, "image/png", CHECKSUM, () -> {}))
+            .isInstanceOf(PersistenceException.class);
+        verify(mediaFileStore, never()).remove(anyString());
+    }
+}
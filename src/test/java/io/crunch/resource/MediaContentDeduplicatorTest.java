@@ -0,0 +1,105 @@
+package io.crunch.resource;
+
+import io.crunch.media.MediaContent;
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.MediaFileServerException;
+import io.crunch.store.MediaFileStore;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@QuarkusTest
+@TestProfile(MediaContentDeduplicatorTest.DeduplicationProfile.class)
+class MediaContentDeduplicatorTest {
+
+    public static class DeduplicationProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("media.store.dedup.enabled", "true");
+        }
+    }
+
+    @Inject
+    MediaFileChecksumGenerator checksumGenerator;
+
+    @Inject
+    MediaUrls mediaUrls;
+
+    @Inject
+    MediaFiles mediaFiles;
+
+    @Inject
+    MediaFileStore mediaFileStore;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Test
+    void identicalMediaFilesShareContent() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-pdf.pdf");
+        var checksum = checksumGenerator.checksum(sampleMediaFile);
+
+        var firstMediaId = upload(sampleMediaFile, checksum);
+        var secondMediaId = upload(sampleMediaFile, checksum);
+        assertThat(firstMediaId).isNotEqualTo(secondMediaId);
+
+        var objectName = mediaFiles.getByMediaId(firstMediaId).orElseThrow().getObjectName();
+        assertThat(objectName).isEqualTo(MediaContentDeduplicator.CONTENT_PREFIX + checksum);
+        assertThat(mediaFiles.getByMediaId(secondMediaId).orElseThrow().getObjectName()).isEqualTo(objectName);
+        assertThat(entityManager.find(MediaContent.class, objectName).getRefCount()).isEqualTo(2);
+
+        given().delete("/api/" + firstMediaId).then().statusCode(Response.Status.NO_CONTENT.getStatusCode());
+        assertThat(mediaFileStore.getFileSize(objectName)).isEqualTo(sampleMediaFile.toFile().length());
+
+        given().delete("/api/" + secondMediaId).then().statusCode(Response.Status.NO_CONTENT.getStatusCode());
+        assertThat(entityManager.find(MediaContent.class, objectName)).isNull();
+        assertThatThrownBy(() -> mediaFileStore.getFileSize(objectName)).isInstanceOf(MediaFileServerException.class);
+    }
+
+    @Test
+    void rejectMediaFileWithClaimedChecksumOfExistingContent() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.png");
+        var checksum = checksumGenerator.checksum(sampleMediaFile);
+        upload(sampleMediaFile, checksum);
+
+        given()
+            .multiPart("description", new MediaFileDescription(checksum), MediaType.APPLICATION_JSON)
+            .multiPart("media", getSampleMediaFile("/sample-image.jpg").toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        var objectName = MediaContentDeduplicator.CONTENT_PREFIX + checksum;
+        assertThat(entityManager.find(MediaContent.class, objectName).getRefCount()).isEqualTo(1);
+    }
+
+    private String upload(Path sampleMediaFile, String checksum) {
+        var url = given()
+            .multiPart("description", new MediaFileDescription(checksum), MediaType.APPLICATION_JSON)
+            .multiPart("media", sampleMediaFile.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .extract().response().getBody().asString();
+        return mediaUrls.getMediaId(url);
+    }
+
+    private Path getSampleMediaFile(String path) throws URISyntaxException {
+        var url = MediaContentDeduplicatorTest.class.getResource(path);
+        return Path.of(Objects.requireNonNull(url).toURI());
+    }
+}
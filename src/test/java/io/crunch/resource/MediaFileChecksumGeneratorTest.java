@@ -1,11 +1,17 @@
 package io.crunch.resource;
 
 import io.crunch.shared.MediaFileServerException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -20,6 +26,35 @@ class MediaFileChecksumGeneratorTest {
         assertThat(generator.checksum(path)).isEqualTo("38c9792d725c45dd431699e6a3b0f0f8e17c63c9ac7331387ee30dcc6e42a511");
     }
 
+    @Test
+    void generateTreeChecksumOfSingleLeaf() throws URISyntaxException {
+        var url = MediaFileChecksumGeneratorTest.class.getResource("/sample-pdf.pdf");
+        var path = Path.of(Objects.requireNonNull(url).toURI());
+        var generator = new MediaFileChecksumGenerator();
+        assertThat(generator.checksum(path, ChecksumAlgorithm.SHA256_TREE)).isEqualTo("86244626079c5ccbe520d3a34ee464deae6e11a5cc6b93d8cf01afe3447276fc");
+    }
+
+    @Test
+    void generateTreeChecksumOfManyLeaves() throws IOException {
+        var content = new byte[3 * TreeChecksumCalculator.LEAF_SIZE + 1234];
+        new Random(42).nextBytes(content);
+        var root = DigestUtils.getSha256Digest();
+        for (int offset = 0; offset < content.length; offset += TreeChecksumCalculator.LEAF_SIZE) {
+            var leaf = Arrays.copyOfRange(content, offset, Math.min(offset + TreeChecksumCalculator.LEAF_SIZE, content.length));
+            root.update(DigestUtils.sha256(leaf));
+        }
+        var generator = new MediaFileChecksumGenerator();
+        assertThat(generator.checksum(new ByteArrayInputStream(content), ChecksumAlgorithm.SHA256_TREE)).isEqualTo(Hex.encodeHexString(root.digest()));
+    }
+
+    @Test
+    void generateCrc32cChecksum() throws URISyntaxException {
+        var url = MediaFileChecksumGeneratorTest.class.getResource("/sample-pdf.pdf");
+        var path = Path.of(Objects.requireNonNull(url).toURI());
+        var generator = new MediaFileChecksumGenerator();
+        assertThat(generator.checksum(path, ChecksumAlgorithm.CRC32C)).isEqualTo("f6e52f9a");
+    }
+
     @Test
     void throwsErrorIfFileDoesNotExists() {
         var generator = new MediaFileChecksumGenerator();
@@ -1,5 +1,7 @@
 package io.crunch.resource;
 
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.MediaFileServerException;
 import io.crunch.store.MediaFileStore;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
@@ -11,9 +13,11 @@ import org.junit.jupiter.api.Test;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.containsString;
 
 @QuarkusTest
@@ -28,6 +32,9 @@ class MediaFileServerResourceTest {
     @Inject
     MediaFileStore mediaFileStore;
 
+    @Inject
+    MediaFiles mediaFiles;
+
     @Inject
     EntityManager entityManager;
 
@@ -56,6 +63,127 @@ class MediaFileServerResourceTest {
         assertThat(entityManager.createQuery(query).getSingleResult()).isNotNull();
     }
 
+    @Test
+    void streamMediaFileSuccessfully() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-video.mp4");
+        var checksum = checksumGenerator.checksum(sampleMediaFile);
+
+        var response = given()
+            .header(MediaFileServerResource.CHECKSUM_HEADER, checksum)
+            .header(MediaFileServerResource.FILE_NAME_HEADER, "sample-video.mp4")
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(sampleMediaFile.toFile())
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .extract()
+            .response();
+
+        var mediaId = mediaUrls.getMediaId(response.getBody().asString());
+        assertThat(mediaFileStore.getFileSize(mediaId)).isEqualTo(sampleMediaFile.toFile().length());
+    }
+
+    @Test
+    void streamMediaFileWithTreeChecksum() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-video.mp4");
+        var checksum = checksumGenerator.checksum(sampleMediaFile, ChecksumAlgorithm.SHA256_TREE);
+
+        given()
+            .header(MediaFileServerResource.CHECKSUM_HEADER, checksum)
+            .header(MediaFileServerResource.CHECKSUM_ALGORITHM_HEADER, ChecksumAlgorithm.SHA256_TREE.getName())
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(sampleMediaFile.toFile())
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.CREATED.getStatusCode());
+    }
+
+    @Test
+    void rejectStreamedMediaFileWithInvalidChecksum() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-video.mp4");
+
+        given()
+            .header(MediaFileServerResource.CHECKSUM_HEADER, "invalid-checksum")
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(sampleMediaFile.toFile())
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        var query = "select count(f) from MediaFile f where f.state = io.crunch.media.MediaFileState.PENDING";
+        assertThat(entityManager.createQuery(query, Long.class).getSingleResult()).isZero();
+    }
+
+    @Test
+    void uploadMediaFileWithCrc32cChecksum() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.png");
+        var checksum = checksumGenerator.checksum(sampleMediaFile, ChecksumAlgorithm.CRC32C);
+
+        given()
+            .multiPart("description", new MediaFileDescription(checksum, ChecksumAlgorithm.CRC32C), MediaType.APPLICATION_JSON)
+            .multiPart("media", sampleMediaFile.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.CREATED.getStatusCode());
+    }
+
+    @Test
+    void rejectMediaFileWithInvalidChecksum() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.png");
+        var mediaIdCount = entityManager.createQuery("select count(f) from MediaFile f", Long.class).getSingleResult();
+
+        given()
+            .multiPart("description", new MediaFileDescription("invalid-checksum"), MediaType.APPLICATION_JSON)
+            .multiPart("media", sampleMediaFile.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        assertThat(entityManager.createQuery("select count(f) from MediaFile f", Long.class).getSingleResult()).isEqualTo(mediaIdCount);
+    }
+
+    @Test
+    void uploadBatchOfMediaFiles() throws Exception {
+        var sampleImageFile = getSampleMediaFile("/sample-image.png");
+        var sampleAudioFile = getSampleMediaFile("/sample-audio.mp3");
+
+        var results = given()
+            .multiPart("description", new MediaFileDescription(checksumGenerator.checksum(sampleImageFile)), MediaType.APPLICATION_JSON)
+            .multiPart("media", sampleImageFile.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .multiPart("description", new MediaFileDescription("invalid-checksum"), MediaType.APPLICATION_JSON)
+            .multiPart("media", sampleAudioFile.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .post("/api/batch")
+            .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .extract()
+            .jsonPath().getList(".", MediaFileBatchResult.class);
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).status()).isEqualTo(Response.Status.CREATED.getStatusCode());
+        assertThat(results.get(1).status()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+
+        var mediaId = mediaUrls.getMediaId(results.get(0).url());
+        var query = "select f from MediaFile f where f.mediaId = '%s'".formatted(mediaId);
+        assertThat(entityManager.createQuery(query).getSingleResult()).isNotNull();
+    }
+
+    @Test
+    void removeMediaFile() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.jpg");
+        var url = given()
+            .multiPart("description", new MediaFileDescription(checksumGenerator.checksum(sampleMediaFile)), MediaType.APPLICATION_JSON)
+            .multiPart("media", sampleMediaFile.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .post("/api")
+            .then()
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .extract().response().getBody().asString();
+        var mediaId = mediaUrls.getMediaId(url);
+
+        given().delete("/api/" + mediaId).then().statusCode(Response.Status.NO_CONTENT.getStatusCode());
+        given().delete("/api/" + mediaId).then().statusCode(Response.Status.NOT_FOUND.getStatusCode());
+        assertThatThrownBy(() -> mediaFileStore.getFileSize(mediaId)).isInstanceOf(MediaFileServerException.class);
+    }
+
     @Test
     void fetchListOfMediaFiles() throws Exception{
         var sampleAudioFile = getSampleMediaFile("/sample-audio.mp3");
@@ -91,6 +219,22 @@ class MediaFileServerResourceTest {
         assertThat(mediaIds).contains(audioMediaId, videoMediaId);
     }
 
+    @Test
+    void doNotListWarmUpSamples() {
+        var sampleMediaId = MediaFiles.WARM_UP_MEDIA_ID_PREFIX + UUID.randomUUID() + "-image";
+        mediaFiles.store(sampleMediaId, "image/png", "warm-up/sample");
+        try {
+            var urls = given()
+                .get("/api")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().jsonPath().getList(".", String.class);
+            assertThat(urls).noneMatch(url -> url.contains(MediaFiles.WARM_UP_MEDIA_ID_PREFIX));
+        } finally {
+            mediaFiles.remove(sampleMediaId);
+        }
+    }
+
     private Path getSampleMediaFile(String path) throws URISyntaxException {
         var url = MediaFileServerResourceTest.class.getResource(path);
         return Path.of(Objects.requireNonNull(url).toURI());
@@ -0,0 +1,35 @@
+package io.crunch.resource;
+
+import io.crunch.shared.AllocationMeter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Allocation budgets of the media URLs, every upload creates one, and every listing parses them.
+ * <p>
+ * The budgets are about 1.3 times the allocations measured on JDK 21, so a change that doubles them fails.
+ * </p>
+ */
+class MediaUrlsBudgetTest {
+
+    private final MediaUrls mediaUrls = new MediaUrls(8080);
+
+    @Test
+    void randomIdAllocatesWithinBudget() {
+        assertThat(AllocationMeter.bytesPerOperation(mediaUrls::randomId)).isLessThanOrEqualTo(512);
+    }
+
+    @Test
+    void createUrlAllocatesWithinBudget() {
+        var mediaId = mediaUrls.randomId();
+        assertThat(AllocationMeter.bytesPerOperation(() -> mediaUrls.createUrl(mediaId))).isLessThanOrEqualTo(1024);
+        assertThat(AllocationMeter.bytesPerOperation(() -> mediaUrls.createUrl())).isLessThanOrEqualTo(1536);
+    }
+
+    @Test
+    void getMediaIdAllocatesWithinBudget() {
+        var url = mediaUrls.createUrl();
+        assertThat(AllocationMeter.bytesPerOperation(() -> mediaUrls.getMediaId(url))).isLessThanOrEqualTo(2048);
+    }
+}
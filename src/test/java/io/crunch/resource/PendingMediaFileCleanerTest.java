@@ -0,0 +1,98 @@
+package io.crunch.resource;
+
+import io.crunch.media.MediaFile;
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.MediaFileServerException;
+import io.crunch.store.MediaFileStore;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@QuarkusTest
+class PendingMediaFileCleanerTest {
+
+    @Inject
+    PendingMediaFileCleaner cleaner;
+
+    @Inject
+    MediaFiles mediaFiles;
+
+    @Inject
+    MediaFileStore mediaFileStore;
+
+    @Test
+    void pendingMediaFileIsNotVisible() {
+        var mediaId = UUID.randomUUID().toString();
+        mediaFiles.reserve(mediaId, "image/png", mediaId);
+
+        assertThat(mediaFiles.getByMediaId(mediaId)).isEmpty();
+        assertThat(mediaFiles.getMediaIds()).doesNotContain(mediaId);
+
+        assertThat(mediaFiles.commit(mediaId)).isTrue();
+        assertThat(mediaFiles.getByMediaId(mediaId)).isPresent();
+    }
+
+    @Test
+    void removeStalePendingMediaFileWithItsContent() throws Exception {
+        var pendingMediaId = UUID.randomUUID().toString();
+        mediaFiles.reserve(pendingMediaId, "image/png", pendingMediaId);
+        mediaFileStore.store(getSampleMediaFile("/sample-image.png"), pendingMediaId, "image/png");
+
+        var committedMediaId = UUID.randomUUID().toString();
+        mediaFiles.reserve(committedMediaId, "image/png", committedMediaId);
+        mediaFileStore.store(getSampleMediaFile("/sample-image.png"), committedMediaId, "image/png");
+        mediaFiles.commit(committedMediaId);
+
+        assertThat(cleaner.removeStale(Instant.now().plusSeconds(1))).isPositive();
+
+        assertThat(mediaFiles.commit(pendingMediaId)).isFalse();
+        assertThatThrownBy(() -> mediaFileStore.getFileSize(pendingMediaId)).isInstanceOf(MediaFileServerException.class);
+        assertThat(mediaFiles.getByMediaId(committedMediaId)).isPresent();
+        assertThat(mediaFileStore.getFileSize(committedMediaId)).isPositive();
+    }
+
+    @Test
+    void purgeRemovedMediaFileWithItsContent() throws Exception {
+        var mediaId = UUID.randomUUID().toString();
+        mediaFileStore.store(getSampleMediaFile("/sample-image.png"), mediaId, "image/png");
+        mediaFiles.store(mediaId, "image/png", mediaId);
+
+        assertThat(mediaFiles.markRemoved(mediaId)).isPresent();
+        assertThat(mediaFiles.getByMediaId(mediaId)).isEmpty();
+        assertThat(mediaFiles.getRemoved()).extracting(MediaFile::getMediaId).contains(mediaId);
+
+        assertThat(cleaner.purgeRemoved()).isPositive();
+
+        assertThat(mediaFiles.getRemoved()).extracting(MediaFile::getMediaId).doesNotContain(mediaId);
+        assertThatThrownBy(() -> mediaFileStore.getFileSize(mediaId)).isInstanceOf(MediaFileServerException.class);
+    }
+
+    @Test
+    void keepRemovedMediaFileWhenItsContentCannotBeReleased() {
+        var mediaId = UUID.randomUUID().toString();
+        mediaFiles.store(mediaId, "image/png", mediaId);
+        mediaFiles.markRemoved(mediaId);
+
+        assertThatThrownBy(() -> mediaFiles.purge(mediaId, () -> {
+            throw new MediaFileServerException("Error removing file");
+        })).isInstanceOf(MediaFileServerException.class);
+        assertThat(mediaFiles.getRemoved()).extracting(MediaFile::getMediaId).contains(mediaId);
+
+        assertThat(mediaFiles.purge(mediaId, () -> {})).isTrue();
+        assertThat(mediaFiles.purge(mediaId, () -> {})).isFalse();
+    }
+
+    private Path getSampleMediaFile(String path) throws URISyntaxException {
+        var url = PendingMediaFileCleanerTest.class.getResource(path);
+        return Path.of(Objects.requireNonNull(url).toURI());
+    }
+}
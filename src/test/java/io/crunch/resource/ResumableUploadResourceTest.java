@@ -0,0 +1,171 @@
+package io.crunch.resource;
+
+import io.crunch.shared.MediaFileServerException;
+import io.crunch.store.MediaFileStore;
+import io.crunch.upload.UploadChunk;
+import io.crunch.upload.UploadSessions;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+
+@QuarkusTest
+class ResumableUploadResourceTest {
+
+    @Inject
+    MediaFileChecksumGenerator checksumGenerator;
+
+    @Inject
+    MediaUrls mediaUrls;
+
+    @Inject
+    MediaFileStore mediaFileStore;
+
+    @Inject
+    UploadSessions uploadSessions;
+
+    @Inject
+    UploadSessionCleaner uploadSessionCleaner;
+
+    @Test
+    void uploadMediaFileInChunks() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.jpg");
+        var sessionId = createSession(checksumGenerator.checksum(sampleMediaFile));
+
+        given()
+            .get("/api/uploads/" + sessionId)
+            .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("chunks", empty());
+
+        given()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(sampleMediaFile.toFile())
+            .put("/api/uploads/" + sessionId + "/chunks/1")
+            .then()
+            .statusCode(Response.Status.NO_CONTENT.getStatusCode());
+
+        given()
+            .get("/api/uploads/" + sessionId)
+            .then()
+            .statusCode(Response.Status.OK.getStatusCode())
+            .body("chunks", contains(1));
+
+        var url = given()
+            .post("/api/uploads/" + sessionId + "/complete")
+            .then()
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .body(containsString("localhost:8080/media"))
+            .extract().response().getBody().asString();
+
+        var mediaId = mediaUrls.getMediaId(url);
+        assertThat(mediaFileStore.getFileSize(mediaId)).isEqualTo(Files.size(sampleMediaFile));
+        given()
+            .get("/api/uploads/" + sessionId)
+            .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    @Test
+    void rejectCompletionWhenChunkIsMissing() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.jpg");
+        var content = Files.readAllBytes(sampleMediaFile);
+        var sessionId = createSession(checksumGenerator.checksum(sampleMediaFile));
+
+        given()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(Arrays.copyOfRange(content, 0, 1024))
+            .put("/api/uploads/" + sessionId + "/chunks/1")
+            .then()
+            .statusCode(Response.Status.NO_CONTENT.getStatusCode());
+        given()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(Arrays.copyOfRange(content, 2048, content.length))
+            .put("/api/uploads/" + sessionId + "/chunks/3")
+            .then()
+            .statusCode(Response.Status.NO_CONTENT.getStatusCode());
+
+        given()
+            .post("/api/uploads/" + sessionId + "/complete")
+            .then()
+            .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    void recordSameChunkReceivedConcurrently() throws Exception {
+        var sessionId = uploadSessions.create("checksum", "sha256", null).getSessionId();
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var tasks = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> uploadSessions.addChunk(sessionId, 1, 1024 + i)))
+                    .toList();
+            for (var task : tasks) {
+                task.get();
+            }
+        }
+        assertThat(uploadSessions.getChunks(sessionId)).singleElement().extracting(UploadChunk::getNumber).isEqualTo(1);
+    }
+
+    @Test
+    void removeInactiveSessionWithItsChunks() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.jpg");
+        var sessionId = createSession(checksumGenerator.checksum(sampleMediaFile));
+        given()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(sampleMediaFile.toFile())
+            .put("/api/uploads/" + sessionId + "/chunks/1")
+            .then()
+            .statusCode(Response.Status.NO_CONTENT.getStatusCode());
+
+        assertThat(uploadSessionCleaner.removeInactive(Instant.now().minusSeconds(60))).isZero();
+        assertThat(uploadSessionCleaner.removeInactive(Instant.now().plusSeconds(1))).isPositive();
+
+        given()
+            .get("/api/uploads/" + sessionId)
+            .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+        assertThatThrownBy(() -> mediaFileStore.getFileSize(UploadSessionCleaner.getChunkFileName(sessionId, 1)))
+                .isInstanceOf(MediaFileServerException.class);
+    }
+
+    @Test
+    void rejectChunkOfUnknownSession() {
+        given()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(new byte[16])
+            .put("/api/uploads/unknown-session/chunks/1")
+            .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    private String createSession(String checksum) {
+        return given()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new MediaFileDescription(checksum))
+            .post("/api/uploads")
+            .then()
+            .statusCode(Response.Status.CREATED.getStatusCode())
+            .extract().jsonPath().getString("sessionId");
+    }
+
+    private Path getSampleMediaFile(String path) throws URISyntaxException {
+        var url = ResumableUploadResourceTest.class.getResource(path);
+        return Path.of(Objects.requireNonNull(url).toURI());
+    }
+}
@@ -0,0 +1,101 @@
+package io.crunch.resource;
+
+import io.crunch.store.MediaFileStore;
+import io.crunch.upload.UploadJob;
+import io.crunch.upload.UploadJobState;
+import io.crunch.upload.UploadJobs;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@QuarkusTest
+class UploadJobResourceTest {
+
+    @Inject
+    MediaFileChecksumGenerator checksumGenerator;
+
+    @Inject
+    MediaUrls mediaUrls;
+
+    @Inject
+    MediaFileStore mediaFileStore;
+
+    @Inject
+    UploadJobs uploadJobs;
+
+    @Inject
+    MediaFileSpool mediaFileSpool;
+
+    @Test
+    void uploadMediaFileAsynchronously() throws Exception {
+        var sampleMediaFile = getSampleMediaFile("/sample-image.png");
+        var jobId = createJob(sampleMediaFile, checksumGenerator.checksum(sampleMediaFile));
+
+        var status = awaitJob(jobId);
+        assertThat(status.state()).isEqualTo(UploadJobState.COMPLETED);
+
+        var mediaId = mediaUrls.getMediaId(status.url());
+        assertThat(mediaFileStore.getFileSize(mediaId)).isEqualTo(Files.size(sampleMediaFile));
+    }
+
+    @Test
+    void failJobWithInvalidChecksum() throws Exception {
+        var jobId = createJob(getSampleMediaFile("/sample-image.png"), "invalid-checksum");
+
+        var status = awaitJob(jobId);
+        assertThat(status.state()).isEqualTo(UploadJobState.FAILED);
+        assertThat(status.error()).contains("Checksum mismatch");
+    }
+
+    @Test
+    void keepUnfinishedJobOfAnotherInstance() {
+        var jobId = UUID.randomUUID().toString();
+        uploadJobs.create(jobId, "another-instance", "checksum", "sha256", "sample-image.png");
+
+        mediaFileSpool.onStart(null);
+
+        assertThat(uploadJobs.get(jobId)).get().extracting(UploadJob::getState).isEqualTo(UploadJobState.ACCEPTED);
+    }
+
+    @Test
+    void rejectUnknownJob() {
+        given()
+            .get("/api/jobs/unknown")
+            .then()
+            .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    private String createJob(Path sampleMediaFile, String checksum) {
+        return given()
+            .multiPart("description", new MediaFileDescription(checksum), MediaType.APPLICATION_JSON)
+            .multiPart("media", sampleMediaFile.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+            .post("/api/jobs")
+            .then()
+            .statusCode(Response.Status.ACCEPTED.getStatusCode())
+            .extract().jsonPath().getString("jobId");
+    }
+
+    private UploadJobStatus awaitJob(String jobId) {
+        return await().atMost(Duration.ofSeconds(30)).until(
+            () -> given().get("/api/jobs/" + jobId).then().extract().as(UploadJobStatus.class),
+            status -> status.state() == UploadJobState.COMPLETED || status.state() == UploadJobState.FAILED);
+    }
+
+    private Path getSampleMediaFile(String path) throws URISyntaxException {
+        var url = UploadJobResourceTest.class.getResource(path);
+        return Path.of(Objects.requireNonNull(url).toURI());
+    }
+}
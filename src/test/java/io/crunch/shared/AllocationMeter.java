@@ -0,0 +1,62 @@
+package io.crunch.shared;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the heap allocated by an operation, with the allocation counter of the current thread.
+ * <p>
+ * The operation is run until it is compiled, then it is measured in a few rounds, and the smallest result is taken:
+ * an allocation of the test framework or of the JIT compiler in a round cannot make the result larger. The results of
+ * the operation are kept, so the compiler cannot remove the measured allocations as dead code.
+ * </p>
+ * <p>
+ * The results are precise enough to catch a change that doubles the allocations of a hot path, but not to compare
+ * a few bytes; the budgets of the tests have headroom above the measured values.
+ * </p>
+ */
+public final class AllocationMeter {
+
+    private static final int WARM_UP_OPERATIONS = 20_000;
+
+    private static final int ROUNDS = 5;
+
+    private static final int OPERATIONS_PER_ROUND = 2_000;
+
+    private static final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile Object sink;
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Returns the number of bytes allocated by one run of the operation.
+     * <p>
+     * The test is skipped if the JVM does not support the allocation counter.
+     * </p>
+     *
+     * @param operation the measured operation, it is run on the current thread
+     * @return the bytes allocated per operation
+     */
+    public static long bytesPerOperation(Supplier<?> operation) {
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation counter is not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        for (int i = 0; i < WARM_UP_OPERATIONS; i++) {
+            sink = operation.get();
+        }
+        long smallest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < OPERATIONS_PER_ROUND; i++) {
+                sink = operation.get();
+            }
+            smallest = Math.min(smallest, (threads.getCurrentThreadAllocatedBytes() - before) / OPERATIONS_PER_ROUND);
+        }
+        return smallest;
+    }
+}
@@ -0,0 +1,65 @@
+package io.crunch.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BufferPoolTest {
+
+    @Test
+    void copyWholeContent() throws IOException {
+        var pool = new BufferPool(1024, 4096);
+        var content = new byte[10_000];
+        new Random(42).nextBytes(content);
+        var target = new ByteArrayOutputStream();
+
+        assertThat(pool.copy(new ByteArrayInputStream(content), target)).isEqualTo(content.length);
+        assertThat(target.toByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void reuseReturnedBuffers() throws IOException {
+        var pool = new BufferPool(1024, 4096);
+        for (int i = 0; i < 10; i++) {
+            pool.copy(new ByteArrayInputStream(new byte[5000]), ByteArrayOutputStream.nullOutputStream());
+        }
+        assertThat(pool.getAllocatedCount()).isEqualTo(1);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepAtMostPoolMemoryOfIdleBuffers() {
+        var pool = new BufferPool(1024, 2048);
+        var buffers = new byte[][]{pool.acquire(), pool.acquire(), pool.acquire()};
+        for (var buffer : buffers) {
+            pool.release(buffer);
+        }
+        assertThat(pool.getAllocatedCount()).isEqualTo(3);
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+    }
+
+    @Test
+    void returnBufferWhenCopyFails() {
+        var pool = new BufferPool(1024, 4096);
+        var failing = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                throw new IllegalStateException("client disconnected");
+            }
+        };
+        assertThatThrownBy(() -> pool.copy(new ByteArrayInputStream(new byte[100]), failing)).isInstanceOf(IllegalStateException.class);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectInvalidSizes() {
+        assertThatThrownBy(() -> new BufferPool(0, 1024)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BufferPool(1024, 512)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,89 @@
+package io.crunch.store;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link MediaFileStore} decorator that counts the calls, that is, the round trips to the object store.
+ */
+public class CountingMediaFileStore implements MediaFileStore {
+
+    private final MediaFileStore delegate;
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    public CountingMediaFileStore(MediaFileStore delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void store(Path path, String fileName, String contentType) {
+        count("store");
+        delegate.store(path, fileName, contentType);
+    }
+
+    @Override
+    public void store(InputStream inputStream, long size, String fileName, String contentType, ContentVerifier verifier) {
+        count("store");
+        delegate.store(inputStream, size, fileName, contentType, verifier);
+    }
+
+    @Override
+    public InputStream read(String fileName) {
+        count("read");
+        return delegate.read(fileName);
+    }
+
+    @Override
+    public InputStream read(String fileName, long offset, long length) {
+        count("read");
+        return delegate.read(fileName, offset, length);
+    }
+
+    @Override
+    public void compose(List<String> sourceFileNames, String fileName, String contentType) {
+        count("compose");
+        delegate.compose(sourceFileNames, fileName, contentType);
+    }
+
+    @Override
+    public void remove(String fileName) {
+        count("remove");
+        delegate.remove(fileName);
+    }
+
+    @Override
+    public long getFileSize(String fileName) {
+        count("getFileSize");
+        return delegate.getFileSize(fileName);
+    }
+
+    /**
+     * Returns the number of calls of all operations since the last {@link #reset()}.
+     */
+    public int getCalls() {
+        return calls.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /**
+     * Returns the number of calls of an operation since the last {@link #reset()}.
+     *
+     * @param operation the name of the method, the overloads are counted together
+     */
+    public int getCalls(String operation) {
+        var count = calls.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public void reset() {
+        calls.clear();
+    }
+
+    private void count(String operation) {
+        calls.computeIfAbsent(operation, key -> new AtomicInteger()).incrementAndGet();
+    }
+}
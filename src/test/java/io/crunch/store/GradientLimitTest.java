@@ -0,0 +1,70 @@
+package io.crunch.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GradientLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void growWhileLatencyIsStable() {
+        var limit = new GradientLimit(10, 1, 100, 0.5, 100);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(RTT, limit.getLimit(), false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void notGrowWhenMostOfTheLimitIsUnused() {
+        var limit = new GradientLimit(10, 1, 100, 0.5, 100);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(RTT, 2, false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void shrinkWhenLatencyRises() {
+        var limit = new GradientLimit(50, 1, 100, 0.5, 100);
+        limit.onSample(RTT, 50, false);
+        var before = limit.getLimit();
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(RTT * 4, limit.getLimit(), false);
+        }
+        assertThat(limit.getLimit()).isLessThan(before / 2);
+    }
+
+    @Test
+    void halveOnDrop() {
+        var limit = new GradientLimit(40, 4, 100, 0.5, 100);
+        assertThat(limit.onSample(RTT, 40, true)).isEqualTo(20);
+        assertThat(limit.onSample(RTT, 20, true)).isEqualTo(10);
+        assertThat(limit.onSample(RTT, 10, true)).isEqualTo(5);
+        assertThat(limit.onSample(RTT, 5, true)).isEqualTo(4);
+    }
+
+    @Test
+    void recoverAfterLatencyDrops() {
+        var limit = new GradientLimit(50, 1, 100, 0.5, 100);
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(RTT * 4, limit.getLimit(), false);
+        }
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(RTT, limit.getLimit(), false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void rejectInvalidLimits() {
+        assertThatThrownBy(() -> new GradientLimit(0, 0, 10, 0.5, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new GradientLimit(20, 1, 10, 0.5, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new GradientLimit(5, 1, 10, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
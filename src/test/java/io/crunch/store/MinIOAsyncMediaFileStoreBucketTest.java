@@ -0,0 +1,64 @@
+package io.crunch.store;
+
+import io.crunch.bulkhead.Bulkheads;
+import io.crunch.loadtest.S3StubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.MinioAsyncClient;
+import io.quarkus.runtime.configuration.MemorySize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinIOAsyncMediaFileStoreBucketTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private S3StubServer stub;
+
+    private MinioAsyncClient client;
+
+    private Bulkheads bulkheads;
+
+    private MinIOAsyncMediaFileStore store;
+
+    @BeforeEach
+    void init() throws Exception {
+        stub = S3StubServer.start();
+        client = MinioAsyncClient.builder().endpoint(stub.getUrl()).credentials("access", "secret").region("us-east-1").build();
+        bulkheads = new Bulkheads(new SimpleMeterRegistry(), 1, 1, 1, 1, Optional.of(1), 1, 1, 1, 2, 2);
+        store = new MinIOAsyncMediaFileStore(client, "media", new MemorySize(BigInteger.valueOf(64 * 1024)), bulkheads);
+    }
+
+    @AfterEach
+    void close() {
+        stub.close();
+    }
+
+    @Test
+    void createBucketBeforeFirstOperation() throws Exception {
+        store.store("content".getBytes(), "file", "image/png").await().atMost(TIMEOUT);
+
+        assertThat(client.bucketExists(BucketExistsArgs.builder().bucket("media").build()).get()).isTrue();
+        assertThat(store.getFileSize("file").await().atMost(TIMEOUT)).isEqualTo(7);
+    }
+
+    @Test
+    void checkBucketOnlyOnce() {
+        store.bucketReady().await().atMost(TIMEOUT);
+        store.store("content".getBytes(), "file", "image/png").await().atMost(TIMEOUT);
+        var requests = stub.getRequestCount();
+
+        for (int i = 0; i < 3; i++) {
+            store.getFileSize("file").await().atMost(TIMEOUT);
+        }
+
+        assertThat(stub.getRequestCount() - requests).isEqualTo(3);
+    }
+}
@@ -0,0 +1,76 @@
+package io.crunch.store;
+
+import io.crunch.shared.MediaFileServerException;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.*;
+
+@QuarkusTest
+class MinIOAsyncMediaFileStoreTest {
+
+    @Inject
+    MinIOAsyncMediaFileStore mediaFileStore;
+
+    @Test
+    void failWhenFileDoesNotExist() {
+        var thrown = catchThrowable(() -> mediaFileStore.getFileSize("file-does-not-exist").await().indefinitely());
+        assertThat(thrown).isInstanceOf(MediaFileServerException.class).hasMessage("Error getting file size");
+    }
+
+    @Test
+    void storedFileShouldBeReadInChunks() throws Exception {
+        var path = getSampleMediaFile("/sample-video.mp4");
+        var fileName = "random-async-video-name";
+        mediaFileStore.store(path, fileName, "video/mp4").await().indefinitely();
+
+        var content = new ByteArrayOutputStream();
+        var chunks = mediaFileStore.read(fileName)
+                .invoke(content::writeBytes)
+                .collect().asList()
+                .await().indefinitely();
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(content.toByteArray()).isEqualTo(Files.readAllBytes(path));
+        assertThat(mediaFileStore.getFileSize(fileName).await().indefinitely()).isEqualTo(Files.size(path));
+    }
+
+    @Test
+    void rangeShouldBeRead() throws Exception {
+        var path = getSampleMediaFile("/sample-image.png");
+        var fileName = "random-async-image-name";
+        mediaFileStore.store(Files.readAllBytes(path), fileName, "image/png").await().indefinitely();
+
+        var content = new ByteArrayOutputStream();
+        mediaFileStore.read(fileName, 8, 16)
+                .subscribe().asStream()
+                .forEach(content::writeBytes);
+
+        assertThat(content.toByteArray()).isEqualTo(Arrays.copyOfRange(Files.readAllBytes(path), 8, 24));
+    }
+
+    @Test
+    void removedFileShouldNotBeFound() throws Exception {
+        var path = getSampleMediaFile("/sample-image.png");
+        var fileName = "random-removed-image-name";
+        mediaFileStore.store(path, fileName, "image/png")
+                .chain(() -> mediaFileStore.remove(fileName))
+                .await().indefinitely();
+
+        assertThatThrownBy(() -> mediaFileStore.getFileSize(fileName).await().indefinitely())
+                .isInstanceOf(MediaFileServerException.class);
+    }
+
+    private Path getSampleMediaFile(String path) throws URISyntaxException {
+        var url = MinIOAsyncMediaFileStoreTest.class.getResource(path);
+        return Path.of(Objects.requireNonNull(url).toURI());
+    }
+}
@@ -0,0 +1,78 @@
+package io.crunch.store;
+
+import io.crunch.shared.MediaFileServerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MinIOConcurrencyLimiterTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MinIOConcurrencyLimiter limiter = new MinIOConcurrencyLimiter(registry, true, 40, 4, 200, 10, Duration.ofMillis(10));
+
+    @Test
+    void halveLimitWhenRequestTimesOut() {
+        fail(new MediaFileServerException("Error reading file", new CompletionException(new SocketTimeoutException("timeout"))));
+        assertThat(getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void keepLimitWhenClientFails() {
+        fail(new MediaFileServerException("Error reading file", new IOException("Connection reset")));
+        fail(new MediaFileServerException("Multipart upload interrupted", new InterruptedException()));
+        fail(new MediaFileServerException("Error uploading part of media"));
+        assertThat(getLimit()).isEqualTo(40);
+    }
+
+    @Test
+    void notSampleLongRunningRequest() {
+        for (int i = 0; i < 20; i++) {
+            limiter.execute(() -> LockSupport.parkNanos(Duration.ofMillis(1).toNanos()));
+        }
+        var before = getLimit();
+        limiter.execute(() -> {
+            LockSupport.parkNanos(Duration.ofMillis(200).toNanos());
+            return null;
+        }, false);
+        assertThat(getLimit()).isEqualTo(before);
+    }
+
+    @Test
+    void releaseSlotOnlyOnce() {
+        var slot = limiter.acquire(false);
+        slot.release(null);
+        slot.release(null);
+        assertThat(registry.get("media.store.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void rejectRequestWhenLimitIsReached() {
+        var limiter = new MinIOConcurrencyLimiter(new SimpleMeterRegistry(), true, 1, 1, 1, 0, Duration.ofMillis(10));
+        var slot = limiter.acquire(false);
+        assertThatThrownBy(() -> limiter.execute(() -> "rejected"))
+                .isInstanceOf(MediaFileServerException.class)
+                .hasMessage("MinIO request queue is full");
+        slot.release(null);
+        assertThat(limiter.execute(() -> "executed")).isEqualTo("executed");
+    }
+
+    private void fail(RuntimeException failure) {
+        assertThatThrownBy(() -> limiter.execute(() -> {
+            throw failure;
+        }, true)).isSameAs(failure);
+    }
+
+    private int getLimit() {
+        return (int) registry.get("media.store.concurrency.limit").gauge().value();
+    }
+}
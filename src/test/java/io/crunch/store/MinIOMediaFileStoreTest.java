@@ -6,6 +6,7 @@ import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
 
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
@@ -33,6 +34,29 @@ class MinIOMediaFileStoreTest {
         }
     }
 
+    @Test
+    void validStreamShouldBeStored() throws Exception {
+        var path = getSampleMediaFile("/sample-image.png");
+        String fileName = "random-streamed-image-name";
+        try (var inputStream = Files.newInputStream(path)) {
+            mediaFileStore.store(inputStream, Files.size(path), fileName, "image/png", () -> {});
+        }
+        assertThat(mediaFileStore.getFileSize(fileName)).isEqualTo(Files.size(path));
+    }
+
+    @Test
+    void streamShouldBeDiscardedWhenVerificationFails() throws Exception {
+        var path = getSampleMediaFile("/sample-image.png");
+        String fileName = "random-rejected-image-name";
+        try (var inputStream = Files.newInputStream(path)) {
+            var thrown = catchThrowable(() -> mediaFileStore.store(inputStream, Files.size(path), fileName, "image/png", () -> {
+                throw new MediaFileServerException("Checksum mismatch");
+            }));
+            assertThat(thrown).isInstanceOf(MediaFileServerException.class).hasMessage("Checksum mismatch");
+        }
+        assertThatThrownBy(() -> mediaFileStore.getFileSize(fileName)).isInstanceOf(MediaFileServerException.class);
+    }
+
     private Path getSampleMediaFile(String path) throws URISyntaxException {
         var url = MinIOMediaFileStoreTest.class.getResource(path);
         return Path.of(Objects.requireNonNull(url).toURI());
@@ -0,0 +1,107 @@
+package io.crunch.store;
+
+import io.crunch.bulkhead.Bulkheads;
+import io.crunch.loadtest.S3StubServer;
+import io.crunch.shared.MediaFileServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioAsyncClient;
+import io.opentelemetry.api.OpenTelemetry;
+import io.quarkus.runtime.configuration.MemorySize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MinIOMediaFileStoreUploadTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    private static final byte[] CONTENT = new byte[2 * PART_SIZE + 1024];
+
+    static {
+        new Random(42).nextBytes(CONTENT);
+    }
+
+    private S3StubServer stub;
+
+    private MinIOMediaFileStore store;
+
+    @BeforeEach
+    void init() throws Exception {
+        stub = S3StubServer.start();
+        var client = MinioAsyncClient.builder().endpoint(stub.getUrl()).credentials("access", "secret").region("us-east-1").build();
+        var registry = new SimpleMeterRegistry();
+        var bulkheads = new Bulkheads(registry, 1, 1, 1, 1, Optional.of(1), 1, 1, 1, 2, 2);
+        var asyncStore = new MinIOAsyncMediaFileStore(client, "media", size(64 * 1024), bulkheads);
+        var limiter = new MinIOConcurrencyLimiter(registry, true, 20, 4, 200, 100, Duration.ofSeconds(1));
+        store = new MinIOMediaFileStore(asyncStore, limiter, size(PART_SIZE), 2, OpenTelemetry.noop().getTracer("test"));
+    }
+
+    @AfterEach
+    void close() {
+        stub.close();
+    }
+
+    @Test
+    void storeStreamOfKnownSizeInParts() throws IOException {
+        store.store(new ByteArrayInputStream(CONTENT), CONTENT.length, "known-size", "video/mp4", () -> {});
+
+        assertThat(read("known-size")).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void removeStreamOfKnownSizeWhenVerificationFails() {
+        assertThatThrownBy(() -> store.store(new ByteArrayInputStream(CONTENT), CONTENT.length, "rejected", "video/mp4", () -> {
+            throw new MediaFileServerException("Checksum mismatch");
+        })).isInstanceOf(MediaFileServerException.class).hasMessage("Checksum mismatch");
+
+        assertThatThrownBy(() -> store.getFileSize("rejected")).isInstanceOf(MediaFileServerException.class);
+    }
+
+    @Test
+    void storeStreamOfUnknownSizeInParts() throws IOException {
+        store.store(new ByteArrayInputStream(CONTENT), -1, "unknown-size", "video/mp4", () -> {});
+
+        assertThat(read("unknown-size")).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void abortStreamOfUnknownSizeWhenVerificationFails() {
+        assertThatThrownBy(() -> store.store(new ByteArrayInputStream(CONTENT), -1, "aborted", "video/mp4", () -> {
+            throw new MediaFileServerException("Checksum mismatch");
+        })).isInstanceOf(MediaFileServerException.class).hasMessage("Checksum mismatch");
+
+        assertThatThrownBy(() -> store.getFileSize("aborted")).isInstanceOf(MediaFileServerException.class);
+    }
+
+    @Test
+    void storeFile(@TempDir Path directory) throws IOException {
+        var path = Files.write(directory.resolve("upload"), CONTENT);
+
+        store.store(path, "file", "video/mp4");
+
+        assertThat(read("file")).isEqualTo(CONTENT);
+    }
+
+    private byte[] read(String fileName) throws IOException {
+        try (var inputStream = store.read(fileName)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static MemorySize size(long bytes) {
+        return new MemorySize(BigInteger.valueOf(bytes));
+    }
+}
@@ -0,0 +1,218 @@
+package io.crunch.viewer;
+
+import io.crunch.admission.AdmissionController;
+import io.crunch.bandwidth.BandwidthScheduler;
+import io.crunch.media.MediaFile;
+import io.crunch.media.MediaFiles;
+import io.crunch.store.MediaFileContentProvider;
+import io.crunch.store.MediaFileStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class MediaContentServletTest {
+
+    private static final String MEDIA_ID = "69I7Ky0oQlmOKauiUoPJ-Q";
+
+    private static final byte[] CONTENT = "content".getBytes();
+
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder().build();
+
+    private final TTLMediaRequestCache requestCache = new TTLMediaRequestCache();
+
+    private final MediaFiles mediaFiles = mock(MediaFiles.class);
+
+    private final MediaFileStore mediaFileStore = mock(MediaFileStore.class);
+
+    private AdmissionController admissionController;
+
+    private MediaContentServlet contentServlet;
+
+    @BeforeEach
+    void init() {
+        var registry = new SimpleMeterRegistry();
+        admissionController = new AdmissionController(registry, true, Optional.empty(), 20, 40, size(50 << 20),
+                size(600 << 20), 64, 128, Duration.ofMillis(500));
+        contentServlet = new MediaContentServlet(requestCache, mediaFiles, contentProvider(registry), admissionController,
+                new MediaRequestTracing(tracerProvider.get("test")));
+        when(mediaFileStore.getFileSize(anyString())).thenReturn((long) CONTENT.length);
+        when(mediaFileStore.read(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT));
+    }
+
+    @AfterEach
+    void close() {
+        admissionController.shutdown();
+        requestCache.shutdown();
+        tracerProvider.close();
+    }
+
+    @Test
+    void streamContentOfMediaFileOfToken() throws IOException {
+        mediaFile("video/mp4");
+        requestCache.putMediaId("token", MEDIA_ID);
+        var content = new ByteArrayOutputStream();
+        var response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(outputStream(content));
+
+        contentServlet.doGet(request("token"), response);
+
+        assertThat(content.toByteArray()).isEqualTo(CONTENT);
+        verify(response).setContentType("video/mp4");
+        verify(response).setContentLengthLong(CONTENT.length);
+        verify(response, never()).sendError(anyInt());
+    }
+
+    @Test
+    void forbidSharedCachingOfContent() throws IOException {
+        mediaFile("image/png");
+        requestCache.putMediaId("token", MEDIA_ID);
+        var response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(outputStream(new ByteArrayOutputStream()));
+
+        contentServlet.doGet(request("token"), response);
+
+        verify(response).setHeader("Cache-Control", "private, no-cache");
+    }
+
+    @Test
+    void rejectTokenOfAnotherMediaFile() throws IOException {
+        mediaFile("image/png");
+        requestCache.putMediaId("token", "another-media-id");
+        var response = mock(HttpServletResponse.class);
+
+        contentServlet.doGet(request("token"), response);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+        verify(response, never()).getOutputStream();
+        verifyNoInteractions(mediaFileStore);
+    }
+
+    @Test
+    void rejectUnknownToken() throws IOException {
+        mediaFile("image/png");
+        var response = mock(HttpServletResponse.class);
+
+        contentServlet.doGet(request("unknown-token"), response);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+        verifyNoInteractions(mediaFileStore);
+    }
+
+    @Test
+    void rejectRequestWithoutCookies() throws IOException {
+        mediaFile("image/png");
+        var request = mock(HttpServletRequest.class);
+        when(request.getParameter(MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER)).thenReturn(MEDIA_ID);
+        var response = mock(HttpServletResponse.class);
+
+        contentServlet.doGet(request, response);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    void rejectRemovedMediaFile() throws IOException {
+        when(mediaFiles.getByMediaId(MEDIA_ID)).thenReturn(Optional.empty());
+        requestCache.putMediaId("token", MEDIA_ID);
+        var response = mock(HttpServletResponse.class);
+
+        contentServlet.doGet(request("token"), response);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+        verifyNoInteractions(mediaFileStore);
+    }
+
+    @Test
+    void rejectContentExceedingByteRateOfClient() throws IOException {
+        var registry = new SimpleMeterRegistry();
+        admissionController.shutdown();
+        admissionController = new AdmissionController(registry, true, Optional.empty(), 20, 40, size(1),
+                size(CONTENT.length + 1), 64, 128, Duration.ofMillis(500));
+        contentServlet = new MediaContentServlet(requestCache, mediaFiles, contentProvider(registry), admissionController,
+                new MediaRequestTracing(tracerProvider.get("test")));
+        mediaFile("image/png");
+        requestCache.putMediaId("token", MEDIA_ID);
+        requestCache.putMediaId("another-token", MEDIA_ID);
+        var response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(outputStream(new ByteArrayOutputStream()));
+        contentServlet.doGet(request("token"), response);
+        var rejected = mock(HttpServletResponse.class);
+
+        contentServlet.doGet(request("another-token"), rejected);
+
+        verify(rejected).sendError(eq(429), anyString());
+        verify(rejected).setHeader(eq("Retry-After"), anyString());
+        verify(rejected, never()).getOutputStream();
+    }
+
+    private static HttpServletRequest request(String token) {
+        var request = mock(HttpServletRequest.class);
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie(MediaViewerRequestParameters.TOKEN_COOKIE_NAME, token)});
+        when(request.getParameter(MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER)).thenReturn(MEDIA_ID);
+        when(request.getRemoteAddr()).thenReturn("127.0.0.1");
+        return request;
+    }
+
+    private MediaFileContentProvider contentProvider(SimpleMeterRegistry registry) {
+        var bandwidthScheduler = new BandwidthScheduler(registry, false, size(100 << 20), size(20 << 20), size(40 << 20),
+                size(1 << 20), size(256 << 10), 8, 8, 2, 1);
+        return new MediaFileContentProvider(mediaFileStore, bandwidthScheduler, registry, tracerProvider.get("test"),
+                size(64 << 10), size(1 << 20));
+    }
+
+    private void mediaFile(String mediaType) {
+        var mediaFile = new MediaFile();
+        mediaFile.setMediaId(MEDIA_ID);
+        mediaFile.setObjectName(MEDIA_ID);
+        mediaFile.setMediaType(mediaType);
+        when(mediaFiles.getByMediaId(MEDIA_ID)).thenReturn(Optional.of(mediaFile));
+    }
+
+    private static ServletOutputStream outputStream(ByteArrayOutputStream out) {
+        return new ServletOutputStream() {
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    private static MemorySize size(long bytes) {
+        return new MemorySize(BigInteger.valueOf(bytes));
+    }
+}
@@ -0,0 +1,91 @@
+package io.crunch.viewer;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class MediaRequestTracingTest {
+
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder().build();
+
+    private final Tracer tracer = tracerProvider.get("test");
+
+    private final MediaRequestTracing tracing = new MediaRequestTracing(tracer);
+
+    @AfterEach
+    void close() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void startContentRequestInTraceOfPage() {
+        var page = tracing.startDispatch();
+        var response = mock(HttpServletResponse.class);
+        tracing.addTraceCookie(response, page);
+        page.end();
+        var traceCookie = new Cookie(MediaViewerRequestParameters.TRACE_COOKIE_NAME, traceCookieValue(response));
+        var request = mock(HttpServletRequest.class);
+        when(request.getCookies()).thenReturn(new Cookie[]{traceCookie});
+
+        var server = tracer.spanBuilder("server").startSpan();
+        Span content;
+        try (var scope = server.makeCurrent()) {
+            content = tracing.startContentRequest(request);
+        }
+        content.end();
+        server.end();
+
+        var readable = (ReadableSpan) content;
+        assertThat(readable.getSpanContext().getTraceId()).isEqualTo(page.getSpanContext().getTraceId());
+        assertThat(readable.getParentSpanContext().getSpanId()).isEqualTo(page.getSpanContext().getSpanId());
+        assertThat(readable.toSpanData().getLinks()).extracting(link -> link.getSpanContext().getSpanId())
+                .containsExactly(server.getSpanContext().getSpanId());
+    }
+
+    @Test
+    void startContentRequestInCurrentTraceWithoutPage() {
+        var request = mock(HttpServletRequest.class);
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie(MediaViewerRequestParameters.TOKEN_COOKIE_NAME, "token")});
+
+        var server = tracer.spanBuilder("server").startSpan();
+        Span content;
+        try (var scope = server.makeCurrent()) {
+            content = tracing.startContentRequest(request);
+        }
+        content.end();
+        server.end();
+
+        var readable = (ReadableSpan) content;
+        assertThat(readable.getParentSpanContext().getSpanId()).isEqualTo(server.getSpanContext().getSpanId());
+        assertThat(readable.toSpanData().getLinks()).isEmpty();
+    }
+
+    @Test
+    void notRecordToken() {
+        var page = tracing.startDispatch();
+        var response = mock(HttpServletResponse.class);
+        tracing.addTraceCookie(response, page);
+        page.end();
+
+        assertThat(traceCookieValue(response)).matches("00-" + page.getSpanContext().getTraceId() + "-" + page.getSpanContext().getSpanId() + "-01");
+        assertThat(((ReadableSpan) page).toSpanData().getAttributes().asMap()).isEmpty();
+    }
+
+    private static String traceCookieValue(HttpServletResponse response) {
+        var header = ArgumentCaptor.forClass(String.class);
+        verify(response).addHeader(eq("Set-Cookie"), header.capture());
+        var cookie = header.getValue();
+        assertThat(cookie).startsWith(MediaViewerRequestParameters.TRACE_COOKIE_NAME + "=");
+        return cookie.substring(cookie.indexOf('=') + 1, cookie.indexOf(';'));
+    }
+}
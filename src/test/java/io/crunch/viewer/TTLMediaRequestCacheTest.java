@@ -0,0 +1,99 @@
+package io.crunch.viewer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class TTLMediaRequestCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private TTLMediaRequestCache cache;
+
+    @AfterEach
+    void shutdown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void countHitsAndMisses() {
+        newCache(Duration.ofMinutes(1));
+        cache.putMediaId("token", "media-1");
+
+        assertThat(cache.getMediaId("token")).isEqualTo("media-1");
+        assertThat(cache.getMediaId("token")).isEqualTo("media-1");
+        assertThat(cache.getMediaId("unknown")).isNull();
+
+        assertThat(requests("hit")).isEqualTo(2);
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(expirations()).isZero();
+        assertThat(size()).isEqualTo(1);
+    }
+
+    @Test
+    void countLookupOfExpiredTokenAsMiss() throws InterruptedException {
+        newCache(Duration.ofMillis(1));
+        cache.putMediaId("token", "media-1");
+
+        // Longer than the TTL, shorter than the first cleanup
+        Thread.sleep(50);
+
+        assertThat(cache.getMediaId("token")).isNull();
+        assertThat(requests("hit")).isZero();
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(expirations()).isEqualTo(1);
+        assertThat(size()).isZero();
+    }
+
+    @Test
+    void removeExpiredTokensInBackground() {
+        newCache(Duration.ofMillis(1));
+        cache.putMediaId("token", "media-1");
+        cache.putMediaId("other-token", "media-2");
+        assertThat(size()).isEqualTo(2);
+
+        await().atMost(Duration.ofSeconds(3)).untilAsserted(() -> assertThat(expirations()).isEqualTo(2));
+
+        assertThat(size()).isZero();
+        assertThat(requests("miss")).isZero();
+        assertThat(cache.isValidToken("token")).isFalse();
+    }
+
+    @Test
+    void removeTokensOfMediaFile() {
+        newCache(Duration.ofMinutes(1));
+        cache.putMediaId("token", "media-1");
+        cache.putMediaId("another-token", "media-1");
+        cache.putMediaId("other-token", "media-2");
+
+        cache.removeMediaId("media-1");
+
+        assertThat(cache.isValidToken("token")).isFalse();
+        assertThat(cache.isValidToken("another-token")).isFalse();
+        assertThat(cache.getMediaId("other-token")).isEqualTo("media-2");
+        assertThat(size()).isEqualTo(1);
+        assertThat(expirations()).isZero();
+    }
+
+    private void newCache(Duration ttl) {
+        cache = new TTLMediaRequestCache(ttl.toMillis());
+        cache.bindTo(registry);
+    }
+
+    private double requests(String result) {
+        return registry.get("media.request.cache.requests").tag("result", result).functionCounter().count();
+    }
+
+    private double expirations() {
+        return registry.get("media.request.cache.expirations").functionCounter().count();
+    }
+
+    private double size() {
+        return registry.get("media.request.cache.size").gauge().value();
+    }
+}
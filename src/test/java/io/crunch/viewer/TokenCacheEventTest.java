@@ -0,0 +1,60 @@
+package io.crunch.viewer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenCacheEventTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordOperationsWithoutToken() throws IOException {
+        var cache = new TTLMediaRequestCache();
+        var file = directory.resolve("cache.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("io.crunch.TokenCache");
+            recording.start();
+            cache.putMediaId("token", "media-1");
+            cache.getMediaId("token");
+            cache.getMediaId("unknown");
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            cache.shutdown();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("io.crunch.TokenCache"))
+                .toList();
+        assertThat(events).extracting(event -> event.getString("operation")).containsExactly("put", "get", "get");
+        assertThat(events).extracting(event -> event.getBoolean("hit")).containsExactly(true, true, false);
+        assertThat(events.getFirst().getInt("size")).isEqualTo(1);
+        assertThat(events).allSatisfy(event -> assertThat(event.getFields()).noneMatch(field -> field.getName().equals("token")));
+    }
+
+    @Test
+    void notRecordWhenDisabled() throws IOException {
+        var cache = new TTLMediaRequestCache();
+        var file = directory.resolve("disabled.jfr");
+        try (var recording = new Recording()) {
+            recording.start();
+            cache.putMediaId("token", "media-1");
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            cache.shutdown();
+        }
+
+        assertThat(RecordingFile.readAllEvents(file)).noneMatch(event -> event.getEventType().getName().equals("io.crunch.TokenCache"));
+    }
+}
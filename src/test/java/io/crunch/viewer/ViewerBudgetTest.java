@@ -0,0 +1,223 @@
+package io.crunch.viewer;
+
+import io.crunch.admission.AdmissionController;
+import io.crunch.bandwidth.BandwidthScheduler;
+import io.crunch.media.CountingMediaFiles;
+import io.crunch.media.MediaFile;
+import io.crunch.media.MediaFiles;
+import io.crunch.shared.AllocationMeter;
+import io.crunch.store.CountingMediaFileStore;
+import io.crunch.store.MediaFileContentProvider;
+import io.crunch.store.MediaFileStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.quarkus.vertx.http.runtime.CurrentVertxRequest;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Allocation and round trip budgets of the media views.
+ * <p>
+ * The content of every {@code /media} page is resolved by the {@link MediaContentServlet}, when the browser requests
+ * the content of the page. The allocations of the resolution are measured without the allocations of its
+ * collaborators, the mocked request, database and store; the budgets are about twice the values measured on JDK 21.
+ * The database and the store are wrapped by counting decorators, and the whole view, from the dispatch to the last
+ * byte of the content, must not make more round trips than today; the audio page also shows the size of the audio file.
+ * The behavior of the content requests is tested by {@link MediaContentServletTest}.
+ * </p>
+ */
+class ViewerBudgetTest {
+
+    private static final String MEDIA_ID = "69I7Ky0oQlmOKauiUoPJ-Q";
+
+    private static final byte[] CONTENT = "content".getBytes();
+
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder().build();
+
+    private final MediaRequestTracing tracing = new MediaRequestTracing(tracerProvider.get("test"));
+
+    // The measured operations run longer than the default TTL of the tokens
+    private final TTLMediaRequestCache requestCache = new TTLMediaRequestCache(Duration.ofMinutes(5).toMillis());
+
+    private final MediaFiles mediaFilesDelegate = mock(MediaFiles.class);
+
+    private final MediaFileStore mediaFileStoreDelegate = mock(MediaFileStore.class);
+
+    private final CountingMediaFiles mediaFiles = new CountingMediaFiles(mediaFilesDelegate);
+
+    private final CountingMediaFileStore mediaFileStore = new CountingMediaFileStore(mediaFileStoreDelegate);
+
+    private AdmissionController admissionController;
+
+    private MediaContentServlet contentServlet;
+
+    @BeforeEach
+    void init() {
+        var registry = new SimpleMeterRegistry();
+        var bandwidthScheduler = new BandwidthScheduler(registry, false, size(100 << 20), size(20 << 20), size(40 << 20),
+                size(1 << 20), size(256 << 10), 8, 8, 2, 1);
+        var contentProvider = new MediaFileContentProvider(mediaFileStore, bandwidthScheduler, registry, tracerProvider.get("test"),
+                size(64 << 10), size(1 << 20));
+        admissionController = new AdmissionController(registry, true, Optional.of("X-Forwarded-For"), 20, 40, size(50 << 20),
+                size(600 << 20), 64, 128, Duration.ofMillis(500));
+        contentServlet = new MediaContentServlet(requestCache, mediaFiles, contentProvider, admissionController, tracing);
+        when(mediaFileStoreDelegate.getFileSize(anyString())).thenReturn((long) CONTENT.length);
+        when(mediaFileStoreDelegate.read(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT));
+    }
+
+    @AfterEach
+    void close() {
+        admissionController.shutdown();
+        requestCache.shutdown();
+        tracerProvider.close();
+    }
+
+    @Test
+    void getMediaIdAllocatesWithinBudget() {
+        requestCache.putMediaId("token", MEDIA_ID);
+
+        assertThat(AllocationMeter.bytesPerOperation(() -> requestCache.getMediaId("token"))).isLessThanOrEqualTo(96);
+    }
+
+    @Test
+    void isValidTokenAllocatesWithinBudget() {
+        requestCache.putMediaId("token", MEDIA_ID);
+
+        assertThat(AllocationMeter.bytesPerOperation(() -> requestCache.isValidToken("token"))).isLessThanOrEqualTo(1024);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"image/png", "video/mp4", "audio/mpeg", "application/pdf"})
+    void contentAllocatesWithinBudget(String mediaType) {
+        mediaFile(mediaType);
+        requestCache.putMediaId("token", MEDIA_ID);
+        var request = contentRequest("token");
+
+        var collaborators = AllocationMeter.bytesPerOperation(() -> {
+            request.getCookies();
+            request.getParameter(MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER);
+            mediaFilesDelegate.getByMediaId(MEDIA_ID);
+            return mediaFileStoreDelegate.getFileSize(MEDIA_ID);
+        });
+        var content = AllocationMeter.bytesPerOperation(() -> contentServlet.resolve(request, "127.0.0.1"));
+
+        assertThat(content - collaborators).isLessThanOrEqualTo(1536);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"image/png", "video/mp4", "audio/mpeg", "application/pdf"})
+    void mediaViewRoundTripsWithinBudget(String mediaType) throws Exception {
+        mediaFile(mediaType);
+        var dispatcher = new MediaViewerDispatcher(mediaFiles, mediaFileStore, requestCache, tracing, new ViewerPreloads(mock(CurrentVertxRequest.class), true));
+        var request = mock(HttpServletRequest.class);
+        var response = mock(HttpServletResponse.class);
+        when(request.getParameter(MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER)).thenReturn(MEDIA_ID);
+        when(request.getContextPath()).thenReturn("");
+        // The page of the viewer only renders the content URL, it does not look up the media file
+        dispatcher.init(servletConfig(() -> { }));
+
+        dispatcher.doGet(request, response);
+
+        // The browser requests the content of the page with the token cookie of the page
+        var contentResponse = mock(HttpServletResponse.class);
+        when(contentResponse.getOutputStream()).thenReturn(outputStream(OutputStream.nullOutputStream()));
+        contentServlet.doGet(contentRequest(tokenCookie(response)), contentResponse);
+
+        assertThat(mediaFiles.getCalls()).as("database round trips").isLessThanOrEqualTo(2);
+        assertThat(mediaFileStore.getCalls()).as("store round trips").isLessThanOrEqualTo(mediaType.startsWith("audio/") ? 3 : 2);
+        assertThat(mediaFileStore.getCalls("read")).as("store reads").isEqualTo(1);
+    }
+
+    private static HttpServletRequest contentRequest(String token) {
+        var request = mock(HttpServletRequest.class);
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie(MediaViewerRequestParameters.TOKEN_COOKIE_NAME, token)});
+        when(request.getParameter(MediaViewerRequestParameters.MEDIA_ID_QUERY_PARAMETER)).thenReturn(MEDIA_ID);
+        when(request.getRemoteAddr()).thenReturn("127.0.0.1");
+        return request;
+    }
+
+    private static ServletOutputStream outputStream(OutputStream out) {
+        return new ServletOutputStream() {
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    private void mediaFile(String mediaType) {
+        var mediaFile = new MediaFile();
+        mediaFile.setMediaId(MEDIA_ID);
+        mediaFile.setObjectName(MEDIA_ID);
+        mediaFile.setMediaType(mediaType);
+        when(mediaFilesDelegate.getByMediaId(MEDIA_ID)).thenReturn(Optional.of(mediaFile));
+    }
+
+    private static ServletConfig servletConfig(Runnable render) throws Exception {
+        var requestDispatcher = mock(RequestDispatcher.class);
+        doAnswer(invocation -> {
+            render.run();
+            return null;
+        }).when(requestDispatcher).forward(any(), any());
+        var servletContext = mock(ServletContext.class);
+        when(servletContext.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
+        var servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(servletContext);
+        return servletConfig;
+    }
+
+    private static String tokenCookie(HttpServletResponse response) {
+        var headers = ArgumentCaptor.forClass(String.class);
+        verify(response, atLeastOnce()).addHeader(eq("Set-Cookie"), headers.capture());
+        return headers.getAllValues().stream()
+                .filter(header -> header.startsWith(MediaViewerRequestParameters.TOKEN_COOKIE_NAME + "="))
+                .map(header -> header.substring(header.indexOf('=') + 1, header.indexOf(';')))
+                .findFirst().orElseThrow();
+    }
+
+    private static MemorySize size(long bytes) {
+        return new MemorySize(BigInteger.valueOf(bytes));
+    }
+}
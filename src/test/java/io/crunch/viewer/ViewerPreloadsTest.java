@@ -0,0 +1,126 @@
+package io.crunch.viewer;
+
+import io.quarkus.vertx.http.runtime.CurrentVertxRequest;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ViewerPreloadsTest {
+
+    private static final String SCRIPT = ViewerPreloads.link("/jakarta.faces.resource/core.js.xhtml?ln=primefaces", "script");
+
+    private static final String STYLE = ViewerPreloads.link("/jakarta.faces.resource/components.css.xhtml?ln=primefaces", "style");
+
+    private static final String CONTENT = ViewerPreloads.link(ViewerUrls.getContentUrl("69I7Ky0oQlmOKauiUoPJ-Q"), "image");
+
+    private final CurrentVertxRequest currentRequest = mock(CurrentVertxRequest.class);
+
+    private final HttpServerResponse vertxResponse = mock(HttpServerResponse.class);
+
+    @Test
+    void announceOnlyContentBeforeFirstRender() {
+        connection(HttpVersion.HTTP_2);
+        var preloads = new ViewerPreloads(currentRequest, true);
+        var response = mock(HttpServletResponse.class);
+
+        preloads.announce("/view/image.xhtml", CONTENT, response);
+
+        verify(response).addHeader("Link", CONTENT);
+        verifyNoMoreInteractions(response);
+        var hints = ArgumentCaptor.forClass(MultiMap.class);
+        verify(vertxResponse).writeEarlyHints(hints.capture());
+        assertThat(hints.getValue().getAll("Link")).containsExactly(CONTENT);
+        assertThat(CONTENT).isEqualTo("</media/content?m=69I7Ky0oQlmOKauiUoPJ-Q>; rel=preload; as=image");
+    }
+
+    @Test
+    void announceRecordedResourcesWithEarlyHintsOverHttp2() {
+        connection(HttpVersion.HTTP_2);
+        var preloads = new ViewerPreloads(currentRequest, true);
+        preloads.record("/view/image.xhtml", List.of(SCRIPT, STYLE));
+        preloads.record("/view/image.xhtml", List.of());
+        var response = mock(HttpServletResponse.class);
+
+        preloads.announce("/view/image.xhtml", CONTENT, response);
+
+        verify(response).addHeader("Link", CONTENT);
+        verify(response).addHeader("Link", SCRIPT);
+        verify(response).addHeader("Link", STYLE);
+        var hints = ArgumentCaptor.forClass(MultiMap.class);
+        verify(vertxResponse).writeEarlyHints(hints.capture());
+        assertThat(hints.getValue().getAll("Link")).containsExactly(CONTENT, SCRIPT, STYLE);
+        assertThat(SCRIPT).isEqualTo("</jakarta.faces.resource/core.js.xhtml?ln=primefaces>; rel=preload; as=script");
+    }
+
+    @Test
+    void announceWithoutEarlyHintsOverHttp1() {
+        connection(HttpVersion.HTTP_1_1);
+        var preloads = new ViewerPreloads(currentRequest, true);
+        preloads.record("/view/video.xhtml", List.of(SCRIPT));
+        var response = mock(HttpServletResponse.class);
+
+        preloads.announce("/view/video.xhtml", CONTENT, response);
+
+        verify(response).addHeader("Link", CONTENT);
+        verify(response).addHeader("Link", SCRIPT);
+        verify(vertxResponse, never()).writeEarlyHints(any(MultiMap.class));
+    }
+
+    @Test
+    void announceWithoutEarlyHintsWhenDisabled() {
+        connection(HttpVersion.HTTP_2);
+        var preloads = new ViewerPreloads(currentRequest, false);
+        preloads.record("/view/pdf.xhtml", List.of(SCRIPT));
+        var response = mock(HttpServletResponse.class);
+
+        preloads.announce("/view/pdf.xhtml", CONTENT, response);
+
+        verify(response).addHeader("Link", CONTENT);
+        verify(response).addHeader("Link", SCRIPT);
+        verify(vertxResponse, never()).writeEarlyHints(any(MultiMap.class));
+    }
+
+    @Test
+    void announceNothingForVideoBeforeFirstRender() {
+        connection(HttpVersion.HTTP_2);
+        var preloads = new ViewerPreloads(currentRequest, true);
+        var response = mock(HttpServletResponse.class);
+
+        preloads.announce("/view/video.xhtml", ViewerPreloads.contentLink(ViewerUrls.getContentUrl("69I7Ky0oQlmOKauiUoPJ-Q"), "video/mp4"), response);
+
+        verifyNoInteractions(response);
+        verify(vertxResponse, never()).writeEarlyHints(any(MultiMap.class));
+    }
+
+    @Test
+    void preloadOnlyImageAndDocumentContent() {
+        var path = ViewerUrls.getContentUrl("69I7Ky0oQlmOKauiUoPJ-Q");
+
+        assertThat(ViewerPreloads.contentLink(path, "image/png")).isEqualTo(CONTENT);
+        assertThat(ViewerPreloads.contentLink(path, "application/pdf"))
+                .isEqualTo("</media/content?m=69I7Ky0oQlmOKauiUoPJ-Q>; rel=preload; as=fetch; crossorigin");
+        assertThat(ViewerPreloads.contentLink(path, "video/mp4")).isNull();
+        assertThat(ViewerPreloads.contentLink(path, "audio/mpeg")).isNull();
+    }
+
+    private void connection(HttpVersion version) {
+        var context = mock(RoutingContext.class);
+        var request = mock(HttpServerRequest.class);
+        when(currentRequest.getCurrent()).thenReturn(context);
+        when(context.request()).thenReturn(request);
+        when(context.response()).thenReturn(vertxResponse);
+        when(request.version()).thenReturn(version);
+        when(vertxResponse.writeEarlyHints(any(MultiMap.class))).thenReturn(Future.succeededFuture());
+    }
+}
@@ -0,0 +1,50 @@
+package io.crunch.warmup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencySettlingTest {
+
+    @Test
+    void notSettledBeforeMinRounds() {
+        var settling = new LatencySettling(20, 0.1);
+        for (int i = 0; i < 19; i++) {
+            assertThat(settling.add(1_000)).isFalse();
+        }
+        assertThat(settling.add(1_000)).isTrue();
+    }
+
+    @Test
+    void notSettledWhileLatencyFalls() {
+        var settling = new LatencySettling(10, 0.1);
+        long latency = 100_000;
+        for (int i = 0; i < 30; i++) {
+            assertThat(settling.add(latency)).isFalse();
+            latency = latency * 4 / 5;
+        }
+    }
+
+    @Test
+    void settledWhenLatencyStopsFalling() {
+        var settling = new LatencySettling(10, 0.1);
+        for (long latency : new long[]{50_000, 20_000, 9_000, 5_000, 3_000, 2_000, 1_500, 1_200, 1_100, 1_000}) {
+            assertThat(settling.add(latency)).isFalse();
+        }
+        int rounds = 0;
+        while (!settling.add(1_000 + (rounds % 2) * 50)) {
+            rounds++;
+        }
+        assertThat(rounds).isLessThan(2 * LatencySettling.WINDOW);
+        assertThat(settling.getFirst()).isEqualTo(50_000);
+    }
+
+    @Test
+    void useAtLeastTwoWindows() {
+        var settling = new LatencySettling(1, 0.1);
+        for (int i = 1; i < 2 * LatencySettling.WINDOW; i++) {
+            assertThat(settling.add(1_000)).isFalse();
+        }
+        assertThat(settling.add(1_000)).isTrue();
+    }
+}
@@ -0,0 +1,37 @@
+package io.crunch.warmup;
+
+import io.crunch.media.MediaFiles;
+import io.crunch.store.MediaFileStore;
+import io.quarkus.runtime.configuration.MemorySize;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class WarmUpReadinessCheckTest {
+
+    @Test
+    void downWhileWarmUpRuns() {
+        var check = new WarmUpReadinessCheck(warmUp(true));
+
+        var response = check.call();
+        assertThat(response.getStatus()).isEqualTo(HealthCheckResponse.Status.DOWN);
+        assertThat(response.getData()).hasValueSatisfying(data -> assertThat(data).containsEntry("state", "running"));
+    }
+
+    @Test
+    void upWhenWarmUpIsDisabled() {
+        var check = new WarmUpReadinessCheck(warmUp(false));
+
+        assertThat(check.call().getStatus()).isEqualTo(HealthCheckResponse.Status.UP);
+    }
+
+    private static MediaWarmUp warmUp(boolean enabled) {
+        return new MediaWarmUp(mock(MediaFiles.class), mock(MediaFileStore.class), enabled, 4, 20, 0.1, Duration.ofSeconds(60),
+                new MemorySize(BigInteger.valueOf(1024)), 8080);
+    }
+}